@@ -1,13 +1,22 @@
 package org.example.client;
 
 import org.example.client.gui.LoginWindow;
+import org.example.common.model.User;
+import org.example.common.query.OrderBySpec;
+import org.example.common.query.WorkerField;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerQueryParser;
 import org.example.common.model.Worker;
 import org.example.common.request.CommandRequest;
 import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
 
 import javax.swing.*;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.util.*;
 
 public class Client {
@@ -17,9 +26,10 @@ public class Client {
     private final Set<String> executingScripts = new HashSet<>();
     private final List<String> commandHistory = new ArrayList<>();
     private static final int HISTORY_SIZE = 15;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
 
     private String currentUsername = null;
-    private String currentPassword = null;
+    private String currentSessionToken = null;
     private boolean isAuthenticated = false;
 
     public Client() {
@@ -63,6 +73,11 @@ public class Client {
                 continue;
             }
 
+            if (commandName.equalsIgnoreCase("servers")) {
+                System.out.print(networkManager.getStatus());
+                continue;
+            }
+
             if (commandName.equalsIgnoreCase("register") || commandName.equalsIgnoreCase("login")) {
                 processAuthCommand(commandName, argsString);
                 continue;
@@ -80,6 +95,10 @@ public class Client {
                     continue;
                 }
                 executeScript(argsString);
+            } else if (commandName.equals("import_csv")) {
+                importCsv(argsString);
+            } else if (commandName.equals("export")) {
+                exportCollection(argsString);
             } else {
                 processAndSendCommand(line, globalInputHandler, false);
             }
@@ -113,9 +132,9 @@ public class Client {
             System.out.println(response.getMessage());
             System.out.println("---------------------\n");
             if (response.isSuccess()) {
-                if (commandName.equalsIgnoreCase("login")) {
+                if (commandName.equalsIgnoreCase("login") && response.getResultData() instanceof User user) {
                     currentUsername = tempUsername;
-                    currentPassword = tempPassword;
+                    currentSessionToken = user.getSessionToken();
                     isAuthenticated = true;
                 } else if (commandName.equalsIgnoreCase("register")) {
                     System.out.println(
@@ -198,11 +217,131 @@ public class Client {
                         return;
                     }
                     break;
+                case "query":
+                    try {
+                        argument = WorkerQueryParser.parse(argsString);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка в условии 'query'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "remove_where":
+                    try {
+                        argument = WorkerQueryParser.parse(argsString);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка в условии 'remove_where'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "update_where":
+                    int setIndex = argsString != null ? indexOfKeywordOutsideQuotes(argsString, "set") : -1;
+                    if (setIndex < 0) {
+                        System.out.println("Ошибка: Использование: update_where <условие> set <изменения>.");
+                        return;
+                    }
+                    try {
+                        argument = new Object[] { WorkerQueryParser.parse(argsString.substring(0, setIndex)),
+                                WorkerPatch.parse(argsString.substring(setIndex + "set".length())) };
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка ввода для 'update_where'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "aggregate":
+                    if (argsString == null) {
+                        System.out.println("Ошибка: Укажите группировку для 'aggregate': position или organization_type.");
+                        return;
+                    }
+                    argument = argsString.trim();
+                    break;
+                case "top_k":
+                    String[] topArgs = argsString != null ? argsString.trim().split("\\s+") : new String[0];
+                    if (topArgs.length != 2) {
+                        System.out.println("Ошибка: Использование: top_k <поле> <k>.");
+                        return;
+                    }
+                    try {
+                        argument = new Object[] { WorkerField.fromKey(topArgs[0]),
+                                Math.toIntExact(inputHandler.parseLong(topArgs[1], "k")) };
+                    } catch (IllegalArgumentException | ArithmeticException e) {
+                        System.out.println("Ошибка ввода для 'top_k'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "search_name":
+                    if (argsString == null || argsString.isBlank()) {
+                        System.out.println("Ошибка: Использование: search_name <текст> [limit].");
+                        return;
+                    }
+                    String searchText = argsString.trim();
+                    int searchLimit = DEFAULT_SEARCH_LIMIT;
+                    int lastSpace = searchText.lastIndexOf(' ');
+                    if (lastSpace > 0 && searchText.substring(lastSpace + 1).matches("\\d+")) {
+                        try {
+                            searchLimit = Math.toIntExact(inputHandler.parseLong(searchText.substring(lastSpace + 1), "limit"));
+                        } catch (IllegalArgumentException | ArithmeticException e) {
+                            System.out.println("Ошибка ввода для 'search_name'" + (fromScript ? " в скрипте" : "") + ": "
+                                    + e.getMessage());
+                            return;
+                        }
+                        searchText = searchText.substring(0, lastSpace).trim();
+                    }
+                    argument = new Object[] { searchText, searchLimit };
+                    break;
+                case "employed_during":
+                    String[] periodArgs = argsString != null ? argsString.trim().split("\\s+") : new String[0];
+                    if (periodArgs.length != 2) {
+                        System.out.println("Ошибка: Использование: employed_during <с> <по>.");
+                        return;
+                    }
+                    try {
+                        argument = new Object[] { inputHandler.parseInstant(periodArgs[0], "начала периода", false),
+                                inputHandler.parseInstant(periodArgs[1], "конца периода", true) };
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка ввода для 'employed_during'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "employed_at":
+                    try {
+                        argument = inputHandler.parseInstant(argsString, "момента", false);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка ввода для 'employed_at'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "ending_within":
+                    try {
+                        argument = Math.toIntExact(inputHandler.parseLong(argsString, "Количество дней"));
+                    } catch (IllegalArgumentException | ArithmeticException e) {
+                        System.out.println("Ошибка ввода для 'ending_within'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "order_by":
+                    try {
+                        argument = OrderBySpec.parse(argsString);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Ошибка ввода для 'order_by'" + (fromScript ? " в скрипте" : "") + ": "
+                                + e.getMessage());
+                        return;
+                    }
+                    break;
+                case "salary_stats":
+                    argument = argsString != null ? argsString.trim() : null;
+                    break;
                 default:
                     break;
             }
 
-            CommandRequest request = new CommandRequest(commandName, argument, currentUsername, currentPassword);
+            CommandRequest request = CommandRequest.withSession(commandName, argument, currentSessionToken);
             Optional<CommandResponse> responseOpt = networkManager.sendRequest(request);
 
             if (responseOpt.isPresent()) {
@@ -228,14 +367,17 @@ public class Client {
                 if (!response.isSuccess() && (response.getMessage() == null || response.getMessage().isEmpty())) {
                     System.out.println("Команда не выполнена успешно (дополнительных сообщений нет).");
                 }
-                if (!response.isSuccess() && response.getMessage() != null &&
-                        (response.getMessage().contains("Ошибка аутентификации")
-                                || response.getMessage().contains("доступ запрещен"))) {
+                if (response.getOutcome() == OperationOutcome.UNAUTHORIZED) {
                     isAuthenticated = false;
                     currentUsername = null;
-                    currentPassword = null;
+                    currentSessionToken = null;
                     System.out.println("Сессия сброшена из-за ошибки аутентификации.");
                 }
+                if (response.isSuccess() && commandName.equals("logout")) {
+                    isAuthenticated = false;
+                    currentUsername = null;
+                    currentSessionToken = null;
+                }
                 System.out.println("---------------------\n");
             } else {
                 System.out.println("\n--- Ошибка Сети ---");
@@ -244,7 +386,7 @@ public class Client {
                 System.out.println("Попробуйте войти снова, если проблема не устранена.");
                 isAuthenticated = false;
                 currentUsername = null;
-                currentPassword = null;
+                currentSessionToken = null;
                 System.out.println("-------------------\n");
             }
 
@@ -256,6 +398,68 @@ public class Client {
         }
     }
 
+    /**
+     * Ищет отдельное слово {@code keyword} вне кавычек без учёта регистра.
+     *
+     * @return Позиция начала слова или -1.
+     */
+    private static int indexOfKeywordOutsideQuotes(String text, String keyword) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (text.regionMatches(true, i, keyword, 0, keyword.length())
+                    && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))
+                    && (i + keyword.length() == text.length() || Character.isWhitespace(text.charAt(i + keyword.length())))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void importCsv(String filePath) {
+        if (filePath == null || filePath.isBlank()) {
+            System.out.println("Ошибка: Не указано имя файла для import_csv.");
+            return;
+        }
+        try {
+            new CsvImporter(networkManager, currentSessionToken).importFile(Path.of(filePath.trim()));
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Ошибка: Не удается прочитать CSV-файл " + filePath + ": " + e.getMessage());
+        }
+    }
+
+    private void exportCollection(String argsString) {
+        String[] exportArgs = argsString != null ? argsString.trim().split("\\s+") : new String[0];
+        if (exportArgs.length == 0 || exportArgs[0].isEmpty()) {
+            System.out.println("Ошибка: Использование: export <файл> [csv|ndjson] [gzip].");
+            return;
+        }
+        CollectionExporter.Format format = CollectionExporter.Format.CSV;
+        boolean gzip = false;
+        for (int i = 1; i < exportArgs.length; i++) {
+            switch (exportArgs[i].toLowerCase()) {
+                case "csv" -> format = CollectionExporter.Format.CSV;
+                case "ndjson" -> format = CollectionExporter.Format.NDJSON;
+                case "gzip" -> gzip = true;
+                default -> {
+                    System.out.println("Ошибка: Неизвестный параметр '" + exportArgs[i] + "'. Использование: export <файл> [csv|ndjson] [gzip].");
+                    return;
+                }
+            }
+        }
+        try {
+            new CollectionExporter(networkManager, currentSessionToken).export(Path.of(exportArgs[0]), format, gzip);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Ошибка выгрузки в " + exportArgs[0] + ": " + e.getMessage());
+        }
+    }
+
     private void executeScript(String filePath) {
         File scriptFile = new File(filePath);
         String absolutePath = scriptFile.getAbsolutePath();
@@ -318,6 +522,12 @@ public class Client {
                     } else {
                         System.out.println("Ошибка в скрипте: Не указано имя файла для вложенного execute_script.");
                     }
+                } else if (commandNameOnly.equals("import_csv")) {
+                    String[] parts = scriptLine.split("\\s+", 2);
+                    importCsv(parts.length > 1 ? parts[1] : null);
+                } else if (commandNameOnly.equals("export")) {
+                    String[] parts = scriptLine.split("\\s+", 2);
+                    exportCollection(parts.length > 1 ? parts[1] : null);
                 } else {
                     processAndSendCommand(scriptLine, scriptInputHandler, true);
                 }
@@ -343,7 +553,7 @@ public class Client {
         }
 
         SwingUtilities.invokeLater(() -> {
-            NetworkManager networkManager = new NetworkManager("localhost", 12345);
+            NetworkManager networkManager = new NetworkManager();
 
             LoginWindow loginWindow = new LoginWindow(networkManager);
             loginWindow.setVisible(true);
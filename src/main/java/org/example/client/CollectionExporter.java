@@ -0,0 +1,182 @@
+package org.example.client;
+
+import org.example.common.model.Worker;
+import org.example.common.request.CommandRequest;
+import org.example.common.response.CommandResponse;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Выгрузка коллекции в файл командой 'show_page': работники запрашиваются страницами по
+ * {@link #PAGE_SIZE} в порядке ID и сразу дописываются в файл, поэтому в памяти клиента
+ * находится не больше одной страницы.
+ * <p>
+ * CSV записывается в формате data.txt и читается обратно командой 'import_csv'; в NDJSON
+ * каждая строка - объект JSON одного работника, включая ID владельца.
+ */
+public class CollectionExporter {
+    private static final int PAGE_SIZE = 5_000;
+    private static final String CSV_HEADER = "id,name,coordinates_x,coordinates_y,creationDate,salary,startDate,endDate,"
+            + "position,organization_annualTurnover,organization_type";
+
+    private final NetworkManager networkManager;
+    private final String sessionToken;
+
+    public CollectionExporter(NetworkManager networkManager, String sessionToken) {
+        this.networkManager = networkManager;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Выгружает коллекцию и печатает количество работников, размер файла и скорость.
+     *
+     * @throws IOException если файл не записан или сервер не вернул очередную страницу;
+     *                     записанная часть файла при этом остаётся.
+     */
+    public void export(Path file, Format format, boolean gzip) throws IOException {
+        long start = System.nanoTime();
+        long exported = 0;
+        long afterId = 0;
+        try (OutputStream out = Files.newOutputStream(file);
+             Writer writer = new BufferedWriter(new OutputStreamWriter(
+                     gzip ? new GZIPOutputStream(out, 1 << 16) : out, StandardCharsets.UTF_8), 1 << 16)) {
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            while (true) {
+                List<Worker> page = fetchPage(afterId);
+                for (Worker worker : page) {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, worker);
+                    } else {
+                        writeJson(writer, worker);
+                    }
+                }
+                exported += page.size();
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        }
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        long bytes = Files.size(file);
+        System.out.printf("Выгружено работников: %d в %s (%.1f МБ) за %.1f с (%.0f работников/с, %.1f МБ/с).%n",
+                exported, file, bytes / 1048576.0, seconds, exported / seconds, bytes / 1048576.0 / seconds);
+    }
+
+    private List<Worker> fetchPage(long afterId) throws IOException {
+        CommandRequest request = CommandRequest.withSession("show_page", new Object[]{afterId, PAGE_SIZE}, sessionToken);
+        Optional<CommandResponse> response = networkManager.sendRequest(request);
+        if (response.isEmpty()) {
+            throw new IOException("нет ответа от сервера");
+        }
+        if (!response.get().isSuccess() || !(response.get().getResultData() instanceof List<?> page)) {
+            throw new IOException(response.get().getMessage());
+        }
+        @SuppressWarnings("unchecked")
+        List<Worker> workers = (List<Worker>) page;
+        return workers;
+    }
+
+    private static void writeCsv(Writer writer, Worker worker) throws IOException {
+        writer.write(String.valueOf(worker.getId()));
+        writer.write(',');
+        writer.write(quoteCsv(worker.getName()));
+        writer.write(',');
+        writer.write(String.valueOf(worker.getCoordinates().getX()));
+        writer.write(',');
+        writer.write(String.valueOf(worker.getCoordinates().getY()));
+        writer.write(',');
+        writer.write(worker.getCreationDate().toString());
+        writer.write(',');
+        writer.write(worker.getSalary() != null ? worker.getSalary().toString() : "");
+        writer.write(',');
+        writer.write(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(worker.getStartDate()));
+        writer.write(',');
+        writer.write(worker.getEndDate() != null ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(worker.getEndDate()) : "");
+        writer.write(',');
+        writer.write(worker.getPosition() != null ? worker.getPosition().name() : "");
+        writer.write(',');
+        Integer turnover = worker.getOrganization().getAnnualTurnover();
+        writer.write(turnover != null ? turnover.toString() : "");
+        writer.write(',');
+        writer.write(worker.getOrganization().getType().name());
+        writer.write('\n');
+    }
+
+    private static String quoteCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeJson(Writer writer, Worker worker) throws IOException {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"id\":").append(worker.getId())
+                .append(",\"name\":");
+        appendJsonString(json, worker.getName());
+        json.append(",\"coordinates\":{\"x\":").append(worker.getCoordinates().getX())
+                .append(",\"y\":").append(worker.getCoordinates().getY())
+                .append("},\"creationDate\":\"").append(worker.getCreationDate())
+                .append("\",\"salary\":").append(worker.getSalary())
+                .append(",\"startDate\":\"").append(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(worker.getStartDate()))
+                .append("\",\"endDate\":");
+        if (worker.getEndDate() != null) {
+            json.append('"').append(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(worker.getEndDate())).append('"');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"position\":");
+        if (worker.getPosition() != null) {
+            json.append('"').append(worker.getPosition().name()).append('"');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"organization\":{\"annualTurnover\":").append(worker.getOrganization().getAnnualTurnover())
+                .append(",\"type\":\"").append(worker.getOrganization().getType().name())
+                .append("\"},\"ownerId\":").append(worker.getOwnerId())
+                .append("}\n");
+        writer.append(json);
+    }
+
+    private static void appendJsonString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+}
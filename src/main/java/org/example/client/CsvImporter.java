@@ -0,0 +1,256 @@
+package org.example.client;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.common.request.CommandRequest;
+import org.example.common.response.CommandResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Загрузка работников из CSV-файла в формате data.txt командой 'add_batch'.
+ * <p>
+ * Файл читается потоком по {@link #BATCH_SIZE} строк; каждый пакет разбирается в пуле потоков
+ * теми же проверками, что и в конструкторах {@link Worker}, {@link Coordinates} и
+ * {@link Organization}, и отправляется на сервер одним запросом. Одновременно в разборе
+ * и отправке находится не больше {@link #MAX_IN_FLIGHT} пакетов, поэтому память не зависит
+ * от размера файла. ID и дата создания из файла не используются: их назначает сервер.
+ */
+public class CsvImporter {
+    private static final int BATCH_SIZE = 5_000;
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final int MAX_PRINTED_ERRORS = 50;
+    private static final int COLUMN_COUNT = 11;
+
+    private final NetworkManager networkManager;
+    private final String sessionToken;
+    private final ConcurrentLinkedQueue<RowError> errors = new ConcurrentLinkedQueue<>();
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CsvImporter(NetworkManager networkManager, String sessionToken) {
+        this.networkManager = networkManager;
+        this.sessionToken = sessionToken;
+    }
+
+    /**
+     * Загружает файл и печатает итог: сколько строк добавлено, скорость и ошибки по строкам.
+     */
+    public void importFile(Path file) throws IOException {
+        long start = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService parsePool = Executors.newFixedThreadPool(threads, daemon("CsvParseThread"));
+        ExecutorService uploadPool = Executors.newFixedThreadPool(MAX_IN_FLIGHT, daemon("CsvUploadThread"));
+        Semaphore window = new Semaphore(MAX_IN_FLIGHT);
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            long lineNumber = 1;
+            if (line != null && line.startsWith("id,")) {
+                line = reader.readLine();
+                lineNumber++;
+            }
+            List<Row> batch = new ArrayList<>(BATCH_SIZE);
+            while (line != null) {
+                if (!line.isBlank()) {
+                    batch.add(new Row(lineNumber, line));
+                    rows++;
+                }
+                if (batch.size() == BATCH_SIZE) {
+                    submit(batch, parsePool, uploadPool, window);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+                line = reader.readLine();
+                lineNumber++;
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, parsePool, uploadPool, window);
+            }
+            window.acquireUninterruptibly(MAX_IN_FLIGHT);
+        } finally {
+            parsePool.shutdownNow();
+            uploadPool.shutdownNow();
+        }
+        report(rows, System.nanoTime() - start);
+    }
+
+    /**
+     * Отправляет пакет строк на разбор и загрузку; ждёт, если в работе уже {@link #MAX_IN_FLIGHT} пакетов.
+     */
+    private void submit(List<Row> batch, ExecutorService parsePool, ExecutorService uploadPool, Semaphore window) {
+        window.acquireUninterruptibly();
+        CompletableFuture.supplyAsync(() -> parse(batch), parsePool)
+                .thenAcceptAsync(this::upload, uploadPool)
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        errors.add(new RowError(batch.get(0).number(), "Пакет не загружен: " + e.getMessage()));
+                    }
+                    window.release();
+                });
+    }
+
+    private List<Worker> parse(List<Row> batch) {
+        List<Worker> workers = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            try {
+                workers.add(parseWorker(row.text()));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                rejected.incrementAndGet();
+                errors.add(new RowError(row.number(), e.getMessage()));
+            }
+        }
+        return workers;
+    }
+
+    private void upload(List<Worker> workers) {
+        if (workers.isEmpty()) {
+            return;
+        }
+        CommandRequest request = CommandRequest.withSession("add_batch", workers.toArray(new Worker[0]), sessionToken);
+        Optional<CommandResponse> response = networkManager.sendRequest(request);
+        if (response.isPresent() && response.get().isSuccess()) {
+            added.addAndGet(workers.size());
+        } else {
+            rejected.addAndGet(workers.size());
+            errors.add(new RowError(-1, "Пакет из " + workers.size() + " строк не добавлен: "
+                    + response.map(CommandResponse::getMessage).orElse("нет ответа от сервера")));
+        }
+    }
+
+    /**
+     * Разбирает строку id,name,coordinates_x,coordinates_y,creationDate,salary,startDate,endDate,
+     * position,organization_annualTurnover,organization_type. Пустое поле означает отсутствие значения.
+     */
+    static Worker parseWorker(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != COLUMN_COUNT) {
+            throw new IllegalArgumentException("Ожидалось " + COLUMN_COUNT + " полей, найдено " + fields.size());
+        }
+        Coordinates coordinates = new Coordinates(parseNumber(fields.get(2), "coordinates_x", Float::valueOf),
+                parseNumber(fields.get(3), "coordinates_y", Double::valueOf));
+        Long salary = parseNumber(fields.get(5), "salary", Long::valueOf);
+        String startDate = fields.get(6);
+        if (startDate.isEmpty()) {
+            throw new IllegalArgumentException("Дата начала работы не может быть null");
+        }
+        String endDate = fields.get(7);
+        String position = fields.get(8);
+        String organizationType = fields.get(10);
+        if (organizationType.isEmpty()) {
+            throw new IllegalArgumentException("Тип организации не может быть null");
+        }
+        Organization organization = new Organization(parseNumber(fields.get(9), "organization_annualTurnover", Integer::valueOf),
+                parseEnum(OrganizationType.class, organizationType));
+        return new Worker(fields.get(1), coordinates, salary, LocalDateTime.parse(startDate),
+                endDate.isEmpty() ? null : ZonedDateTime.parse(endDate),
+                position.isEmpty() ? null : parseEnum(Position.class, position), organization);
+    }
+
+    private static <T> T parseNumber(String text, String field, Function<String, T> parser) {
+        if (text.isEmpty()) {
+            return null;
+        }
+        try {
+            return parser.apply(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное число в поле " + field + ": '" + text + "'");
+        }
+    }
+
+    private static <T extends Enum<T>> T parseEnum(Class<T> enumClass, String text) {
+        try {
+            return Enum.valueOf(enumClass, text.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестное значение " + enumClass.getSimpleName() + ": '" + text + "'");
+        }
+    }
+
+    /**
+     * Делит строку CSV на поля; поле в двойных кавычках может содержать запятые, а кавычка
+     * внутри него записывается двумя кавычками.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(COLUMN_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void report(long rows, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        System.out.printf("Строк в файле: %d, добавлено: %d, отклонено: %d за %.1f с (%.0f строк/с).%n",
+                rows, added.get(), rejected.get(), seconds, rows / seconds);
+        if (errors.isEmpty()) {
+            return;
+        }
+        List<RowError> sorted = new ArrayList<>(errors);
+        sorted.sort(Comparator.comparingLong(RowError::line));
+        System.out.println("Ошибки (" + sorted.size() + "):");
+        sorted.stream().limit(MAX_PRINTED_ERRORS).forEach(error -> System.out.println(
+                (error.line() > 0 ? "  строка " + error.line() + ": " : "  ") + error.message()));
+        if (sorted.size() > MAX_PRINTED_ERRORS) {
+            System.out.println("  ... и ещё " + (sorted.size() - MAX_PRINTED_ERRORS));
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong counter = new AtomicLong();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private record Row(long number, String text) {
+    }
+
+    private record RowError(long line, String message) {
+    }
+}
@@ -1,16 +1,56 @@
 package org.example.client;
 
+import org.example.common.model.User;
 import org.example.common.request.CommandRequest;
 import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Отправка команд на один или несколько серверов (ведущий и ведомые).
+ * <p>
+ * Сервер для запроса выбирается из двух случайных доступных по меньшему числу незавершённых
+ * запросов, а при равенстве - по среднему времени ответа. Сервер, который дважды подряд не ответил,
+ * исключается на время, растущее с каждым исключением; фоновая проверка командой 'ping' возвращает
+ * его, как только он снова отвечает. Команды чтения ({@link CommandRequest#isReadOnly()}) при
+ * ошибке повторяются на другом сервере, а если задана задержка дублирования, то после неё
+ * дублируются на второй сервер и берётся первый ответ. Команды изменения повторяются, только если
+ * запрос не дошёл до сервера или ведомый ответил {@link OperationOutcome#UNAVAILABLE} (не передал
+ * команду ведущему), чтобы не выполнить их дважды; ответ {@link OperationOutcome#OUTCOME_UNKNOWN}
+ * для них возвращается как есть.
+ * <p>
+ * Сессию знают только выдавший её сервер и его ведомые. Если другой сервер отвечает на команду
+ * с токеном {@link OperationOutcome#UNAUTHORIZED}, команда не выполнялась и повторяется один раз
+ * на сервере, выдавшем сессию. Проверка доступности сравнивает группы серверов по эпохе версии
+ * коллекции и предупреждает, если в SERVERS указаны серверы разных групп.
+ */
 public class NetworkManager {
     private static final String SERVER_ADDRESS_DEFAULT = "localhost";
     private static final int SERVER_PORT_DEFAULT = 12345;
@@ -18,70 +58,103 @@ public class NetworkManager {
     private static final int RESPONSE_TIMEOUT_MS = 15000;
     private static final int MAX_CONNECTION_ATTEMPTS = 3;
     private static final long RETRY_DELAY_MS = 3000;
+    private static final long HEALTH_CHECK_INTERVAL_MS = 5000;
+    private static final int HEALTH_CHECK_TIMEOUT_MS = 1000;
+    private static final int FAILURES_BEFORE_EJECTION = 2;
+    private static final long MIN_EJECTION_MS = 2000;
+    private static final long MAX_EJECTION_MS = 30000;
 
-    private final String serverHost;
-    private final int serverPort;
-    private Socket socket;
-    private ObjectOutputStream oos;
-    private ObjectInputStream ois;
+    private final List<Endpoint> endpoints;
+    private final long hedgeDelayMillis;
+    private final ExecutorService hedgePool;
+    private final ScheduledExecutorService healthChecker;
+    // Сервер, выдавший сессию, по её токену.
+    private final Map<String, Endpoint> sessionIssuers = new ConcurrentHashMap<>();
+    private boolean mixedGroupsSeen;
+    private boolean mixedGroupsReported;
 
+    /**
+     * Серверы из переменной окружения SERVERS (host:port через запятую), иначе localhost:12345.
+     * Задержка дублирования чтений в миллисекундах берётся из HEDGE_AFTER_MS (по умолчанию
+     * дублирования нет).
+     */
     public NetworkManager() {
-        this(SERVER_ADDRESS_DEFAULT, SERVER_PORT_DEFAULT);
+        this(parseEndpoints(Optional.ofNullable(System.getenv("SERVERS")).filter(s -> !s.isBlank())
+                        .orElse(SERVER_ADDRESS_DEFAULT + ":" + SERVER_PORT_DEFAULT)),
+                Duration.ofMillis(parseHedgeDelay(System.getenv("HEDGE_AFTER_MS"))));
     }
 
     public NetworkManager(String host, int port) {
-        this.serverHost = host;
-        this.serverPort = port;
+        this(List.of(InetSocketAddress.createUnresolved(host, port)), Duration.ZERO);
     }
 
-    public Optional<CommandResponse> sendRequest(CommandRequest request) {
-        Socket socket = null;
-        ObjectOutputStream oos = null;
-        ObjectInputStream ois = null;
+    /**
+     * @param hedgeDelay Через сколько без ответа команда чтения дублируется на другой сервер;
+     *                   {@link Duration#ZERO} - не дублировать.
+     */
+    public NetworkManager(List<InetSocketAddress> addresses, Duration hedgeDelay) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("Нужен хотя бы один адрес сервера");
+        }
+        this.endpoints = addresses.stream().map(Endpoint::new).toList();
+        this.hedgeDelayMillis = hedgeDelay.toMillis();
+        if (endpoints.size() > 1) {
+            hedgePool = Executors.newCachedThreadPool(daemon("RequestHedgeThread"));
+            healthChecker = Executors.newSingleThreadScheduledExecutor(daemon("ServerHealthCheckThread"));
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, HEALTH_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } else {
+            hedgePool = null;
+            healthChecker = null;
+        }
+    }
 
-        for (int attempt = 1; attempt <= MAX_CONNECTION_ATTEMPTS; attempt++) {
+    /**
+     * Разбирает список адресов вида "host:port,host:port"; порт по умолчанию - 12345.
+     *
+     * @throws IllegalArgumentException если список пуст или порт некорректен.
+     */
+    public static List<InetSocketAddress> parseEndpoints(String text) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String part : text.split(",")) {
+            String address = part.trim();
+            if (address.isEmpty()) {
+                continue;
+            }
+            int separator = address.lastIndexOf(':');
             try {
-                System.out.println("Попытка подключения и отправки запроса '" + request.getCommandName() + "' (попытка " + attempt + "/" + MAX_CONNECTION_ATTEMPTS + ")...");
-                socket = new Socket();
-                socket.connect(new InetSocketAddress(serverHost, serverPort), CONNECTION_TIMEOUT_MS);
-                socket.setSoTimeout(RESPONSE_TIMEOUT_MS);
-
-                oos = new ObjectOutputStream(socket.getOutputStream());
-                System.out.println("Отправка запроса '" + request.getCommandName() + "' на сервер...");
-                oos.writeObject(request);
-                oos.flush();
-                System.out.println("Запрос отправлен. Ожидание ответа от сервера...");
-
-                ois = new ObjectInputStream(socket.getInputStream());
-                CommandResponse response = (CommandResponse) ois.readObject();
-                System.out.println("Ответ от сервера получен.");
-                return Optional.of(response);
-
-            } catch (SocketTimeoutException e) {
-                System.err.println("Таймаут при обмене данными с сервером (попытка " + attempt + "): " + e.getMessage());
-            } catch (IOException e) {
-                System.err.println("Ошибка ввода-вывода при обмене данными с сервером (попытка " + attempt + "): " + e.getMessage());
-            } catch (ClassNotFoundException e) {
-                System.err.println("Ошибка: не удалось десериализовать ответ от сервера: " + e.getMessage());
-            } finally {
-                try {
-                    if (ois != null) ois.close();
-                } catch (IOException ignored) {
-                }
-                try {
-                    if (oos != null) oos.close();
-                } catch (IOException ignored) {
-                }
-                try {
-                    if (socket != null && !socket.isClosed()) socket.close();
-                } catch (IOException ignored) {
-                }
-                ois = null;
-                oos = null;
-                socket = null;
+                addresses.add(separator < 0 ? InetSocketAddress.createUnresolved(address, SERVER_PORT_DEFAULT)
+                        : InetSocketAddress.createUnresolved(address.substring(0, separator),
+                        Integer.parseInt(address.substring(separator + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Некорректный адрес сервера '" + address + "'");
             }
+        }
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("Список серверов пуст");
+        }
+        return addresses;
+    }
+
+    private static long parseHedgeDelay(String text) {
+        if (text == null || text.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(text.trim()));
+        } catch (NumberFormatException e) {
+            System.err.println("Некорректное значение HEDGE_AFTER_MS '" + text + "', дублирование запросов отключено.");
+            return 0;
+        }
+    }
 
-            if (attempt < MAX_CONNECTION_ATTEMPTS) {
+    public Optional<CommandResponse> sendRequest(CommandRequest request) {
+        boolean readOnly = request.isReadOnly();
+        int attempts = Math.max(MAX_CONNECTION_ATTEMPTS, endpoints.size());
+        Set<Endpoint> tried = new HashSet<>();
+        for (int attempt = 1; attempt <= attempts; attempt++) {
+            Endpoint endpoint = choose(tried);
+            if (endpoint == null) {
+                // Все серверы уже пробовали в этом запросе: пауза и новый круг.
                 System.out.println("Следующая попытка через " + (RETRY_DELAY_MS / 1000) + " сек.");
                 try {
                     Thread.sleep(RETRY_DELAY_MS);
@@ -90,37 +163,348 @@ public class NetworkManager {
                     Thread.currentThread().interrupt();
                     return Optional.empty();
                 }
+                tried.clear();
+                endpoint = choose(tried);
+            }
+            tried.add(endpoint);
+            System.out.println("Попытка отправки запроса '" + request.getCommandName() + "' на " + endpoint
+                    + " (попытка " + attempt + "/" + attempts + ")...");
+            Attempt result = readOnly && hedgeDelayMillis > 0 && endpoints.size() > 1
+                    ? sendHedged(request, endpoint, tried)
+                    : new Exchange(endpoint, request, RESPONSE_TIMEOUT_MS).call();
+            if (result.response() != null) {
+                OperationOutcome outcome = result.response().getOutcome();
+                // UNAVAILABLE: ведомый не передал команду ведущему; OUTCOME_UNKNOWN: передал, но ответа нет.
+                if ((outcome == OperationOutcome.UNAVAILABLE || readOnly && outcome == OperationOutcome.OUTCOME_UNKNOWN)
+                        && attempt < attempts) {
+                    System.err.println("Сервер " + result.endpoint() + ": " + result.response().getMessage());
+                    continue;
+                }
+                if (outcome == OperationOutcome.OUTCOME_UNKNOWN) {
+                    System.err.println("Запрос '" + request.getCommandName() + "' мог быть выполнен сервером, поэтому не повторяется.");
+                }
+                if (outcome == OperationOutcome.UNAUTHORIZED) {
+                    result = retryOnSessionIssuer(request, result);
+                }
+                trackSession(request, result);
+                return Optional.ofNullable(result.response());
+            }
+            System.err.println(result.error());
+            if (!readOnly && result.sent()) {
+                System.err.println("Запрос '" + request.getCommandName() + "' мог быть выполнен сервером, поэтому не повторяется.");
+                return Optional.empty();
             }
         }
-        System.err.println("Не удалось отправить запрос и получить ответ от сервера " + serverHost + ":" + serverPort + " после " + MAX_CONNECTION_ATTEMPTS + " попыток.");
+        System.err.println("Не удалось отправить запрос и получить ответ ни от одного сервера " + endpoints + " после "
+                + attempts + " попыток.");
         return Optional.empty();
     }
 
+    /**
+     * Повторяет команду, отклонённую из-за неизвестной сессии, на сервере, выдавшем сессию, если
+     * отклонил другой сервер.
+     */
+    private Attempt retryOnSessionIssuer(CommandRequest request, Attempt rejected) {
+        String token = request.getSessionToken();
+        Endpoint issuer = token != null ? sessionIssuers.get(token) : null;
+        if (issuer == null || issuer == rejected.endpoint()) {
+            return rejected;
+        }
+        System.out.println("Сервер " + rejected.endpoint() + " не знает сессию, запрос '" + request.getCommandName()
+                + "' повторяется на выдавшем её сервере " + issuer + ".");
+        Attempt retried = new Exchange(issuer, request, RESPONSE_TIMEOUT_MS).call();
+        if (retried.response() == null) {
+            System.err.println(retried.error());
+        }
+        return retried;
+    }
 
-    public void closeConnection() {
-        closeResources();
+    private void trackSession(CommandRequest request, Attempt result) {
+        CommandResponse response = result.response();
+        if (response == null) {
+            return;
+        }
+        String commandName = request.getCommandName();
+        if ("login".equalsIgnoreCase(commandName) && response.isSuccess()
+                && response.getResultData() instanceof User user && user.getSessionToken() != null) {
+            sessionIssuers.put(user.getSessionToken(), result.endpoint());
+        } else if (request.getSessionToken() != null && (("logout".equalsIgnoreCase(commandName) && response.isSuccess())
+                || response.getOutcome() == OperationOutcome.UNAUTHORIZED)) {
+            sessionIssuers.remove(request.getSessionToken());
+        }
     }
 
-    private void closeResources() {
+    /**
+     * Отправляет чтение на {@code first}, а если ответа нет дольше {@link #hedgeDelayMillis}, то ещё
+     * и на другой сервер. Возвращает первый ответ; второй запрос прерывается.
+     */
+    private Attempt sendHedged(CommandRequest request, Endpoint first, Set<Endpoint> tried) {
+        Exchange primary = new Exchange(first, request, RESPONSE_TIMEOUT_MS);
+        CompletableFuture<Attempt> primaryResult = CompletableFuture.supplyAsync(primary::call, hedgePool);
         try {
-            if (ois != null) ois.close();
-        } catch (IOException ignored) {
+            return primaryResult.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Дальше - дублирование.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primary.cancel();
+            return new Attempt(first, null, false, "Ожидание ответа прервано.");
+        } catch (ExecutionException e) {
+            return new Attempt(first, null, false, "Ошибка при обмене данными с сервером " + first + ": " + e.getCause());
         }
-        try {
-            if (oos != null) oos.close();
-        } catch (IOException ignored) {
+        Endpoint second = choose(tried);
+        if (second == null) {
+            return primaryResult.join();
         }
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-                System.out.println("Соединение с сервером закрыто клиентом.");
+        tried.add(second);
+        System.out.println("Сервер " + first + " не ответил за " + hedgeDelayMillis + " мс, запрос продублирован на " + second + ".");
+        Exchange backup = new Exchange(second, request, RESPONSE_TIMEOUT_MS);
+        CompletableFuture<Attempt> backupResult = CompletableFuture.supplyAsync(backup::call, hedgePool);
+        CompletableFuture<Attempt> winner = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(2);
+        for (CompletableFuture<Attempt> result : List.of(primaryResult, backupResult)) {
+            result.thenAccept(attempt -> {
+                if (attempt.response() != null || pending.decrementAndGet() == 0) {
+                    winner.complete(attempt);
+                }
+            });
+        }
+        Attempt attempt = winner.join();
+        primary.cancel();
+        backup.cancel();
+        return attempt;
+    }
+
+    /**
+     * Выбирает из двух случайных доступных серверов, которые ещё не пробовали в этом запросе,
+     * менее загруженный. Если доступных нет, выбирает среди исключённых.
+     *
+     * @return Сервер или null, если все уже пробовали.
+     */
+    private Endpoint choose(Set<Endpoint> excluded) {
+        long now = System.currentTimeMillis();
+        List<Endpoint> candidates = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!excluded.contains(endpoint) && endpoint.isAvailable(now)) {
+                candidates.add(endpoint);
             }
-        } catch (IOException e) {
-            System.err.println("Ошибка при закрытии сокета клиентом: " + e.getMessage());
-        } finally {
-            ois = null;
-            oos = null;
-            socket = null;
+        }
+        if (candidates.isEmpty()) {
+            for (Endpoint endpoint : endpoints) {
+                if (!excluded.contains(endpoint)) {
+                    candidates.add(endpoint);
+                }
+            }
+        }
+        if (candidates.size() <= 1) {
+            return candidates.isEmpty() ? null : candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(candidates.size());
+        int j = random.nextInt(candidates.size() - 1);
+        Endpoint a = candidates.get(i);
+        Endpoint b = candidates.get(j >= i ? j + 1 : j);
+        return a.isLessLoadedThan(b) ? a : b;
+    }
+
+    private void checkHealth() {
+        Map<Long, List<Endpoint>> groups = new TreeMap<>();
+        for (Endpoint endpoint : endpoints) {
+            boolean wasAvailable = endpoint.isAvailable(System.currentTimeMillis());
+            Attempt result = new Exchange(endpoint, new CommandRequest("ping", null), HEALTH_CHECK_TIMEOUT_MS).call();
+            if (result.response() != null) {
+                if (!wasAvailable) {
+                    System.out.println("Сервер " + endpoint + " снова доступен.");
+                }
+                if (result.response().getCollectionVersion() != null) {
+                    groups.computeIfAbsent(result.response().getCollectionVersion().epoch(), epoch -> new ArrayList<>())
+                            .add(endpoint);
+                }
+            } else {
+                endpoint.eject(System.currentTimeMillis());
+            }
+        }
+        reportMixedGroups(groups);
+    }
+
+    /**
+     * Предупреждает, если серверы дважды подряд оказались в разных группах: одна проверка может
+     * застать ведомый, ещё не получивший снимок от ведущего.
+     */
+    private void reportMixedGroups(Map<Long, List<Endpoint>> groups) {
+        boolean mixed = groups.size() > 1;
+        if (mixed && mixedGroupsSeen && !mixedGroupsReported) {
+            System.err.println("Предупреждение: серверы " + groups.values() + " не являются одним ведущим и его ведомыми. "
+                    + "Сессия действует только на выдавшем её сервере, команды с другими серверами будут повторяться на нём.");
+            mixedGroupsReported = true;
+        } else if (!mixed) {
+            mixedGroupsReported = false;
+        }
+        mixedGroupsSeen = mixed;
+    }
+
+    /**
+     * @return Состояние серверов: доступность, незавершённые запросы и среднее время ответа.
+     */
+    public String getStatus() {
+        long now = System.currentTimeMillis();
+        StringBuilder status = new StringBuilder();
+        for (Endpoint endpoint : endpoints) {
+            status.append(endpoint).append(": ").append(endpoint.describe(now)).append('\n');
+        }
+        return status.toString();
+    }
+
+    public void closeConnection() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        if (hedgePool != null) {
+            hedgePool.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * @param sent true, если запрос полностью отправлен и сервер мог его выполнить.
+     */
+    private record Attempt(Endpoint endpoint, CommandResponse response, boolean sent, String error) {
+    }
+
+    /**
+     * Один обмен запрос-ответ; соединение можно закрыть из другого потока, если ответ уже не нужен.
+     */
+    private final class Exchange {
+        private final Endpoint endpoint;
+        private final CommandRequest request;
+        private final int timeoutMillis;
+        private volatile Socket socket;
+        private volatile boolean cancelled;
+
+        private Exchange(Endpoint endpoint, CommandRequest request, int timeoutMillis) {
+            this.endpoint = endpoint;
+            this.request = request;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        private Attempt call() {
+            boolean sent = false;
+            long start = System.nanoTime();
+            endpoint.inFlight.incrementAndGet();
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                if (cancelled) {
+                    return new Attempt(endpoint, null, false, "Запрос отменён.");
+                }
+                connection.connect(new InetSocketAddress(endpoint.address.getHostString(), endpoint.address.getPort()),
+                        Math.min(CONNECTION_TIMEOUT_MS, timeoutMillis));
+                connection.setSoTimeout(timeoutMillis);
+                ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                oos.writeObject(request);
+                oos.flush();
+                sent = true;
+                ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(connection.getInputStream()));
+                CommandResponse response = (CommandResponse) ois.readObject();
+                endpoint.succeeded(System.nanoTime() - start);
+                return new Attempt(endpoint, response, true, null);
+            } catch (SocketTimeoutException e) {
+                return failed(sent, "Таймаут при обмене данными с сервером " + endpoint + ": " + e.getMessage());
+            } catch (IOException e) {
+                return failed(sent, "Ошибка ввода-вывода при обмене данными с сервером " + endpoint + ": " + e.getMessage());
+            } catch (ClassNotFoundException | ClassCastException e) {
+                return failed(sent, "Ошибка: не удалось десериализовать ответ от сервера " + endpoint + ": " + e.getMessage());
+            } finally {
+                endpoint.inFlight.decrementAndGet();
+            }
+        }
+
+        private Attempt failed(boolean sent, String error) {
+            // Единственный сервер не исключается: выбирать всё равно не из чего.
+            if (!cancelled && endpoints.size() > 1) {
+                endpoint.failed(System.currentTimeMillis());
+            }
+            return new Attempt(endpoint, null, sent, cancelled ? "Запрос отменён." : error);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Socket connection = socket;
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static final class Endpoint {
+        private final InetSocketAddress address;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private int consecutiveFailures;
+        private long ejectedUntil;
+        private long ejectionMillis = MIN_EJECTION_MS;
+        // Экспоненциально сглаженное время ответа; 0 - ответов ещё не было.
+        private double averageMillis;
+
+        private Endpoint(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        private synchronized boolean isAvailable(long now) {
+            return now >= ejectedUntil;
+        }
+
+        private synchronized double averageMillis() {
+            return averageMillis;
+        }
+
+        private boolean isLessLoadedThan(Endpoint other) {
+            int load = inFlight.get();
+            int otherLoad = other.inFlight.get();
+            return load != otherLoad ? load < otherLoad : averageMillis() <= other.averageMillis();
+        }
+
+        private synchronized void succeeded(long elapsedNanos) {
+            double millis = elapsedNanos / 1e6;
+            averageMillis = averageMillis == 0 ? millis : averageMillis * 0.8 + millis * 0.2;
+            consecutiveFailures = 0;
+            ejectedUntil = 0;
+            ejectionMillis = MIN_EJECTION_MS;
+        }
+
+        private synchronized void failed(long now) {
+            if (++consecutiveFailures >= FAILURES_BEFORE_EJECTION) {
+                eject(now);
+            }
+        }
+
+        private synchronized void eject(long now) {
+            if (now < ejectedUntil) {
+                return;
+            }
+            ejectedUntil = now + ejectionMillis;
+            System.err.println("Сервер " + this + " исключён на " + ejectionMillis / 1000.0 + " сек.");
+            ejectionMillis = Math.min(MAX_EJECTION_MS, ejectionMillis * 2);
+        }
+
+        private synchronized String describe(long now) {
+            return String.format("%s, запросов в работе %d, среднее время ответа %.0f мс",
+                    now >= ejectedUntil ? "доступен" : "исключён ещё на " + (ejectedUntil - now) / 1000 + " сек.",
+                    inFlight.get(), averageMillis);
+        }
+
+        @Override
+        public String toString() {
+            return address.getHostString() + ":" + address.getPort();
         }
     }
-}
\ No newline at end of file
+}
@@ -2,7 +2,10 @@ package org.example.client;
 
 import org.example.common.model.*;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.NoSuchElementException;
@@ -194,6 +197,36 @@ public class UserInputHandler {
         }
     }
 
+    /**
+     * Парсит момент времени в формате ZonedDateTime, LocalDateTime или LocalDate.
+     * Даты без часового пояса считаются заданными в UTC.
+     *
+     * @param endOfDay для даты без времени вернуть конец дня, а не его начало.
+     * @throws IllegalArgumentException если строка не является датой ни в одном из форматов.
+     */
+    public Instant parseInstant(String str, String fieldName, boolean endOfDay) {
+        if (str == null || str.trim().isEmpty()) {
+            throw new IllegalArgumentException(fieldName + " не может быть пустым.");
+        }
+        String text = str.trim();
+        try {
+            return ZonedDateTime.parse(text).toInstant();
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            return LocalDateTime.parse(text).toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException ignored) {
+        }
+        try {
+            LocalDate date = LocalDate.parse(text);
+            return endOfDay ? date.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC).minusNanos(1)
+                    : date.atStartOfDay().toInstant(ZoneOffset.UTC);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректный формат " + fieldName + ": '" + str
+                    + "'. Ожидалось гггг-ММ-дд, гггг-ММ-ддТЧЧ:мм:сс или гггг-ММ-ддТЧЧ:мм:сс[+-]ЧЧ:ММ.");
+        }
+    }
+
     public String[] readCredentials(String argsString, String commandName) {
         String username, password;
         if (argsString != null && !argsString.isBlank()) {
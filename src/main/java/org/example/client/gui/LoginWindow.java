@@ -96,7 +96,7 @@ public class LoginWindow extends JFrame {
         responseOpt.ifPresentOrElse(response -> {
             if (response.isSuccess() && response.getResultData() instanceof User currentUser) {
                 this.dispose();
-                new MainWindow(networkManager, currentUser, password).setVisible(true);
+                new MainWindow(networkManager, currentUser).setVisible(true);
             } else {
                 showError(response.getMessage());
             }
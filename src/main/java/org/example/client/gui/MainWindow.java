@@ -6,7 +6,9 @@ import org.example.client.i18n.LocaleManager;
 import org.example.common.model.User;
 import org.example.common.model.Worker;
 import org.example.common.request.CommandRequest;
+import org.example.common.response.CollectionVersion;
 import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -23,13 +25,14 @@ import java.util.regex.PatternSyntaxException;
 public class MainWindow extends JFrame {
     private final NetworkManager networkManager;
     private final String username;
-    private final String password;
+    private final String sessionToken;
     private final int currentUserId;
 
     private WorkerTableModel tableModel;
     private TableRowSorter<WorkerTableModel> sorter;
     private VisualizationPanel visualizationPanel;
     private Timer refreshTimer;
+    private volatile CollectionVersion lastSeenVersion;
 
     private JLabel currentUserLabel, filterLabel, statusLabel;
     private JMenu sessionMenu, commandsMenu, languageMenu;
@@ -37,11 +40,11 @@ public class MainWindow extends JFrame {
     private JTable workerTable;
     private JTextField filterField;
 
-    public MainWindow(NetworkManager networkManager, User currentUser, String password) {
+    public MainWindow(NetworkManager networkManager, User currentUser) {
         this.networkManager = networkManager;
         this.username = currentUser.getUsername();
         this.currentUserId = currentUser.getId();
-        this.password = password;
+        this.sessionToken = currentUser.getSessionToken();
         initUI();
         startAutoRefresh();
     }
@@ -177,11 +180,15 @@ public class MainWindow extends JFrame {
     }
 
     private void refreshData() {
-        CommandRequest request = new CommandRequest("show", null, username, password);
+        CommandRequest request = CommandRequest.withSession("show", null, sessionToken, lastSeenVersion);
         Optional<CommandResponse> responseOpt = networkManager.sendRequest(request);
         responseOpt.ifPresentOrElse(response -> {
+            if (response.isNotModified()) {
+                return;
+            }
             if (response.isSuccess() && response.getResultData() instanceof List) {
                 List<Worker> workers = (List<Worker>) response.getResultData();
+                lastSeenVersion = response.getCollectionVersion();
                 SwingUtilities.invokeLater(() -> {
                     int selectedRow = workerTable.getSelectedRow();
                     tableModel.setWorkers(workers);
@@ -190,7 +197,7 @@ public class MainWindow extends JFrame {
                         workerTable.setRowSelectionInterval(selectedRow, selectedRow);
                     }
                 });
-            } else if (!response.isSuccess() && response.getMessage().toLowerCase().contains("аутентификации")) {
+            } else if (response.getOutcome() == OperationOutcome.UNAUTHORIZED) {
                 logoutAndShowError("Сессия истекла или недействительна. Пожалуйста, войдите снова.");
             }
         }, () -> {});
@@ -202,7 +209,7 @@ public class MainWindow extends JFrame {
 
         if (dialog.isOkPressed()) {
             Worker newWorker = dialog.getWorker();
-            CommandRequest request = new CommandRequest(command, newWorker, username, password);
+            CommandRequest request = CommandRequest.withSession(command, newWorker, sessionToken);
             sendCommand(request, true);
         }
     }
@@ -222,7 +229,7 @@ public class MainWindow extends JFrame {
             if (dialog.isOkPressed()) {
                 Worker updatedWorker = dialog.getWorker();
                 Object[] args = {workerToUpdate.getId(), updatedWorker};
-                CommandRequest request = new CommandRequest("update", args, username, password);
+                CommandRequest request = CommandRequest.withSession("update", args, sessionToken);
                 sendCommand(request, true);
             }
         }
@@ -241,7 +248,7 @@ public class MainWindow extends JFrame {
                     LocaleManager.getFormattedString("dialog.confirm.delete", workerToDelete.getId()),
                     LocaleManager.getString("dialog.confirm.title"), JOptionPane.YES_NO_OPTION);
             if (confirmation == JOptionPane.YES_OPTION) {
-                CommandRequest request = new CommandRequest("remove_by_id", workerToDelete.getId(), username, password);
+                CommandRequest request = CommandRequest.withSession("remove_by_id", workerToDelete.getId(), sessionToken);
                 sendCommand(request, true);
             }
         }
@@ -252,7 +259,7 @@ public class MainWindow extends JFrame {
                 "Вы уверены, что хотите удалить ВСЕ свои объекты?",
                 LocaleManager.getString("dialog.confirm.title"), JOptionPane.YES_NO_OPTION);
         if (confirmation == JOptionPane.YES_OPTION) {
-            CommandRequest request = new CommandRequest("clear", null, username, password);
+            CommandRequest request = CommandRequest.withSession("clear", null, sessionToken);
             sendCommand(request, true);
         }
     }
@@ -285,10 +292,10 @@ public class MainWindow extends JFrame {
                                 case "add_if_min":
                                 case "add_if_max":
                                     Worker worker = scriptInputHandler.readWorker(true);
-                                    request = new CommandRequest(commandName, worker, username, password);
+                                    request = CommandRequest.withSession(commandName, worker, sessionToken);
                                     break;
                                 case "clear":
-                                    request = new CommandRequest(commandName, null, username, password);
+                                    request = CommandRequest.withSession(commandName, null, sessionToken);
                                     break;
                                 default:
                                     System.out.println("Неподдерживаемая в скрипте команда: " + commandName);
@@ -332,6 +339,15 @@ public class MainWindow extends JFrame {
 
     private void logout() {
         refreshTimer.stop();
+        // Ответ не нужен: окно закрывается сразу, даже если сервер недоступен.
+        CommandRequest request = CommandRequest.withSession("logout", null, sessionToken);
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                networkManager.sendRequest(request);
+                return null;
+            }
+        }.execute();
         this.dispose();
         new LoginWindow(networkManager).setVisible(true);
     }
@@ -6,11 +6,12 @@ import java.util.Objects;
 
 public class User implements Serializable {
     @Serial
-    private static final long serialVersionUID = 7L;
+    private static final long serialVersionUID = 8L;
 
     private int id;
     private String username;
     private String hashedPassword;
+    private String sessionToken;
 
     public User(int id, String username, String hashedPassword) {
         this.id = id;
@@ -48,6 +49,14 @@ public class User implements Serializable {
         this.hashedPassword = hashedPassword;
     }
 
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,38 @@
+package org.example.common.query;
+
+import org.example.common.model.Worker;
+
+import java.io.Serial;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Конъюнкция условий: работник подходит, если выполнены все условия.
+ */
+public final class AndPredicate implements WorkerPredicate {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final List<WorkerPredicate> operands;
+
+    public AndPredicate(List<WorkerPredicate> operands) {
+        if (operands == null || operands.isEmpty()) {
+            throw new IllegalArgumentException("Список условий не может быть пустым");
+        }
+        this.operands = List.copyOf(operands);
+    }
+
+    public List<WorkerPredicate> getOperands() {
+        return operands;
+    }
+
+    @Override
+    public boolean test(Worker worker) {
+        return operands.stream().allMatch(operand -> operand.test(worker));
+    }
+
+    @Override
+    public String toString() {
+        return operands.stream().map(operand -> operand instanceof FieldCondition ? operand.toString() : "(" + operand + ")")
+                .collect(Collectors.joining(" and "));
+    }
+}
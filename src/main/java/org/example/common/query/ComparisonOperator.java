@@ -0,0 +1,33 @@
+package org.example.common.query;
+
+/**
+ * Операторы сравнения в условиях запросов. {@link #PREFIX} применим только к строковым полям.
+ */
+public enum ComparisonOperator {
+    EQ("="),
+    NE("!="),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">="),
+    PREFIX("^=");
+
+    private final String symbol;
+
+    ComparisonOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public static ComparisonOperator fromSymbol(String symbol) {
+        for (ComparisonOperator operator : values()) {
+            if (operator.symbol.equals(symbol)) {
+                return operator;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный оператор сравнения: " + symbol);
+    }
+}
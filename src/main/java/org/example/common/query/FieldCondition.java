@@ -0,0 +1,111 @@
+package org.example.common.query;
+
+import org.example.common.model.Worker;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.util.Objects;
+
+/**
+ * Сравнение одного поля работника с константой, например {@code salary > 100000}.
+ * Сравнения порядка с отсутствующим значением (null) всегда ложны; null можно проверить через = и !=.
+ */
+public final class FieldCondition implements WorkerPredicate {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final WorkerField field;
+    private final ComparisonOperator operator;
+    private final Comparable<?> value;
+
+    public FieldCondition(WorkerField field, ComparisonOperator operator, Comparable<?> value) {
+        validate(field, operator, value);
+        this.field = field;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    private static void validate(WorkerField field, ComparisonOperator operator, Comparable<?> value) {
+        if (field == null || operator == null) {
+            throw new IllegalArgumentException("Поле и оператор условия не могут быть null");
+        }
+        if (value != null && !field.getValueType().isInstance(value)) {
+            throw new IllegalArgumentException("Значение для поля " + field.getKey() + " должно иметь тип "
+                    + field.getValueType().getSimpleName());
+        }
+        if (operator == ComparisonOperator.PREFIX && (field != WorkerField.NAME || value == null)) {
+            throw new IllegalArgumentException("Оператор ^= применим только к полю name с непустым значением");
+        }
+        if (value == null && operator != ComparisonOperator.EQ && operator != ComparisonOperator.NE) {
+            throw new IllegalArgumentException("Значение null можно сравнивать только через = и !=");
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        try {
+            validate(field, operator, value);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+
+    public WorkerField getField() {
+        return field;
+    }
+
+    public ComparisonOperator getOperator() {
+        return operator;
+    }
+
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public boolean test(Worker worker) {
+        Comparable actual = field.extract(worker);
+        if (value == null || actual == null) {
+            boolean equal = value == actual;
+            return switch (operator) {
+                case EQ -> equal;
+                case NE -> !equal;
+                default -> false;
+            };
+        }
+        if (operator == ComparisonOperator.PREFIX) {
+            return ((String) actual).startsWith((String) value);
+        }
+        int cmp = actual.compareTo(value);
+        return switch (operator) {
+            case EQ -> cmp == 0;
+            case NE -> cmp != 0;
+            case LT -> cmp < 0;
+            case LE -> cmp <= 0;
+            case GT -> cmp > 0;
+            case GE -> cmp >= 0;
+            case PREFIX -> throw new IllegalStateException();
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FieldCondition that = (FieldCondition) o;
+        return field == that.field && operator == that.operator && Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, operator, value);
+    }
+
+    @Override
+    public String toString() {
+        return field.getKey() + " " + operator.getSymbol() + " " + (value instanceof String ? "\"" + value + "\"" : value);
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.common.query;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Порядок сортировки для команды 'order_by': список полей по убыванию значимости и направление.
+ * Работники без значения поля идут первыми при сортировке по возрастанию и последними по убыванию;
+ * при полном равенстве ключей порядок определяется ID.
+ */
+public final class OrderBySpec implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final List<WorkerField> fields;
+    private final boolean descending;
+
+    public OrderBySpec(List<WorkerField> fields, boolean descending) {
+        if (fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("Нужно указать хотя бы одно поле для сортировки.");
+        }
+        this.fields = List.copyOf(fields);
+        this.descending = descending;
+    }
+
+    /**
+     * Разбирает строку вида {@code salary,name desc}.
+     *
+     * @throws IllegalArgumentException если строка некорректна.
+     */
+    public static OrderBySpec parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Нужно указать хотя бы одно поле для сортировки.");
+        }
+        String[] parts = text.trim().split("\\s+");
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Ожидалось: <поле>[,<поле>...] [asc|desc].");
+        }
+        boolean descending = false;
+        if (parts.length == 2) {
+            String direction = parts[1].toLowerCase(Locale.ROOT);
+            if (!direction.equals("asc") && !direction.equals("desc")) {
+                throw new IllegalArgumentException("Направление сортировки должно быть asc или desc.");
+            }
+            descending = direction.equals("desc");
+        }
+        List<WorkerField> fields = new ArrayList<>();
+        for (String key : parts[0].split(",")) {
+            if (!key.isBlank()) {
+                fields.add(WorkerField.fromKey(key.trim()));
+            }
+        }
+        return new OrderBySpec(fields, descending);
+    }
+
+    public List<WorkerField> getFields() {
+        return fields;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        OrderBySpec that = (OrderBySpec) o;
+        return descending == that.descending && fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode() * 31 + (descending ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return fields.stream().map(WorkerField::getKey).collect(Collectors.joining(",")) + (descending ? " desc" : " asc");
+    }
+}
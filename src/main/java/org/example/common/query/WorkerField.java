@@ -0,0 +1,104 @@
+package org.example.common.query;
+
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Поля работника, по которым можно строить условия запросов.
+ * Дата окончания сравнивается как момент времени ({@link Instant}), чтобы одинаковые моменты
+ * в разных часовых поясах считались равными.
+ */
+public enum WorkerField {
+    ID("id", Long.class, Worker::getId),
+    NAME("name", String.class, Worker::getName),
+    X("x", Float.class, w -> w.getCoordinates().getX()),
+    Y("y", Double.class, w -> w.getCoordinates().getY()),
+    SALARY("salary", Long.class, Worker::getSalary),
+    POSITION("position", Position.class, Worker::getPosition),
+    ORGANIZATION_TYPE("organization_type", OrganizationType.class, w -> w.getOrganization().getType()),
+    ANNUAL_TURNOVER("annual_turnover", Integer.class, w -> w.getOrganization().getAnnualTurnover()),
+    CREATION_DATE("creation_date", LocalDate.class, Worker::getCreationDate),
+    START_DATE("start_date", LocalDateTime.class, Worker::getStartDate),
+    END_DATE("end_date", Instant.class, w -> w.getEndDate() != null ? w.getEndDate().toInstant() : null);
+
+    private final String key;
+    private final Class<?> valueType;
+    private final Function<Worker, ? extends Comparable<?>> extractor;
+
+    WorkerField(String key, Class<?> valueType, Function<Worker, ? extends Comparable<?>> extractor) {
+        this.key = key;
+        this.valueType = valueType;
+        this.extractor = extractor;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Class<?> getValueType() {
+        return valueType;
+    }
+
+    public Comparable<?> extract(Worker worker) {
+        return extractor.apply(worker);
+    }
+
+    /**
+     * Разбирает строковое значение в тип этого поля. Строка "null" означает отсутствие значения.
+     *
+     * @throws IllegalArgumentException если строку нельзя привести к типу поля.
+     */
+    public Comparable<?> parseValue(String text) {
+        if (text == null || text.equalsIgnoreCase("null")) {
+            return null;
+        }
+        try {
+            return switch (this) {
+                case ID, SALARY -> Long.parseLong(text);
+                case ANNUAL_TURNOVER -> Integer.parseInt(text);
+                case X -> Float.parseFloat(text);
+                case Y -> Double.parseDouble(text);
+                case NAME -> text;
+                case POSITION -> Position.valueOf(text.toUpperCase(Locale.ROOT));
+                case ORGANIZATION_TYPE -> OrganizationType.valueOf(text.toUpperCase(Locale.ROOT));
+                case CREATION_DATE -> LocalDate.parse(text);
+                case START_DATE -> LocalDateTime.parse(text);
+                case END_DATE -> ZonedDateTime.parse(text).toInstant();
+            };
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное значение '" + text + "' для поля " + key + ".");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректное значение '" + text + "' для поля " + key
+                    + ". Допустимые значения: " + (this == POSITION ? Position.getAllValues() : OrganizationType.getAllValues()));
+        }
+    }
+
+    public static WorkerField fromKey(String key) {
+        for (WorkerField field : values()) {
+            if (field.key.equalsIgnoreCase(key)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное поле '" + key + "'. Допустимые поля: " + getAllKeys());
+    }
+
+    public static String getAllKeys() {
+        StringBuilder sb = new StringBuilder();
+        for (WorkerField field : values()) {
+            sb.append(field.key).append(", ");
+        }
+        if (!sb.isEmpty()) {
+            sb.setLength(sb.length() - 2);
+        }
+        return sb.toString();
+    }
+}
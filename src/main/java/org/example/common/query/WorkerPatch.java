@@ -0,0 +1,307 @@
+package org.example.common.query;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Набор изменений полей для команды 'update_where', например {@code salary *= 1.05, position = MANAGER}.
+ * <p>
+ * Поля можно присваивать (=), а числовые поля ещё умножать на коэффициент (*=) и увеличивать
+ * на величину (+=). Отсутствующее значение при умножении и сложении остаётся отсутствующим.
+ * ID и дату создания изменить нельзя.
+ */
+public final class WorkerPatch implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private static final Set<WorkerField> NUMERIC_FIELDS =
+            EnumSet.of(WorkerField.X, WorkerField.Y, WorkerField.SALARY, WorkerField.ANNUAL_TURNOVER);
+    private static final Set<WorkerField> REQUIRED_FIELDS =
+            EnumSet.of(WorkerField.NAME, WorkerField.X, WorkerField.Y, WorkerField.ORGANIZATION_TYPE, WorkerField.START_DATE);
+
+    private final List<Assignment> assignments;
+
+    public WorkerPatch(List<Assignment> assignments) {
+        validate(assignments);
+        this.assignments = List.copyOf(assignments);
+    }
+
+    private static void validate(List<Assignment> assignments) {
+        if (assignments == null || assignments.isEmpty()) {
+            throw new IllegalArgumentException("Нужно указать хотя бы одно изменение.");
+        }
+        Set<WorkerField> seen = EnumSet.noneOf(WorkerField.class);
+        for (Assignment assignment : assignments) {
+            if (assignment == null) {
+                throw new IllegalArgumentException("Изменение не может быть null.");
+            }
+            assignment.validate();
+            if (!seen.add(assignment.field)) {
+                throw new IllegalArgumentException("Поле " + assignment.field.getKey() + " изменяется несколько раз.");
+            }
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        try {
+            validate(assignments);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidObjectException(e.getMessage());
+        }
+    }
+
+    /**
+     * Разбирает строку вида {@code salary *= 1.05, position = MANAGER, name = "Иван Петров"}.
+     *
+     * @throws IllegalArgumentException если строка некорректна.
+     */
+    public static WorkerPatch parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Нужно указать хотя бы одно изменение.");
+        }
+        List<Assignment> assignments = new ArrayList<>();
+        for (String part : splitOutsideQuotes(text)) {
+            String trimmed = part.trim();
+            int operatorEnd = trimmed.indexOf('=');
+            if (operatorEnd <= 0) {
+                throw new IllegalArgumentException("Ожидалось <поле> = <значение>, <поле> *= <коэффициент> или <поле> += <величина>: '"
+                        + trimmed + "'.");
+            }
+            Operation operation = switch (trimmed.charAt(operatorEnd - 1)) {
+                case '*' -> Operation.MULTIPLY;
+                case '+' -> Operation.ADD;
+                default -> Operation.SET;
+            };
+            int fieldEnd = operation == Operation.SET ? operatorEnd : operatorEnd - 1;
+            WorkerField field = WorkerField.fromKey(trimmed.substring(0, fieldEnd).trim());
+            String rawValue = trimmed.substring(operatorEnd + 1).trim();
+            boolean quoted = rawValue.length() >= 2 && (rawValue.charAt(0) == '"' || rawValue.charAt(0) == '\'')
+                    && rawValue.charAt(rawValue.length() - 1) == rawValue.charAt(0);
+            if (quoted) {
+                rawValue = rawValue.substring(1, rawValue.length() - 1);
+            }
+            Comparable<?> value;
+            if (operation == Operation.MULTIPLY) {
+                try {
+                    value = Double.parseDouble(rawValue);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Некорректный коэффициент '" + rawValue + "' для поля " + field.getKey() + ".");
+                }
+            } else {
+                value = field == WorkerField.NAME && quoted ? rawValue : field.parseValue(rawValue);
+            }
+            assignments.add(new Assignment(field, operation, value));
+        }
+        return new WorkerPatch(assignments);
+    }
+
+    private static List<String> splitOutsideQuotes(String text) {
+        List<String> parts = new ArrayList<>();
+        char quote = 0;
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ',') {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Незакрытая кавычка в списке изменений.");
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    public List<Assignment> getAssignments() {
+        return assignments;
+    }
+
+    /**
+     * Применяет изменения так же, как их выполняет БД: произведение целочисленных полей
+     * округляется до ближайшего целого, отсутствующее значение при умножении и сложении
+     * остаётся отсутствующим.
+     *
+     * @return Новый работник с теми же ID, датой создания и владельцем.
+     * @throws IllegalArgumentException если новое значение нарушает ограничения поля или не
+     *                                  помещается в его тип.
+     */
+    public Worker applyTo(Worker worker) {
+        String name = worker.getName();
+        Float x = worker.getCoordinates().getX();
+        Double y = worker.getCoordinates().getY();
+        Long salary = worker.getSalary();
+        LocalDateTime startDate = worker.getStartDate();
+        ZonedDateTime endDate = worker.getEndDate();
+        Position position = worker.getPosition();
+        Integer annualTurnover = worker.getOrganization().getAnnualTurnover();
+        OrganizationType organizationType = worker.getOrganization().getType();
+        try {
+            for (Assignment assignment : assignments) {
+                Object value = assignment.value;
+                switch (assignment.field) {
+                    case NAME -> name = (String) value;
+                    case X -> x = switch (assignment.operation) {
+                        case SET -> (Float) value;
+                        case MULTIPLY -> (float) (x * (Double) value);
+                        case ADD -> (float) (x.doubleValue() + (Float) value);
+                    };
+                    case Y -> y = switch (assignment.operation) {
+                        case SET -> (Double) value;
+                        case MULTIPLY -> y * (Double) value;
+                        case ADD -> y + (Double) value;
+                    };
+                    case SALARY -> salary = salary == null && assignment.operation != Operation.SET ? null : switch (assignment.operation) {
+                        case SET -> (Long) value;
+                        case MULTIPLY -> multiply(salary, (Double) value).longValueExact();
+                        case ADD -> Math.addExact(salary, (Long) value);
+                    };
+                    case ANNUAL_TURNOVER -> annualTurnover = annualTurnover == null && assignment.operation != Operation.SET ? null : switch (assignment.operation) {
+                        case SET -> (Integer) value;
+                        case MULTIPLY -> multiply(annualTurnover, (Double) value).intValueExact();
+                        case ADD -> Math.addExact(annualTurnover, (Integer) value);
+                    };
+                    case POSITION -> position = (Position) value;
+                    case ORGANIZATION_TYPE -> organizationType = (OrganizationType) value;
+                    case START_DATE -> startDate = (LocalDateTime) value;
+                    case END_DATE -> endDate = value == null ? null : ZonedDateTime.ofInstant((Instant) value, ZoneOffset.UTC);
+                    default -> throw new IllegalStateException("Поле " + assignment.field.getKey() + " изменить нельзя.");
+                }
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Новое значение не помещается в тип поля: " + e.getMessage());
+        }
+        Worker patched = new Worker(worker.getId(), name, new Coordinates(x, y), worker.getCreationDate(), salary,
+                startDate, endDate, position, new Organization(annualTurnover, organizationType));
+        patched.setOwnerId(worker.getOwnerId());
+        return patched;
+    }
+
+    private static BigDecimal multiply(long value, double factor) {
+        return BigDecimal.valueOf(value).multiply(BigDecimal.valueOf(factor)).setScale(0, RoundingMode.HALF_UP);
+    }
+
+    @Override
+    public String toString() {
+        return assignments.stream().map(Assignment::toString).collect(Collectors.joining(", "));
+    }
+
+    public enum Operation {
+        SET("="),
+        MULTIPLY("*="),
+        ADD("+=");
+
+        private final String symbol;
+
+        Operation(String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * Одно изменение поля. Для {@link Operation#MULTIPLY} значение - положительный коэффициент типа Double,
+     * для остальных операций - значение типа поля.
+     */
+    public static final class Assignment implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final WorkerField field;
+        private final Operation operation;
+        private final Comparable<?> value;
+
+        public Assignment(WorkerField field, Operation operation, Comparable<?> value) {
+            this.field = field;
+            this.operation = operation;
+            this.value = value;
+            validate();
+        }
+
+        private void validate() {
+            if (field == null || operation == null) {
+                throw new IllegalArgumentException("Поле и операция изменения не могут быть null.");
+            }
+            if (field == WorkerField.ID || field == WorkerField.CREATION_DATE) {
+                throw new IllegalArgumentException("Поле " + field.getKey() + " изменить нельзя.");
+            }
+            if (operation != Operation.SET && !NUMERIC_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Операция " + operation.getSymbol() + " применима только к числовым полям.");
+            }
+            if (operation == Operation.MULTIPLY) {
+                if (!(value instanceof Double factor) || !(factor > 0) || factor.isInfinite()) {
+                    throw new IllegalArgumentException("Коэффициент для поля " + field.getKey() + " должен быть положительным числом.");
+                }
+                return;
+            }
+            if (value == null) {
+                if (operation == Operation.ADD || REQUIRED_FIELDS.contains(field)) {
+                    throw new IllegalArgumentException("Поле " + field.getKey() + " не может быть null.");
+                }
+                return;
+            }
+            if (!field.getValueType().isInstance(value)) {
+                throw new IllegalArgumentException("Значение для поля " + field.getKey() + " должно иметь тип "
+                        + field.getValueType().getSimpleName());
+            }
+            if (operation == Operation.SET) {
+                boolean valid = switch (field) {
+                    case NAME -> !((String) value).isEmpty();
+                    case Y -> (Double) value > -72;
+                    case SALARY -> (Long) value > 0;
+                    case ANNUAL_TURNOVER -> (Integer) value > 0;
+                    default -> true;
+                };
+                if (!valid) {
+                    throw new IllegalArgumentException("Недопустимое значение " + value + " для поля " + field.getKey() + ".");
+                }
+            }
+        }
+
+        public WorkerField getField() {
+            return field;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public Comparable<?> getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return field.getKey() + " " + operation.getSymbol() + " " + (value instanceof String ? "\"" + value + "\"" : value);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.common.query;
+
+import org.example.common.model.Worker;
+
+import java.io.Serializable;
+
+/**
+ * Условие отбора работников, которое клиент передаёт серверу в командах вроде 'query'.
+ * Строится из {@link FieldCondition}, объединённых через {@link AndPredicate} и {@link OrPredicate}.
+ */
+public interface WorkerPredicate extends Serializable {
+    boolean test(Worker worker);
+}
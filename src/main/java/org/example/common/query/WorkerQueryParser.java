@@ -0,0 +1,142 @@
+package org.example.common.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор текстовых условий вида {@code position = DIRECTOR and (salary > 100000 or name ^= "Ив")}.
+ * <p>
+ * {@code and} связывает сильнее, чем {@code or}; скобки меняют порядок. Значения со пробелами
+ * берутся в кавычки. Операторы: =, !=, <, <=, >, >=, ^= (префикс имени).
+ */
+public class WorkerQueryParser {
+    private final List<String> tokens;
+    private int position;
+
+    private WorkerQueryParser(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * @throws IllegalArgumentException если строка не является корректным условием.
+     */
+    public static WorkerPredicate parse(String text) {
+        if (text == null || text.isBlank()) {
+            throw new IllegalArgumentException("Условие запроса не может быть пустым.");
+        }
+        WorkerQueryParser parser = new WorkerQueryParser(tokenize(text));
+        WorkerPredicate predicate = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Лишний фрагмент в условии: '" + parser.tokens.get(parser.position) + "'.");
+        }
+        return predicate;
+    }
+
+    private WorkerPredicate parseOr() {
+        List<WorkerPredicate> operands = new ArrayList<>();
+        operands.add(parseAnd());
+        while (acceptKeyword("or")) {
+            operands.add(parseAnd());
+        }
+        return operands.size() == 1 ? operands.get(0) : new OrPredicate(operands);
+    }
+
+    private WorkerPredicate parseAnd() {
+        List<WorkerPredicate> operands = new ArrayList<>();
+        operands.add(parsePrimary());
+        while (acceptKeyword("and")) {
+            operands.add(parsePrimary());
+        }
+        return operands.size() == 1 ? operands.get(0) : new AndPredicate(operands);
+    }
+
+    private WorkerPredicate parsePrimary() {
+        if (accept("(")) {
+            WorkerPredicate inner = parseOr();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Ожидалась закрывающая скобка.");
+            }
+            return inner;
+        }
+        WorkerField field = WorkerField.fromKey(next("имя поля"));
+        ComparisonOperator operator = ComparisonOperator.fromSymbol(next("оператор сравнения"));
+        String rawValue = next("значение");
+        Comparable<?> value;
+        if (isQuoted(rawValue)) {
+            value = field == WorkerField.NAME ? unquote(rawValue) : field.parseValue(unquote(rawValue));
+        } else {
+            value = field.parseValue(rawValue);
+        }
+        return new FieldCondition(field, operator, value);
+    }
+
+    private boolean accept(String token) {
+        if (position < tokens.size() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private String next(String expected) {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Условие оборвано: ожидалось " + expected + ".");
+        }
+        return tokens.get(position++);
+    }
+
+    private static boolean isQuoted(String token) {
+        return token.length() >= 2 && (token.charAt(0) == '"' || token.charAt(0) == '\'');
+    }
+
+    private static String unquote(String token) {
+        return token.substring(1, token.length() - 1);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                result.add(String.valueOf(c));
+                i++;
+            } else if (c == '"' || c == '\'') {
+                int end = text.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Незакрытая кавычка в условии.");
+                }
+                result.add(text.substring(i, end + 1));
+                i = end + 1;
+            } else if (isOperatorChar(c)) {
+                int start = i;
+                while (i < text.length() && isOperatorChar(text.charAt(i))) {
+                    i++;
+                }
+                result.add(text.substring(start, i));
+            } else {
+                int start = i;
+                while (i < text.length() && !Character.isWhitespace(text.charAt(i)) && !isOperatorChar(text.charAt(i))
+                        && text.charAt(i) != '(' && text.charAt(i) != ')') {
+                    i++;
+                }
+                result.add(text.substring(start, i));
+            }
+        }
+        return result;
+    }
+
+    private static boolean isOperatorChar(char c) {
+        return c == '=' || c == '!' || c == '<' || c == '>' || c == '^';
+    }
+}
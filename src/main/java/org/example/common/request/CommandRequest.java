@@ -1,25 +1,61 @@
 package org.example.common.request;
 
+import org.example.common.response.CollectionVersion;
+
 import java.io.Serial;
 import java.io.Serializable;
+import java.util.Set;
 
 public class CommandRequest implements Serializable {
     @Serial
-    private static final long serialVersionUID = 104L;
+    private static final long serialVersionUID = 107L;
+    /**
+     * Команды, которые только читают коллекцию: их можно выполнять на ведомом сервере,
+     * повторять и дублировать на другой сервер без риска выполнить дважды.
+     */
+    public static final Set<String> READ_ONLY_COMMANDS = Set.of("ping", "help", "info", "show", "show_page",
+            "print_descending", "print_field_ascending_salary", "print_field_descending_salary", "query", "aggregate",
+            "top_k", "search_name", "employed_during", "employed_at", "ending_within", "order_by", "salary_stats");
     private final String commandName;
     private final Object argument;
     private final String username;
     private final String password;
+    private final String sessionToken;
+    private final CollectionVersion knownVersion;
 
     public CommandRequest(String commandName, Object argument) {
         this(commandName, argument, null, null);
     }
 
     public CommandRequest(String commandName, Object argument, String username, String password) {
+        this(commandName, argument, username, password, null, null);
+    }
+
+    private CommandRequest(String commandName, Object argument, String username, String password,
+                           String sessionToken, CollectionVersion knownVersion) {
         this.commandName = commandName;
         this.argument = argument;
         this.username = username;
         this.password = password;
+        this.sessionToken = sessionToken;
+        this.knownVersion = knownVersion;
+    }
+
+    /**
+     * Запрос от уже вошедшего клиента: вместо логина и пароля передаётся токен сессии,
+     * полученный в ответ на 'login'.
+     */
+    public static CommandRequest withSession(String commandName, Object argument, String sessionToken) {
+        return withSession(commandName, argument, sessionToken, null);
+    }
+
+    /**
+     * @param knownVersion версия коллекции, которую клиент уже видел (или null). Если она совпадает
+     *                     с текущей, сервер отвечает коротким "not modified" без данных.
+     */
+    public static CommandRequest withSession(String commandName, Object argument, String sessionToken,
+                                             CollectionVersion knownVersion) {
+        return new CommandRequest(commandName, argument, null, null, sessionToken, knownVersion);
     }
 
     public String getCommandName() {
@@ -37,4 +73,16 @@ public class CommandRequest implements Serializable {
     public String getPassword() {
         return password;
     }
+
+    public String getSessionToken() {
+        return sessionToken;
+    }
+
+    public CollectionVersion getKnownVersion() {
+        return knownVersion;
+    }
+
+    public boolean isReadOnly() {
+        return commandName != null && READ_ONLY_COMMANDS.contains(commandName.toLowerCase());
+    }
 }
\ No newline at end of file
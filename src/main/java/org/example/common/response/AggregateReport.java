@@ -0,0 +1,26 @@
+package org.example.common.response;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Отчёт команды 'aggregate': агрегаты по группам, снятые с одной версии коллекции.
+ */
+public class AggregateReport implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 2L;
+    private final String groupBy;
+    private final CollectionVersion version;
+    private final List<GroupAggregate> groups;
+
+    public AggregateReport(String groupBy, CollectionVersion version, List<GroupAggregate> groups) {
+        this.groupBy = groupBy;
+        this.version = version;
+        this.groups = List.copyOf(groups);
+    }
+
+    public String getGroupBy() { return groupBy; }
+    public CollectionVersion getVersion() { return version; }
+    public List<GroupAggregate> getGroups() { return groups; }
+}
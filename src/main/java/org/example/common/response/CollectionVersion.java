@@ -0,0 +1,22 @@
+package org.example.common.response;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Версия коллекции, которую клиент передаёт обратно, чтобы получить "not modified".
+ * <p>
+ * Счётчик изменений живёт только в памяти сервера и после перезапуска начинается заново,
+ * а у независимых серверов он свой, поэтому одного счётчика мало: {@code epoch} выбирается
+ * случайно при запуске сервера (ведомые серверы получают эпоху ведущего), и версии равны,
+ * только если совпадают и эпоха, и счётчик.
+ */
+public record CollectionVersion(long epoch, long counter) implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public String toString() {
+        return Long.toHexString(epoch) + ":" + counter;
+    }
+}
@@ -6,20 +6,52 @@ import java.util.List;
 
 public class CommandResponse implements Serializable {
     @Serial
-    private static final long serialVersionUID = 5L;
+    private static final long serialVersionUID = 8L;
     private final boolean success;
+    private final OperationOutcome outcome;
     private final String message;
     private final Object resultData;
+    private final CollectionVersion collectionVersion;
+    private final boolean notModified;
 
     public CommandResponse(boolean success, String message, Object resultData) {
-        this.success = success;
+        this(success, message, resultData, null);
+    }
+
+    public CommandResponse(boolean success, String message, Object resultData, CollectionVersion collectionVersion) {
+        this(success ? OperationOutcome.SUCCESS : OperationOutcome.INTERNAL_ERROR, message, resultData, collectionVersion, false);
+    }
+
+    /**
+     * @param collectionVersion версия коллекции, к которой относится ответ, или null.
+     */
+    public CommandResponse(OperationOutcome outcome, String message, Object resultData, CollectionVersion collectionVersion) {
+        this(outcome, message, resultData, collectionVersion, false);
+    }
+
+    private CommandResponse(OperationOutcome outcome, String message, Object resultData, CollectionVersion collectionVersion,
+                            boolean notModified) {
+        this.success = outcome.isSuccess();
+        this.outcome = outcome;
         this.message = message;
         this.resultData = resultData;
+        this.collectionVersion = collectionVersion;
+        this.notModified = notModified;
+    }
+
+    /**
+     * Короткий ответ "коллекция не изменилась": без сообщения и данных, только версия.
+     */
+    public static CommandResponse notModified(CollectionVersion collectionVersion) {
+        return new CommandResponse(OperationOutcome.SUCCESS, null, null, collectionVersion, true);
     }
 
     public boolean isSuccess() { return success; }
+    public OperationOutcome getOutcome() { return outcome; }
     public String getMessage() { return message; }
     public Object getResultData() { return resultData; }
+    public CollectionVersion getCollectionVersion() { return collectionVersion; }
+    public boolean isNotModified() { return notModified; }
 
     @Override
     public String toString() {
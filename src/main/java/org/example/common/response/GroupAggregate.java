@@ -0,0 +1,49 @@
+package org.example.common.response;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Агрегаты по одной группе работников: количество и статистика по зарплате.
+ * Работники без зарплаты учитываются в {@code count}, но не в статистике зарплаты.
+ */
+public class GroupAggregate implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final String group;
+    private final long count;
+    private final long salariedCount;
+    private final long salarySum;
+    private final Long minSalary;
+    private final Long maxSalary;
+
+    public GroupAggregate(String group, long count, long salariedCount, long salarySum, Long minSalary, Long maxSalary) {
+        this.group = group;
+        this.count = count;
+        this.salariedCount = salariedCount;
+        this.salarySum = salarySum;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+    }
+
+    public String getGroup() { return group; }
+    public long getCount() { return count; }
+    public long getSalariedCount() { return salariedCount; }
+    public long getSalarySum() { return salarySum; }
+    public Long getMinSalary() { return minSalary; }
+    public Long getMaxSalary() { return maxSalary; }
+
+    public Double getAverageSalary() {
+        return salariedCount == 0 ? null : (double) salarySum / salariedCount;
+    }
+
+    @Override
+    public String toString() {
+        Double average = getAverageSalary();
+        return group + ": работников " + count + ", с зарплатой " + salariedCount
+                + ", сумма " + salarySum
+                + ", среднее " + (average != null ? String.format("%.2f", average) : "-")
+                + ", мин " + (minSalary != null ? minSalary : "-")
+                + ", макс " + (maxSalary != null ? maxSalary : "-");
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.common.response;
+
+/**
+ * Результат выполнения команды. Позволяет клиенту и серверу различать причины неудачи,
+ * не разбирая текст сообщения.
+ */
+public enum OperationOutcome {
+    SUCCESS,
+    /** Работник с указанным ID не существует. */
+    NOT_FOUND,
+    /** Работник существует, но принадлежит другому пользователю. */
+    NOT_OWNER,
+    /** Условие команды не выполнено (например, add_if_max для не наибольшего элемента). */
+    NOT_APPLIED,
+    INVALID_ARGUMENT,
+    UNAUTHORIZED,
+    STORAGE_ERROR,
+    /** Узел не может выполнить команду сейчас, например ведущий сервер недоступен; команда не выполнялась. */
+    UNAVAILABLE,
+    /**
+     * Команда передана ведущему серверу, но ответ не получен: она могла быть выполнена.
+     * Повторять её нельзя.
+     */
+    OUTCOME_UNKNOWN,
+    INTERNAL_ERROR;
+
+    public boolean isSuccess() {
+        return this == SUCCESS;
+    }
+}
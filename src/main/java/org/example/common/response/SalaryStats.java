@@ -0,0 +1,74 @@
+package org.example.common.response;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Приближённая статистика зарплат из команды 'salary_stats'. Квантили и границы корзин
+ * гистограммы отличаются от точных не более чем на {@code relativeError} (в долях).
+ */
+public class SalaryStats implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private final String scope;
+    private final long count;
+    private final double relativeError;
+    private final Long p50;
+    private final Long p90;
+    private final Long p99;
+    private final List<HistogramBucket> histogram;
+
+    public SalaryStats(String scope, long count, double relativeError, Long p50, Long p90, Long p99, List<HistogramBucket> histogram) {
+        this.scope = scope;
+        this.count = count;
+        this.relativeError = relativeError;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.histogram = List.copyOf(histogram);
+    }
+
+    public String getScope() { return scope; }
+    public long getCount() { return count; }
+    public double getRelativeError() { return relativeError; }
+    public Long getP50() { return p50; }
+    public Long getP90() { return p90; }
+    public Long getP99() { return p99; }
+    public List<HistogramBucket> getHistogram() { return histogram; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Зарплаты (").append(scope).append("): значений ").append(count)
+                .append(", p50 ≈ ").append(p50).append(", p90 ≈ ").append(p90).append(", p99 ≈ ").append(p99)
+                .append(String.format(" (погрешность до %.1f%%)", relativeError * 100));
+        for (HistogramBucket bucket : histogram) {
+            sb.append("\n  ").append(bucket);
+        }
+        return sb.toString();
+    }
+
+    public static class HistogramBucket implements Serializable {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final long from;
+        private final long to;
+        private final long count;
+
+        public HistogramBucket(long from, long to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+
+        public long getFrom() { return from; }
+        public long getTo() { return to; }
+        public long getCount() { return count; }
+
+        @Override
+        public String toString() {
+            return "[" + from + " .. " + to + "]: " + count;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.model.Worker;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Подписка на изменения работников, сделанные другими серверами с той же БД.
+ * <p>
+ * Триггеры workers публикуют в канал {@link DatabaseManager#CHANGE_CHANNEL} идентификатор
+ * узла, вид изменения и ID строк. Подписчик держит отдельное соединение с LISTEN, пропускает
+ * собственные изменения, перечитывает изменённые строки одним запросом и применяет их к
+ * коллекции через {@link CollectionManager#applyRemoteChanges(List, java.util.Collection)}.
+ * <p>
+ * {@link #listen()} нужно вызвать до загрузки коллекции: изменения, зафиксированные между
+ * LISTEN и загрузкой, будут применены повторно, но не потеряются. После обрыва соединения
+ * подписка восстанавливается, а коллекция перезагружается целиком, так как уведомления,
+ * пришедшие без подписки, потеряны.
+ * <p>
+ * Уведомления применяются асинхронно, поэтому снимок коллекции не может брать границу изменений
+ * БД как есть: изменение другого узла ниже границы могло ещё не дойти до коллекции и после
+ * перезапуска не догрузилось бы. Подписчик на каждом круге читает границу на своём соединении:
+ * уведомления транзакций, завершённых до этого запроса, сервер БД отправляет не позже ответа на
+ * следующий запрос. Поэтому, когда после следующего запроса уведомления разобраны полностью,
+ * все изменения не выше прошлой границы уже в коллекции - это {@link #getAppliedWatermark()},
+ * которой {@link CollectionManager} ограничивает границу снимка.
+ */
+public class ChangeFeedListener implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ChangeFeedListener.class);
+    private static final int POLL_TIMEOUT_MILLIS = 500;
+    private static final long RECONNECT_DELAY_MILLIS = 5_000;
+    private static final int MAX_IDS_PER_APPLY = 50_000;
+
+    private final DatabaseManager databaseManager;
+    private final String nodeId;
+    private volatile boolean running;
+    private volatile long appliedWatermark = -1;
+    private Connection connection;
+    private Thread thread;
+
+    public ChangeFeedListener(DatabaseManager databaseManager, String nodeId) {
+        this.databaseManager = databaseManager;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Открывает соединение и подписывается на канал. Уведомления копятся в соединении, пока
+     * не запущен {@link #start(CollectionManager)}.
+     */
+    public synchronized void listen() throws SQLException {
+        Connection listener = databaseManager.openListenerConnection();
+        try (Statement stmt = listener.createStatement()) {
+            stmt.execute("LISTEN " + DatabaseManager.CHANGE_CHANNEL);
+        } catch (SQLException e) {
+            listener.close();
+            throw e;
+        }
+        connection = listener;
+        logger.info("Node {} listening for changes on channel {}.", nodeId, DatabaseManager.CHANGE_CHANNEL);
+    }
+
+    public synchronized void start(CollectionManager collectionManager) {
+        if (running) {
+            return;
+        }
+        running = true;
+        collectionManager.setChangeWatermarkLimit(this::getAppliedWatermark);
+        thread = new Thread(() -> run(collectionManager), "ChangeFeedThread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return Граница изменений БД, до которой все изменения других узлов уже применены
+     * к коллекции, или -1, если она ещё неизвестна.
+     */
+    public long getAppliedWatermark() {
+        return appliedWatermark;
+    }
+
+    private void run(CollectionManager collectionManager) {
+        long previousWatermark = -1;
+        while (running) {
+            try {
+                if (currentConnection() == null) {
+                    appliedWatermark = -1;
+                    previousWatermark = -1;
+                    listen();
+                    logger.warn("Change feed reconnected; reloading the collection, notifications may have been missed.");
+                    collectionManager.loadFromDatabase();
+                }
+                Connection listener = currentConnection();
+                PGConnection pgConnection = listener.unwrap(PGConnection.class);
+                PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+                long watermark = DatabaseManager.queryChangeWatermark(listener);
+                // Последнее изменение каждого ID: true - строку нужно перечитать, false - она удалена.
+                Map<Long, Boolean> pending = new LinkedHashMap<>();
+                boolean drained = false;
+                while (true) {
+                    if (notifications != null) {
+                        collect(notifications, pending);
+                    }
+                    if (pending.size() >= MAX_IDS_PER_APPLY) {
+                        break;
+                    }
+                    notifications = pgConnection.getNotifications();
+                    if (notifications == null || notifications.length == 0) {
+                        drained = true;
+                        break;
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    apply(collectionManager, pending);
+                }
+                if (drained) {
+                    appliedWatermark = previousWatermark;
+                }
+                previousWatermark = watermark;
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Change feed error: {}. Reconnecting in {} ms.", e.getMessage(), RECONNECT_DELAY_MILLIS);
+                closeConnection();
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        closeConnection();
+    }
+
+    private void collect(PGNotification[] notifications, Map<Long, Boolean> pending) {
+        for (PGNotification notification : notifications) {
+            String payload = notification.getParameter();
+            int nodeEnd = payload.indexOf(':');
+            int opEnd = payload.indexOf(':', nodeEnd + 1);
+            if (nodeEnd < 0 || opEnd < 0) {
+                logger.warn("Ignoring malformed change notification: {}", payload);
+                continue;
+            }
+            if (payload.substring(0, nodeEnd).equals(nodeId)) {
+                continue;
+            }
+            boolean deleted = payload.charAt(nodeEnd + 1) == 'D';
+            try {
+                for (String id : payload.substring(opEnd + 1).split(",")) {
+                    Long workerId = Long.valueOf(id);
+                    // Порядок ключей - порядок последнего изменения, поэтому ключ переставляется в конец.
+                    pending.remove(workerId);
+                    pending.put(workerId, !deleted);
+                }
+            } catch (NumberFormatException e) {
+                logger.warn("Ignoring malformed change notification: {}", payload);
+            }
+        }
+    }
+
+    /**
+     * Перечитывает изменённые строки; строка, которой уже нет, считается удалённой.
+     */
+    private void apply(CollectionManager collectionManager, Map<Long, Boolean> pending) throws SQLException {
+        List<Long> changedIds = new ArrayList<>();
+        Set<Long> deletedIds = new HashSet<>();
+        pending.forEach((id, changed) -> {
+            if (changed) {
+                changedIds.add(id);
+            } else {
+                deletedIds.add(id);
+            }
+        });
+        List<Worker> changed = List.of();
+        if (!changedIds.isEmpty()) {
+            changed = databaseManager.loadWorkersByIds(changedIds);
+            if (changed == null) {
+                throw new SQLException("не удалось перечитать изменённых работников");
+            }
+            Set<Long> found = new HashSet<>();
+            changed.forEach(worker -> found.add(worker.getId()));
+            for (Long id : changedIds) {
+                if (!found.contains(id)) {
+                    deletedIds.add(id);
+                }
+            }
+        }
+        collectionManager.applyRemoteChanges(changed, deletedIds);
+        logger.info("Applied changes from other nodes: {} changed, {} deleted workers.", changed.size(), deletedIds.size());
+    }
+
+    private synchronized Connection currentConnection() {
+        return connection;
+    }
+
+    private synchronized void closeConnection() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.warn("Error closing change feed connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+
+    @Override
+    public void close() {
+        Thread listenerThread;
+        synchronized (this) {
+            running = false;
+            listenerThread = thread;
+        }
+        if (listenerThread != null) {
+            try {
+                listenerThread.join(POLL_TIMEOUT_MILLIS * 4L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeConnection();
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.server;
+
+/**
+ * Получатель изменений коллекции, например ведомый узел репликации.
+ * <p>
+ * Методы вызываются под блокировкой коллекции в порядке изменений, поэтому должны быстро
+ * возвращаться и не обращаться к коллекции. Работники в записи - объекты коллекции, которые
+ * следующие изменения меняют на месте: их нужно скопировать или сериализовать до возврата.
+ */
+public interface CollectionChangeListener {
+
+    /**
+     * @param version Версия коллекции после изменения.
+     */
+    void changed(WalRecord record, long version);
+
+    /**
+     * Коллекция перечитана из хранилища целиком; предыдущие изменения к ней больше не применимы.
+     */
+    void reloaded();
+}
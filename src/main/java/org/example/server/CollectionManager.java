@@ -2,190 +2,850 @@ package org.example.server;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.common.model.Position;
 import org.example.common.model.Worker;
+import org.example.common.query.OrderBySpec;
+import org.example.common.query.WorkerField;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+import org.example.common.response.AggregateReport;
+import org.example.common.response.CollectionVersion;
+import org.example.common.response.GroupAggregate;
+import org.example.common.response.OperationOutcome;
+import org.example.common.response.SalaryStats;
+import org.example.server.index.AggregateIndex;
+import org.example.server.index.OrderByExecutor;
+import org.example.server.index.QueryExecutor;
+import org.example.server.index.SalarySketchIndex;
+import org.example.server.index.TopKSelector;
+import org.example.server.index.WorkerIndexes;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 public class CollectionManager {
-    private final LinkedList<Worker> workers;
+    private final ArrayList<Worker> workers;
     private final LocalDate initializationDate;
-    private final DatabaseManager databaseManager;
+    private final Storage storage;
     private static final Logger logger = LogManager.getLogger(CollectionManager.class);
-    private final Worker.LocationComparator locationComparator = new Worker.LocationComparator();
+    private static final OrderBySpec LOCATION_ORDER = new OrderBySpec(List.of(WorkerField.X, WorkerField.Y), false);
+    private long version;
+    // Случайная при каждом запуске, чтобы версия до перезапуска не совпала с версией после него.
+    private long epoch = ThreadLocalRandom.current().nextLong();
+    private final WorkerIndexes indexes = new WorkerIndexes();
+    private final CollectionSnapshot snapshot;
+    private final WriteAheadLog wal;
+    private static final int WAL_BATCH_SIZE = 4096;
+    private long snapshotVersion = -1;
+    private final QueryExecutor queryExecutor = new QueryExecutor(indexes);
+    private final TopKSelector topKSelector = new TopKSelector(indexes);
+    private final OrderByExecutor orderByExecutor = new OrderByExecutor();
+    private final AggregateIndex aggregateIndex = new AggregateIndex();
+    private final SalarySketchIndex salarySketchIndex = new SalarySketchIndex();
+    private final List<CollectionChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    // Граница изменений, уже применённых из ленты других узлов; null - ленты нет.
+    private volatile LongSupplier changeWatermarkLimit;
+    private final Map<Integer, Object> userLocks = new ConcurrentHashMap<>();
 
-    public CollectionManager(DatabaseManager dbManager) {
-        this.workers = new LinkedList<>();
+    public CollectionManager(Storage storage) {
+        this(storage, null, null);
+    }
+
+    /**
+     * @param snapshot Файл снимка коллекции или null, если снимки не используются. Если снимок
+     *                 есть, коллекция загружается из него и догружается изменениями из журнала и БД.
+     * @param wal      Журнал изменений коллекции или null, если журнал не ведётся.
+     */
+    public CollectionManager(Storage storage, CollectionSnapshot snapshot, WriteAheadLog wal) {
+        this(storage, snapshot, wal, true);
+    }
+
+    private CollectionManager(Storage storage, CollectionSnapshot snapshot, WriteAheadLog wal, boolean load) {
+        this.workers = new ArrayList<>();
         this.initializationDate = LocalDate.now();
-        this.databaseManager = dbManager;
-        loadFromDatabase();
+        this.storage = storage;
+        this.snapshot = snapshot;
+        this.wal = wal;
+        indexes.register(aggregateIndex);
+        indexes.register(salarySketchIndex);
+        if (load && (snapshot == null || !loadFromSnapshot())) {
+            loadFromDatabase();
+        }
+    }
+
+    /**
+     * Пустая коллекция без хранилища для ведомого узла: её содержимое задают только
+     * {@link #resetReplica(List, CollectionVersion)} и {@link #applyReplicated(WalRecord, long)}, а команды
+     * изменения для неё вызывать нельзя.
+     */
+    public static CollectionManager replica() {
+        return new CollectionManager(null, null, null, false);
+    }
+
+    /**
+     * Загружает коллекцию из снимка и применяет изменения после него: сначала записи журнала,
+     * затем строки, изменённые в БД (в том числе не через сервер). Каждый затронутый работник
+     * заменяется один раз, последним состоянием.
+     *
+     * @return false, если снимка нет или его не удалось применить; коллекция при этом пуста.
+     */
+    private synchronized boolean loadFromSnapshot() {
+        if (!snapshot.exists()) {
+            logger.info("Collection snapshot {} not found.", snapshot.getPath());
+            return false;
+        }
+        long currentWatermark = storage.getChangeWatermark();
+        if (currentWatermark < 0) {
+            return false;
+        }
+        try {
+            CollectionSnapshot.Header header = snapshot.read(this::store);
+            long snapshotWatermark = header.getChangeWatermark();
+            if (snapshotWatermark > currentWatermark) {
+                throw new IllegalStateException("снимок новее БД (изменение " + snapshotWatermark + " > " + currentWatermark + ")");
+            }
+            if (!storage.isChangeHistoryRetained(snapshotWatermark)) {
+                throw new IllegalStateException("удаления после изменения " + snapshotWatermark + " уже не хранятся в БД");
+            }
+            // Последнее состояние каждого затронутого работника; null - работник удалён.
+            Map<Long, Worker> replayed = new HashMap<>();
+            long walRecords = 0;
+            if (wal != null) {
+                long[] counter = new long[1];
+                wal.replay(header.getWalLsn(), record -> {
+                    counter[0]++;
+                    record.getWorkers().forEach(worker -> replayed.put(worker.getId(), worker));
+                    record.getIds().forEach(id -> replayed.put(id, null));
+                });
+                walRecords = counter[0];
+                wal.skipTo(header.getWalLsn());
+            }
+            List<Worker> changed = storage.loadWorkersChangedSince(snapshotWatermark);
+            List<Long> deleted = storage.loadWorkerIdsDeletedSince(snapshotWatermark);
+            if (changed == null || deleted == null) {
+                throw new IllegalStateException("не удалось прочитать изменения после снимка");
+            }
+            deleted.forEach(id -> replayed.put(id, null));
+            changed.forEach(worker -> replayed.put(worker.getId(), worker));
+            version = header.getCollectionVersion();
+            removeFromMemory(replayed.keySet());
+            replayed.values().stream().filter(Objects::nonNull).sorted().forEach(this::store);
+            if (!replayed.isEmpty()) {
+                version++;
+            } else {
+                snapshotVersion = version;
+            }
+            workers.trimToSize();
+            logger.info("Collection restored from snapshot {} ({} elements, version {}); replayed {} WAL records, "
+                            + "{} changed and {} deleted workers from database.", snapshot.getPath(), header.getWorkerCount(),
+                    header.getCollectionVersion(), walRecords, changed.size(), deleted.size());
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not restore collection from snapshot {}: {}. Loading from database.", snapshot.getPath(), e.getMessage());
+            workers.clear();
+            indexes.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Ограничивает границу изменений снимка тем, что уже применено из ленты изменений других
+     * узлов (см. {@link ChangeFeedListener#getAppliedWatermark()}).
+     */
+    public void setChangeWatermarkLimit(LongSupplier changeWatermarkLimit) {
+        this.changeWatermarkLimit = changeWatermarkLimit;
+    }
+
+    /**
+     * Записывает снимок коллекции, если она изменилась с прошлого снимка. Запись идёт под
+     * блокировкой коллекции, так как обновление меняет объекты работников на месте.
+     */
+    public synchronized OperationResult saveSnapshot() {
+        if (snapshot == null) {
+            return OperationResult.of(OperationOutcome.NOT_APPLIED, "Снимки коллекции отключены.");
+        }
+        if (version == snapshotVersion) {
+            return OperationResult.of(OperationOutcome.NOT_APPLIED, "Коллекция не изменилась с последнего снимка (версия " + version + ").");
+        }
+        long watermark = storage.getChangeWatermark();
+        if (watermark < 0) {
+            return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось прочитать номер последнего изменения в БД.");
+        }
+        LongSupplier limit = changeWatermarkLimit;
+        if (limit != null) {
+            long applied = limit.getAsLong();
+            if (applied < 0) {
+                return OperationResult.of(OperationOutcome.NOT_APPLIED, "Изменения других серверов ещё не применены, снимок отложен.");
+            }
+            watermark = Math.min(watermark, applied);
+        }
+        long start = System.nanoTime();
+        long walLsn = wal != null ? wal.getLastLsn() : 0;
+        try {
+            snapshot.write(version, watermark, walLsn, workers);
+        } catch (IOException e) {
+            logger.error("Error writing collection snapshot {}: {}", snapshot.getPath(), e.getMessage(), e);
+            return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось записать снимок коллекции: " + e.getMessage());
+        }
+        snapshotVersion = version;
+        storage.pruneWorkerDeletions(watermark);
+        if (wal != null) {
+            try {
+                wal.compact(walLsn);
+            } catch (IOException e) {
+                logger.warn("Error compacting write-ahead log: {}", e.getMessage());
+            }
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Collection snapshot {} written: {} elements, version {}, change {} ({} ms).",
+                snapshot.getPath(), workers.size(), version, watermark, millis);
+        return OperationResult.success("Снимок коллекции записан в " + snapshot.getPath() + ": " + workers.size()
+                + " элементов, версия " + version + ".");
+    }
+
+    /**
+     * Догружает работников, добавленных или изменённых в хранилище в обход коллекции после
+     * изменения с номером {@code changeSeq}, например импортом из CSV. Остальная коллекция
+     * не перечитывается.
+     */
+    public synchronized OperationResult refreshChangedSince(long changeSeq) {
+        List<Worker> changed = storage.loadWorkersChangedSince(changeSeq);
+        if (changed == null) {
+            return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось прочитать изменения из базы данных.");
+        }
+        if (changed.isEmpty()) {
+            return OperationResult.of(OperationOutcome.NOT_APPLIED, "Новых изменений в базе данных нет.");
+        }
+        replace(changed, List.of());
+        logger.info("Refreshed {} workers changed in database after change {}.", changed.size(), changeSeq);
+        return OperationResult.success("Загружено работников из базы данных: " + changed.size() + ".");
+    }
+
+    /**
+     * Применяет изменения, сделанные в БД другим узлом: работники из {@code changed} заменяют
+     * работников с теми же ID, работники с ID из {@code deletedIds} удаляются.
+     */
+    public synchronized void applyRemoteChanges(List<Worker> changed, Collection<Long> deletedIds) {
+        if (changed.isEmpty() && deletedIds.isEmpty()) {
+            return;
+        }
+        replace(changed, deletedIds);
+        logger.debug("Applied remote changes: {} changed, {} deleted workers.", changed.size(), deletedIds.size());
+    }
+
+    /**
+     * Заменяет в памяти изменённых работников и удаляет удалённых, дописывая изменение в журнал.
+     * Уже известные работники меняются на месте, поэтому проход по всей коллекции нужен только
+     * при удалении.
+     */
+    private void replace(List<Worker> changed, Collection<Long> deletedIds) {
+        changed.forEach(this::storeOrOverwrite);
+        if (!deletedIds.isEmpty()) {
+            removeFromMemory(deletedIds);
+        }
+        if (!changed.isEmpty()) {
+            appendToWal(changed, WalRecord::update);
+        }
+        if (!deletedIds.isEmpty()) {
+            appendToWal(new ArrayList<>(deletedIds), WalRecord::remove);
+        }
+        version++;
     }
 
     public synchronized void loadFromDatabase() {
         workers.clear();
-        List<Worker> loadedWorkers = databaseManager.loadAllWorkers();
-        workers.addAll(loadedWorkers);
+        indexes.clear();
+        long estimatedCount = storage.estimateWorkerCount();
+        if (estimatedCount > 0) {
+            workers.ensureCapacity((int) Math.min(Integer.MAX_VALUE - 8, estimatedCount + estimatedCount / 20));
+        }
+        // Работники сразу попадают в коллекцию и индексы, без промежуточного списка.
+        long loadedCount = storage.loadAllWorkers(this::store);
+        if (loadedCount < 0) {
+            workers.clear();
+            indexes.clear();
+            logger.error("Failed to load collection from database. Collection is empty.");
+        }
+        workers.trimToSize();
+        version++;
         logger.info("Collection successfully loaded from database. Loaded {} elements.", workers.size());
+        changeListeners.forEach(CollectionChangeListener::reloaded);
+    }
+
+    /**
+     * Подключает получателя изменений. Под той же блокировкой все работники в порядке ID
+     * передаются в {@code sink}, поэтому получатель увидит ровно изменения после этой выборки.
+     *
+     * @return Версия коллекции на момент выборки.
+     */
+    public synchronized CollectionVersion addChangeListener(CollectionChangeListener listener, Consumer<Worker> sink) {
+        indexes.byId().values().forEach(sink);
+        changeListeners.add(listener);
+        return getVersionToken();
     }
 
-    public synchronized String addWorker(Worker worker, int userId) {
+    public void removeChangeListener(CollectionChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Заменяет содержимое реплики снимком ведущего узла.
+     *
+     * @param version Версия коллекции ведущего узла, к которой относится снимок; реплика
+     *                принимает и её эпоху.
+     */
+    public synchronized void resetReplica(List<Worker> snapshotWorkers, CollectionVersion version) {
+        workers.clear();
+        indexes.clear();
+        workers.ensureCapacity(snapshotWorkers.size());
+        snapshotWorkers.forEach(this::store);
+        this.epoch = version.epoch();
+        this.version = version.counter();
+        // Счётчик ведущего может совпасть со старым счётчиком реплики при другом содержимом.
+        orderByExecutor.invalidate();
+        logger.info("Replica reset from leader snapshot: {} elements, version {}.", workers.size(), version);
+    }
+
+    /**
+     * Применяет к реплике изменение ведущего узла и принимает его версию коллекции, поэтому
+     * версии, которые видят клиенты, на всех узлах означают одно и то же содержимое.
+     */
+    public synchronized void applyReplicated(WalRecord record, long version) {
+        switch (record.getType()) {
+            case ADD, UPDATE -> record.getWorkers().forEach(this::storeOrOverwrite);
+            case REMOVE, CLEAR -> removeFromMemory(record.getIds());
+        }
+        this.version = version;
+    }
+
+    /**
+     * Блокировка изменений одного пользователя. Команда изменения держит её на время обращения
+     * к хранилищу, а блокировку коллекции - только на время изменения памяти, поэтому чтения и
+     * изменения других пользователей не ждут БД. Изменять работника может только его владелец,
+     * так что этого достаточно, чтобы память менялась в том же порядке, что и хранилище.
+     */
+    private Object userLock(int userId) {
+        return userLocks.computeIfAbsent(userId, id -> new Object());
+    }
+
+    public OperationResult addWorker(Worker worker, int userId) {
         if (worker == null) {
             logger.warn("Attempt to add null worker by user {}.", userId);
-            return "Cannot add null worker.";
+            return OperationResult.of(OperationOutcome.INVALID_ARGUMENT, "Cannot add null worker.");
         }
-        Worker dbWorker = databaseManager.addWorker(worker, userId);
-        if (dbWorker != null) {
-            workers.add(dbWorker);
+        synchronized (userLock(userId)) {
+            Worker dbWorker = storage.addWorker(worker, userId);
+            if (dbWorker == null) {
+                logger.warn("Failed to add worker to database for user {}.", userId);
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось добавить работника в базу данных.");
+            }
+            synchronized (this) {
+                storeOrOverwrite(dbWorker);
+                appendToWal(WalRecord.add(dbWorker));
+                version++;
+            }
             logger.info("User {} added new worker with ID {}: {}", userId, dbWorker.getId(), dbWorker.getName());
-            return "Работник успешно добавлен с ID " + dbWorker.getId() + ".";
-        } else {
-            logger.warn("Failed to add worker to database for user {}.", userId);
-            return "Ошибка: Не удалось добавить работника в базу данных.";
+            return OperationResult.success("Работник успешно добавлен с ID " + dbWorker.getId() + ".");
         }
     }
 
-    public synchronized String updateWorker(Long workerId, Worker newWorkerData, int userId) {
+    /**
+     * Добавляет работников одним обращением к хранилищу: либо всех, либо ни одного.
+     */
+    public OperationResult addWorkers(List<Worker> newWorkers, int userId) {
+        if (newWorkers.isEmpty()) {
+            return OperationResult.of(OperationOutcome.NOT_APPLIED, "Нет работников для добавления.");
+        }
+        synchronized (userLock(userId)) {
+            List<Worker> dbWorkers = storage.addWorkers(newWorkers, userId);
+            if (dbWorkers == null) {
+                logger.warn("Failed to add {} workers to database for user {}.", newWorkers.size(), userId);
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось добавить работников в базу данных, ни один не добавлен.");
+            }
+            synchronized (this) {
+                workers.ensureCapacity(workers.size() + dbWorkers.size());
+                dbWorkers.forEach(this::storeOrOverwrite);
+                appendToWal(dbWorkers, batch -> WalRecord.add(userId, batch));
+                version++;
+            }
+            logger.info("User {} added {} workers.", userId, dbWorkers.size());
+            return OperationResult.success("Добавлено работников: " + dbWorkers.size() + ".");
+        }
+    }
+
+    public OperationResult updateWorker(Long workerId, Worker newWorkerData, int userId) {
         if (workerId == null || newWorkerData == null) {
             logger.warn("User {} attempted to update worker with null ID or null data.", userId);
-            return "ID работника и новые данные не могут быть null.";
+            return OperationResult.of(OperationOutcome.INVALID_ARGUMENT, "ID работника и новые данные не могут быть null.");
         }
+        synchronized (userLock(userId)) {
+            OperationResult rejected = checkOwner(workerId, userId, "обновления", "обновлять");
+            if (rejected != null) {
+                return rejected;
+            }
+            newWorkerData.setId(workerId);
+            newWorkerData.setOwnerId(userId);
 
-        Optional<Worker> workerToUpdateOpt = workers.stream().filter(w -> w.getId().equals(workerId)).findFirst();
-
-        if (workerToUpdateOpt.isEmpty()) {
-            logger.warn("Worker with ID {} for update not found in memory by user {}.", workerId, userId);
-            return "Работник с ID " + workerId + " не найден для обновления.";
+            OperationOutcome outcome = storage.updateWorker(newWorkerData, userId);
+            if (outcome == OperationOutcome.SUCCESS) {
+                synchronized (this) {
+                    // Между проверкой и этим местом коллекцию могли перезагрузить.
+                    Worker existingWorker = indexes.getById(workerId);
+                    if (existingWorker != null) {
+                        overwrite(existingWorker, newWorkerData);
+                        appendToWal(WalRecord.update(List.of(existingWorker)));
+                        version++;
+                    }
+                }
+                logger.info("User {} successfully updated worker with ID {}.", userId, workerId);
+                return OperationResult.success("Работник с ID " + workerId + " успешно обновлен.");
+            }
+            logger.warn("Failed to update worker {} in database by user {}: {}.", workerId, userId, outcome);
+            return switch (outcome) {
+                case NOT_FOUND, NOT_OWNER -> {
+                    // Память разошлась с БД: работника удалили или передали напрямую в базе.
+                    loadFromDatabase();
+                    yield OperationResult.of(outcome, outcome == OperationOutcome.NOT_FOUND
+                            ? "Работник с ID " + workerId + " не найден для обновления. Коллекция перезагружена."
+                            : "Ошибка: Вы можете обновлять только тех работников, которых вы создали. Коллекция перезагружена.");
+                }
+                default -> OperationResult.of(outcome, "Ошибка: Не удалось обновить работника в базе данных.");
+            };
         }
+    }
 
-        Worker existingWorker = workerToUpdateOpt.get();
-        if (existingWorker.getOwnerId() != userId) {
-            logger.warn("User {} (owner {}) attempted to update worker {} owned by user {}.", userId, newWorkerData.getOwnerId(), workerId, existingWorker.getOwnerId());
-            return "Ошибка: Вы можете обновлять только тех работников, которых вы создали.";
+    /**
+     * Проверяет по памяти, что работник есть и принадлежит пользователю.
+     *
+     * @return Отказ или null, если команду можно выполнять.
+     */
+    private synchronized OperationResult checkOwner(long workerId, int userId, String purpose, String action) {
+        Worker existingWorker = indexes.getById(workerId);
+        if (existingWorker == null) {
+            logger.warn("Worker with ID {} not found in memory by user {}.", workerId, userId);
+            return OperationResult.of(OperationOutcome.NOT_FOUND, "Работник с ID " + workerId + " не найден для " + purpose + ".");
         }
-
-        newWorkerData.setId(workerId);
-        newWorkerData.setOwnerId(userId);
-
-        if (databaseManager.updateWorker(newWorkerData, userId)) {
-
-            existingWorker.setName(newWorkerData.getName());
-            existingWorker.setCoordinates(newWorkerData.getCoordinates());
-            existingWorker.setSalary(newWorkerData.getSalary());
-            existingWorker.setStartDate(newWorkerData.getStartDate());
-            existingWorker.setEndDate(newWorkerData.getEndDate());
-            existingWorker.setPosition(newWorkerData.getPosition());
-            existingWorker.setOrganization(newWorkerData.getOrganization());
-
-            logger.info("User {} successfully updated worker with ID {}.", userId, workerId);
-            return "Работник с ID " + workerId + " успешно обновлен.";
-        } else {
-            logger.warn("Failed to update worker {} in database by user {}.", workerId, userId);
-            return "Ошибка: Не удалось обновить работника в базе данных или он вам не принадлежит.";
+        if (existingWorker.getOwnerId() != userId) {
+            logger.warn("User {} attempted to modify worker {} owned by user {}.", userId, workerId, existingWorker.getOwnerId());
+            return OperationResult.of(OperationOutcome.NOT_OWNER, "Ошибка: Вы можете " + action + " только тех работников, которых вы создали.");
         }
+        return null;
     }
 
-
-    public synchronized String removeWorkerById(Long workerId, int userId) {
+    public OperationResult removeWorkerById(Long workerId, int userId) {
         if (workerId == null) {
             logger.warn("User {} attempted to remove worker with null ID.", userId);
-            return "ID для удаления не может быть null.";
+            return OperationResult.of(OperationOutcome.INVALID_ARGUMENT, "ID для удаления не может быть null.");
         }
+        synchronized (userLock(userId)) {
+            OperationResult rejected = checkOwner(workerId, userId, "удаления", "удалять");
+            if (rejected != null) {
+                return rejected;
+            }
 
-        Optional<Worker> workerToRemoveOpt = workers.stream().filter(w -> w.getId().equals(workerId)).findFirst();
-
-        if (workerToRemoveOpt.isEmpty()) {
-            logger.warn("Worker with ID {} for removal not found in memory by user {}.", workerId, userId);
-            return "Работник с ID " + workerId + " не найден для удаления.";
+            OperationOutcome outcome = storage.deleteWorker(workerId, userId);
+            if (outcome == OperationOutcome.SUCCESS) {
+                synchronized (this) {
+                    if (removeFromMemory(List.of(workerId)) > 0) {
+                        appendToWal(WalRecord.remove(List.of(workerId)));
+                        version++;
+                    }
+                }
+                logger.info("User {} removed worker with ID {} from collection and DB.", userId, workerId);
+                return OperationResult.success("Работник с ID " + workerId + " успешно удален.");
+            }
+            logger.warn("Failed to remove worker {} from database by user {}: {}.", workerId, userId, outcome);
+            return switch (outcome) {
+                case NOT_FOUND, NOT_OWNER -> {
+                    loadFromDatabase();
+                    yield OperationResult.of(outcome, outcome == OperationOutcome.NOT_FOUND
+                            ? "Работник с ID " + workerId + " не найден для удаления. Коллекция перезагружена."
+                            : "Ошибка: Вы можете удалять только тех работников, которых вы создали. Коллекция перезагружена.");
+                }
+                default -> OperationResult.of(outcome, "Ошибка: Не удалось удалить работника из базы данных.");
+            };
         }
+    }
 
-        if (workerToRemoveOpt.get().getOwnerId() != userId) {
-            logger.warn("User {} attempted to remove worker {} not owned by them.", userId, workerId);
-            return "Ошибка: Вы можете удалять только тех работников, которых вы создали.";
+    public OperationResult clear(int userId) {
+        synchronized (userLock(userId)) {
+            List<Long> deletedIds = storage.clearWorkersByUserId(userId);
+            if (deletedIds == null) {
+                logger.error("Error clearing workers for user {} from DB.", userId);
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Произошла ошибка при очистке ваших работников из базы данных.");
+            }
+            int removedMemoryCount;
+            synchronized (this) {
+                removedMemoryCount = removeFromMemory(deletedIds);
+                appendToWal(deletedIds, ids -> WalRecord.clear(userId, ids));
+                if (!deletedIds.isEmpty()) {
+                    version++;
+                }
+            }
+            logger.info("User {} cleared their workers. {} removed from DB, {} removed from memory.", userId, deletedIds.size(), removedMemoryCount);
+            if (removedMemoryCount != deletedIds.size()) {
+                logger.warn("DB ({}) and memory ({}) cleared counts differ for user {}. Reloading for consistency.", deletedIds.size(), removedMemoryCount, userId);
+                loadFromDatabase();
+                return OperationResult.success("Работники пользователя очищены. Обнаружено несоответствие с базой данных, коллекция перезагружена.");
+            }
+            return OperationResult.success("Все принадлежащие вам работники (" + deletedIds.size() + ") были удалены.");
         }
+    }
 
-        if (databaseManager.deleteWorker(workerId, userId)) {
-            boolean removedFromMemory = workers.removeIf(worker -> worker.getId().equals(workerId) && worker.getOwnerId() == userId);
-            if (removedFromMemory) {
-                logger.info("User {} removed worker with ID {} from collection and DB.", userId, workerId);
-                return "Работник с ID " + workerId + " успешно удален.";
-            } else {
-                logger.error("Worker {} deleted from DB by user {} but failed to remove from memory collection!", workerId, userId);
+    /**
+     * Удаляет одним запросом к БД всех работников пользователя, удовлетворяющих условию.
+     * В памяти удаляются ровно те работники, которых вернула БД, версия увеличивается один раз.
+     */
+    public OperationResult removeWhere(WorkerPredicate predicate, int userId) {
+        synchronized (userLock(userId)) {
+            List<Long> deletedIds = storage.deleteWorkersWhere(predicate, userId);
+            if (deletedIds == null) {
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось удалить работников из базы данных.");
+            }
+            if (deletedIds.isEmpty()) {
+                return OperationResult.success("Нет ваших работников, удовлетворяющих условию: " + predicate);
+            }
+            int removedMemoryCount;
+            synchronized (this) {
+                removedMemoryCount = removeFromMemory(deletedIds);
+                appendToWal(deletedIds, WalRecord::remove);
+                version++;
+            }
+            logger.info("User {} removed {} workers matching '{}'.", userId, deletedIds.size(), predicate);
+            if (removedMemoryCount != deletedIds.size()) {
+                logger.warn("DB ({}) and memory ({}) removed counts differ for user {}. Reloading for consistency.",
+                        deletedIds.size(), removedMemoryCount, userId);
                 loadFromDatabase();
-                return "Работник удален из БД, но произошла ошибка синхронизации с памятью. Коллекция перезагружена.";
             }
-        } else {
-            logger.warn("Failed to remove worker {} from database by user {}.", workerId, userId);
-            return "Ошибка: Не удалось удалить работника из базы данных или он вам не принадлежит.";
+            return OperationResult.success("Удалено работников: " + deletedIds.size() + ".");
         }
     }
 
-    public synchronized String clear(int userId) {
-        int affectedDBRows = databaseManager.clearWorkersByUserId(userId);
-        if (affectedDBRows >= 0) {
-            long initialMemorySize = workers.size();
-            workers.removeIf(worker -> worker.getOwnerId() == userId);
-            long removedMemoryCount = initialMemorySize - workers.size();
-            logger.info("User {} cleared their workers. {} removed from DB, {} removed from memory.", userId, affectedDBRows, removedMemoryCount);
-            if (affectedDBRows != removedMemoryCount) {
-                logger.warn("DB ({}) and memory ({}) cleared counts differ for user {}. Reloading for consistency.", affectedDBRows, removedMemoryCount, userId);
+    /**
+     * Изменяет одним запросом к БД всех работников пользователя, удовлетворяющих условию.
+     * Работники в памяти получают значения, которые вернула БД, версия увеличивается один раз.
+     */
+    public OperationResult updateWhere(WorkerPredicate predicate, WorkerPatch patch, int userId) {
+        synchronized (userLock(userId)) {
+            List<Worker> updatedWorkers = storage.updateWorkersWhere(predicate, patch, userId);
+            if (updatedWorkers == null) {
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR,
+                        "Ошибка: Не удалось обновить работников в базе данных (возможно, новые значения нарушают ограничения).");
+            }
+            if (updatedWorkers.isEmpty()) {
+                return OperationResult.success("Нет ваших работников, удовлетворяющих условию: " + predicate);
+            }
+            boolean missing = false;
+            synchronized (this) {
+                for (Worker updated : updatedWorkers) {
+                    Worker existingWorker = indexes.getById(updated.getId());
+                    if (existingWorker == null) {
+                        missing = true;
+                        continue;
+                    }
+                    overwrite(existingWorker, updated);
+                }
+                appendToWal(updatedWorkers, WalRecord::update);
+                version++;
+            }
+            logger.info("User {} updated {} workers matching '{}' ({}).", userId, updatedWorkers.size(), predicate, patch);
+            if (missing) {
+                logger.warn("Some workers updated in DB by user {} were not found in memory. Reloading for consistency.", userId);
                 loadFromDatabase();
-                return "Работники пользователя очищены. Обнаружено несоответствие с базой данных, коллекция перезагружена.";
             }
-            return "Все принадлежащие вам работники (" + affectedDBRows + ") были удалены.";
-        } else {
-            logger.error("Error clearing workers for user {} from DB.", userId);
-            return "Произошла ошибка при очистке ваших работников из базы данных.";
+            return OperationResult.success("Обновлено работников: " + updatedWorkers.size() + ".");
         }
     }
 
-    public synchronized String addIfMax(Worker worker, int userId) {
+    public synchronized OperationResult addIfMax(Worker worker, int userId) {
         if (worker == null) {
             logger.warn("User {} attempted add_if_max with null worker.", userId);
-            return "Cannot add_if_max with null worker.";
+            return OperationResult.of(OperationOutcome.INVALID_ARGUMENT, "Cannot add_if_max with null worker.");
         }
         Optional<Worker> maxWorkerInCollection = workers.stream().max(Worker::compareTo);
         if (maxWorkerInCollection.isEmpty() || worker.compareTo(maxWorkerInCollection.get()) > 0) {
-            Worker dbWorker = databaseManager.addWorker(worker, userId);
+            Worker dbWorker = storage.addWorker(worker, userId);
             if (dbWorker != null) {
-                workers.add(dbWorker);
+                store(dbWorker);
+                appendToWal(WalRecord.add(dbWorker));
                 Collections.sort(workers);
+                version++;
                 logger.info("User {} added worker {} (add_if_max) with ID {}.", userId, dbWorker.getName(), dbWorker.getId());
-                return "Работник " + dbWorker.getName() + " добавлен (add_if_max) с ID " + dbWorker.getId() + ".";
+                return OperationResult.success("Работник " + dbWorker.getName() + " добавлен (add_if_max) с ID " + dbWorker.getId() + ".");
             } else {
                 logger.warn("Failed to add worker to database (add_if_max) for user {}.", userId);
-                return "Ошибка: Не удалось добавить работника в базу данных (add_if_max).";
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось добавить работника в базу данных (add_if_max).");
             }
         }
         logger.info("Worker {} not added (add_if_max) by user {}, not greater than max.", worker.getName(), userId);
-        return "Работник " + worker.getName() + " не добавлен (add_if_max), т.к. его значение не больше максимального.";
+        return OperationResult.of(OperationOutcome.NOT_APPLIED,
+                "Работник " + worker.getName() + " не добавлен (add_if_max), т.к. его значение не больше максимального.");
     }
 
-    public synchronized String addIfMin(Worker worker, int userId) {
+    public synchronized OperationResult addIfMin(Worker worker, int userId) {
         if (worker == null) {
             logger.warn("User {} attempted add_if_min with null worker.", userId);
-            return "Cannot add_if_min with null worker.";
+            return OperationResult.of(OperationOutcome.INVALID_ARGUMENT, "Cannot add_if_min with null worker.");
         }
         Optional<Worker> minWorkerInCollection = workers.stream().min(Worker::compareTo);
         if (minWorkerInCollection.isEmpty() || worker.compareTo(minWorkerInCollection.get()) < 0) {
-            Worker dbWorker = databaseManager.addWorker(worker, userId);
+            Worker dbWorker = storage.addWorker(worker, userId);
             if (dbWorker != null) {
-                workers.add(dbWorker);
+                store(dbWorker);
+                appendToWal(WalRecord.add(dbWorker));
                 Collections.sort(workers);
+                version++;
                 logger.info("User {} added worker {} (add_if_min) with ID {}.", userId, dbWorker.getName(), dbWorker.getId());
-                return "Работник " + dbWorker.getName() + " добавлен (add_if_min) с ID " + dbWorker.getId() + ".";
+                return OperationResult.success("Работник " + dbWorker.getName() + " добавлен (add_if_min) с ID " + dbWorker.getId() + ".");
             } else {
                 logger.warn("Failed to add worker to database (add_if_min) for user {}.", userId);
-                return "Ошибка: Не удалось добавить работника в базу данных (add_if_min).";
+                return OperationResult.of(OperationOutcome.STORAGE_ERROR, "Ошибка: Не удалось добавить работника в базу данных (add_if_min).");
             }
         }
         logger.info("Worker {} not added (add_if_min) by user {}, not less than min.", worker.getName(), userId);
-        return "Работник " + worker.getName() + " не добавлен (add_if_min), т.к. его значение не меньше минимального.";
+        return OperationResult.of(OperationOutcome.NOT_APPLIED,
+                "Работник " + worker.getName() + " не добавлен (add_if_min), т.к. его значение не меньше минимального.");
+    }
+
+    /**
+     * Возвращает k работников с наибольшим значением поля (работники без значения пропускаются).
+     *
+     * @throws IllegalArgumentException если k <= 0.
+     */
+    public synchronized List<Worker> topK(WorkerField field, int k) {
+        return topKSelector.topK(field, k, workers);
+    }
+
+    /**
+     * Ищет работников по вхождению текста в имя без учёта регистра: сначала совпадения
+     * по префиксу, затем остальные.
+     *
+     * @throws IllegalArgumentException если limit <= 0.
+     */
+    public synchronized List<Worker> searchByName(String text, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Количество результатов должно быть больше 0.");
+        }
+        return indexes.byName().search(text, limit);
+    }
+
+    /**
+     * Возвращает работников, период работы которых пересекается с [from, to].
+     *
+     * @return Работники в порядке начала периода работы.
+     * @throws IllegalArgumentException если from позже to.
+     */
+    public synchronized List<Worker> getEmployedDuring(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало периода не может быть позже его конца.");
+        }
+        return indexes.byEmploymentPeriod().overlapping(from, to);
+    }
+
+    /**
+     * Возвращает работников, работавших в заданный момент.
+     *
+     * @return Работники в порядке начала периода работы.
+     */
+    public synchronized List<Worker> getEmployedAt(Instant moment) {
+        return indexes.byEmploymentPeriod().at(moment);
+    }
+
+    /**
+     * Возвращает работников, дата окончания работы которых попадает в [from, to].
+     *
+     * @return Работники в порядке даты окончания.
+     */
+    public synchronized List<Worker> getEndingBetween(Instant from, Instant to) {
+        return indexes.byEndDate().range(from, true, to, true);
+    }
+
+    /**
+     * Возвращает всех работников в заданном порядке. Перестановка считается по примитивным ключам
+     * и кэшируется до следующего изменения коллекции.
+     */
+    public synchronized List<Worker> orderBy(OrderBySpec spec) {
+        return orderByExecutor.orderBy(spec, version, indexes.byId().values());
+    }
+
+    /**
+     * Возвращает агрегаты по зарплате, сгруппированные по должности или типу организации.
+     * Значения берутся из счётчиков, поддерживаемых при изменениях, и соответствуют версии в отчёте.
+     *
+     * @param groupBy "position" или "organization_type".
+     * @throws IllegalArgumentException при неизвестной группировке.
+     */
+    public synchronized AggregateReport aggregate(String groupBy) {
+        String normalizedGroupBy = groupBy == null ? "" : groupBy.trim().toLowerCase();
+        List<GroupAggregate> groups = switch (normalizedGroupBy) {
+            case "position" -> aggregateIndex.byPosition();
+            case "organization_type" -> aggregateIndex.byOrganizationType();
+            default -> throw new IllegalArgumentException("Группировка возможна только по position или organization_type.");
+        };
+        return new AggregateReport(normalizedGroupBy, getVersionToken(), groups);
+    }
+
+    /**
+     * Приближённые квантили (p50/p90/p99) и гистограмма зарплат по скетчам,
+     * поддерживаемым при изменениях коллекции.
+     *
+     * @param position должность или null для всей коллекции.
+     */
+    public synchronized SalaryStats getSalaryStats(Position position) {
+        return salarySketchIndex.stats(position);
+    }
+
+    /**
+     * Переносит изменяемые поля из {@code data} в работника коллекции, обновляя индексы.
+     */
+    private void overwrite(Worker existingWorker, Worker data) {
+        indexes.remove(existingWorker);
+        existingWorker.setName(data.getName());
+        existingWorker.setCoordinates(data.getCoordinates());
+        existingWorker.setSalary(data.getSalary());
+        existingWorker.setStartDate(data.getStartDate());
+        existingWorker.setEndDate(data.getEndDate());
+        existingWorker.setPosition(data.getPosition());
+        existingWorker.setOrganization(data.getOrganization());
+        indexes.add(existingWorker);
+    }
+
+    private void store(Worker worker) {
+        workers.add(worker);
+        indexes.add(worker);
+    }
+
+    private void storeOrOverwrite(Worker worker) {
+        Worker existingWorker = indexes.getById(worker.getId());
+        if (existingWorker != null) {
+            overwrite(existingWorker, worker);
+        } else {
+            store(worker);
+        }
+    }
+
+    /**
+     * Дописывает изменение в журнал и передаёт его получателям изменений. Изменение к этому
+     * моменту уже сохранено в БД, поэтому ошибка журнала только попадает в лог: при
+     * восстановлении изменение догрузится из БД.
+     * <p>
+     * Каждая команда увеличивает версию ровно один раз, после записи последнего изменения,
+     * поэтому получатели узнают версию после изменения как текущую плюс один.
+     */
+    private void appendToWal(WalRecord record) {
+        for (CollectionChangeListener listener : changeListeners) {
+            listener.changed(record, version + 1);
+        }
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.append(record);
+        } catch (IOException e) {
+            logger.error("Error appending to write-ahead log: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Дописывает в журнал большое изменение несколькими записями по {@link #WAL_BATCH_SIZE} элементов.
+     */
+    private <T> void appendToWal(List<T> items, Function<List<T>, WalRecord> recordFactory) {
+        for (int from = 0; from < items.size(); from += WAL_BATCH_SIZE) {
+            appendToWal(recordFactory.apply(items.subList(from, Math.min(items.size(), from + WAL_BATCH_SIZE))));
+        }
+    }
+
+    /**
+     * Записывает снимок, если журнал изменений вырос больше порога. После снимка сегменты
+     * журнала, которые он покрывает, удаляются.
+     */
+    public void compactWal() {
+        if (wal == null || snapshot == null) {
+            return;
+        }
+        try {
+            if (wal.needsCompaction()) {
+                saveSnapshot();
+            }
+        } catch (IOException e) {
+            logger.warn("Could not check write-ahead log size: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Удаляет из памяти работников с указанными ID. Версию увеличивает вызывающий.
+     *
+     * @return Количество удалённых из памяти работников.
+     */
+    private int removeFromMemory(Collection<Long> ids) {
+        Set<Long> idSet = new HashSet<>(ids);
+        int initialMemorySize = workers.size();
+        workers.removeIf(worker -> {
+            if (idSet.contains(worker.getId())) {
+                indexes.remove(worker);
+                return true;
+            }
+            return false;
+        });
+        return initialMemorySize - workers.size();
+    }
+
+    /**
+     * Возвращает версию коллекции. Версия увеличивается при каждом изменении содержимого,
+     * поэтому по ней клиент может понять, нужно ли заново загружать данные.
+     *
+     * @return Текущая версия коллекции.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Версия коллекции вместе с эпохой этого запуска сервера - то, что получает клиент.
+     */
+    public synchronized CollectionVersion getVersionToken() {
+        return new CollectionVersion(epoch, version);
+    }
+
+    /**
+     * Страница коллекции для постраничной выгрузки: следующая страница запрашивается с ID
+     * последнего работника предыдущей, поэтому добавления и удаления между запросами не
+     * сдвигают страницы.
+     *
+     * @return До {@code limit} работников с ID больше {@code afterId} в порядке возрастания ID.
+     */
+    public synchronized List<Worker> getPageAfter(long afterId, int limit) {
+        List<Worker> page = new ArrayList<>(Math.min(limit, workers.size()));
+        for (Worker worker : indexes.byId().tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(worker);
+        }
+        return page;
     }
 
     public synchronized List<Worker> getDescendingById() {
-        return workers.stream().sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        return new ArrayList<>(indexes.byId().descendingMap().values());
+    }
+
+    /**
+     * Отбирает работников по условию, используя вторичные индексы, где это возможно.
+     *
+     * @return Подходящие работники, упорядоченные по ID.
+     */
+    public synchronized List<Worker> query(WorkerPredicate predicate) {
+        return queryExecutor.execute(predicate, workers);
     }
 
     public synchronized List<Long> getSalariesAscending() {
@@ -197,15 +857,16 @@ public class CollectionManager {
     }
 
     public synchronized String getInfo() {
-        return String.format("Тип коллекции: %s (в памяти, синхронизирована с БД PostgreSQL)\nДата инициализации сервера: %s\nКоличество элементов в памяти: %d", workers.getClass().getName(), initializationDate.format(DateTimeFormatter.ISO_DATE), workers.size());
+        return String.format("Тип коллекции: %s (в памяти, %s)\nДата инициализации сервера: %s\nКоличество элементов в памяти: %d", workers.getClass().getName(),
+                storage != null ? storage.describe() : "реплика ведущего сервера", initializationDate.format(DateTimeFormatter.ISO_DATE), workers.size());
     }
 
     /**
      * Возвращает всех работников, отсортированных по местоположению (X, затем Y).
      *
-     * @return Неизменяемый список работников.
+     * @return Новый список работников.
      */
     public synchronized List<Worker> getWorkersSortedByLocation() {
-        return workers.stream().sorted(locationComparator).toList();
+        return orderBy(LOCATION_ORDER);
     }
 }
\ No newline at end of file
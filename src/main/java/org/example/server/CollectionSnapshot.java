@@ -0,0 +1,198 @@
+package org.example.server;
+
+import org.example.common.model.Worker;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Двоичный снимок коллекции в локальном файле.
+ * <p>
+ * Файл содержит версию коллекции, границу изменений в БД на момент снимка
+ * ({@link Storage#getChangeWatermark()}), номер последней записи журнала
+ * ({@link WriteAheadLog#getLastLsn()}), всех работников в представлении {@link WorkerCodec}
+ * и контрольную сумму CRC32C. Файл записывается во временный и атомарно переименовывается,
+ * а читается через отображение в память, без разбора JDBC и без сериализации Java.
+ * При изменении формата работника, смысла границы изменений или состава перечислений нужно
+ * увеличить {@link #FORMAT_VERSION}.
+ */
+public class CollectionSnapshot {
+    private static final int MAGIC = 0x57534E50;
+    private static final int FORMAT_VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private final Path path;
+
+    public CollectionSnapshot(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean exists() {
+        return Files.isRegularFile(path);
+    }
+
+    /**
+     * Записывает снимок. Предыдущий снимок заменяется только после того, как новый полностью
+     * записан на диск.
+     */
+    public void write(long collectionVersion, long changeWatermark, long walLsn, Collection<Worker> workers) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                CRC32C crc = new CRC32C();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(collectionVersion);
+                out.writeLong(changeWatermark);
+                out.writeLong(walLsn);
+                out.writeInt(workers.size());
+                for (Worker worker : workers) {
+                    WorkerCodec.write(out, worker);
+                }
+                out.flush();
+                out.writeInt((int) crc.getValue());
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Читает снимок и передаёт работников по одному в {@code sink}.
+     *
+     * @throws IOException если файл повреждён или записан в другом формате; часть работников
+     *                     к этому моменту уже может быть передана в {@code sink}.
+     */
+    public Header read(Consumer<Worker> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            in.ensure(HEADER_SIZE);
+            if (in.buffer.getInt() != MAGIC) {
+                throw new IOException("Файл " + path + " не является снимком коллекции");
+            }
+            int formatVersion = in.buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Неподдерживаемая версия формата снимка: " + formatVersion);
+            }
+            Header header = new Header(in.buffer.getLong(), in.buffer.getLong(), in.buffer.getLong(), in.buffer.getInt());
+            for (int i = 0; i < header.workerCount; i++) {
+                sink.accept(readWorker(in));
+            }
+            in.ensure(4);
+            long expectedCrc = Integer.toUnsignedLong(in.buffer.getInt());
+            if (in.checksum() != expectedCrc) {
+                throw new IOException("Контрольная сумма снимка " + path + " не совпадает");
+            }
+            return header;
+        }
+    }
+
+    private static Worker readWorker(MappedReader in) throws IOException {
+        in.ensure(WorkerCodec.PREFIX_SIZE);
+        in.ensure(WorkerCodec.maxEncodedSize(in.buffer));
+        return WorkerCodec.read(in.buffer);
+    }
+
+    /**
+     * Последовательное чтение файла через окна отображения в память: файл больше 2 ГБ нельзя
+     * отобразить одним буфером. По ходу чтения считается CRC32C всего прочитанного.
+     */
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer buffer;
+        private long bufferStart;
+        private int checksummed;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        /**
+         * Гарантирует, что в буфере доступно {@code bytes} байт, либо сколько осталось до конца
+         * файла, если запрошено больше. Нехватку данных в конце файла обнаружит чтение из буфера.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes || bufferStart + buffer.limit() == size) {
+                return;
+            }
+            map(bufferStart + buffer.position());
+        }
+
+        long checksum() {
+            // Последние 4 байта - сама контрольная сумма, она в подсчёт не входит.
+            updateChecksum(buffer.position() - 4);
+            return crc.getValue();
+        }
+
+        private void map(long start) throws IOException {
+            if (buffer != null) {
+                updateChecksum(buffer.position());
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, size - start));
+            bufferStart = start;
+            checksummed = 0;
+        }
+
+        private void updateChecksum(int end) {
+            crc.update(buffer.slice(checksummed, end - checksummed));
+            checksummed = end;
+        }
+    }
+
+    public static final class Header {
+        private final long collectionVersion;
+        private final long changeWatermark;
+        private final long walLsn;
+        private final int workerCount;
+
+        private Header(long collectionVersion, long changeWatermark, long walLsn, int workerCount) {
+            this.collectionVersion = collectionVersion;
+            this.changeWatermark = changeWatermark;
+            this.walLsn = walLsn;
+            this.workerCount = workerCount;
+        }
+
+        public long getCollectionVersion() {
+            return collectionVersion;
+        }
+
+        public long getChangeWatermark() {
+            return changeWatermark;
+        }
+
+        public long getWalLsn() {
+            return walLsn;
+        }
+
+        public int getWorkerCount() {
+            return workerCount;
+        }
+    }
+}
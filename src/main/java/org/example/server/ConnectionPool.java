@@ -0,0 +1,214 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Простой пул соединений с PostgreSQL.
+ * <p>
+ * Соединения живут дольше одного запроса, поэтому pgjdbc может держать на каждом из них
+ * кэш подготовленных на сервере выражений: начиная с {@code prepareThreshold}-го выполнения
+ * одного и того же SQL драйвер использует именованное выражение и сервер не разбирает
+ * и не планирует запрос заново. {@link Connection#close()} у выданного соединения возвращает
+ * его в пул; незавершённая транзакция при этом откатывается.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ConnectionPool.class);
+    public static final int DEFAULT_MAX_SIZE = 8;
+    public static final int DEFAULT_PREPARE_THRESHOLD = 1;
+    public static final int STATEMENT_CACHE_QUERIES = 256;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    private final String url;
+    private final Properties properties;
+    private final int maxSize;
+    private final Semaphore permits;
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+
+    public ConnectionPool(String url, String user, String password) {
+        this(url, user, password, DEFAULT_MAX_SIZE, DEFAULT_PREPARE_THRESHOLD);
+    }
+
+    /**
+     * @param prepareThreshold после скольких выполнений pgjdbc переключается на подготовленное
+     *                         на сервере выражение; 0 отключает серверную подготовку.
+     */
+    public ConnectionPool(String url, String user, String password, int maxSize, int prepareThreshold) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Размер пула соединений должен быть больше 0");
+        }
+        this.url = url;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.properties = new Properties();
+        properties.setProperty("user", user);
+        properties.setProperty("password", password);
+        properties.setProperty("prepareThreshold", String.valueOf(prepareThreshold));
+        properties.setProperty("preparedStatementCacheQueries", String.valueOf(STATEMENT_CACHE_QUERIES));
+    }
+
+    /**
+     * Задаёт идентификатор узла, который каждое новое соединение выставляет в параметр сеанса
+     * {@code app.node_id}: по нему триггеры помечают, какой узел изменил данные. Должен
+     * вызываться до выдачи первого соединения.
+     *
+     * @throws IllegalArgumentException если идентификатор пуст или содержит что-то кроме латинских
+     *                                  букв, цифр, '-' и '_'.
+     */
+    public void setNodeId(String nodeId) {
+        if (nodeId == null || !nodeId.matches("[A-Za-z0-9_-]+")) {
+            throw new IllegalArgumentException("Идентификатор узла может содержать только латинские буквы, цифры, '-' и '_'");
+        }
+        properties.setProperty("options", "-c app.node_id=" + nodeId);
+    }
+
+    /**
+     * Открывает соединение с теми же параметрами, но вне пула и без ограничения на их число,
+     * например для долгого LISTEN. Закрывать его должен вызывающий.
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        return DriverManager.getConnection(url, properties);
+    }
+
+    /**
+     * Выдаёт соединение из пула, при необходимости открывая новое. Если все соединения заняты,
+     * ждёт освобождения.
+     *
+     * @throws SQLException если пул закрыт, ожидание истекло или соединение не удалось открыть.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed.get()) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        try {
+            if (!permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new SQLException("Не удалось получить соединение из пула за " + ACQUIRE_TIMEOUT_SECONDS + " с");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Ожидание соединения прервано", e);
+        }
+        try {
+            Connection physical;
+            do {
+                physical = idle.pollFirst();
+            } while (physical != null && physical.isClosed());
+            if (physical == null) {
+                physical = DriverManager.getConnection(url, properties);
+                created.incrementAndGet();
+                logger.debug("Opened new pooled database connection ({} total).", created.get());
+            }
+            borrowed.incrementAndGet();
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection wrap(Connection physical) {
+        AtomicBoolean returned = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> "Pooled" + physical;
+                        };
+                    }
+                    switch (method.getName()) {
+                        case "close" -> {
+                            if (returned.compareAndSet(false, true)) {
+                                release(physical);
+                            }
+                            return null;
+                        }
+                        case "isClosed" -> {
+                            return returned.get() || physical.isClosed();
+                        }
+                        case "unwrap" -> {
+                            if (((Class<?>) args[0]).isInstance(physical)) {
+                                return physical;
+                            }
+                        }
+                        default -> {
+                        }
+                    }
+                    if (returned.get()) {
+                        throw new SQLException("Соединение уже возвращено в пул");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void release(Connection physical) {
+        try {
+            if (closed.get() || physical.isClosed()) {
+                physical.close();
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            idle.offerFirst(physical);
+        } catch (SQLException e) {
+            logger.warn("Discarding pooled connection after error on release: {}", e.getMessage());
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public String getStatistics() {
+        return String.format("Пул соединений: открыто всего %d, свободно %d, занято %d из %d, выдано всего %d",
+                created.get(), idle.size(), maxSize - permits.availablePermits(), maxSize, borrowed.get());
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        Connection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.warn("Error closing pooled connection: {}", e.getMessage());
+            }
+        }
+        logger.info("Connection pool closed.");
+    }
+}
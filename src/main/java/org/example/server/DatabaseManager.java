@@ -3,32 +3,187 @@ package org.example.server;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.example.common.model.*;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+import org.example.common.response.OperationOutcome;
 import org.example.server.util.PasswordHasher;
+import org.postgresql.PGConnection;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
-public class DatabaseManager {
+/**
+ * Хранилище в PostgreSQL: соединения берутся из {@link ConnectionPool}, изменения коллекции
+ * выполняются одним SQL-выражением каждое. Методы не синхронизированы: каждый вызов берёт
+ * своё соединение из пула, а целостность строк обеспечивают выражения с проверкой владельца
+ * и транзакции. {@link CollectionManager} обращается к хранилищу вне своей блокировки и
+ * упорядочивает только изменения одного пользователя, поэтому изменения разных пользователей
+ * выполняются параллельно, а чтения коллекции не ждут БД.
+ * <p>
+ * Если задан пул реплики (потоковая репликация PostgreSQL), на неё уходят поиск пользователя,
+ * полная загрузка коллекции, выгрузка в CSV и оценка числа работников; изменения и чтения
+ * для догрузки снимка и ленты изменений остаются на основной БД. Реплика может отставать,
+ * поэтому:
+ * <ul>
+ *     <li>пользователь, которого нет на реплике, ищется на основной БД - только что
+ *     зарегистрированный пользователь сразу может войти;</li>
+ *     <li>загрузка и выгрузка читают реплику, только если она воспроизвела журнал основной БД
+ *     до позиции на момент вызова, то есть видит все уже зафиксированные изменения, в том
+ *     числе сделанные этим сервером. Реплике даётся {@link #getReplicaWaitMillis()} мс на то,
+ *     чтобы догнать основную БД, иначе чтение идёт на основную.</li>
+ * </ul>
+ */
+public class DatabaseManager implements Storage {
     private static final Logger logger = LogManager.getLogger(DatabaseManager.class);
-    private final String dbUrl;
-    private final String dbUser;
-    private final String dbPassword;
+    private static final String WORKER_COLUMNS = "id, name, coordinates_x, coordinates_y, creation_date, salary, "
+            + "start_date, end_date, position, organization_annual_turnover, organization_type, user_id";
+    public static final int DEFAULT_FETCH_SIZE = 10_000;
+    private static final long MIN_ROWS_PER_PARTITION = 50_000;
+    private static final int PARTITION_BATCH_SIZE = 1000;
+    private static final int PARTITION_QUEUE_BATCHES = 8;
+    // Пустая пачка в очереди раздела означает, что раздел прочитан.
+    private static final List<Worker> END_OF_PARTITION = List.of();
+    /**
+     * Канал NOTIFY, в который триггеры после каждого изменения workers публикуют
+     * {@code <узел>:<I|U|D>:<id,id,...>}, не больше {@link #NOTIFY_IDS_PER_MESSAGE} ID в сообщении.
+     */
+    public static final String CHANGE_CHANNEL = "workers_changes";
+    private static final int NOTIFY_IDS_PER_MESSAGE = 500;
+    private static final String CSV_HEADER = "id,name,coordinates_x,coordinates_y,creationDate,salary,startDate,endDate,"
+            + "position,organization_annualTurnover,organization_type";
+    private static final String IMPORT_COLUMNS = "id, name, coordinates_x, coordinates_y, creation_date, salary, start_date, "
+            + "end_date, position, organization_annual_turnover, organization_type";
+    private static final int MAX_REPORTED_IMPORT_ERRORS = 10;
+    public static final long DEFAULT_REPLICA_WAIT_MILLIS = 500;
+    // Узел задаётся параметром соединения app.node_id (см. ConnectionPool#setNodeId).
+    private static final String NODE_ID_SQL = "coalesce(current_setting('app.node_id', true), '')";
+    /**
+     * Снимок узла, который столько дней не обновлял свою границу, больше не удерживает записи
+     * об удалениях; такой узел при запуске загрузит коллекцию из БД целиком.
+     */
+    public static final int SNAPSHOT_WATERMARK_TTL_DAYS = 7;
+    private static final long REPLICA_POLL_MILLIS = 20;
+    private final ConnectionPool connectionPool;
+    private final ConnectionPool replicaPool;
+    // Последняя известная позиция воспроизведения журнала на реплике, -1 - неизвестна.
+    private volatile long replicaReplayLsn = -1;
+    private volatile long replicaWaitMillis = DEFAULT_REPLICA_WAIT_MILLIS;
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile int loadPartitions = Runtime.getRuntime().availableProcessors();
 
     public DatabaseManager(String host, String dbName, String user, String password) {
-        this.dbUrl = "jdbc:postgresql://" + host + "/" + dbName;
-        this.dbUser = user;
-        this.dbPassword = password;
+        this(new ConnectionPool("jdbc:postgresql://" + host + "/" + dbName, user, password));
+    }
+
+    public DatabaseManager(ConnectionPool connectionPool) {
+        this(connectionPool, null);
+    }
+
+    /**
+     * @param replicaPool пул соединений с репликой основной БД для чтения или null, если
+     *                    всё читается с основной.
+     */
+    public DatabaseManager(ConnectionPool connectionPool, ConnectionPool replicaPool) {
+        this.connectionPool = connectionPool;
+        this.replicaPool = replicaPool;
         initializeDatabase();
     }
 
     private Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+        return connectionPool.getConnection();
+    }
+
+    @Override
+    public String describe() {
+        return replicaPool == null ? "синхронизирована с БД PostgreSQL" : "синхронизирована с БД PostgreSQL, чтение с реплики";
+    }
+
+    @Override
+    public String getStatistics() {
+        if (replicaPool == null) {
+            return connectionPool.getStatistics();
+        }
+        return "Основная БД. " + connectionPool.getStatistics() + "\nРеплика. " + replicaPool.getStatistics()
+                + String.format("\nЧтений с реплики %d, переведено на основную БД %d", replicaReads.get(),
+                primaryFallbacks.get());
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+        if (replicaPool != null) {
+            replicaPool.close();
+        }
+    }
+
+    /**
+     * Выбирает пул для чтения, которое должно увидеть все изменения, зафиксированные на
+     * основной БД до вызова: реплику, если она уже воспроизвела журнал до текущей позиции
+     * основной БД или успела сделать это за {@link #getReplicaWaitMillis()} мс, иначе основную БД.
+     */
+    private ConnectionPool caughtUpReadPool() {
+        if (replicaPool == null) {
+            return connectionPool;
+        }
+        try {
+            long required = queryLsn(connectionPool, "SELECT pg_current_wal_lsn() - '0/0'::pg_lsn");
+            long deadline = System.nanoTime() + replicaWaitMillis * 1_000_000;
+            while (replicaReplayLsn < required) {
+                // NULL, если сервер не реплика: тогда проверить отставание нельзя.
+                replicaReplayLsn = queryLsn(replicaPool, "SELECT pg_last_wal_replay_lsn() - '0/0'::pg_lsn");
+                if (replicaReplayLsn >= required) {
+                    break;
+                }
+                if (replicaReplayLsn < 0 || System.nanoTime() >= deadline) {
+                    logger.debug("Read replica is behind the primary (replayed {}, required {}), reading from the primary.",
+                            replicaReplayLsn, required);
+                    primaryFallbacks.incrementAndGet();
+                    return connectionPool;
+                }
+                Thread.sleep(REPLICA_POLL_MILLIS);
+            }
+            replicaReads.incrementAndGet();
+            return replicaPool;
+        } catch (SQLException e) {
+            logger.warn("Could not compare read replica position with the primary: {}. Reading from the primary.", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        primaryFallbacks.incrementAndGet();
+        return connectionPool;
+    }
+
+    private static long queryLsn(ConnectionPool pool, String sql) throws SQLException {
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            long lsn = rs.getLong(1);
+            return rs.wasNull() ? -1 : lsn;
+        }
     }
 
     private void initializeDatabase() {
@@ -36,7 +191,48 @@ public class DatabaseManager {
 
             stmt.execute("CREATE TABLE IF NOT EXISTS users (" + "id SERIAL PRIMARY KEY," + "username VARCHAR(255) UNIQUE NOT NULL," + "password_hash VARCHAR(255) NOT NULL" + ");");
             stmt.execute("CREATE TABLE IF NOT EXISTS workers (" + "id SERIAL PRIMARY KEY," + "name VARCHAR(255) NOT NULL," + "coordinates_x FLOAT NOT NULL," + "coordinates_y DOUBLE PRECISION NOT NULL CHECK (coordinates_y > -72)," + "creation_date DATE NOT NULL DEFAULT CURRENT_DATE," + "salary BIGINT CHECK (salary IS NULL OR salary > 0)," + "start_date TIMESTAMP NOT NULL," + "end_date TIMESTAMPTZ," + "position VARCHAR(255)," + "organization_annual_turnover INTEGER CHECK (organization_annual_turnover IS NULL OR organization_annual_turnover > 0)," + "organization_type VARCHAR(255) NOT NULL," + "user_id INTEGER NOT NULL REFERENCES users(id) ON DELETE CASCADE" + ");");
-            
+            stmt.execute("CREATE INDEX IF NOT EXISTS workers_employment_period_idx ON workers USING GIST "
+                    + "(tstzrange(LEAST(start_date AT TIME ZONE 'UTC', end_date), end_date, '[]'));");
+            stmt.execute("CREATE INDEX IF NOT EXISTS workers_end_date_idx ON workers (end_date);");
+            // Для догрузки снимка коллекции каждая вставка и изменение работника помечаются ID
+            // транзакции, а удаления записываются в worker_deletions с ID удалившей транзакции.
+            // В отличие от последовательности, ID транзакции позволяет узнать, какие изменения
+            // на момент снимка ещё не были зафиксированы (см. getChangeWatermark).
+            stmt.execute("ALTER TABLE workers ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();");
+            stmt.execute("CREATE INDEX IF NOT EXISTS workers_change_xid_idx ON workers (change_xid);");
+            stmt.execute("CREATE TABLE IF NOT EXISTS worker_deletions (" + "worker_id INTEGER NOT NULL" + ");");
+            stmt.execute("ALTER TABLE worker_deletions ADD COLUMN IF NOT EXISTS change_xid xid8 NOT NULL DEFAULT pg_current_xact_id();");
+            stmt.execute("CREATE INDEX IF NOT EXISTS worker_deletions_change_xid_idx ON worker_deletions (change_xid);");
+            // Граница последнего снимка каждого узла: записи об удалениях хранятся, пока их не
+            // учтут снимки всех узлов (см. pruneWorkerDeletions).
+            stmt.execute("CREATE TABLE IF NOT EXISTS snapshot_watermarks (" + "node_id TEXT PRIMARY KEY," + "change_xid xid8 NOT NULL," + "updated_at TIMESTAMPTZ NOT NULL DEFAULT now()" + ");");
+            stmt.execute("CREATE OR REPLACE FUNCTION workers_track_change() RETURNS trigger AS $$ BEGIN "
+                    + "IF TG_OP = 'DELETE' THEN INSERT INTO worker_deletions (worker_id) VALUES (OLD.id); RETURN OLD; END IF; "
+                    + "NEW.change_xid := pg_current_xact_id(); RETURN NEW; "
+                    + "END $$ LANGUAGE plpgsql;");
+            stmt.execute("DROP TRIGGER IF EXISTS workers_track_update ON workers;");
+            stmt.execute("CREATE TRIGGER workers_track_update BEFORE UPDATE ON workers FOR EACH ROW EXECUTE FUNCTION workers_track_change();");
+            stmt.execute("DROP TRIGGER IF EXISTS workers_track_delete ON workers;");
+            stmt.execute("CREATE TRIGGER workers_track_delete AFTER DELETE ON workers FOR EACH ROW EXECUTE FUNCTION workers_track_change();");
+
+            // Уведомления об изменениях для других узлов. Триггеры уровня выражения с таблицами
+            // переходов: одно сообщение на NOTIFY_IDS_PER_MESSAGE строк, а не на каждую строку.
+            // NOTIFY доставляется только после фиксации транзакции и в порядке фиксации.
+            stmt.execute("CREATE OR REPLACE FUNCTION workers_notify_change() RETURNS trigger AS $$ DECLARE ids TEXT; BEGIN "
+                    + "FOR ids IN SELECT string_agg(id::text, ',') FROM (SELECT id, (row_number() OVER () - 1) / "
+                    + NOTIFY_IDS_PER_MESSAGE + " AS chunk FROM changed_rows) c GROUP BY chunk LOOP "
+                    + "PERFORM pg_notify('" + CHANGE_CHANNEL + "', coalesce(current_setting('app.node_id', true), '') || ':' || left(TG_OP, 1) || ':' || ids); "
+                    + "END LOOP; RETURN NULL; END $$ LANGUAGE plpgsql;");
+            stmt.execute("DROP TRIGGER IF EXISTS workers_notify_insert ON workers;");
+            stmt.execute("CREATE TRIGGER workers_notify_insert AFTER INSERT ON workers REFERENCING NEW TABLE AS changed_rows "
+                    + "FOR EACH STATEMENT EXECUTE FUNCTION workers_notify_change();");
+            stmt.execute("DROP TRIGGER IF EXISTS workers_notify_update ON workers;");
+            stmt.execute("CREATE TRIGGER workers_notify_update AFTER UPDATE ON workers REFERENCING NEW TABLE AS changed_rows "
+                    + "FOR EACH STATEMENT EXECUTE FUNCTION workers_notify_change();");
+            stmt.execute("DROP TRIGGER IF EXISTS workers_notify_delete ON workers;");
+            stmt.execute("CREATE TRIGGER workers_notify_delete AFTER DELETE ON workers REFERENCING OLD TABLE AS changed_rows "
+                    + "FOR EACH STATEMENT EXECUTE FUNCTION workers_notify_change();");
+
             logger.info("Tables 'users' and 'workers' successfully created or already exist in the database.");
         } catch (SQLException e) {
             logger.fatal("Error connecting to database: {}", e.getMessage(), e);
@@ -44,6 +240,7 @@ public class DatabaseManager {
         }
     }
 
+    @Override
     public Optional<User> registerUser(String username, String plainPassword) {
         String hashedPassword = PasswordHasher.hashPassword(plainPassword);
         String sql = "INSERT INTO users (username, password_hash) VALUES (?, ?)";
@@ -70,53 +267,62 @@ public class DatabaseManager {
         return Optional.empty();
     }
 
+    /**
+     * Ищет пользователя на реплике, а если его там нет или реплика недоступна - на основной БД:
+     * пользователи не удаляются и не меняются, поэтому найденный на реплике пользователь актуален,
+     * а отсутствующий мог быть только что зарегистрирован.
+     */
+    @Override
     public Optional<User> getUserByUsername(String username) {
+        if (replicaPool != null) {
+            try {
+                Optional<User> user = findUser(replicaPool, username);
+                if (user.isPresent()) {
+                    replicaReads.incrementAndGet();
+                    return user;
+                }
+            } catch (SQLException e) {
+                logger.warn("Error retrieving user {} from read replica: {}", username, e.getMessage());
+            }
+            primaryFallbacks.incrementAndGet();
+        }
+        try {
+            return findUser(connectionPool, username);
+        } catch (SQLException e) {
+            logger.error("Error retrieving user {}: {}", username, e.getMessage(), e);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<User> findUser(ConnectionPool pool, String username) throws SQLException {
         String sql = "SELECT id, password_hash FROM users WHERE username = ?";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, username);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
                     return Optional.of(new User(rs.getInt("id"), username, rs.getString("password_hash")));
                 }
             }
-        } catch (SQLException e) {
-            logger.error("Error retrieving user {}: {}", username, e.getMessage(), e);
         }
         return Optional.empty();
     }
 
-    public synchronized Worker addWorker(Worker worker, int userId) {
-        String sql = "INSERT INTO workers (name, coordinates_x, coordinates_y, creation_date, salary, start_date, end_date, position, organization_annual_turnover, organization_type, user_id) " + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-            pstmt.setString(1, worker.getName());
-            pstmt.setFloat(2, worker.getCoordinates().getX());
-            pstmt.setDouble(3, worker.getCoordinates().getY());
+    @Override
+    public Worker addWorker(Worker worker, int userId) {
+        String sql = "INSERT INTO workers (name, coordinates_x, coordinates_y, salary, start_date, end_date, position, organization_annual_turnover, organization_type, creation_date, user_id) " + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id";
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = bindWorkerColumns(pstmt, 1, worker);
             LocalDate creationDate = LocalDate.now();
-            pstmt.setDate(4, Date.valueOf(creationDate));
-            if (worker.getSalary() != null) pstmt.setLong(5, worker.getSalary());
-            else pstmt.setNull(5, Types.BIGINT);
-            pstmt.setTimestamp(6, Timestamp.valueOf(worker.getStartDate()));
-            if (worker.getEndDate() != null) pstmt.setTimestamp(7, Timestamp.from(worker.getEndDate().toInstant()));
-            else pstmt.setNull(7, Types.TIMESTAMP_WITH_TIMEZONE);
-            if (worker.getPosition() != null) pstmt.setString(8, worker.getPosition().name());
-            else pstmt.setNull(8, Types.VARCHAR);
-            if (worker.getOrganization().getAnnualTurnover() != null)
-                pstmt.setInt(9, worker.getOrganization().getAnnualTurnover());
-            else pstmt.setNull(9, Types.INTEGER);
-            pstmt.setString(10, worker.getOrganization().getType().name());
-            pstmt.setInt(11, userId);
+            pstmt.setDate(index, Date.valueOf(creationDate));
+            pstmt.setInt(index + 1, userId);
 
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        long newId = generatedKeys.getLong(1);
-                        Worker dbWorker = new Worker(newId, worker.getName(), worker.getCoordinates(), creationDate, worker.getSalary(), worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization());
-                        dbWorker.setOwnerId(userId);
-                        logger.info("Worker '{}' created in database with ID {}.", worker.getName(), newId);
-                        return dbWorker;
-                    }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    long newId = rs.getLong("id");
+                    Worker dbWorker = new Worker(newId, worker.getName(), worker.getCoordinates(), creationDate, worker.getSalary(), worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization());
+                    dbWorker.setOwnerId(userId);
+                    logger.info("Worker '{}' created in database with ID {}.", worker.getName(), newId);
+                    return dbWorker;
                 }
             }
         } catch (SQLException e) {
@@ -125,127 +331,722 @@ public class DatabaseManager {
         return null;
     }
 
-    public synchronized boolean updateWorker(Worker worker, int userId) {
-        String checkOwnerSql = "SELECT user_id FROM workers WHERE id = ?";
-        try (Connection conn = getConnection(); PreparedStatement checkStmt = conn.prepareStatement(checkOwnerSql)) {
-            checkStmt.setLong(1, worker.getId());
-            ResultSet rs = checkStmt.executeQuery();
-            if (rs.next()) {
-                if (rs.getInt("user_id") != userId) {
-                    logger.warn("User {} attempted to update worker with ID {}, but didn't create it.", userId, worker.getId());
-                    return false;
+    /**
+     * Добавляет работников одной транзакцией пакетом INSERT, ID возвращаются вместе с пакетом.
+     */
+    @Override
+    public List<Worker> addWorkers(List<Worker> workers, int userId) {
+        String sql = "INSERT INTO workers (name, coordinates_x, coordinates_y, salary, start_date, end_date, position, organization_annual_turnover, organization_type, creation_date, user_id) " + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        LocalDate creationDate = LocalDate.now();
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, new String[]{"id"})) {
+                for (Worker worker : workers) {
+                    int index = bindWorkerColumns(pstmt, 1, worker);
+                    pstmt.setDate(index, Date.valueOf(creationDate));
+                    pstmt.setInt(index + 1, userId);
+                    pstmt.addBatch();
                 }
-            } else {
-                logger.warn("Worker with ID {} not found for update.", worker.getId());
-                return false;
+                pstmt.executeBatch();
+                List<Worker> added = new ArrayList<>(workers.size());
+                try (ResultSet rs = pstmt.getGeneratedKeys()) {
+                    for (Worker worker : workers) {
+                        if (!rs.next()) {
+                            throw new SQLException("БД вернула меньше ID, чем добавлено работников");
+                        }
+                        Worker dbWorker = new Worker(rs.getLong(1), worker.getName(), worker.getCoordinates(), creationDate, worker.getSalary(), worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization());
+                        dbWorker.setOwnerId(userId);
+                        added.add(dbWorker);
+                    }
+                }
+                conn.commit();
+                logger.info("{} workers created in database by user {}.", added.size(), userId);
+                return added;
             }
         } catch (SQLException e) {
-            logger.error("Failed to check owner of worker {}: {}", worker.getId(), e.getMessage(), e);
-            return false;
+            logger.error("Failed to add {} workers to database: {}", workers.size(), e.getMessage(), e);
         }
+        return null;
+    }
 
-
-        String sql = "UPDATE workers SET name = ?, coordinates_x = ?, coordinates_y = ?, salary = ?, " + "start_date = ?, end_date = ?, position = ?, organization_annual_turnover = ?, organization_type = ? " + "WHERE id = ? AND user_id = ?";
+    /**
+     * Обновляет работника одним запросом: проверка владельца и изменение выполняются
+     * в одном выражении с RETURNING.
+     *
+     * @return SUCCESS, NOT_FOUND, NOT_OWNER или STORAGE_ERROR.
+     */
+    @Override
+    public OperationOutcome updateWorker(Worker worker, int userId) {
+        String sql = "WITH target AS (SELECT id, user_id FROM workers WHERE id = ?), "
+                + "updated AS (UPDATE workers SET name = ?, coordinates_x = ?, coordinates_y = ?, salary = ?, "
+                + "start_date = ?, end_date = ?, position = ?, organization_annual_turnover = ?, organization_type = ? "
+                + "FROM target WHERE workers.id = target.id AND target.user_id = ? RETURNING workers.id) "
+                + "SELECT (SELECT user_id FROM target) AS owner_id, EXISTS (SELECT 1 FROM updated) AS affected";
         try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, worker.getName());
-            pstmt.setFloat(2, worker.getCoordinates().getX());
-            pstmt.setDouble(3, worker.getCoordinates().getY());
-            if (worker.getSalary() != null) pstmt.setLong(4, worker.getSalary());
-            else pstmt.setNull(4, Types.BIGINT);
-            pstmt.setTimestamp(5, Timestamp.valueOf(worker.getStartDate()));
-            if (worker.getEndDate() != null) pstmt.setTimestamp(6, Timestamp.from(worker.getEndDate().toInstant()));
-            else pstmt.setNull(6, Types.TIMESTAMP_WITH_TIMEZONE);
-            if (worker.getPosition() != null) pstmt.setString(7, worker.getPosition().name());
-            else pstmt.setNull(7, Types.VARCHAR);
-            if (worker.getOrganization().getAnnualTurnover() != null)
-                pstmt.setInt(8, worker.getOrganization().getAnnualTurnover());
-            else pstmt.setNull(8, Types.INTEGER);
-            pstmt.setString(9, worker.getOrganization().getType().name());
-            pstmt.setLong(10, worker.getId());
-            pstmt.setInt(11, userId);
+            pstmt.setLong(1, worker.getId());
+            int index = bindWorkerColumns(pstmt, 2, worker);
+            pstmt.setInt(index, userId);
 
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                logger.info("Worker with ID {} successfully updated by user {}.", worker.getId(), userId);
-                return true;
+            OperationOutcome outcome = readOwnedWriteOutcome(pstmt, userId);
+            switch (outcome) {
+                case SUCCESS -> logger.info("Worker with ID {} successfully updated by user {}.", worker.getId(), userId);
+                case NOT_OWNER -> logger.warn("User {} attempted to update worker with ID {}, but didn't create it.", userId, worker.getId());
+                default -> logger.warn("Worker with ID {} not found for update.", worker.getId());
             }
-            logger.warn("Worker with ID {} not found or not created by user {} for update.", worker.getId(), userId);
+            return outcome;
         } catch (SQLException e) {
             logger.error("Error updating worker {} in database: {}", worker.getId(), e.getMessage(), e);
         }
-        return false;
+        return OperationOutcome.STORAGE_ERROR;
     }
 
-    public synchronized boolean deleteWorker(long workerId, int userId) {
-        String sql = "DELETE FROM workers WHERE id = ? AND user_id = ?";
+    /**
+     * Удаляет работника одним запросом с RETURNING, различая отсутствие работника и чужого работника.
+     *
+     * @return SUCCESS, NOT_FOUND, NOT_OWNER или STORAGE_ERROR.
+     */
+    @Override
+    public OperationOutcome deleteWorker(long workerId, int userId) {
+        String sql = "WITH target AS (SELECT id, user_id FROM workers WHERE id = ?), "
+                + "deleted AS (DELETE FROM workers USING target WHERE workers.id = target.id AND target.user_id = ? RETURNING workers.id) "
+                + "SELECT (SELECT user_id FROM target) AS owner_id, EXISTS (SELECT 1 FROM deleted) AS affected";
         try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setLong(1, workerId);
             pstmt.setInt(2, userId);
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                logger.info("Worker with ID {} successfully deleted by user {}.", workerId, userId);
-                return true;
+            OperationOutcome outcome = readOwnedWriteOutcome(pstmt, userId);
+            switch (outcome) {
+                case SUCCESS -> logger.info("Worker with ID {} successfully deleted by user {}.", workerId, userId);
+                case NOT_OWNER -> logger.warn("User {} attempted to delete worker with ID {}, but didn't create it.", userId, workerId);
+                default -> logger.warn("Worker with ID {} not found for deletion.", workerId);
             }
-            logger.warn("Worker with ID {} not found or not created by user {} for deletion.", workerId, userId);
+            return outcome;
         } catch (SQLException e) {
             logger.error("Error deleting worker {} from database: {}", workerId, e.getMessage(), e);
         }
-        return false;
+        return OperationOutcome.STORAGE_ERROR;
     }
 
-    public synchronized int clearWorkersByUserId(int userId) {
-        String sql = "DELETE FROM workers WHERE user_id = ?";
+    private static OperationOutcome readOwnedWriteOutcome(PreparedStatement pstmt, int userId) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            int ownerId = rs.getInt("owner_id");
+            if (rs.wasNull()) {
+                return OperationOutcome.NOT_FOUND;
+            }
+            if (rs.getBoolean("affected")) {
+                return OperationOutcome.SUCCESS;
+            }
+            // Владелец совпал, но строки уже нет: её удалили параллельно.
+            return ownerId == userId ? OperationOutcome.NOT_FOUND : OperationOutcome.NOT_OWNER;
+        }
+    }
+
+    /**
+     * @return ID удалённых работников пользователя или null при ошибке БД.
+     */
+    @Override
+    public List<Long> clearWorkersByUserId(int userId) {
+        String sql = "DELETE FROM workers WHERE user_id = ? RETURNING id";
         try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, userId);
-            int affectedRows = pstmt.executeUpdate();
-            logger.info("{} workers created by user {} deleted from database.", affectedRows, userId);
-            return affectedRows;
+            List<Long> deletedIds = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    deletedIds.add(rs.getLong("id"));
+                }
+            }
+            logger.info("{} workers created by user {} deleted from database.", deletedIds.size(), userId);
+            return deletedIds;
         } catch (SQLException e) {
             logger.error("Error clearing workers for user {} from database: {}", userId, e.getMessage(), e);
         }
-        return 0;
+        return null;
     }
 
 
-    public List<Worker> loadAllWorkers() {
-        List<Worker> workers = new LinkedList<>();
-        String sql = "SELECT w.id, w.name, w.coordinates_x, w.coordinates_y, w.creation_date, w.salary, " + "w.start_date, w.end_date, w.position, w.organization_annual_turnover, w.organization_type, w.user_id, u.username as owner_username " + "FROM workers w JOIN users u ON w.user_id = u.id";
-        try (Connection conn = getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+    /**
+     * Читает всех работников в порядке возрастания ID через курсор на стороне сервера и передаёт
+     * их по одному в {@code sink}. В памяти драйвера одновременно находится не больше
+     * {@link #getFetchSize()} строк на соединение.
+     * <p>
+     * Большая таблица делится на {@link #getLoadPartitions()} диапазонов ID, которые читаются
+     * и разбираются параллельно на отдельных соединениях из пула в одном снимке данных.
+     * {@code sink} всё равно вызывается из текущего потока и в том же порядке, что и при
+     * последовательной загрузке. Каждый раздел передаёт работников пачками через свою очередь
+     * на {@value #PARTITION_QUEUE_BATCHES} пачек по {@value #PARTITION_BATCH_SIZE}: раздел,
+     * до которого {@code sink} ещё не дошёл, заполняет очередь и ждёт, оставляя остальные строки
+     * в курсоре, поэтому раздел целиком в памяти не собирается.
+     *
+     * Если реплика не вернула ни одного работника из-за ошибки, загрузка повторяется на основной БД.
+     *
+     * @return Количество прочитанных работников или -1 при ошибке БД (часть работников
+     * к этому моменту уже может быть передана в {@code sink}).
+     */
+    @Override
+    public long loadAllWorkers(Consumer<Worker> sink) {
+        ConnectionPool pool = caughtUpReadPool();
+        if (pool != connectionPool) {
+            long[] delivered = new long[1];
+            long count = loadAllWorkers(pool, worker -> {
+                delivered[0]++;
+                sink.accept(worker);
+            });
+            if (count >= 0 || delivered[0] > 0) {
+                return count;
+            }
+            logger.warn("Loading workers from the read replica failed, retrying on the primary.");
+            primaryFallbacks.incrementAndGet();
+        }
+        return loadAllWorkers(connectionPool, sink);
+    }
 
-            while (rs.next()) {
-                Long id = rs.getLong("id");
-                String name = rs.getString("name");
-                Coordinates coordinates = new Coordinates(rs.getFloat("coordinates_x"), rs.getDouble("coordinates_y"));
-                LocalDate creationDate = rs.getDate("creation_date").toLocalDate();
-                Long salary = rs.getLong("salary");
-                if (rs.wasNull()) salary = null;
-                LocalDateTime startDate = rs.getTimestamp("start_date").toLocalDateTime();
+    private long loadAllWorkers(ConnectionPool pool, Consumer<Worker> sink) {
+        // Координирующее соединение держит снимок, поэтому на разделы остаётся на одно меньше.
+        int partitions = Math.min(loadPartitions, pool.getMaxSize() - 1);
+        if (partitions > 1) {
+            long estimatedCount = estimateWorkerCount(pool);
+            partitions = (int) Math.min(partitions, estimatedCount / MIN_ROWS_PER_PARTITION);
+            if (partitions > 1) {
+                return loadWorkersPartitioned(pool, sink, partitions);
+            }
+        }
+        String sql = "SELECT " + WORKER_COLUMNS + " FROM workers ORDER BY id";
+        try (Connection conn = pool.getConnection()) {
+            // pgjdbc использует курсор только внутри транзакции и при ненулевом fetch size.
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                long count = 0;
+                try (ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next()) {
+                        sink.accept(mapWorker(rs));
+                        count++;
+                    }
+                }
+                conn.commit();
+                logger.info("Loaded {} workers from database (fetch size {}).", count, fetchSize);
+                return count;
+            }
+        } catch (SQLException e) {
+            logger.error("Error loading workers from database: {}", e.getMessage(), e);
+        }
+        return -1;
+    }
 
-                ZonedDateTime endDate = null;
-                Timestamp endTimestamp = rs.getTimestamp("end_date");
-                if (endTimestamp != null) {
-                    endDate = ZonedDateTime.ofInstant(endTimestamp.toInstant(), ZoneOffset.UTC);
+    private long loadWorkersPartitioned(ConnectionPool pool, Consumer<Worker> sink, int partitions) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions, r -> {
+            Thread t = new Thread(r, "WorkerLoaderThread-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        List<Future<?>> parts = new ArrayList<>(partitions);
+        List<BlockingQueue<List<Worker>>> queues = new ArrayList<>(partitions);
+        try (Connection coordinator = pool.getConnection()) {
+            coordinator.setAutoCommit(false);
+            String snapshot;
+            long minId;
+            long maxId;
+            try (Statement stmt = coordinator.createStatement()) {
+                stmt.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                try (ResultSet rs = stmt.executeQuery("SELECT pg_export_snapshot(), MIN(id), MAX(id) FROM workers")) {
+                    rs.next();
+                    snapshot = rs.getString(1);
+                    minId = rs.getLong(2);
+                    if (rs.wasNull()) {
+                        logger.info("Loaded 0 workers from database.");
+                        return 0;
+                    }
+                    maxId = rs.getLong(3);
                 }
+            }
+            long step = (maxId - minId) / partitions + 1;
+            for (int i = 0; i < partitions; i++) {
+                long from = minId + i * step;
+                long to = Math.min(from + step, maxId + 1);
+                BlockingQueue<List<Worker>> queue = new ArrayBlockingQueue<>(PARTITION_QUEUE_BATCHES);
+                queues.add(queue);
+                parts.add(executor.submit(() -> {
+                    loadWorkerRange(pool, snapshot, from, to, queue);
+                    return null;
+                }));
+            }
+            long count = 0;
+            for (int i = 0; i < parts.size(); i++) {
+                BlockingQueue<List<Worker>> queue = queues.get(i);
+                for (List<Worker> batch = queue.take(); batch != END_OF_PARTITION; batch = queue.take()) {
+                    batch.forEach(sink);
+                    count += batch.size();
+                }
+                // Раздел мог закончиться ошибкой: она придёт отсюда.
+                parts.get(i).get();
+                parts.set(i, null);
+            }
+            logger.info("Loaded {} workers from database in {} partitions (fetch size {}).", count, partitions, fetchSize);
+            return count;
+        } catch (ExecutionException e) {
+            logger.error("Error loading workers from database: {}", e.getCause().getMessage(), e.getCause());
+        } catch (SQLException e) {
+            logger.error("Error loading workers from database: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Loading workers from database was interrupted.");
+        } finally {
+            parts.stream().filter(Objects::nonNull).forEach(part -> part.cancel(true));
+            executor.shutdownNow();
+        }
+        return -1;
+    }
 
-                Position position = null;
-                String posStr = rs.getString("position");
-                if (posStr != null) position = Position.valueOf(posStr);
+    private void loadWorkerRange(ConnectionPool pool, String snapshot, long fromId, long toId, BlockingQueue<List<Worker>> out)
+            throws SQLException, InterruptedException {
+        String sql = "SELECT " + WORKER_COLUMNS + " FROM workers WHERE id >= ? AND id < ? ORDER BY id";
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                stmt.execute("SET TRANSACTION SNAPSHOT '" + snapshot + "'");
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setFetchSize(fetchSize);
+                pstmt.setLong(1, fromId);
+                pstmt.setLong(2, toId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    List<Worker> batch = new ArrayList<>(PARTITION_BATCH_SIZE);
+                    while (rs.next()) {
+                        batch.add(mapWorker(rs));
+                        if (batch.size() == PARTITION_BATCH_SIZE) {
+                            out.put(batch);
+                            batch = new ArrayList<>(PARTITION_BATCH_SIZE);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        out.put(batch);
+                    }
+                }
+            }
+            conn.commit();
+        } finally {
+            out.put(END_OF_PARTITION);
+        }
+    }
 
-                Integer annualTurnover = rs.getInt("organization_annual_turnover");
-                if (rs.wasNull()) annualTurnover = null;
-                OrganizationType orgType = OrganizationType.valueOf(rs.getString("organization_type"));
-                Organization organization = new Organization(annualTurnover, orgType);
+    /**
+     * Граница изменений по ID транзакций: на 1 меньше xmin текущего снимка данных, то есть
+     * самой старой транзакции, ещё не завершённой в момент вызова. Все транзакции с ID не больше
+     * границы к этому моменту завершены, а изменения остальных, в том числе начатых раньше
+     * и зафиксированных позже, вернут {@link #loadWorkersChangedSince(long)} и
+     * {@link #loadWorkerIdsDeletedSince(long)}.
+     *
+     * @return Граница или -1 при ошибке БД.
+     */
+    @Override
+    public long getChangeWatermark() {
+        try (Connection conn = getConnection()) {
+            return queryChangeWatermark(conn);
+        } catch (SQLException e) {
+            logger.error("Error reading change watermark: {}", e.getMessage(), e);
+        }
+        return -1;
+    }
 
-                int ownerId = rs.getInt("user_id");
+    static long queryChangeWatermark(Connection conn) throws SQLException {
+        String sql = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint - 1";
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
 
-                Worker worker = new Worker(id, name, coordinates, creationDate, salary, startDate, endDate, position, organization);
-                worker.setOwnerId(ownerId);
-                workers.add(worker);
+    /**
+     * @return Работники, добавленные или изменённые транзакциями с ID больше {@code changeSeq},
+     * или null при ошибке БД.
+     */
+    @Override
+    public List<Worker> loadWorkersChangedSince(long changeSeq) {
+        List<Worker> workers = new ArrayList<>();
+        String sql = "SELECT " + WORKER_COLUMNS + " FROM workers WHERE change_xid > ?::text::xid8 ORDER BY id";
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, changeSeq);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    workers.add(mapWorker(rs));
+                }
             }
-            logger.info("Loaded {} workers from database.", workers.size());
+            return workers;
         } catch (SQLException e) {
-            logger.error("Error loading workers from database: {}", e.getMessage(), e);
+            logger.error("Error loading workers changed since {}: {}", changeSeq, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * @return Существующие из перечисленных работников в порядке ID или null при ошибке БД.
+     */
+    public List<Worker> loadWorkersByIds(Collection<Long> ids) {
+        List<Worker> workers = new ArrayList<>(ids.size());
+        String sql = "SELECT " + WORKER_COLUMNS + " FROM workers WHERE id = ANY(?) ORDER BY id";
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    workers.add(mapWorker(rs));
+                }
+            }
+            return workers;
+        } catch (SQLException e) {
+            logger.error("Error loading {} workers by id: {}", ids.size(), e.getMessage(), e);
         }
-        return workers;
+        return null;
+    }
+
+    /**
+     * Открывает отдельное от пула соединение для LISTEN.
+     */
+    Connection openListenerConnection() throws SQLException {
+        return connectionPool.openDedicatedConnection();
+    }
+
+    /**
+     * @return ID работников, удалённых транзакциями с ID больше {@code changeSeq}, или null при ошибке БД.
+     */
+    @Override
+    public List<Long> loadWorkerIdsDeletedSince(long changeSeq) {
+        List<Long> ids = new ArrayList<>();
+        String sql = "SELECT DISTINCT worker_id FROM worker_deletions WHERE change_xid > ?::text::xid8";
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, changeSeq);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+            return ids;
+        } catch (SQLException e) {
+            logger.error("Error loading workers deleted since {}: {}", changeSeq, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Запоминает {@code changeSeq} как границу снимка этого узла и удаляет записи об удалениях,
+     * которые учтены в последних снимках всех узлов. Узлы, не обновлявшие границу
+     * {@link #SNAPSHOT_WATERMARK_TTL_DAYS} дней, не учитываются и забываются.
+     */
+    @Override
+    public void pruneWorkerDeletions(long changeSeq) {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement upsert = conn.prepareStatement("INSERT INTO snapshot_watermarks (node_id, change_xid) "
+                    + "VALUES (" + NODE_ID_SQL + ", ?::text::xid8) ON CONFLICT (node_id) DO UPDATE "
+                    + "SET change_xid = EXCLUDED.change_xid, updated_at = now()");
+                 Statement stmt = conn.createStatement()) {
+                upsert.setLong(1, changeSeq);
+                upsert.executeUpdate();
+                stmt.executeUpdate("DELETE FROM snapshot_watermarks WHERE updated_at < now() - interval '"
+                        + SNAPSHOT_WATERMARK_TTL_DAYS + " days'");
+                int pruned = stmt.executeUpdate("DELETE FROM worker_deletions "
+                        + "WHERE change_xid <= (SELECT min(change_xid) FROM snapshot_watermarks)");
+                conn.commit();
+                logger.debug("Snapshot watermark {} recorded; pruned {} worker deletion records.", changeSeq, pruned);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.warn("Error pruning worker deletion records: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Записи об удалениях после {@code changeSeq} сохранены, если последний снимок этого узла
+     * зарегистрирован в БД с границей не больше {@code changeSeq}: до неё записи удаляются,
+     * только когда её учтёт и этот узел.
+     */
+    @Override
+    public boolean isChangeHistoryRetained(long changeSeq) {
+        String sql = "SELECT change_xid <= ?::text::xid8 FROM snapshot_watermarks WHERE node_id = " + NODE_ID_SQL;
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, changeSeq);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error checking snapshot watermark {}: {}", changeSeq, e.getMessage(), e);
+        }
+        return false;
+    }
+
+    /**
+     * Выгружает всех работников в CSV-файл формата data.txt одной командой COPY. Даты начала
+     * и окончания работы записываются в ISO 8601, дата окончания - в UTC. Выгрузка читает
+     * реплику, если та не отстаёт от основной БД.
+     *
+     * @return Количество выгруженных работников или -1 при ошибке.
+     */
+    public long exportWorkersCsv(Path file) {
+        String sql = "COPY (SELECT id, name, coordinates_x, coordinates_y, creation_date, salary, "
+                + "replace(start_date::text, ' ', 'T'), replace((end_date AT TIME ZONE 'UTC')::text, ' ', 'T') || 'Z', "
+                + "position, organization_annual_turnover, organization_type FROM workers ORDER BY id) "
+                + "TO STDOUT WITH (FORMAT csv)";
+        long start = System.nanoTime();
+        try (Connection conn = caughtUpReadPool().getConnection();
+             Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+            long exported = conn.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, writer);
+            logger.info("Exported {} workers to {} in {} ms.", exported, file, (System.nanoTime() - start) / 1_000_000);
+            return exported;
+        } catch (SQLException | IOException e) {
+            logger.error("Error exporting workers to {}: {}", file, e.getMessage(), e);
+        }
+        return -1;
+    }
+
+    /**
+     * Загружает работников из CSV-файла формата data.txt от имени пользователя в одной транзакции:
+     * файл передаётся командой COPY во временную таблицу, проверяется и переносится в workers
+     * одним INSERT ... SELECT. ID из файла не сохраняются, работники получают новые ID в порядке
+     * файловых ID; пустая дата создания заменяется текущей.
+     *
+     * @return Количество добавленных работников или -1, если файл не прочитан, содержит
+     * некорректные строки или произошла ошибка БД (тогда не добавляется ни один работник).
+     */
+    public long importWorkersCsv(Path file, int userId) {
+        long start = System.nanoTime();
+        try (Connection conn = getConnection()) {
+            // Незавершённую транзакцию при ошибке откатывает пул при возврате соединения.
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                // line_no - номер записи в порядке файла, по нему сообщается о некорректных строках.
+                stmt.execute("CREATE TEMP TABLE worker_import (line_no BIGSERIAL, id BIGINT, name TEXT, coordinates_x FLOAT, "
+                        + "coordinates_y DOUBLE PRECISION, creation_date DATE, salary BIGINT, start_date TIMESTAMP, "
+                        + "end_date TIMESTAMPTZ, position TEXT, organization_annual_turnover INTEGER, organization_type TEXT) "
+                        + "ON COMMIT DROP");
+                long copied = conn.unwrap(PGConnection.class).getCopyAPI()
+                        .copyIn("COPY worker_import (" + IMPORT_COLUMNS + ") FROM STDIN WITH (FORMAT csv, HEADER true)", reader);
+                // Те же правила, что у Worker и ограничений таблицы; пустое поле CSV без кавычек COPY читает как NULL.
+                try (ResultSet rs = stmt.executeQuery("SELECT count(*) OVER (), line_no + 1 FROM worker_import "
+                        + "WHERE coalesce(btrim(name), '') = '' OR coordinates_x IS NULL OR coordinates_y IS NULL "
+                        + "OR coordinates_y <= -72 OR salary <= 0 OR start_date IS NULL OR organization_annual_turnover <= 0 "
+                        + "OR organization_type IS NULL OR organization_type NOT IN (" + sqlNames(OrganizationType.values()) + ") "
+                        + "OR position NOT IN (" + sqlNames(Position.values()) + ") "
+                        + "ORDER BY line_no LIMIT " + MAX_REPORTED_IMPORT_ERRORS)) {
+                    List<Long> invalidLines = new ArrayList<>();
+                    long invalid = 0;
+                    while (rs.next()) {
+                        invalid = rs.getLong(1);
+                        invalidLines.add(rs.getLong(2));
+                    }
+                    if (invalid > 0) {
+                        logger.warn("Import from {} rejected: {} invalid rows (empty name, missing required field, value out "
+                                + "of range or unknown position or organization type), first at file lines {}.", file, invalid, invalidLines);
+                        return -1;
+                    }
+                }
+                int inserted;
+                try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO workers (name, coordinates_x, coordinates_y, "
+                        + "salary, start_date, end_date, position, organization_annual_turnover, organization_type, creation_date, user_id) "
+                        + "SELECT name, coordinates_x, coordinates_y, salary, start_date, end_date, position, "
+                        + "organization_annual_turnover, organization_type, COALESCE(creation_date, CURRENT_DATE), ? "
+                        + "FROM worker_import ORDER BY id")) {
+                    pstmt.setInt(1, userId);
+                    inserted = pstmt.executeUpdate();
+                }
+                conn.commit();
+                logger.info("Imported {} of {} rows from {} for user {} in {} ms.", inserted, copied, file, userId,
+                        (System.nanoTime() - start) / 1_000_000);
+                return inserted;
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("Error importing workers from {}: {}", file, e.getMessage(), e);
+        }
+        return -1;
+    }
+
+    private static String sqlNames(Enum<?>[] values) {
+        StringBuilder names = new StringBuilder();
+        for (Enum<?> value : values) {
+            if (!names.isEmpty()) {
+                names.append(", ");
+            }
+            names.append('\'').append(value.name()).append('\'');
+        }
+        return names.toString();
+    }
+
+    /**
+     * Оценка количества работников по статистике планировщика, без полного прохода по таблице.
+     *
+     * @return Оценка или 0, если статистика ещё не собрана.
+     */
+    @Override
+    public long estimateWorkerCount() {
+        return estimateWorkerCount(replicaPool != null ? replicaPool : connectionPool);
+    }
+
+    private long estimateWorkerCount(ConnectionPool pool) {
+        String sql = "SELECT GREATEST(reltuples, 0)::bigint FROM pg_class WHERE oid = 'workers'::regclass";
+        try (Connection conn = pool.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.warn("Could not estimate number of workers: {}", e.getMessage());
+        }
+        return 0;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Размер пакета чтения должен быть больше 0");
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public long getReplicaWaitMillis() {
+        return replicaWaitMillis;
+    }
+
+    /**
+     * @param replicaWaitMillis сколько загрузка или выгрузка ждёт, пока реплика догонит основную
+     *                          БД, прежде чем читать с основной; 0 - не ждать.
+     */
+    public void setReplicaWaitMillis(long replicaWaitMillis) {
+        if (replicaWaitMillis < 0) {
+            throw new IllegalArgumentException("Время ожидания реплики не может быть отрицательным");
+        }
+        this.replicaWaitMillis = replicaWaitMillis;
+    }
+
+    public int getLoadPartitions() {
+        return loadPartitions;
+    }
+
+    /**
+     * @param loadPartitions на сколько диапазонов ID делить таблицу при загрузке; 1 - читать
+     *                       последовательно на одном соединении.
+     */
+    public void setLoadPartitions(int loadPartitions) {
+        if (loadPartitions <= 0) {
+            throw new IllegalArgumentException("Количество разделов загрузки должно быть больше 0");
+        }
+        this.loadPartitions = loadPartitions;
+    }
+
+    /**
+     * Удаляет одним запросом всех работников пользователя, удовлетворяющих условию.
+     *
+     * @return ID удалённых работников или null при ошибке БД.
+     */
+    @Override
+    public List<Long> deleteWorkersWhere(WorkerPredicate predicate, int userId) {
+        WorkerSqlCompiler where = WorkerSqlCompiler.where(predicate);
+        String sql = "DELETE FROM workers WHERE user_id = ? AND " + where.getSql() + " RETURNING id";
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            where.bind(pstmt, 2);
+            List<Long> deletedIds = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    deletedIds.add(rs.getLong("id"));
+                }
+            }
+            logger.info("{} workers matching '{}' deleted by user {}.", deletedIds.size(), predicate, userId);
+            return deletedIds;
+        } catch (SQLException e) {
+            logger.error("Error deleting workers matching '{}' for user {}: {}", predicate, userId, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Изменяет одним запросом всех работников пользователя, удовлетворяющих условию.
+     * Если изменение нарушает ограничения хотя бы для одного работника, не меняется ни один.
+     *
+     * @return Работники в состоянии после изменения или null при ошибке БД.
+     */
+    @Override
+    public List<Worker> updateWorkersWhere(WorkerPredicate predicate, WorkerPatch patch, int userId) {
+        WorkerSqlCompiler set = WorkerSqlCompiler.set(patch);
+        WorkerSqlCompiler where = WorkerSqlCompiler.where(predicate);
+        String sql = "UPDATE workers SET " + set.getSql() + " WHERE user_id = ? AND " + where.getSql() + " RETURNING " + WORKER_COLUMNS;
+        try (Connection conn = getConnection(); PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = set.bind(pstmt, 1);
+            pstmt.setInt(index, userId);
+            where.bind(pstmt, index + 1);
+            List<Worker> updatedWorkers = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    updatedWorkers.add(mapWorker(rs));
+                }
+            }
+            logger.info("{} workers matching '{}' updated by user {} ({}).", updatedWorkers.size(), predicate, userId, patch);
+            return updatedWorkers;
+        } catch (SQLException e) {
+            if ("23514".equals(e.getSQLState())) {
+                logger.warn("Bulk update '{}' by user {} violates a check constraint: {}", patch, userId, e.getMessage());
+            } else {
+                logger.error("Error updating workers matching '{}' for user {}: {}", predicate, userId, e.getMessage(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Подставляет изменяемые поля работника в порядке name, coordinates_x, coordinates_y, salary,
+     * start_date, end_date, position, organization_annual_turnover, organization_type.
+     *
+     * @return Позиция, следующая за последним подставленным параметром.
+     */
+    private static int bindWorkerColumns(PreparedStatement pstmt, int firstIndex, Worker worker) throws SQLException {
+        int index = firstIndex;
+        pstmt.setString(index++, worker.getName());
+        pstmt.setFloat(index++, worker.getCoordinates().getX());
+        pstmt.setDouble(index++, worker.getCoordinates().getY());
+        if (worker.getSalary() != null) pstmt.setLong(index++, worker.getSalary());
+        else pstmt.setNull(index++, Types.BIGINT);
+        pstmt.setTimestamp(index++, Timestamp.valueOf(worker.getStartDate()));
+        if (worker.getEndDate() != null) pstmt.setTimestamp(index++, Timestamp.from(worker.getEndDate().toInstant()));
+        else pstmt.setNull(index++, Types.TIMESTAMP_WITH_TIMEZONE);
+        if (worker.getPosition() != null) pstmt.setString(index++, worker.getPosition().name());
+        else pstmt.setNull(index++, Types.VARCHAR);
+        if (worker.getOrganization().getAnnualTurnover() != null) pstmt.setInt(index++, worker.getOrganization().getAnnualTurnover());
+        else pstmt.setNull(index++, Types.INTEGER);
+        pstmt.setString(index++, worker.getOrganization().getType().name());
+        return index;
+    }
+
+    private static Worker mapWorker(ResultSet rs) throws SQLException {
+        Long id = rs.getLong("id");
+        String name = rs.getString("name");
+        Coordinates coordinates = new Coordinates(rs.getFloat("coordinates_x"), rs.getDouble("coordinates_y"));
+        LocalDate creationDate = rs.getDate("creation_date").toLocalDate();
+        Long salary = rs.getLong("salary");
+        if (rs.wasNull()) salary = null;
+        LocalDateTime startDate = rs.getTimestamp("start_date").toLocalDateTime();
+
+        ZonedDateTime endDate = null;
+        Timestamp endTimestamp = rs.getTimestamp("end_date");
+        if (endTimestamp != null) {
+            endDate = ZonedDateTime.ofInstant(endTimestamp.toInstant(), ZoneOffset.UTC);
+        }
+
+        Position position = null;
+        String posStr = rs.getString("position");
+        if (posStr != null) position = Position.valueOf(posStr);
+
+        Integer annualTurnover = rs.getInt("organization_annual_turnover");
+        if (rs.wasNull()) annualTurnover = null;
+        OrganizationType orgType = OrganizationType.valueOf(rs.getString("organization_type"));
+        Organization organization = new Organization(annualTurnover, orgType);
+
+        int ownerId = rs.getInt("user_id");
+
+        Worker worker = new Worker(id, name, coordinates, creationDate, salary, startDate, endDate, position, organization);
+        worker.setOwnerId(ownerId);
+        return worker;
     }
 }
\ No newline at end of file
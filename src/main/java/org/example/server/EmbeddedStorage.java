@@ -0,0 +1,476 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+import org.example.common.response.OperationOutcome;
+import org.example.server.util.PasswordHasher;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище в файлах каталога данных, без отдельного сервера БД.
+ * <p>
+ * Работники хранятся в памяти; каждое изменение сначала записывается в {@link WriteAheadLog}
+ * (подкаталог wal), а периодически и при закрытии все работники сохраняются в
+ * {@link CollectionSnapshot} (workers.snapshot), после чего покрытые снимком сегменты журнала
+ * удаляются. Пользователи и следующий ID работника хранятся в users.dat и перезаписываются
+ * при каждой регистрации. Номера изменений не отслеживаются: снимок и журнал коллекции
+ * с этим хранилищем не нужны.
+ * <p>
+ * Изменение подтверждается только после того, как его запись в журнале оказалась на диске
+ * ({@link WriteAheadLog#awaitDurable(long)}); ожидание идёт вне блокировки хранилища, поэтому
+ * одновременные изменения дожидаются одного общего fsync. Карта работников здесь своя, а не
+ * коллекция {@link CollectionManager}: хранилище - источник, из которого коллекция
+ * перезагружается при расхождении, проверяет владельца и условия без блокировки коллекции
+ * и пишет снимок из своего потока, а объекты коллекции меняются на месте.
+ */
+public class EmbeddedStorage implements Storage {
+    private static final Logger logger = LogManager.getLogger(EmbeddedStorage.class);
+    private static final int CATALOG_MAGIC = 0x57555352;
+    private static final long CHECKPOINT_CHECK_MINUTES = 1;
+
+    private final Path catalogPath;
+    private final CollectionSnapshot snapshot;
+    private final WriteAheadLog wal;
+    private final TreeMap<Long, Worker> workers = new TreeMap<>();
+    private final Map<String, User> users = new HashMap<>();
+    private final ScheduledExecutorService checkpointExecutor;
+    private int nextUserId = 1;
+    private long nextWorkerId = 1;
+    private boolean closed;
+
+    public EmbeddedStorage(Path directory) throws IOException {
+        this(directory, new WriteAheadLog(directory.resolve("wal")));
+    }
+
+    public EmbeddedStorage(Path directory, WriteAheadLog wal) throws IOException {
+        Files.createDirectories(directory);
+        this.catalogPath = directory.resolve("users.dat");
+        this.snapshot = new CollectionSnapshot(directory.resolve("workers.snapshot"));
+        this.wal = wal;
+        open();
+        checkpointExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "StorageCheckpointThread");
+            t.setDaemon(true);
+            return t;
+        });
+        checkpointExecutor.scheduleWithFixedDelay(this::checkpointIfNeeded, CHECKPOINT_CHECK_MINUTES, CHECKPOINT_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private void open() throws IOException {
+        if (Files.isRegularFile(catalogPath)) {
+            readCatalog();
+        }
+        long snapshotLsn = 0;
+        if (snapshot.exists()) {
+            snapshotLsn = snapshot.read(worker -> workers.put(worker.getId(), worker)).getWalLsn();
+        }
+        long maxId = workers.isEmpty() ? 0 : workers.lastKey();
+        long[] maxAddedId = {maxId};
+        wal.replay(snapshotLsn, record -> {
+            switch (record.getType()) {
+                case ADD, UPDATE -> {
+                    for (Worker worker : record.getWorkers()) {
+                        workers.put(worker.getId(), worker);
+                        maxAddedId[0] = Math.max(maxAddedId[0], worker.getId());
+                    }
+                }
+                case REMOVE, CLEAR -> record.getIds().forEach(workers::remove);
+            }
+        });
+        wal.skipTo(snapshotLsn);
+        nextWorkerId = Math.max(nextWorkerId, maxAddedId[0] + 1);
+        logger.info("Embedded storage opened: {} users, {} workers, WAL LSN {}.", users.size(), workers.size(), wal.getLastLsn());
+    }
+
+    private void readCatalog() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(catalogPath)))) {
+            if (in.readInt() != CATALOG_MAGIC) {
+                throw new IOException("Файл " + catalogPath + " не является каталогом пользователей");
+            }
+            nextUserId = in.readInt();
+            nextWorkerId = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                User user = new User(in.readInt(), in.readUTF(), in.readUTF());
+                users.put(user.getUsername(), user);
+            }
+        }
+    }
+
+    private void writeCatalog() throws IOException {
+        Path directory = catalogPath.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, catalogPath.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+                out.writeInt(CATALOG_MAGIC);
+                out.writeInt(nextUserId);
+                out.writeLong(nextWorkerId);
+                out.writeInt(users.size());
+                for (User user : users.values()) {
+                    out.writeInt(user.getId());
+                    out.writeUTF(user.getUsername());
+                    out.writeUTF(user.getHashedPassword());
+                }
+                out.flush();
+                file.getChannel().force(true);
+            }
+            Files.move(temp, catalogPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Сохраняет всех работников в снимок и удаляет покрытые им сегменты журнала.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long lsn = wal.getLastLsn();
+        snapshot.write(0, -1, lsn, workers.values());
+        writeCatalog();
+        wal.compact(lsn);
+        logger.info("Embedded storage checkpoint written: {} workers up to WAL LSN {}.", workers.size(), lsn);
+    }
+
+    private void checkpointIfNeeded() {
+        try {
+            if (wal.needsCompaction()) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            logger.error("Error writing embedded storage checkpoint: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return Номер записи в журнале или -1, если записать не удалось.
+     */
+    private long append(WalRecord record) {
+        try {
+            return wal.append(record);
+        } catch (IOException e) {
+            logger.error("Error writing to embedded storage WAL: {}", e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    /**
+     * Ждёт, пока запись журнала окажется на диске. Вызывается вне блокировки хранилища.
+     */
+    private boolean awaitDurable(long lsn) {
+        try {
+            wal.awaitDurable(lsn);
+            return true;
+        } catch (IOException e) {
+            logger.error("Embedded storage WAL record {} was not synced to disk: {}", lsn, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Работники в памяти хранилища не должны меняться снаружи, поэтому наружу отдаются копии.
+     */
+    private static Worker copy(Worker worker) {
+        Worker copy = new Worker(worker.getId(), worker.getName(),
+                new Coordinates(worker.getCoordinates().getX(), worker.getCoordinates().getY()),
+                worker.getCreationDate(), worker.getSalary(), worker.getStartDate(), worker.getEndDate(), worker.getPosition(),
+                new Organization(worker.getOrganization().getAnnualTurnover(), worker.getOrganization().getType()));
+        copy.setOwnerId(worker.getOwnerId());
+        return copy;
+    }
+
+    @Override
+    public synchronized Optional<User> registerUser(String username, String plainPassword) {
+        if (users.containsKey(username)) {
+            logger.warn("User registration error for {}: User already exists.", username);
+            return Optional.empty();
+        }
+        String hashedPassword = PasswordHasher.hashPassword(plainPassword);
+        User user = new User(nextUserId, username, hashedPassword);
+        users.put(username, user);
+        nextUserId++;
+        try {
+            writeCatalog();
+        } catch (IOException e) {
+            users.remove(username);
+            nextUserId--;
+            logger.error("User registration error for {}: {}", username, e.getMessage(), e);
+            return Optional.empty();
+        }
+        logger.info("User {} successfully registered with ID {}.", username, user.getId());
+        return Optional.of(new User(user.getId(), username, hashedPassword));
+    }
+
+    @Override
+    public synchronized Optional<User> getUserByUsername(String username) {
+        User user = users.get(username);
+        return user == null ? Optional.empty() : Optional.of(new User(user.getId(), username, user.getHashedPassword()));
+    }
+
+    private boolean userExists(int userId) {
+        return users.values().stream().anyMatch(user -> user.getId() == userId);
+    }
+
+    @Override
+    public Worker addWorker(Worker worker, int userId) {
+        Worker result;
+        long lsn;
+        synchronized (this) {
+            if (!userExists(userId)) {
+                logger.error("Failed to add worker: user {} does not exist.", userId);
+                return null;
+            }
+            Worker stored = new Worker(nextWorkerId, worker.getName(), worker.getCoordinates(), LocalDate.now(), worker.getSalary(),
+                    worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization());
+            stored.setOwnerId(userId);
+            stored = copy(stored);
+            lsn = append(WalRecord.add(stored));
+            if (lsn < 0) {
+                return null;
+            }
+            nextWorkerId++;
+            workers.put(stored.getId(), stored);
+            result = copy(stored);
+        }
+        if (!awaitDurable(lsn)) {
+            return null;
+        }
+        logger.info("Worker '{}' created in embedded storage with ID {}.", result.getName(), result.getId());
+        return result;
+    }
+
+    @Override
+    public List<Worker> addWorkers(List<Worker> newWorkers, int userId) {
+        List<Worker> result;
+        long lsn;
+        synchronized (this) {
+            if (!userExists(userId)) {
+                logger.error("Failed to add workers: user {} does not exist.", userId);
+                return null;
+            }
+            LocalDate creationDate = LocalDate.now();
+            List<Worker> stored = new ArrayList<>(newWorkers.size());
+            long id = nextWorkerId;
+            for (Worker worker : newWorkers) {
+                Worker copy = copy(new Worker(id++, worker.getName(), worker.getCoordinates(), creationDate, worker.getSalary(),
+                        worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization()));
+                copy.setOwnerId(userId);
+                stored.add(copy);
+            }
+            lsn = append(WalRecord.add(userId, stored));
+            if (lsn < 0) {
+                return null;
+            }
+            nextWorkerId = id;
+            result = new ArrayList<>(stored.size());
+            for (Worker worker : stored) {
+                workers.put(worker.getId(), worker);
+                result.add(copy(worker));
+            }
+        }
+        if (!awaitDurable(lsn)) {
+            return null;
+        }
+        logger.info("{} workers created in embedded storage by user {}.", result.size(), userId);
+        return result;
+    }
+
+    private OperationOutcome checkOwner(Worker existing, long workerId, int userId) {
+        if (existing == null) {
+            logger.warn("Worker with ID {} not found.", workerId);
+            return OperationOutcome.NOT_FOUND;
+        }
+        if (existing.getOwnerId() != userId) {
+            logger.warn("User {} attempted to modify worker with ID {}, but didn't create it.", userId, workerId);
+            return OperationOutcome.NOT_OWNER;
+        }
+        return OperationOutcome.SUCCESS;
+    }
+
+    @Override
+    public OperationOutcome updateWorker(Worker worker, int userId) {
+        long lsn;
+        synchronized (this) {
+            Worker existing = workers.get(worker.getId());
+            OperationOutcome outcome = checkOwner(existing, worker.getId(), userId);
+            if (outcome != OperationOutcome.SUCCESS) {
+                return outcome;
+            }
+            Worker updated = copy(new Worker(existing.getId(), worker.getName(), worker.getCoordinates(), existing.getCreationDate(),
+                    worker.getSalary(), worker.getStartDate(), worker.getEndDate(), worker.getPosition(), worker.getOrganization()));
+            updated.setOwnerId(userId);
+            lsn = append(WalRecord.update(List.of(updated)));
+            if (lsn < 0) {
+                return OperationOutcome.STORAGE_ERROR;
+            }
+            workers.put(updated.getId(), updated);
+        }
+        if (!awaitDurable(lsn)) {
+            return OperationOutcome.STORAGE_ERROR;
+        }
+        logger.info("Worker with ID {} successfully updated by user {}.", worker.getId(), userId);
+        return OperationOutcome.SUCCESS;
+    }
+
+    @Override
+    public OperationOutcome deleteWorker(long workerId, int userId) {
+        long lsn;
+        synchronized (this) {
+            OperationOutcome outcome = checkOwner(workers.get(workerId), workerId, userId);
+            if (outcome != OperationOutcome.SUCCESS) {
+                return outcome;
+            }
+            lsn = append(WalRecord.remove(List.of(workerId)));
+            if (lsn < 0) {
+                return OperationOutcome.STORAGE_ERROR;
+            }
+            workers.remove(workerId);
+        }
+        if (!awaitDurable(lsn)) {
+            return OperationOutcome.STORAGE_ERROR;
+        }
+        logger.info("Worker with ID {} successfully deleted by user {}.", workerId, userId);
+        return OperationOutcome.SUCCESS;
+    }
+
+    @Override
+    public List<Long> clearWorkersByUserId(int userId) {
+        List<Long> ids = new ArrayList<>();
+        long lsn = 0;
+        synchronized (this) {
+            for (Worker worker : workers.values()) {
+                if (worker.getOwnerId() == userId) {
+                    ids.add(worker.getId());
+                }
+            }
+            if (!ids.isEmpty() && (lsn = append(WalRecord.clear(userId, ids))) < 0) {
+                return null;
+            }
+            ids.forEach(workers::remove);
+        }
+        if (!awaitDurable(lsn)) {
+            return null;
+        }
+        logger.info("Deleted {} workers of user {}.", ids.size(), userId);
+        return ids;
+    }
+
+    @Override
+    public List<Long> deleteWorkersWhere(WorkerPredicate predicate, int userId) {
+        List<Long> ids = new ArrayList<>();
+        long lsn = 0;
+        synchronized (this) {
+            for (Worker worker : workers.values()) {
+                if (worker.getOwnerId() == userId && predicate.test(worker)) {
+                    ids.add(worker.getId());
+                }
+            }
+            if (!ids.isEmpty() && (lsn = append(WalRecord.remove(ids))) < 0) {
+                return null;
+            }
+            ids.forEach(workers::remove);
+        }
+        if (!awaitDurable(lsn)) {
+            return null;
+        }
+        logger.info("Deleted {} workers of user {} by condition.", ids.size(), userId);
+        return ids;
+    }
+
+    @Override
+    public List<Worker> updateWorkersWhere(WorkerPredicate predicate, WorkerPatch patch, int userId) {
+        List<Worker> result;
+        long lsn = 0;
+        synchronized (this) {
+            List<Worker> updated = new ArrayList<>();
+            try {
+                for (Worker worker : workers.values()) {
+                    if (worker.getOwnerId() == userId && predicate.test(worker)) {
+                        updated.add(patch.applyTo(worker));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                logger.warn("Conditional update by user {} rejected: {}", userId, e.getMessage());
+                return null;
+            }
+            if (!updated.isEmpty() && (lsn = append(WalRecord.update(updated))) < 0) {
+                return null;
+            }
+            result = new ArrayList<>(updated.size());
+            for (Worker worker : updated) {
+                workers.put(worker.getId(), worker);
+                result.add(copy(worker));
+            }
+        }
+        if (!awaitDurable(lsn)) {
+            return null;
+        }
+        logger.info("Updated {} workers of user {} by condition.", result.size(), userId);
+        return result;
+    }
+
+    @Override
+    public synchronized long loadAllWorkers(Consumer<Worker> sink) {
+        for (Worker worker : workers.values()) {
+            sink.accept(copy(worker));
+        }
+        return workers.size();
+    }
+
+    @Override
+    public synchronized long estimateWorkerCount() {
+        return workers.size();
+    }
+
+    @Override
+    public String describe() {
+        return "встроенное хранилище в " + catalogPath.toAbsolutePath().getParent();
+    }
+
+    @Override
+    public synchronized String getStatistics() {
+        return "Встроенное хранилище: пользователей " + users.size() + ", работников " + workers.size()
+                + ", последняя запись журнала " + wal.getLastLsn() + ".";
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        checkpointExecutor.shutdownNow();
+        try {
+            checkpoint();
+        } catch (IOException e) {
+            logger.error("Error writing embedded storage checkpoint on close: {}", e.getMessage(), e);
+        }
+        wal.close();
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.server;
+
+import org.example.common.response.OperationOutcome;
+
+/**
+ * Результат изменения коллекции: типизированный исход и сообщение для пользователя.
+ */
+public final class OperationResult {
+    private final OperationOutcome outcome;
+    private final String message;
+
+    private OperationResult(OperationOutcome outcome, String message) {
+        this.outcome = outcome;
+        this.message = message;
+    }
+
+    public static OperationResult of(OperationOutcome outcome, String message) {
+        return new OperationResult(outcome, message);
+    }
+
+    public static OperationResult success(String message) {
+        return new OperationResult(OperationOutcome.SUCCESS, message);
+    }
+
+    public OperationOutcome getOutcome() {
+        return outcome;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isSuccess() {
+        return outcome.isSuccess();
+    }
+}
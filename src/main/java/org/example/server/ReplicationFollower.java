@@ -0,0 +1,296 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.model.Worker;
+import org.example.common.request.CommandRequest;
+import org.example.common.response.CollectionVersion;
+import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Ведомый узел репликации: держит копию коллекции и таблицы сессий ведущего сервера
+ * ({@link ReplicationLeader}) и пересылает ведущему команды, которые не может выполнить сам.
+ * <p>
+ * После подключения ведомый получает снимок коллекции, затем применяет поток изменений и
+ * подтверждает применённые кадры, а также сообщает ведущему о сессиях, продлённых обращениями
+ * к этому узлу. Если соединение оборвалось или от ведущего дольше
+ * {@link #READ_TIMEOUT_MILLIS} нет даже пульса, ведомый переподключается и снова начинает со
+ * снимка, а до тех пор отвечает на чтение по последнему полученному состоянию.
+ */
+public class ReplicationFollower implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ReplicationFollower.class);
+    private static final int CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final int READ_TIMEOUT_MILLIS = (int) (ReplicationLeader.HEARTBEAT_INTERVAL_MILLIS * 5);
+    private static final int FORWARD_TIMEOUT_MILLIS = 15_000;
+    private static final long RECONNECT_DELAY_MILLIS = 2_000;
+    private static final int MAX_FRAME_BYTES = 64 << 20;
+
+    private final String leaderHost;
+    private final int replicationPort;
+    private final int leaderPort;
+    private final CollectionManager collectionManager;
+    private final SessionManager sessionManager;
+    private volatile boolean running;
+    private volatile boolean ready;
+    private volatile boolean connected;
+    private volatile long appliedSeq;
+    private volatile long appliedChanges;
+    private volatile long lastApplyLagMillis;
+    private volatile long lastContactAt;
+    private volatile long snapshotsReceived;
+    private Socket socket;
+    private Thread thread;
+    // Токены, пришедшие после снимка; null, если таблица сессий уже сверена с ведущим.
+    private Set<String> syncedTokens;
+
+    /**
+     * @param replicationPort Порт {@link ReplicationLeader} на ведущем сервере.
+     * @param leaderPort      Порт, на котором ведущий принимает команды клиентов.
+     */
+    public ReplicationFollower(String leaderHost, int replicationPort, int leaderPort,
+                               CollectionManager collectionManager, SessionManager sessionManager) {
+        this.leaderHost = leaderHost;
+        this.replicationPort = replicationPort;
+        this.leaderPort = leaderPort;
+        this.collectionManager = collectionManager;
+        this.sessionManager = sessionManager;
+        sessionManager.setTrackingTouches(true);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "ReplicationFollowerThread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true, если снимок от ведущего уже получен и реплика может отвечать на чтение.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void run() {
+        while (running) {
+            try (Socket leader = new Socket()) {
+                leader.connect(new InetSocketAddress(leaderHost, replicationPort), CONNECT_TIMEOUT_MILLIS);
+                leader.setSoTimeout(READ_TIMEOUT_MILLIS);
+                leader.setTcpNoDelay(true);
+                synchronized (this) {
+                    socket = leader;
+                }
+                DataInputStream in = new DataInputStream(new BufferedInputStream(leader.getInputStream(), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(leader.getOutputStream()));
+                if (in.readInt() != ReplicationLeader.MAGIC || in.readInt() != ReplicationLeader.PROTOCOL_VERSION) {
+                    throw new IOException("неподдерживаемый протокол репликации");
+                }
+                connected = true;
+                logger.info("Connected to replication leader {}:{}.", leaderHost, replicationPort);
+                follow(in, out);
+            } catch (IOException | RuntimeException e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Replication from leader {}:{} interrupted: {}. Reconnecting in {} ms.",
+                        leaderHost, replicationPort, e.getMessage(), RECONNECT_DELAY_MILLIS);
+            } finally {
+                connected = false;
+            }
+            try {
+                Thread.sleep(RECONNECT_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    private void follow(DataInputStream in, DataOutputStream out) throws IOException {
+        long touchesReportedAt = System.currentTimeMillis();
+        while (running) {
+            byte kind = in.readByte();
+            lastContactAt = System.currentTimeMillis();
+            if (lastContactAt - touchesReportedAt >= ReplicationLeader.HEARTBEAT_INTERVAL_MILLIS) {
+                reportTouchedSessions(out);
+                touchesReportedAt = lastContactAt;
+            }
+            if (kind == ReplicationLeader.SNAPSHOT) {
+                readSnapshot(in);
+                continue;
+            }
+            if (kind == ReplicationLeader.HEARTBEAT) {
+                in.readLong();
+                continue;
+            }
+            long seq = in.readLong();
+            long queuedAt = in.readLong();
+            byte[] body = new byte[readLength(in)];
+            in.readFully(body);
+            apply(kind, ByteBuffer.wrap(body));
+            appliedSeq = seq;
+            lastApplyLagMillis = Math.max(0, System.currentTimeMillis() - queuedAt);
+            // Подтверждение одно на пачку кадров, уже лежащих в буфере.
+            if (in.available() == 0) {
+                out.writeByte(ReplicationLeader.ACK);
+                out.writeLong(seq);
+                out.flush();
+            }
+        }
+    }
+
+    private void reportTouchedSessions(DataOutputStream out) throws IOException {
+        List<String> touched = sessionManager.drainTouched();
+        if (touched.isEmpty()) {
+            return;
+        }
+        out.writeByte(ReplicationLeader.SESSIONS_TOUCHED);
+        out.writeInt(touched.size());
+        for (String token : touched) {
+            out.writeUTF(token);
+        }
+        out.flush();
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        CollectionVersion version = new CollectionVersion(in.readLong(), in.readLong());
+        int count = in.readInt();
+        byte[] encoded = new byte[in.readInt()];
+        in.readFully(encoded);
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        List<Worker> workers = new ArrayList<>(Math.max(0, count));
+        for (int i = 0; i < count; i++) {
+            workers.add(WorkerCodec.read(buffer));
+        }
+        collectionManager.resetReplica(workers, version);
+        syncedTokens = new HashSet<>();
+        appliedSeq = 0;
+        snapshotsReceived++;
+        ready = true;
+    }
+
+    private void apply(byte kind, ByteBuffer body) throws IOException {
+        switch (kind) {
+            case ReplicationLeader.RECORD -> {
+                long version = body.getLong();
+                int type = body.get();
+                if (type < 0 || type >= WalRecord.Type.values().length) {
+                    throw new IOException("Неизвестный тип изменения в потоке репликации: " + type);
+                }
+                collectionManager.applyReplicated(WalRecord.readPayload(0, WalRecord.Type.values()[type], body), version);
+                appliedChanges++;
+            }
+            case ReplicationLeader.SESSION_CREATED -> {
+                DataInputStream session = new DataInputStream(new ByteArrayInputStream(body.array()));
+                String token = session.readUTF();
+                sessionManager.adopt(token, session.readInt(), session.readUTF());
+                if (syncedTokens != null) {
+                    syncedTokens.add(token);
+                }
+            }
+            case ReplicationLeader.SESSION_REVOKED -> {
+                String token = new DataInputStream(new ByteArrayInputStream(body.array())).readUTF();
+                sessionManager.revoke(token);
+                if (syncedTokens != null) {
+                    syncedTokens.remove(token);
+                }
+            }
+            case ReplicationLeader.SESSIONS_SYNCED -> {
+                // Сессии, отозванные ведущим, пока связи не было, здесь забываются.
+                if (syncedTokens != null) {
+                    int dropped = sessionManager.retainAll(syncedTokens);
+                    syncedTokens = null;
+                    if (dropped > 0) {
+                        logger.info("Dropped {} sessions unknown to the replication leader.", dropped);
+                    }
+                }
+            }
+            default -> throw new IOException("Неизвестный кадр в потоке репликации: " + kind);
+        }
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Некорректная длина кадра репликации: " + length);
+        }
+        return length;
+    }
+
+    /**
+     * Выполняет команду на ведущем сервере тем же протоколом, что и клиент.
+     *
+     * @return Ответ ведущего; {@link OperationOutcome#UNAVAILABLE}, если команду не удалось ему
+     * отправить, или {@link OperationOutcome#OUTCOME_UNKNOWN}, если команда отправлена, а ответ не получен.
+     */
+    public CommandResponse forward(CommandRequest request) {
+        boolean sent = false;
+        try (Socket leader = new Socket()) {
+            leader.connect(new InetSocketAddress(leaderHost, leaderPort), CONNECT_TIMEOUT_MILLIS);
+            leader.setSoTimeout(FORWARD_TIMEOUT_MILLIS);
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(leader.getOutputStream()));
+            oos.writeObject(request);
+            oos.flush();
+            sent = true;
+            ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(leader.getInputStream()));
+            return (CommandResponse) ois.readObject();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn("Failed to forward command '{}' to leader {}:{} (sent: {}): {}", request.getCommandName(),
+                    leaderHost, leaderPort, sent, e.getMessage());
+            if (sent) {
+                return new CommandResponse(OperationOutcome.OUTCOME_UNKNOWN, "Ведущий сервер не ответил на команду '"
+                        + request.getCommandName() + "', она могла быть выполнена. Проверьте результат перед повтором.",
+                        null, null);
+            }
+            return new CommandResponse(OperationOutcome.UNAVAILABLE, "Ведущий сервер недоступен, команда '"
+                    + request.getCommandName() + "' не выполнена. Повторите позже.", null, null);
+        }
+    }
+
+    /**
+     * @return Состояние репликации и отставание этого узла для консоли.
+     */
+    public String getStatus() {
+        long now = System.currentTimeMillis();
+        return String.format("Репликация с %s:%d: %s, снимков получено %d, применено изменений %d (кадр %d), "
+                        + "задержка последнего изменения %d мс, последний сигнал ведущего %s.",
+                leaderHost, replicationPort, connected ? "подключено" : "нет связи", snapshotsReceived, appliedChanges,
+                appliedSeq, lastApplyLagMillis, lastContactAt == 0 ? "не получен" : (now - lastContactAt) + " мс назад");
+    }
+
+    @Override
+    public void close() {
+        Socket leader;
+        synchronized (this) {
+            running = false;
+            leader = socket;
+        }
+        if (leader != null) {
+            try {
+                leader.close();
+            } catch (IOException e) {
+                logger.warn("Error closing replication connection: {}", e.getMessage());
+            }
+        }
+    }
+}
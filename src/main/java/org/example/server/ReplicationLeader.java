@@ -0,0 +1,345 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.response.CollectionVersion;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ведущий узел репликации коллекции в памяти: принимает подключения ведомых серверов, передаёт
+ * каждому снимок коллекции, а затем поток её изменений и событий таблицы сессий.
+ * <p>
+ * Протокол двоичный: после приветствия ({@link #MAGIC}, {@link #PROTOCOL_VERSION}) идёт снимок
+ * с работниками в представлении {@link WorkerCodec}, затем кадры с порядковым номером и временем
+ * постановки в очередь; изменения передаются как записи {@link WalRecord} вместе с версией
+ * коллекции. Ведомый подтверждает номер последнего применённого кадра ({@link #ACK}), по
+ * неподтверждённым кадрам ведущий считает отставание, и раз в {@link #HEARTBEAT_INTERVAL_MILLIS} мс
+ * присылает токены сессий, которыми пользовались на нём ({@link #SESSIONS_TOUCHED}): ведущий
+ * продлевает их, иначе удалил бы как истёкшие. Если ведомый не успевает и его очередь переполняется, соединение
+ * разрывается, и ведомый начинает заново со снимка.
+ * <p>
+ * Поток содержит токены сессий, поэтому порт репликации должен быть доступен только серверам.
+ */
+public class ReplicationLeader implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ReplicationLeader.class);
+    static final int MAGIC = 0x57524550;
+    static final int PROTOCOL_VERSION = 3;
+    static final byte SNAPSHOT = 'S';
+    static final byte RECORD = 'R';
+    static final byte SESSION_CREATED = 'C';
+    static final byte SESSION_REVOKED = 'V';
+    static final byte SESSIONS_SYNCED = 'Y';
+    static final byte HEARTBEAT = 'H';
+    static final byte ACK = 'A';
+    static final byte SESSIONS_TOUCHED = 'T';
+    private static final int MAX_TOUCHED_SESSIONS = 1 << 20;
+    static final long HEARTBEAT_INTERVAL_MILLIS = 1_000;
+    private static final int MAX_QUEUED_FRAMES = 8_192;
+    private static final int MAX_FRAMES_PER_FLUSH = 256;
+
+    private final CollectionManager collectionManager;
+    private final SessionManager sessionManager;
+    private final int port;
+    private final Set<FollowerLink> followers = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    public ReplicationLeader(CollectionManager collectionManager, SessionManager sessionManager, int port) {
+        this.collectionManager = collectionManager;
+        this.sessionManager = sessionManager;
+        this.port = port;
+    }
+
+    public synchronized void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        running = true;
+        Thread acceptThread = new Thread(this::acceptFollowers, "ReplicationAcceptThread");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        logger.info("Replication leader listening for followers on port {}.", port);
+    }
+
+    private void acceptFollowers() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                FollowerLink link = new FollowerLink(socket);
+                followers.add(link);
+                link.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.warn("Error accepting replication follower: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Состояние и отставание каждого ведомого сервера для консоли.
+     */
+    public String getStatus() {
+        if (followers.isEmpty()) {
+            return "Репликация: ведомых серверов нет (порт " + port + ").";
+        }
+        long now = System.currentTimeMillis();
+        StringBuilder status = new StringBuilder("Репликация: ведомых серверов ").append(followers.size())
+                .append(" (порт ").append(port).append("):");
+        for (FollowerLink link : followers) {
+            status.append("\n  ").append(link.describe(now));
+        }
+        return status.toString();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    logger.warn("Error closing replication socket: {}", e.getMessage());
+                }
+            }
+        }
+        followers.forEach(link -> link.close("leader is shutting down"));
+    }
+
+    private record Frame(byte kind, long seq, long queuedAt, byte[] body) {
+    }
+
+    /**
+     * Соединение с одним ведомым: поток отправки с собственной очередью кадров и поток чтения
+     * подтверждений.
+     */
+    private final class FollowerLink implements CollectionChangeListener, SessionManager.Listener {
+        private final Socket socket;
+        private final String address;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        // Номер и время постановки в очередь кадров, которые ведомый ещё не подтвердил.
+        private final ArrayDeque<long[]> unacknowledged = new ArrayDeque<>();
+        private long lastQueuedSeq;
+        private long acknowledgedSeq;
+        private volatile boolean closed;
+
+        private FollowerLink(Socket socket) {
+            this.socket = socket;
+            this.address = String.valueOf(socket.getRemoteSocketAddress());
+        }
+
+        private void start() {
+            Thread sender = new Thread(this::send, "ReplicationSender-" + address);
+            sender.setDaemon(true);
+            sender.start();
+            Thread receiver = new Thread(this::receiveAcknowledgements, "ReplicationAckReader-" + address);
+            receiver.setDaemon(true);
+            receiver.start();
+        }
+
+        private void send() {
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                out.writeInt(MAGIC);
+                out.writeInt(PROTOCOL_VERSION);
+                sendSnapshot(out);
+                sessionManager.addListener(this);
+                enqueue(SESSIONS_SYNCED, new byte[0]);
+                while (!closed) {
+                    Frame frame = queue.poll(HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (frame == null) {
+                        out.writeByte(HEARTBEAT);
+                        out.writeLong(System.currentTimeMillis());
+                    } else {
+                        int sent = 0;
+                        do {
+                            write(out, frame);
+                        } while (++sent < MAX_FRAMES_PER_FLUSH && (frame = queue.poll()) != null);
+                    }
+                    out.flush();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                close("connection lost: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close("interrupted");
+            }
+        }
+
+        /**
+         * Снимок кодируется под блокировкой коллекции в память и только потом отправляется,
+         * чтобы медленный ведомый не задерживал команды изменения.
+         */
+        private void sendSnapshot(DataOutputStream out) throws IOException {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(1 << 16);
+            DataOutputStream snapshotOut = new DataOutputStream(buffer);
+            int[] count = new int[1];
+            long start = System.nanoTime();
+            CollectionVersion version = collectionManager.addChangeListener(this, worker -> {
+                try {
+                    WorkerCodec.write(snapshotOut, worker);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            out.writeByte(SNAPSHOT);
+            out.writeLong(version.epoch());
+            out.writeLong(version.counter());
+            out.writeInt(count[0]);
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+            out.flush();
+            logger.info("Snapshot sent to follower {}: {} workers, version {}, {} KB in {} ms.", address, count[0],
+                    version, buffer.size() / 1024, (System.nanoTime() - start) / 1_000_000);
+        }
+
+        private void write(DataOutputStream out, Frame frame) throws IOException {
+            out.writeByte(frame.kind());
+            out.writeLong(frame.seq());
+            out.writeLong(frame.queuedAt());
+            out.writeInt(frame.body().length);
+            out.write(frame.body());
+        }
+
+        private void receiveAcknowledgements() {
+            try {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (!closed) {
+                    byte kind = in.readByte();
+                    if (kind == ACK) {
+                        acknowledge(in.readLong());
+                    } else if (kind == SESSIONS_TOUCHED) {
+                        int count = in.readInt();
+                        if (count < 0 || count > MAX_TOUCHED_SESSIONS) {
+                            throw new IOException("invalid touched session count " + count);
+                        }
+                        for (int i = 0; i < count; i++) {
+                            sessionManager.touch(in.readUTF());
+                        }
+                    } else {
+                        throw new IOException("unknown follower message " + kind);
+                    }
+                }
+            } catch (IOException e) {
+                close("connection lost: " + e.getMessage());
+            }
+        }
+
+        private synchronized void acknowledge(long seq) {
+            acknowledgedSeq = Math.max(acknowledgedSeq, seq);
+            while (!unacknowledged.isEmpty() && unacknowledged.peekFirst()[0] <= seq) {
+                unacknowledged.pollFirst();
+            }
+        }
+
+        /**
+         * Ставит кадр в очередь, не блокируясь: вызывается под блокировкой коллекции.
+         */
+        private void enqueue(byte kind, byte[] body) {
+            boolean overflow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                Frame frame = new Frame(kind, lastQueuedSeq + 1, now, body);
+                overflow = !queue.offer(frame);
+                if (!overflow) {
+                    lastQueuedSeq = frame.seq();
+                    unacknowledged.addLast(new long[]{frame.seq(), now});
+                }
+            }
+            if (overflow) {
+                close("follower is too slow, " + MAX_QUEUED_FRAMES + " frames queued");
+            }
+        }
+
+        @Override
+        public void changed(WalRecord record, long version) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(buffer);
+            try {
+                out.writeLong(version);
+                out.writeByte(record.getType().ordinal());
+                record.writePayload(out);
+            } catch (IOException e) {
+                close("cannot encode change: " + e.getMessage());
+                return;
+            }
+            enqueue(RECORD, buffer.toByteArray());
+        }
+
+        @Override
+        public void reloaded() {
+            close("collection was reloaded, follower must resynchronize");
+        }
+
+        @Override
+        public void created(String token, int userId, String username) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(buffer);
+            try {
+                out.writeUTF(token);
+                out.writeInt(userId);
+                out.writeUTF(username);
+            } catch (IOException e) {
+                close("cannot encode session: " + e.getMessage());
+                return;
+            }
+            enqueue(SESSION_CREATED, buffer.toByteArray());
+        }
+
+        @Override
+        public void revoked(String token) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+            try {
+                new DataOutputStream(buffer).writeUTF(token);
+            } catch (IOException e) {
+                close("cannot encode session: " + e.getMessage());
+                return;
+            }
+            enqueue(SESSION_REVOKED, buffer.toByteArray());
+        }
+
+        private synchronized String describe(long now) {
+            long lagMillis = unacknowledged.isEmpty() ? 0 : now - unacknowledged.peekFirst()[1];
+            return String.format("%s: отправлено изменений %d, подтверждено %d, отстаёт на %d изменений (%d мс)",
+                    address, lastQueuedSeq, acknowledgedSeq, lastQueuedSeq - acknowledgedSeq, lagMillis);
+        }
+
+        private void close(String reason) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+            }
+            collectionManager.removeChangeListener(this);
+            sessionManager.removeListener(this);
+            followers.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.warn("Error closing replication connection to {}: {}", address, e.getMessage());
+            }
+            logger.info("Replication to follower {} stopped: {}.", address, reason);
+        }
+    }
+}
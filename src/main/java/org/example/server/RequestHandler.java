@@ -2,30 +2,74 @@ package org.example.server;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.common.model.Position;
 import org.example.common.model.User;
 import org.example.common.model.Worker;
+import org.example.common.query.OrderBySpec;
+import org.example.common.query.WorkerField;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
 import org.example.common.request.CommandRequest;
+import org.example.common.response.AggregateReport;
+import org.example.common.response.CollectionVersion;
 import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
 import org.example.server.util.PasswordHasher;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 public class RequestHandler {
     private final CollectionManager collectionManager;
-    private final DatabaseManager databaseManager;
+    private final Storage storage;
+    private final SessionManager sessionManager;
+    private final UserCache userCache;
     private static final Logger logger = LogManager.getLogger(RequestHandler.class);
+    public static final int MAX_BATCH_SIZE = 10_000;
+    private ReplicationFollower follower;
 
-    public RequestHandler(CollectionManager collectionManager, DatabaseManager databaseManager) {
+    public RequestHandler(CollectionManager collectionManager, Storage storage,
+                          SessionManager sessionManager, UserCache userCache) {
         this.collectionManager = collectionManager;
-        this.databaseManager = databaseManager;
+        this.storage = storage;
+        this.sessionManager = sessionManager;
+        this.userCache = userCache;
+    }
+
+    /**
+     * Переводит обработчик в режим ведомого сервера: команды чтения с токеном сессии выполняются
+     * по реплике, остальные пересылаются ведущему.
+     */
+    public void setFollower(ReplicationFollower follower) {
+        this.follower = follower;
+    }
+
+    private boolean isReplicaRead(CommandRequest request) {
+        return follower.isReady() && request.getSessionToken() != null && request.isReadOnly();
+    }
+
+    /**
+     * Пересылает команду ведущему. Сессию, выданную или закрытую им, ведомый учитывает сразу,
+     * не дожидаясь того же события в потоке репликации.
+     */
+    private CommandResponse forwardToLeader(CommandRequest request) {
+        CommandResponse response = follower.forward(request);
+        if ("login".equalsIgnoreCase(request.getCommandName()) && response.isSuccess()
+                && response.getResultData() instanceof User user && user.getSessionToken() != null) {
+            sessionManager.adopt(user.getSessionToken(), user.getId(), user.getUsername());
+        } else if ("logout".equalsIgnoreCase(request.getCommandName()) && response.isSuccess()) {
+            sessionManager.revoke(request.getSessionToken());
+        }
+        return response;
     }
 
     private Optional<User> authenticateUser(String username, String plainPassword) {
         if (username == null || plainPassword == null) {
             return Optional.empty();
         }
-        Optional<User> userOpt = databaseManager.getUserByUsername(username);
+        Optional<User> userOpt = userCache.get(username);
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             if (PasswordHasher.verifyPassword(plainPassword, user.getHashedPassword())) {
@@ -42,63 +86,96 @@ public class RequestHandler {
     public CommandResponse handleRequest(CommandRequest request) {
         if (request == null) {
             logger.warn("Received null request.");
-            return new CommandResponse(false, "Ошибка сервера: получен пустой запрос.", null);
+            return new CommandResponse(OperationOutcome.INVALID_ARGUMENT, "Ошибка сервера: получен пустой запрос.", null, null);
         }
         String commandName = request.getCommandName();
+        if ("ping".equalsIgnoreCase(commandName)) {
+            // Проверка доступности сервера клиентом: без входа, без пересылки и без записи в лог.
+            // Эпоха версии общая у ведущего и ведомых, по ней клиент узнаёт серверы одной группы.
+            return new CommandResponse(true, "pong", null, collectionManager.getVersionToken());
+        }
         Object argument = request.getArgument();
         String username = request.getUsername();
         String password = request.getPassword();
+        String sessionToken = request.getSessionToken();
+        CollectionVersion knownVersion = request.getKnownVersion();
 
         logger.info("Handling request: Command='{}', User='{}', ArgType='{}'", commandName, username,
                 argument != null ? argument.getClass().getSimpleName() : "null");
 
+        if (follower != null && !isReplicaRead(request)) {
+            return forwardToLeader(request);
+        }
+
         if ("register".equalsIgnoreCase(commandName)) {
             if (argument instanceof String[] args && args.length == 2) {
                 String regUsername = args[0];
                 String regPassword = args[1];
                 if (regUsername == null || regUsername.trim().isEmpty() || regPassword == null
                         || regPassword.isEmpty()) {
-                    return new CommandResponse(false,
-                            "Имя пользователя и пароль не могут быть пустыми для регистрации.", null);
+                    return new CommandResponse(OperationOutcome.INVALID_ARGUMENT,
+                            "Имя пользователя и пароль не могут быть пустыми для регистрации.", null, null);
                 }
-                Optional<User> newUser = databaseManager.registerUser(regUsername, regPassword);
+                Optional<User> newUser = storage.registerUser(regUsername, regPassword);
                 if (newUser.isPresent()) {
                     return new CommandResponse(true, "Пользователь " + regUsername + " успешно зарегистрирован.", null);
                 } else {
-                    return new CommandResponse(false, "Не удалось зарегистрировать пользователя " + regUsername
-                            + ". Возможно, имя пользователя уже занято.", null);
+                    return new CommandResponse(OperationOutcome.NOT_APPLIED, "Не удалось зарегистрировать пользователя "
+                            + regUsername + ". Возможно, имя пользователя уже занято.", null, null);
                 }
             } else {
-                return new CommandResponse(false,
-                        "Ошибка: неверный формат аргументов для 'register'. Ожидается [username, password].", null);
+                return new CommandResponse(OperationOutcome.INVALID_ARGUMENT,
+                        "Ошибка: неверный формат аргументов для 'register'. Ожидается [username, password].", null, null);
             }
         }
 
-        Optional<User> authenticatedUserOpt = authenticateUser(username, password);
-
         if ("login".equalsIgnoreCase(commandName)) {
-            if (authenticatedUserOpt.isPresent()) {
-                User user = authenticatedUserOpt.get();
+            Optional<User> loggedInUserOpt = authenticateUser(username, password);
+            if (loggedInUserOpt.isPresent()) {
+                User user = loggedInUserOpt.get();
                 user.setHashedPassword(null);
+                user.setSessionToken(sessionManager.createSession(user));
                 return new CommandResponse(true, "Пользователь " + username + " успешно вошел в систему.", user);
             } else {
-                return new CommandResponse(false, "Ошибка входа: неверное имя пользователя или пароль.", null);
+                return new CommandResponse(OperationOutcome.UNAUTHORIZED, "Ошибка входа: неверное имя пользователя или пароль.",
+                        null, null);
             }
         }
 
+        Optional<User> authenticatedUserOpt = sessionToken != null
+                ? sessionManager.validate(sessionToken)
+                : authenticateUser(username, password);
+
+        if (authenticatedUserOpt.isEmpty() && follower != null) {
+            // Токен мог быть выдан ведущим только что и ещё не дойти по репликации.
+            return forwardToLeader(request);
+        }
         if (authenticatedUserOpt.isEmpty()) {
             logger.warn(
-                    "Unauthorized access attempt: Command='{}', User='{}'. Credentials provided: username='{}', password provided: {}",
-                    commandName, username, username != null, password != null && !password.isEmpty());
-            return new CommandResponse(false, "Ошибка аутентификации: доступ запрещен. Войдите или зарегистрируйтесь.",
-                    null);
+                    "Unauthorized access attempt: Command='{}', User='{}'. Credentials provided: username='{}', password provided: {}, session token provided: {}",
+                    commandName, username, username != null, password != null && !password.isEmpty(), sessionToken != null);
+            return new CommandResponse(OperationOutcome.UNAUTHORIZED,
+                    "Ошибка аутентификации: доступ запрещен. Войдите или зарегистрируйтесь.", null, null);
         }
 
         User authenticatedUser = authenticatedUserOpt.get();
         int userId = authenticatedUser.getId();
+        username = authenticatedUser.getUsername();
+
+        if ("logout".equalsIgnoreCase(commandName)) {
+            if (sessionToken == null) {
+                return new CommandResponse(OperationOutcome.INVALID_ARGUMENT,
+                        "Ошибка: для выхода нужен токен сессии, полученный при входе.", null, null);
+            }
+            sessionManager.revoke(sessionToken);
+            return new CommandResponse(true, "Пользователь " + username + " вышел из системы.", null);
+        }
         String message;
         Object resultData = null;
         boolean success = true;
+        CollectionVersion collectionVersion = null;
+        OperationResult writeResult = null;
+        OperationOutcome outcome = null;
 
         try {
             switch (commandName.toLowerCase()) {
@@ -109,6 +186,13 @@ public class RequestHandler {
                     message = collectionManager.getInfo();
                     break;
                 case "show":
+                    // Версия читается до списка: список может оказаться новее версии, но не наоборот,
+                    // иначе клиент застрял бы на устаревших данных.
+                    collectionVersion = collectionManager.getVersionToken();
+                    if (collectionVersion.equals(knownVersion)) {
+                        logger.debug("Collection unchanged since version {} for user {}, sending 'not modified'.", knownVersion, username);
+                        return CommandResponse.notModified(collectionVersion);
+                    }
                     List<Worker> workersByLocation = collectionManager.getWorkersSortedByLocation();
                     resultData = workersByLocation;
                     message = workersByLocation.isEmpty() ? "Коллекция пуста."
@@ -116,8 +200,8 @@ public class RequestHandler {
                     break;
                 case "add":
                     if (argument instanceof Worker worker) {
-                        message = collectionManager.addWorker(worker, userId);
-                        success = message.startsWith("Работник успешно добавлен");
+                        writeResult = collectionManager.addWorker(worker, userId);
+                        message = writeResult.getMessage();
                     } else {
                         success = false;
                         message = "Ошибка: неверный тип аргумента для команды 'add'. Ожидался Worker.";
@@ -125,11 +209,22 @@ public class RequestHandler {
                                 argument != null ? argument.getClass().getName() : "null");
                     }
                     break;
+                case "add_batch":
+                    if (argument instanceof Worker[] batch && batch.length <= MAX_BATCH_SIZE) {
+                        writeResult = collectionManager.addWorkers(List.of(batch), userId);
+                        message = writeResult.getMessage();
+                    } else {
+                        success = false;
+                        message = "Ошибка: команда 'add_batch' ожидает массив Worker размером не больше " + MAX_BATCH_SIZE + ".";
+                        logger.warn("Invalid argument for 'add_batch': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
                 case "update":
                     if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof Long updateId
                             && args[1] instanceof Worker updateWorker) {
-                        message = collectionManager.updateWorker(updateId, updateWorker, userId);
-                        success = message.startsWith("Работник с ID " + updateId + " успешно обновлен");
+                        writeResult = collectionManager.updateWorker(updateId, updateWorker, userId);
+                        message = writeResult.getMessage();
                     } else {
                         success = false;
                         message = "Ошибка: неверная структура или тип аргумента для команды 'update'.";
@@ -138,8 +233,8 @@ public class RequestHandler {
                     break;
                 case "remove_by_id":
                     if (argument instanceof Long removeId) {
-                        message = collectionManager.removeWorkerById(removeId, userId);
-                        success = message.startsWith("Работник с ID " + removeId + " успешно удален");
+                        writeResult = collectionManager.removeWorkerById(removeId, userId);
+                        message = writeResult.getMessage();
                     } else {
                         success = false;
                         message = "Ошибка: неверный тип аргумента для 'remove_by_id'. Ожидался Long.";
@@ -148,13 +243,13 @@ public class RequestHandler {
                     }
                     break;
                 case "clear":
-                    message = collectionManager.clear(userId);
-                    success = message.contains("были удалены") || message.contains("Работники пользователя очищены");
+                    writeResult = collectionManager.clear(userId);
+                    message = writeResult.getMessage();
                     break;
                 case "add_if_min":
                     if (argument instanceof Worker addMinWorker) {
-                        message = collectionManager.addIfMin(addMinWorker, userId);
-                        success = message.contains("добавлен (add_if_min)");
+                        writeResult = collectionManager.addIfMin(addMinWorker, userId);
+                        message = writeResult.getMessage();
                     } else {
                         success = false;
                         message = "Ошибка: неверный тип аргумента для 'add_if_min'. Ожидался Worker.";
@@ -164,8 +259,8 @@ public class RequestHandler {
                     break;
                 case "add_if_max":
                     if (argument instanceof Worker addMaxWorker) {
-                        message = collectionManager.addIfMax(addMaxWorker, userId);
-                        success = message.contains("добавлен (add_if_max)");
+                        writeResult = collectionManager.addIfMax(addMaxWorker, userId);
+                        message = writeResult.getMessage();
                     } else {
                         success = false;
                         message = "Ошибка: неверный тип аргумента для 'add_if_max'. Ожидался Worker.";
@@ -173,6 +268,42 @@ public class RequestHandler {
                                 argument != null ? argument.getClass().getName() : "null");
                     }
                     break;
+                case "remove_where":
+                    if (argument instanceof WorkerPredicate predicate) {
+                        writeResult = collectionManager.removeWhere(predicate, userId);
+                        message = writeResult.getMessage();
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверный тип аргумента для 'remove_where'. Ожидалось условие отбора.";
+                        logger.warn("Invalid argument type for 'remove_where': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
+                case "update_where":
+                    if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof WorkerPredicate predicate
+                            && args[1] instanceof WorkerPatch patch) {
+                        writeResult = collectionManager.updateWhere(predicate, patch, userId);
+                        message = writeResult.getMessage();
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверная структура аргумента для 'update_where'. Ожидалось [условие, изменения].";
+                        logger.warn("Invalid argument for 'update_where': {}", argument);
+                    }
+                    break;
+                case "show_page":
+                    if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof Long afterId
+                            && args[1] instanceof Integer limit && limit > 0 && limit <= MAX_BATCH_SIZE) {
+                        collectionVersion = collectionManager.getVersionToken();
+                        List<Worker> page = collectionManager.getPageAfter(afterId, limit);
+                        resultData = page;
+                        message = "Работников на странице: " + page.size() + ".";
+                    } else {
+                        success = false;
+                        message = "Ошибка: команда 'show_page' ожидает [ID после которого, размер страницы до " + MAX_BATCH_SIZE + "].";
+                        logger.warn("Invalid argument for 'show_page': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
                 case "print_descending":
                     List<Worker> descendingWorkers = collectionManager.getDescendingById();
                     resultData = descendingWorkers;
@@ -191,6 +322,114 @@ public class RequestHandler {
                     message = salariesDesc.isEmpty() ? "В коллекции нет работников с указанной зарплатой."
                             : "Значения поля salary в порядке убывания:";
                     break;
+                case "query":
+                    if (argument instanceof WorkerPredicate predicate) {
+                        List<Worker> matchingWorkers = collectionManager.query(predicate);
+                        resultData = matchingWorkers;
+                        message = matchingWorkers.isEmpty() ? "Нет работников, удовлетворяющих условию: " + predicate
+                                : "Работники, удовлетворяющие условию (" + matchingWorkers.size() + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверный тип аргумента для 'query'. Ожидалось условие отбора.";
+                        logger.warn("Invalid argument type for 'query': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
+                case "aggregate":
+                    AggregateReport report = collectionManager.aggregate(argument instanceof String groupBy ? groupBy : null);
+                    resultData = report.getGroups();
+                    collectionVersion = report.getVersion();
+                    message = report.getGroups().isEmpty() ? "Коллекция пуста."
+                            : "Агрегаты по " + report.getGroupBy() + " (версия коллекции " + report.getVersion() + "):";
+                    break;
+                case "top_k":
+                    if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof WorkerField topField
+                            && args[1] instanceof Integer k) {
+                        List<Worker> topWorkers = collectionManager.topK(topField, k);
+                        resultData = topWorkers;
+                        message = topWorkers.isEmpty() ? "Нет работников со значением поля " + topField.getKey() + "."
+                                : "Топ-" + topWorkers.size() + " работников по полю " + topField.getKey() + ":";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверная структура аргумента для 'top_k'. Ожидалось [поле, k].";
+                        logger.warn("Invalid argument for 'top_k': {}", argument);
+                    }
+                    break;
+                case "search_name":
+                    if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof String text
+                            && args[1] instanceof Integer limit) {
+                        List<Worker> foundWorkers = collectionManager.searchByName(text, limit);
+                        resultData = foundWorkers;
+                        message = foundWorkers.isEmpty() ? "Нет работников, имя которых содержит '" + text + "'."
+                                : "Работники, имя которых содержит '" + text + "' (" + foundWorkers.size() + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверная структура аргумента для 'search_name'. Ожидалось [текст, лимит].";
+                        logger.warn("Invalid argument for 'search_name': {}", argument);
+                    }
+                    break;
+                case "employed_during":
+                    if (argument instanceof Object[] args && args.length == 2 && args[0] instanceof Instant from
+                            && args[1] instanceof Instant to) {
+                        List<Worker> employedWorkers = collectionManager.getEmployedDuring(from, to);
+                        resultData = employedWorkers;
+                        message = employedWorkers.isEmpty() ? "Нет работников, работавших с " + from + " по " + to + "."
+                                : "Работники, работавшие с " + from + " по " + to + " (" + employedWorkers.size() + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверная структура аргумента для 'employed_during'. Ожидалось [начало, конец].";
+                        logger.warn("Invalid argument for 'employed_during': {}", argument);
+                    }
+                    break;
+                case "employed_at":
+                    if (argument instanceof Instant moment) {
+                        List<Worker> employedWorkers = collectionManager.getEmployedAt(moment);
+                        resultData = employedWorkers;
+                        message = employedWorkers.isEmpty() ? "Нет работников, работавших в момент " + moment + "."
+                                : "Работники, работавшие в момент " + moment + " (" + employedWorkers.size() + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверный тип аргумента для 'employed_at'. Ожидался момент времени.";
+                        logger.warn("Invalid argument type for 'employed_at': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
+                case "ending_within":
+                    if (argument instanceof Integer days && days > 0) {
+                        Instant now = Instant.now();
+                        List<Worker> endingWorkers = collectionManager.getEndingBetween(now, now.plus(Duration.ofDays(days)));
+                        resultData = endingWorkers;
+                        message = endingWorkers.isEmpty() ? "Нет работников, заканчивающих работу в ближайшие " + days + " дн."
+                                : "Работники, заканчивающие работу в ближайшие " + days + " дн. (" + endingWorkers.size() + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверный аргумент для 'ending_within'. Ожидалось положительное число дней.";
+                        logger.warn("Invalid argument for 'ending_within': {}", argument);
+                    }
+                    break;
+                case "order_by":
+                    if (argument instanceof OrderBySpec orderBySpec) {
+                        collectionVersion = collectionManager.getVersionToken();
+                        List<Worker> orderedWorkers = collectionManager.orderBy(orderBySpec);
+                        resultData = orderedWorkers;
+                        message = orderedWorkers.isEmpty() ? "Коллекция пуста."
+                                : "Элементы коллекции (порядок: " + orderBySpec + "):";
+                    } else {
+                        success = false;
+                        message = "Ошибка: неверный тип аргумента для 'order_by'. Ожидался порядок сортировки.";
+                        logger.warn("Invalid argument type for 'order_by': {}",
+                                argument != null ? argument.getClass().getName() : "null");
+                    }
+                    break;
+                case "salary_stats":
+                    Position statsPosition = null;
+                    if (argument instanceof String positionName && !positionName.isBlank()) {
+                        statsPosition = Position.valueOf(positionName.trim().toUpperCase());
+                    }
+                    collectionVersion = collectionManager.getVersionToken();
+                    resultData = collectionManager.getSalaryStats(statsPosition);
+                    message = "Статистика зарплат:";
+                    break;
                 default:
                     success = false;
                     message = "Неизвестная команда получена сервером: " + commandName;
@@ -198,18 +437,24 @@ public class RequestHandler {
             }
         } catch (IllegalArgumentException e) {
             success = false;
+            outcome = OperationOutcome.INVALID_ARGUMENT;
             message = "Ошибка валидации данных на сервере для команды '" + commandName + "': " + e.getMessage();
             logger.warn("Validation error during command '{}' for user {}: {}", commandName, username, e.getMessage());
         } catch (Exception e) {
             success = false;
+            outcome = OperationOutcome.INTERNAL_ERROR;
             message = "Внутренняя ошибка сервера при выполнении команды '" + commandName
                     + "'. Обратитесь к администратору.";
             logger.error("Exception during command '{}' for user {}: {}", commandName, username, e.getMessage(), e);
         }
 
-        CommandResponse response = new CommandResponse(success, message, resultData);
-        logger.debug("Prepared response for command '{}' (User {}): success={}, message='{}', data={}", commandName,
-                username, success, message, resultData != null ? "present" : "absent");
+        if (outcome == null) {
+            outcome = writeResult != null ? writeResult.getOutcome()
+                    : success ? OperationOutcome.SUCCESS : OperationOutcome.INVALID_ARGUMENT;
+        }
+        CommandResponse response = new CommandResponse(outcome, message, resultData, collectionVersion);
+        logger.debug("Prepared response for command '{}' (User {}): outcome={}, message='{}', data={}", commandName,
+                username, outcome, message, resultData != null ? "present" : "absent");
         return response;
     }
 
@@ -217,21 +462,40 @@ public class RequestHandler {
         return """
                 register <username> <password> : зарегистрировать нового пользователя
                 login <username> <password> : войти в систему
+                logout : завершить текущую сессию
                 help : вывести справку по доступным командам
                 info : вывести информацию о коллекции (тип, дата инициализации, количество элементов и т.д.)
                 show : вывести все элементы коллекции в строковом представлении (отсортированы по местоположению)
                 add {element} : добавить новый элемент в коллекцию
+                import_csv <файл> : добавить работников из CSV-файла в формате data.txt (ID и дата создания из файла не используются)
                 update id {element} : обновить значение элемента коллекции, id которого равен заданному
                 remove_by_id id : удалить элемент из коллекции по его id
                 clear : очистить коллекцию
                 add_if_min {element} : добавить новый элемент в коллекцию, если его значение (ID) меньше, чем у наименьшего элемента этой коллекции
                 add_if_max {element} : добавить новый элемент, если его значение (ID) превышает значение наибольшего элемента
+                remove_where <условие> : удалить всех своих работников, удовлетворяющих условию (синтаксис как у query)
+                update_where <условие> set <изменения> : изменить всех своих работников, удовлетворяющих условию, например
+                    position = COOK set salary *= 1.05, position = BAKER (операции: =, *=, += для чисел)
+                export <файл> [csv|ndjson] [gzip] : сохранить коллекцию в файл постранично (CSV в формате data.txt или JSON по строке на работника)
                 print_descending : вывести элементы коллекции в порядке убывания (по ID)
                 print_field_ascending_salary : вывести значения поля salary всех элементов в порядке возрастания
                 print_field_descending_salary : вывести значения поля salary всех элементов в порядке убывания
+                query <условие> : вывести работников, удовлетворяющих условию, например
+                    position = DIRECTOR and (salary > 100000 or name ^= "Ив")
+                    поля: id, name, x, y, salary, position, organization_type, annual_turnover, creation_date, start_date, end_date
+                    операторы: =, !=, <, <=, >, >=, ^= (префикс имени); связки: and, or, скобки
+                search_name <текст> [limit] : найти работников по части имени без учёта регистра (по умолчанию до 20)
+                employed_during <с> <по> : вывести работников, период работы которых пересекается с заданным (даты в UTC, если пояс не указан)
+                employed_at <момент> : вывести работников, работавших в заданный момент
+                ending_within <дни> : вывести работников, заканчивающих работу в ближайшие дни
+                order_by <поле>[,<поле>...] [asc|desc] : вывести элементы коллекции в заданном порядке
+                top_k <поле> <k> : вывести k работников с наибольшим значением поля (salary, annual_turnover, id, даты, name)
+                salary_stats [position] : приближённые p50/p90/p99 и гистограмма зарплат (погрешность до 1%)
+                aggregate position|organization_type : количество работников и сумма, среднее, минимум и максимум зарплаты по группам
 
                 execute_script file_name : считать и исполнить скрипт из указанного файла.
                 history : вывести последние 15 команд (без их аргументов).
+                servers : вывести состояние серверов из SERVERS: доступность, запросы в работе и среднее время ответа.
                 exit : завершить программу клиента.
                 """;
     }
@@ -2,9 +2,12 @@ package org.example.server;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.example.common.model.User;
 import org.example.common.request.CommandRequest;
 import org.example.common.response.CommandResponse;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputStream;
@@ -12,16 +15,30 @@ import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.Scanner;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Server {
-    private static final int PORT = 12345;
+    public static final int DEFAULT_PORT = 12345;
+    private static final String DEFAULT_SNAPSHOT_FILE = "collection.snapshot";
+    private static final String NODE_ID_FILE_SUFFIX = ".node";
+    private static final long DEFAULT_SNAPSHOT_INTERVAL_MINUTES = 10;
+    private static final String DEFAULT_WAL_DIR = "wal";
+    private static final String POSTGRES_STORAGE = "postgres";
+    private static final String EMBEDDED_STORAGE = "embedded";
+    private static final String DEFAULT_EMBEDDED_DIR = "data";
+    public static final int DEFAULT_REPLICATION_PORT = 12346;
     private static final Logger logger = LogManager.getLogger(Server.class);
 
     private final RequestHandler requestHandler;
@@ -38,10 +55,80 @@ public class Server {
     private final ExecutorService processRequestPool = Executors
             .newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     private final ExecutorService sendResponsePool = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ServerMaintenanceThread");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final SessionManager sessionManager;
+    private final UserCache userCache;
+    private final Storage storage;
+    private final CollectionManager collectionManager;
+    private final long snapshotIntervalMinutes;
+    private final WriteAheadLog wal;
+    private int port = DEFAULT_PORT;
+    private ChangeFeedListener changeFeed;
+    private int replicationPort;
+    private ReplicationLeader replicationLeader;
+    private ReplicationFollower follower;
+
+    public Server(Storage storage) {
+        this(storage, (CollectionSnapshot) null, null, 0);
+    }
+
+    /**
+     * @param snapshot                Файл снимка коллекции или null, если снимки не нужны.
+     * @param wal                     Журнал изменений коллекции или null, если журнал не ведётся.
+     * @param snapshotIntervalMinutes Период автоматической записи снимка; 0 - только по команде
+     *                                'save' и при остановке сервера.
+     */
+    public Server(Storage storage, CollectionSnapshot snapshot, WriteAheadLog wal, long snapshotIntervalMinutes) {
+        this(storage, new CollectionManager(storage, snapshot, wal), wal, snapshotIntervalMinutes);
+    }
+
+    private Server(Storage storage, CollectionManager collectionManager, WriteAheadLog wal, long snapshotIntervalMinutes) {
+        this.storage = storage;
+        this.wal = wal;
+        this.snapshotIntervalMinutes = snapshotIntervalMinutes;
+        this.collectionManager = collectionManager;
+        this.sessionManager = new SessionManager();
+        this.userCache = storage != null ? new UserCache(storage) : null;
+        this.requestHandler = new RequestHandler(collectionManager, storage, sessionManager, userCache);
+    }
+
+    /**
+     * Ведомый сервер без собственного хранилища: коллекция и сессии - реплика ведущего, команды
+     * чтения выполняются локально, остальные пересылаются ведущему.
+     *
+     * @param replicationPort Порт репликации ведущего ({@link #setReplicationPort(int)}).
+     * @param leaderPort      Порт, на котором ведущий принимает клиентов.
+     */
+    public static Server follower(String leaderHost, int replicationPort, int leaderPort) {
+        Server server = new Server(null, CollectionManager.replica(), null, 0);
+        server.follower = new ReplicationFollower(leaderHost, replicationPort, leaderPort,
+                server.collectionManager, server.sessionManager);
+        server.requestHandler.setFollower(server.follower);
+        return server;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Подключает подписку на изменения других узлов; она запускается вместе с сервером и
+     * останавливается при его остановке.
+     */
+    public void setChangeFeed(ChangeFeedListener changeFeed) {
+        this.changeFeed = changeFeed;
+    }
 
-    public Server(DatabaseManager dbManager) {
-        CollectionManager collectionManager = new CollectionManager(dbManager);
-        this.requestHandler = new RequestHandler(collectionManager, dbManager);
+    /**
+     * Включает раздачу коллекции ведомым серверам на указанном порту; 0 - репликация выключена.
+     */
+    public void setReplicationPort(int replicationPort) {
+        this.replicationPort = replicationPort;
     }
 
     public void start() {
@@ -51,10 +138,30 @@ public class Server {
         }
 
         try {
-            serverSocket = new ServerSocket(PORT);
-            logger.info("TCP Server started on port {}. Waiting for connections...", PORT);
+            serverSocket = new ServerSocket(port);
+            logger.info("TCP Server started on port {}. Waiting for connections...", port);
+            if (changeFeed != null) {
+                changeFeed.start(collectionManager);
+            }
+            if (follower != null) {
+                follower.start();
+            } else if (replicationPort > 0) {
+                replicationLeader = new ReplicationLeader(collectionManager, sessionManager, replicationPort);
+                replicationLeader.start();
+            }
 
             consoleExecutor.submit(this::handleServerConsoleCommands);
+            maintenanceExecutor.scheduleAtFixedRate(sessionManager::purgeExpired, 1, 1, TimeUnit.MINUTES);
+            if (userCache != null) {
+                maintenanceExecutor.scheduleAtFixedRate(() -> logger.info(userCache.getStatistics()), 5, 5, TimeUnit.MINUTES);
+            }
+            if (snapshotIntervalMinutes > 0) {
+                maintenanceExecutor.scheduleWithFixedDelay(collectionManager::saveSnapshot,
+                        snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+            }
+            if (wal != null) {
+                maintenanceExecutor.scheduleWithFixedDelay(collectionManager::compactWal, 1, 1, TimeUnit.MINUTES);
+            }
 
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 logger.info("Server shutdown initiated...");
@@ -87,7 +194,7 @@ public class Server {
                 }
             }
         } catch (IOException e) {
-            logger.fatal("Failed to start server on port {}: {}", PORT, e.getMessage(), e);
+            logger.fatal("Failed to start server on port {}: {}", port, e.getMessage(), e);
         } finally {
             logger.info("Main server loop completed. Calling stopServer().");
             stopServer();
@@ -105,7 +212,7 @@ public class Server {
         public void run() {
             ObjectInputStream ois = null;
             try {
-                ois = new ObjectInputStream(clientSocket.getInputStream());
+                ois = new ObjectInputStream(new BufferedInputStream(clientSocket.getInputStream()));
                 logger.debug("Reading request from client {} in thread {}", clientSocket.getRemoteSocketAddress(),
                         Thread.currentThread().getName());
                 CommandRequest request = (CommandRequest) ois.readObject();
@@ -169,7 +276,7 @@ public class Server {
         public void run() {
             ObjectOutputStream oos = null;
             try {
-                oos = new ObjectOutputStream(clientSocket.getOutputStream());
+                oos = new ObjectOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()));
                 logger.debug("Sending response to command '{}' to client {} in thread {}", commandName,
                         clientSocket.getRemoteSocketAddress(), Thread.currentThread().getName());
                 oos.writeObject(response);
@@ -214,7 +321,7 @@ public class Server {
     }
 
     private void handleServerConsoleCommands() {
-        logger.info("Server console is active. Available commands: 'save', 'exit', 'set_data_file <path>'");
+        logger.info("Server console is active. Available commands: 'save', 'export <path>', 'import <path> <username>', 'exit', 'stats'");
         try (Scanner consoleScanner = new Scanner(System.in)) {
             while (isRunning.get()) {
                 try {
@@ -248,9 +355,27 @@ public class Server {
                             }
                         }
                         return;
+                    } else if ("save".equals(command)) {
+                        System.out.println(collectionManager.saveSnapshot().getMessage());
+                    } else if (command.startsWith("export ")) {
+                        exportCsv(line.substring("export ".length()).trim());
+                    } else if (command.startsWith("import ")) {
+                        importCsv(line.substring("import ".length()).trim());
+                    } else if ("stats".equals(command)) {
+                        if (storage != null) {
+                            System.out.println(userCache.getStatistics());
+                            System.out.println(storage.getStatistics());
+                        }
+                        System.out.println("Активных сессий: " + sessionManager.getActiveSessionCount());
+                        if (replicationLeader != null) {
+                            System.out.println(replicationLeader.getStatus());
+                        }
+                        if (follower != null) {
+                            System.out.println(follower.getStatus());
+                        }
                     } else {
                         logger.warn("Unknown command from server console: '{}'", command);
-                        System.out.println("Неизвестная команда. Доступно: 'exit'.");
+                        System.out.println("Неизвестная команда. Доступно: 'save', 'export <файл>', 'import <файл> <пользователь>', 'exit', 'stats'.");
                     }
                 } catch (NoSuchElementException e) {
                     logger.info("Console input completed (NoSuchElementException). Initiating server shutdown.");
@@ -295,13 +420,79 @@ public class Server {
         }
 
         shutdownExecutorService("ConsoleExecutor", consoleExecutor, 5);
+        shutdownExecutorService("MaintenanceExecutor", maintenanceExecutor, 5);
         shutdownExecutorService("SendResponsePool", sendResponsePool, 10);
         shutdownExecutorService("ProcessRequestPool", processRequestPool, 10);
         shutdownExecutorService("ReadRequestPool", readRequestPool, 15);
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+        if (replicationLeader != null) {
+            replicationLeader.close();
+        }
+        if (follower != null) {
+            follower.close();
+        }
+        collectionManager.saveSnapshot();
+        if (wal != null) {
+            wal.close();
+        }
+        if (storage != null) {
+            storage.close();
+        }
 
         logger.info("Server completely stopped.");
     }
 
+    private void exportCsv(String path) {
+        if (!(storage instanceof DatabaseManager databaseManager)) {
+            System.out.println("Выгрузка в CSV доступна только для хранилища PostgreSQL.");
+            return;
+        }
+        if (path.isEmpty()) {
+            System.out.println("Использование: export <файл>");
+            return;
+        }
+        long exported = databaseManager.exportWorkersCsv(Path.of(path));
+        System.out.println(exported >= 0 ? "Выгружено работников в " + path + ": " + exported + "."
+                : "Ошибка: Не удалось выгрузить работников, подробности в логе сервера.");
+    }
+
+    /**
+     * Загружает работников из CSV-файла от имени пользователя и догружает в коллекцию только
+     * новые строки.
+     */
+    private void importCsv(String arguments) {
+        if (!(storage instanceof DatabaseManager databaseManager)) {
+            System.out.println("Загрузка из CSV доступна только для хранилища PostgreSQL.");
+            return;
+        }
+        int separator = arguments.lastIndexOf(' ');
+        if (separator < 0) {
+            System.out.println("Использование: import <файл> <пользователь>");
+            return;
+        }
+        String path = arguments.substring(0, separator).trim();
+        String username = arguments.substring(separator + 1);
+        Optional<User> owner = storage.getUserByUsername(username);
+        if (owner.isEmpty()) {
+            System.out.println("Пользователь '" + username + "' не найден.");
+            return;
+        }
+        long watermark = storage.getChangeWatermark();
+        if (watermark < 0) {
+            System.out.println("Ошибка: Не удалось прочитать номер последнего изменения в БД.");
+            return;
+        }
+        long imported = databaseManager.importWorkersCsv(Path.of(path), owner.get().getId());
+        if (imported < 0) {
+            System.out.println("Ошибка: Не удалось загрузить работников, ни одна строка не добавлена. Подробности в логе сервера.");
+            return;
+        }
+        System.out.println("Добавлено работников из " + path + ": " + imported + ".");
+        System.out.println(collectionManager.refreshChangedSince(watermark).getMessage());
+    }
+
     private void shutdownExecutorService(String name, ExecutorService executor, int timeoutSeconds) {
         logger.info("Shutting down {}...", name);
         executor.shutdown();
@@ -325,6 +516,22 @@ public class Server {
     }
 
     public static void main(String[] args) {
+        String leader = System.getenv("LEADER");
+        if (leader != null && !leader.isBlank()) {
+            startFollower(leader.trim());
+            return;
+        }
+        String storageType = System.getenv("STORAGE");
+        if (storageType != null && storageType.trim().equalsIgnoreCase(EMBEDDED_STORAGE)) {
+            startEmbedded();
+            return;
+        }
+        if (storageType != null && !storageType.trim().equalsIgnoreCase(POSTGRES_STORAGE)) {
+            logger.fatal("Unknown STORAGE '{}'. Expected '{}' or '{}'.", storageType, POSTGRES_STORAGE, EMBEDDED_STORAGE);
+            System.err.println("ОШИБКА: STORAGE должна быть '" + POSTGRES_STORAGE + "' или '" + EMBEDDED_STORAGE + "'.");
+            System.exit(1);
+        }
+
         String dbHost = System.getenv("DB_HOST");
         String dbName = System.getenv("DB_NAME");
         String dbUser = System.getenv("DB_USER");
@@ -351,9 +558,37 @@ public class Server {
 
         System.out.println("Попытка подключиться к БД: " + dbHost + "/" + dbName + " от имени " + dbUser);
 
+        String snapshotFile = System.getenv("SNAPSHOT_FILE");
+        if (snapshotFile == null || snapshotFile.isBlank()) {
+            snapshotFile = DEFAULT_SNAPSHOT_FILE;
+        }
+
+        String nodeId = System.getenv("NODE_ID");
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = storedNodeId(Path.of(snapshotFile + NODE_ID_FILE_SUFFIX));
+        }
+
+        ConnectionPool connectionPool = new ConnectionPool("jdbc:postgresql://" + dbHost + "/" + dbName, dbUser, dbPassword);
+        try {
+            connectionPool.setNodeId(nodeId.trim());
+        } catch (IllegalArgumentException e) {
+            logger.fatal("Invalid NODE_ID '{}': {}", nodeId, e.getMessage());
+            System.err.println("ОШИБКА: " + e.getMessage() + ".");
+            System.exit(1);
+        }
+
+        // Реплика для чтения: DB_REPLICA_HOST в том же формате, что DB_HOST, с теми же БД и пользователем.
+        String replicaHost = System.getenv("DB_REPLICA_HOST");
+        ConnectionPool replicaPool = null;
+        if (replicaHost != null && !replicaHost.isBlank()) {
+            replicaPool = new ConnectionPool("jdbc:postgresql://" + replicaHost.trim() + "/" + dbName + "?readOnly=true",
+                    dbUser, dbPassword);
+            logger.info("Routing reads to replica {}.", replicaHost.trim());
+        }
+
         DatabaseManager databaseManager;
         try {
-            databaseManager = new DatabaseManager(dbHost, dbName, dbUser, dbPassword);
+            databaseManager = new DatabaseManager(connectionPool, replicaPool);
         } catch (RuntimeException e) {
             logger.fatal("Failed to initialize DatabaseManager: {}", e.getMessage(), e);
             System.err.println(
@@ -362,7 +597,162 @@ public class Server {
             return;
         }
 
-        Server server = new Server(databaseManager);
+        String fetchSize = System.getenv("DB_FETCH_SIZE");
+        if (fetchSize != null) {
+            try {
+                databaseManager.setFetchSize(Integer.parseInt(fetchSize.trim()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid DB_FETCH_SIZE '{}'. Using default value {}", fetchSize, DatabaseManager.DEFAULT_FETCH_SIZE);
+            }
+        }
+        String loadPartitions = System.getenv("DB_LOAD_PARTITIONS");
+        if (loadPartitions != null) {
+            try {
+                databaseManager.setLoadPartitions(Integer.parseInt(loadPartitions.trim()));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Invalid DB_LOAD_PARTITIONS '{}'. Using default value {}", loadPartitions, databaseManager.getLoadPartitions());
+            }
+        }
+
+        databaseManager.setReplicaWaitMillis(longEnv("DB_REPLICA_WAIT_MS", DatabaseManager.DEFAULT_REPLICA_WAIT_MILLIS));
+
+        long snapshotIntervalMinutes = longEnv("SNAPSHOT_INTERVAL_MINUTES", DEFAULT_SNAPSHOT_INTERVAL_MINUTES);
+
+        String walDir = System.getenv("WAL_DIR");
+        if (walDir == null || walDir.isBlank()) {
+            walDir = DEFAULT_WAL_DIR;
+        }
+        WriteAheadLog wal;
+        try {
+            wal = openWal(Path.of(walDir));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.fatal("Failed to open write-ahead log in {}: {}", walDir, e.getMessage(), e);
+            System.err.println("КРИТИЧЕСКАЯ ОШИБКА: Не удалось открыть журнал изменений. Сервер не может быть запущен.");
+            databaseManager.close();
+            System.exit(1);
+            return;
+        }
+
+        // Подписка открывается до загрузки коллекции, чтобы не пропустить изменения других узлов.
+        ChangeFeedListener changeFeed = new ChangeFeedListener(databaseManager, nodeId.trim());
+        try {
+            changeFeed.listen();
+        } catch (SQLException e) {
+            logger.warn("Failed to subscribe to changes from other nodes: {}. Running without change feed.", e.getMessage());
+            changeFeed = null;
+        }
+
+        Server server = new Server(databaseManager, new CollectionSnapshot(Path.of(snapshotFile)), wal, snapshotIntervalMinutes);
+        server.setPort(portEnv("SERVER_PORT", DEFAULT_PORT));
+        server.setReplicationPort(portEnv("REPLICATION_PORT", 0));
+        server.setChangeFeed(changeFeed);
+        server.start();
+    }
+
+    /**
+     * Запускает сервер со встроенным хранилищем в каталоге EMBEDDED_DIR. Снимок и журнал
+     * коллекции не нужны: хранилище само ведёт их в своём каталоге.
+     */
+    private static void startEmbedded() {
+        String dataDir = System.getenv("EMBEDDED_DIR");
+        if (dataDir == null || dataDir.isBlank()) {
+            dataDir = DEFAULT_EMBEDDED_DIR;
+        }
+        System.out.println("Встроенное хранилище в каталоге " + dataDir);
+        EmbeddedStorage storage;
+        try {
+            Path directory = Path.of(dataDir);
+            storage = new EmbeddedStorage(directory, openWal(directory.resolve("wal")));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.fatal("Failed to open embedded storage in {}: {}", dataDir, e.getMessage(), e);
+            System.err.println("КРИТИЧЕСКАЯ ОШИБКА: Не удалось открыть встроенное хранилище. Сервер не может быть запущен.");
+            System.exit(1);
+            return;
+        }
+        Server server = new Server(storage);
+        server.setPort(portEnv("SERVER_PORT", DEFAULT_PORT));
+        server.setReplicationPort(portEnv("REPLICATION_PORT", 0));
+        server.start();
+    }
+
+    /**
+     * Запускает ведомый сервер для ведущего {@code host:port}; порт репликации ведущего берётся
+     * из LEADER_REPLICATION_PORT.
+     */
+    private static void startFollower(String leader) {
+        int separator = leader.lastIndexOf(':');
+        String leaderHost = separator > 0 ? leader.substring(0, separator) : leader;
+        int leaderPort = DEFAULT_PORT;
+        if (separator > 0) {
+            try {
+                leaderPort = Integer.parseInt(leader.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                logger.fatal("Invalid LEADER '{}'. Expected host:port.", leader);
+                System.err.println("ОШИБКА: LEADER должна иметь вид host:port.");
+                System.exit(1);
+            }
+        }
+        int replicationPort = portEnv("LEADER_REPLICATION_PORT", DEFAULT_REPLICATION_PORT);
+        System.out.println("Запуск ведомого сервера для " + leaderHost + ":" + leaderPort + " (репликация через порт " + replicationPort + ").");
+        Server server = follower(leaderHost, replicationPort, leaderPort);
+        server.setPort(portEnv("SERVER_PORT", DEFAULT_PORT));
         server.start();
     }
-}
\ No newline at end of file
+
+    /**
+     * ID узла, сохранённый рядом со снимком. По нему в БД ищется граница снимка узла, поэтому
+     * без NODE_ID ID должен сохраняться между перезапусками, иначе снимок не будет использован.
+     */
+    private static String storedNodeId(Path file) {
+        try {
+            if (Files.exists(file)) {
+                String stored = Files.readString(file).trim();
+                if (!stored.isEmpty()) {
+                    logger.info("Environment variable NODE_ID is not set. Using node id '{}' from {}", stored, file);
+                    return stored;
+                }
+            }
+            String generated = UUID.randomUUID().toString().substring(0, 8);
+            Files.writeString(file, generated);
+            logger.info("Environment variable NODE_ID is not set. Generated node id '{}' and saved it to {}", generated, file);
+            return generated;
+        } catch (IOException e) {
+            String generated = UUID.randomUUID().toString().substring(0, 8);
+            logger.warn("Could not keep node id in {}: {}. Using node id '{}' for this run only; the snapshot "
+                    + "will not be reused after restart.", file, e.getMessage(), generated);
+            return generated;
+        }
+    }
+
+    private static WriteAheadLog openWal(Path directory) throws IOException {
+        return new WriteAheadLog(directory,
+                longEnv("WAL_SEGMENT_MB", WriteAheadLog.DEFAULT_SEGMENT_BYTES >> 20) << 20,
+                longEnv("WAL_SYNC_INTERVAL_MS", WriteAheadLog.DEFAULT_SYNC_INTERVAL_MILLIS),
+                longEnv("WAL_COMPACT_MB", WriteAheadLog.DEFAULT_COMPACTION_BYTES >> 20) << 20);
+    }
+
+    /**
+     * @return Неотрицательное число из переменной окружения или значение по умолчанию.
+     */
+    private static int portEnv(String name, int defaultValue) {
+        long port = longEnv(name, defaultValue);
+        if (port > 65535) {
+            logger.warn("Invalid {} {}. Using default value {}", name, port, defaultValue);
+            return defaultValue;
+        }
+        return (int) port;
+    }
+
+    private static long longEnv(String name, long defaultValue) {
+        String value = System.getenv(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid {} '{}'. Using default value {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.model.User;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Таблица сессий в памяти сервера. После успешного входа клиент получает непрозрачный токен
+ * и дальше предъявляет только его, поэтому на каждую команду не нужно ходить в БД за пользователем
+ * и заново считать хэш пароля.
+ * <p>
+ * Срок жизни сессии скользящий: каждое успешное обращение продлевает её на {@code ttl}.
+ * Ведомый узел репликации запоминает продлённые сессии ({@link #setTrackingTouches(boolean)})
+ * и сообщает о них ведущему, чтобы тот не удалил сессию, которой пользуются только на ведомом.
+ */
+public class SessionManager {
+    private static final Logger logger = LogManager.getLogger(SessionManager.class);
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+    private static final int TOKEN_BYTES = 32;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long ttlMillis;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> touched = ConcurrentHashMap.newKeySet();
+    private volatile boolean trackingTouches;
+
+    public SessionManager() {
+        this(DEFAULT_TTL);
+    }
+
+    public SessionManager(Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    public String createSession(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user.getId(), user.getUsername(), System.currentTimeMillis() + ttlMillis));
+        logger.info("Session created for user {} (active sessions: {}).", user.getUsername(), sessions.size());
+        listeners.forEach(listener -> listener.created(token, user.getId(), user.getUsername()));
+        return token;
+    }
+
+    /**
+     * Регистрирует сессию, выданную другим узлом, с полным сроком жизни. Повторная регистрация
+     * того же токена только продлевает его.
+     */
+    public void adopt(String token, int userId, String username) {
+        sessions.put(token, new Session(userId, username, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Подключает получателя событий о выданных и отозванных токенах и передаёт ему уже
+     * действующие сессии как выданные.
+     */
+    public void addListener(Listener listener) {
+        // Под той же блокировкой, что и отзыв: иначе токен, отозванный во время обхода,
+        // мог бы прийти получателю уже после события об отзыве.
+        synchronized (listeners) {
+            listeners.add(listener);
+            sessions.forEach((token, session) -> listener.created(token, session.userId, session.username));
+        }
+    }
+
+    /**
+     * Оставляет только сессии с указанными токенами, например после повторной синхронизации
+     * с узлом, который их выдал.
+     *
+     * @return Количество удалённых сессий.
+     */
+    public int retainAll(Set<String> tokens) {
+        int before = sessions.size();
+        sessions.keySet().retainAll(tokens);
+        return before - sessions.size();
+    }
+
+    /**
+     * Включает запоминание токенов, продлённых {@link #validate(String)}, для {@link #drainTouched()}.
+     */
+    public void setTrackingTouches(boolean trackingTouches) {
+        this.trackingTouches = trackingTouches;
+        if (!trackingTouches) {
+            touched.clear();
+        }
+    }
+
+    /**
+     * @return Токены, продлённые с прошлого вызова; они забываются.
+     */
+    public List<String> drainTouched() {
+        List<String> drained = new ArrayList<>();
+        for (Iterator<String> it = touched.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Продлевает сессию, которой пользовались на другом узле. Неизвестный или уже истёкший
+     * токен не восстанавливается.
+     */
+    public void touch(String token) {
+        Session session = sessions.get(token);
+        long now = System.currentTimeMillis();
+        if (session != null && session.expiresAt >= now) {
+            session.expiresAt = now + ttlMillis;
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Проверяет токен и продлевает сессию.
+     *
+     * @return Пользователь сессии (без хэша пароля) или пустой Optional, если токен неизвестен или истёк.
+     */
+    public Optional<User> validate(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        if (session.expiresAt < now) {
+            sessions.remove(token, session);
+            logger.info("Session of user {} expired.", session.username);
+            return Optional.empty();
+        }
+        session.expiresAt = now + ttlMillis;
+        if (trackingTouches) {
+            touched.add(token);
+        }
+        return Optional.of(new User(session.userId, session.username, null));
+    }
+
+    public boolean revoke(String token) {
+        if (token == null) {
+            return false;
+        }
+        Session removed;
+        synchronized (listeners) {
+            removed = sessions.remove(token);
+            if (removed != null) {
+                listeners.forEach(listener -> listener.revoked(token));
+            }
+        }
+        if (removed != null) {
+            logger.info("Session of user {} revoked.", removed.username);
+        }
+        return removed != null;
+    }
+
+    public int revokeAllForUser(int userId) {
+        int revoked = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (entry.getValue().userId == userId) {
+                synchronized (listeners) {
+                    if (sessions.remove(entry.getKey(), entry.getValue())) {
+                        revoked++;
+                        listeners.forEach(listener -> listener.revoked(entry.getKey()));
+                    }
+                }
+            }
+        }
+        logger.info("Revoked {} sessions of user with ID {}.", revoked, userId);
+        return revoked;
+    }
+
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.expiresAt < now);
+        int purged = before - sessions.size();
+        if (purged > 0) {
+            logger.info("Purged {} expired sessions, {} remain active.", purged, sessions.size());
+        }
+        return purged;
+    }
+
+    public int getActiveSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Получатель событий таблицы сессий, например ведомый узел репликации. Истечение срока
+     * не сообщается: каждый узел отсчитывает его сам, а ведомые сообщают ведущему о продлениях.
+     */
+    public interface Listener {
+        void created(String token, int userId, String username);
+
+        void revoked(String token);
+    }
+
+    private static final class Session {
+        private final int userId;
+        private final String username;
+        private volatile long expiresAt;
+
+        private Session(int userId, String username, long expiresAt) {
+            this.userId = userId;
+            this.username = username;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.server;
+
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+import org.example.common.response.OperationOutcome;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Хранилище пользователей и работников, в котором сервер сохраняет изменения коллекции.
+ * <p>
+ * Реализации: {@link DatabaseManager} (PostgreSQL) и {@link EmbeddedStorage} (локальные файлы
+ * в процессе сервера). Методы изменения проверяют владельца сами и не бросают исключений:
+ * ошибка хранилища возвращается как null, пустой результат или {@link OperationOutcome#STORAGE_ERROR}.
+ */
+public interface Storage extends AutoCloseable {
+
+    /**
+     * @return Новый пользователь или пустой результат, если имя занято или произошла ошибка.
+     */
+    Optional<User> registerUser(String username, String plainPassword);
+
+    /**
+     * @return Пользователь или пустой результат, если его нет или произошла ошибка.
+     */
+    Optional<User> getUserByUsername(String username);
+
+    /**
+     * Сохраняет нового работника от имени пользователя.
+     *
+     * @return Работник с назначенными ID, датой создания и владельцем или null при ошибке.
+     */
+    Worker addWorker(Worker worker, int userId);
+
+    /**
+     * Сохраняет новых работников от имени пользователя: либо всех, либо ни одного.
+     *
+     * @return Работники с назначенными ID в порядке {@code workers} или null при ошибке.
+     */
+    List<Worker> addWorkers(List<Worker> workers, int userId);
+
+    /**
+     * @return SUCCESS, NOT_FOUND, NOT_OWNER или STORAGE_ERROR.
+     */
+    OperationOutcome updateWorker(Worker worker, int userId);
+
+    /**
+     * @return SUCCESS, NOT_FOUND, NOT_OWNER или STORAGE_ERROR.
+     */
+    OperationOutcome deleteWorker(long workerId, int userId);
+
+    /**
+     * @return ID удалённых работников пользователя или null при ошибке.
+     */
+    List<Long> clearWorkersByUserId(int userId);
+
+    /**
+     * Удаляет всех работников пользователя, удовлетворяющих условию.
+     *
+     * @return ID удалённых работников или null при ошибке.
+     */
+    List<Long> deleteWorkersWhere(WorkerPredicate predicate, int userId);
+
+    /**
+     * Изменяет всех работников пользователя, удовлетворяющих условию. Если изменение нарушает
+     * ограничения хотя бы для одного работника, не меняется ни один.
+     *
+     * @return Работники в состоянии после изменения или null при ошибке.
+     */
+    List<Worker> updateWorkersWhere(WorkerPredicate predicate, WorkerPatch patch, int userId);
+
+    /**
+     * Передаёт всех работников в порядке возрастания ID в {@code sink}.
+     *
+     * @return Количество работников или -1 при ошибке (часть работников к этому моменту уже
+     * может быть передана в {@code sink}).
+     */
+    long loadAllWorkers(Consumer<Worker> sink);
+
+    /**
+     * @return Примерное количество работников или 0, если оценки нет.
+     */
+    default long estimateWorkerCount() {
+        return 0;
+    }
+
+    /**
+     * Граница изменений работников для снимка коллекции: всё, что к моменту вызова ещё не
+     * зафиксировано, в том числе изменения уже начатых транзакций, вернут
+     * {@link #loadWorkersChangedSince(long)} и {@link #loadWorkerIdsDeletedSince(long)} с этой
+     * границей. Границы одного хранилища не убывают.
+     *
+     * @return Номер или -1, если хранилище не отслеживает изменения или произошла ошибка.
+     */
+    default long getChangeWatermark() {
+        return -1;
+    }
+
+    /**
+     * @return Работники, добавленные или изменённые после изменения с номером {@code changeSeq},
+     * или null, если хранилище этого не умеет или произошла ошибка.
+     */
+    default List<Worker> loadWorkersChangedSince(long changeSeq) {
+        return null;
+    }
+
+    /**
+     * @return ID работников, удалённых после изменения с номером {@code changeSeq}, или null,
+     * если хранилище этого не умеет или произошла ошибка.
+     */
+    default List<Long> loadWorkerIdsDeletedSince(long changeSeq) {
+        return null;
+    }
+
+    /**
+     * Сообщает, что снимок этого узла записан с номером {@code changeSeq}: удаления, которые
+     * учтены в снимках всех узлов, можно забыть.
+     */
+    default void pruneWorkerDeletions(long changeSeq) {
+    }
+
+    /**
+     * @return true, если {@link #loadWorkerIdsDeletedSince(long)} вернёт все удаления после
+     * изменения с номером {@code changeSeq}, то есть снимок с этим номером можно догрузить.
+     */
+    default boolean isChangeHistoryRetained(long changeSeq) {
+        return true;
+    }
+
+    /**
+     * @return Короткое описание хранилища для команды 'info', например "синхронизирована с БД PostgreSQL".
+     */
+    String describe();
+
+    /**
+     * @return Строка состояния хранилища для консоли сервера.
+     */
+    String getStatistics();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,193 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.common.model.User;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ограниченный по размеру кэш пользователей с временем жизни записей перед
+ * {@link Storage#getUserByUsername(String)}.
+ * <p>
+ * Вытеснение - LRU по порядку доступа. Одновременные промахи по одному и тому же имени
+ * схлопываются в один запрос к БД: остальные потоки ждут результат первого.
+ * Отсутствие пользователя не кэшируется, поэтому после регистрации инвалидировать ничего не
+ * нужно; инвалидировать запись нужно при смене пароля.
+ */
+public class UserCache {
+    private static final Logger logger = LogManager.getLogger(UserCache.class);
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private final Storage storage;
+    private final int capacity;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, CachedUser> entries;
+    private final Map<String, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+    // Растёт при каждой инвалидации: загрузка, начатая до неё, не попадает в кэш.
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalescedWaits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    public UserCache(Storage storage) {
+        this(storage, DEFAULT_CAPACITY, DEFAULT_TTL);
+    }
+
+    public UserCache(Storage storage, int capacity, Duration ttl) {
+        this.storage = storage;
+        this.capacity = capacity;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                if (size() > UserCache.this.capacity) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает пользователя по имени из кэша или из БД.
+     *
+     * @return Копия пользователя (её можно изменять) или пустой Optional, если пользователя нет.
+     */
+    public Optional<User> get(String username) {
+        CachedUser cached;
+        synchronized (entries) {
+            cached = entries.get(username);
+            if (cached != null && cached.isExpired(System.nanoTime())) {
+                entries.remove(username);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.copy();
+        }
+        misses.incrementAndGet();
+
+        CompletableFuture<Optional<User>> ownFuture = new CompletableFuture<>();
+        CompletableFuture<Optional<User>> existing = inFlight.putIfAbsent(username, ownFuture);
+        if (existing != null) {
+            coalescedWaits.incrementAndGet();
+            return await(existing, username).map(UserCache::copyOf);
+        }
+
+        try {
+            long epoch = invalidationEpoch.get();
+            long start = System.nanoTime();
+            Optional<User> loaded = storage.getUserByUsername(username);
+            recordLoad(System.nanoTime() - start);
+            // Пустой результат не кэшируется: хранилище возвращает его и при ошибке.
+            if (loaded.isPresent()) {
+                CachedUser entry = new CachedUser(loaded.get(), System.nanoTime() + ttlNanos);
+                synchronized (entries) {
+                    // Если за время загрузки запись инвалидировали, результат мог устареть - не кэшируем его.
+                    if (invalidationEpoch.get() == epoch) {
+                        entries.put(username, entry);
+                    }
+                }
+            }
+            ownFuture.complete(loaded);
+            return loaded.map(UserCache::copyOf);
+        } catch (RuntimeException e) {
+            ownFuture.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(username, ownFuture);
+        }
+    }
+
+    public void invalidate(String username) {
+        if (username == null) {
+            return;
+        }
+        synchronized (entries) {
+            invalidationEpoch.incrementAndGet();
+            entries.remove(username);
+        }
+        logger.debug("User cache entry for {} invalidated.", username);
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            invalidationEpoch.incrementAndGet();
+            entries.clear();
+        }
+        logger.info("User cache cleared.");
+    }
+
+    public String getStatistics() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        long loadCount = loads.get();
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return String.format("Кэш пользователей: размер %d/%d, попадания %d, промахи %d (hit ratio %.1f%%), "
+                        + "совмещённые ожидания %d, вытеснения %d, загрузки из БД %d (среднее %.2f мс, максимум %.2f мс)",
+                size, capacity, hitCount, missCount, total == 0 ? 0.0 : hitCount * 100.0 / total,
+                coalescedWaits.get(), evictions.get(), loadCount,
+                loadCount == 0 ? 0.0 : totalLoadNanos.get() / 1e6 / loadCount, maxLoadNanos.get() / 1e6);
+    }
+
+    private void recordLoad(long nanos) {
+        loads.incrementAndGet();
+        totalLoadNanos.addAndGet(nanos);
+        maxLoadNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static Optional<User> await(CompletableFuture<Optional<User>> future, String username) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while waiting for user {} to be loaded.", username);
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            logger.error("Concurrent load of user {} failed: {}", username, e.getCause().getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getHashedPassword());
+    }
+
+    private static final class CachedUser {
+        private final User user;
+        private final long expiresAtNanos;
+
+        private CachedUser(User user, long expiresAtNanos) {
+            this.user = user;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long nowNanos) {
+            return nowNanos - expiresAtNanos > 0;
+        }
+
+        private Optional<User> copy() {
+            return Optional.of(copyOf(user));
+        }
+    }
+}
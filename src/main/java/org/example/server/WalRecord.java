@@ -0,0 +1,117 @@
+package org.example.server;
+
+import org.example.common.model.Worker;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Запись журнала изменений коллекции: добавленные или изменённые работники либо ID удалённых.
+ */
+public final class WalRecord {
+    private final long lsn;
+    private final Type type;
+    private final int ownerId;
+    private final List<Worker> workers;
+    private final List<Long> ids;
+
+    private WalRecord(long lsn, Type type, int ownerId, List<Worker> workers, List<Long> ids) {
+        this.lsn = lsn;
+        this.type = type;
+        this.ownerId = ownerId;
+        this.workers = workers;
+        this.ids = ids;
+    }
+
+    public static WalRecord add(Worker worker) {
+        return new WalRecord(0, Type.ADD, worker.getOwnerId(), List.of(worker), List.of());
+    }
+
+    public static WalRecord add(int ownerId, Collection<Worker> workers) {
+        return new WalRecord(0, Type.ADD, ownerId, List.copyOf(workers), List.of());
+    }
+
+    public static WalRecord update(Collection<Worker> workers) {
+        return new WalRecord(0, Type.UPDATE, 0, List.copyOf(workers), List.of());
+    }
+
+    public static WalRecord remove(Collection<Long> ids) {
+        return new WalRecord(0, Type.REMOVE, 0, List.of(), List.copyOf(ids));
+    }
+
+    /**
+     * @param ids ID работников пользователя, которые удалила очистка.
+     */
+    public static WalRecord clear(int ownerId, Collection<Long> ids) {
+        return new WalRecord(0, Type.CLEAR, ownerId, List.of(), List.copyOf(ids));
+    }
+
+    /**
+     * @return Номер записи в журнале; 0 у записи, ещё не прочитанной из журнала.
+     */
+    public long getLsn() {
+        return lsn;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getOwnerId() {
+        return ownerId;
+    }
+
+    public List<Worker> getWorkers() {
+        return workers;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    void writePayload(DataOutput out) throws IOException {
+        out.writeInt(ownerId);
+        if (type == Type.ADD || type == Type.UPDATE) {
+            out.writeInt(workers.size());
+            for (Worker worker : workers) {
+                WorkerCodec.write(out, worker);
+            }
+        } else {
+            out.writeInt(ids.size());
+            for (Long id : ids) {
+                out.writeLong(id);
+            }
+        }
+    }
+
+    static WalRecord readPayload(long lsn, Type type, ByteBuffer payload) throws IOException {
+        int ownerId = payload.getInt();
+        int count = payload.getInt();
+        if (count < 0) {
+            throw new IOException("Некорректное количество элементов в записи журнала: " + count);
+        }
+        if (type == Type.ADD || type == Type.UPDATE) {
+            List<Worker> workers = new ArrayList<>(Math.min(count, payload.remaining()));
+            for (int i = 0; i < count; i++) {
+                workers.add(WorkerCodec.read(payload));
+            }
+            return new WalRecord(lsn, type, ownerId, workers, List.of());
+        }
+        List<Long> ids = new ArrayList<>(Math.min(count, payload.remaining()));
+        for (int i = 0; i < count; i++) {
+            ids.add(payload.getLong());
+        }
+        return new WalRecord(lsn, type, ownerId, List.of(), ids);
+    }
+
+    public enum Type {
+        ADD,
+        UPDATE,
+        REMOVE,
+        CLEAR
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.server;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Компактное двоичное представление работника для снимка коллекции и журнала изменений.
+ * <p>
+ * Необязательные поля отмечаются битами флагов и записываются, только если заданы.
+ * Дата окончания восстанавливается в UTC, как и при чтении из БД. Перечисления хранятся
+ * по порядковому номеру.
+ */
+final class WorkerCodec {
+    /**
+     * Сколько байт нужно, чтобы узнать длину имени: ID, владелец и сама длина.
+     */
+    static final int PREFIX_SIZE = 8 + 4 + 4;
+    private static final int MAX_NAME_BYTES = 1 << 20;
+    // Координаты, даты создания и начала, тип организации, флаги и все необязательные поля.
+    private static final int MAX_TAIL_SIZE = 4 + 8 + 8 + 8 + 4 + 1 + 1 + 8 + 12 + 1 + 4;
+    private static final int HAS_SALARY = 1;
+    private static final int HAS_END_DATE = 1 << 1;
+    private static final int HAS_POSITION = 1 << 2;
+    private static final int HAS_ANNUAL_TURNOVER = 1 << 3;
+
+    private WorkerCodec() {
+    }
+
+    static void write(DataOutput out, Worker worker) throws IOException {
+        Organization organization = worker.getOrganization();
+        int flags = (worker.getSalary() != null ? HAS_SALARY : 0)
+                | (worker.getEndDate() != null ? HAS_END_DATE : 0)
+                | (worker.getPosition() != null ? HAS_POSITION : 0)
+                | (organization.getAnnualTurnover() != null ? HAS_ANNUAL_TURNOVER : 0);
+        byte[] name = worker.getName().getBytes(StandardCharsets.UTF_8);
+        out.writeLong(worker.getId());
+        out.writeInt(worker.getOwnerId());
+        out.writeInt(name.length);
+        out.write(name);
+        out.writeFloat(worker.getCoordinates().getX());
+        out.writeDouble(worker.getCoordinates().getY());
+        out.writeLong(worker.getCreationDate().toEpochDay());
+        out.writeLong(worker.getStartDate().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(worker.getStartDate().getNano());
+        out.writeByte(organization.getType().ordinal());
+        out.writeByte(flags);
+        if (worker.getSalary() != null) {
+            out.writeLong(worker.getSalary());
+        }
+        if (worker.getEndDate() != null) {
+            out.writeLong(worker.getEndDate().toEpochSecond());
+            out.writeInt(worker.getEndDate().getNano());
+        }
+        if (worker.getPosition() != null) {
+            out.writeByte(worker.getPosition().ordinal());
+        }
+        if (organization.getAnnualTurnover() != null) {
+            out.writeInt(organization.getAnnualTurnover());
+        }
+    }
+
+    /**
+     * Верхняя граница размера работника, начинающегося с текущей позиции буфера. В буфере
+     * должно быть доступно хотя бы {@link #PREFIX_SIZE} байт; позиция не меняется.
+     */
+    static int maxEncodedSize(ByteBuffer buffer) throws IOException {
+        return PREFIX_SIZE + nameLength(buffer.getInt(buffer.position() + 12)) + MAX_TAIL_SIZE;
+    }
+
+    static Worker read(ByteBuffer buffer) throws IOException {
+        long id = buffer.getLong();
+        int ownerId = buffer.getInt();
+        byte[] name = new byte[nameLength(buffer.getInt())];
+        buffer.get(name);
+        Coordinates coordinates = new Coordinates(buffer.getFloat(), buffer.getDouble());
+        LocalDate creationDate = LocalDate.ofEpochDay(buffer.getLong());
+        LocalDateTime startDate = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        OrganizationType organizationType = OrganizationType.values()[buffer.get()];
+        int flags = buffer.get();
+        Long salary = (flags & HAS_SALARY) != 0 ? buffer.getLong() : null;
+        ZonedDateTime endDate = null;
+        if ((flags & HAS_END_DATE) != 0) {
+            long epochSecond = buffer.getLong();
+            endDate = ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, buffer.getInt()), ZoneOffset.UTC);
+        }
+        Position position = (flags & HAS_POSITION) != 0 ? Position.values()[buffer.get()] : null;
+        Integer annualTurnover = (flags & HAS_ANNUAL_TURNOVER) != 0 ? buffer.getInt() : null;
+        Worker worker = new Worker(id, new String(name, StandardCharsets.UTF_8), coordinates, creationDate, salary,
+                startDate, endDate, position, new Organization(annualTurnover, organizationType));
+        worker.setOwnerId(ownerId);
+        return worker;
+    }
+
+    private static int nameLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_NAME_BYTES) {
+            throw new IOException("Некорректная длина имени работника: " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,221 @@
+package org.example.server;
+
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.query.AndPredicate;
+import org.example.common.query.ComparisonOperator;
+import org.example.common.query.FieldCondition;
+import org.example.common.query.OrPredicate;
+import org.example.common.query.WorkerField;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Переводит условия запросов и наборы изменений в SQL над таблицей workers.
+ * <p>
+ * Семантика совпадает с {@link WorkerPredicate#test}: != с непустым значением истинно для null
+ * (IS DISTINCT FROM), перечисления сравниваются по порядку объявления, а строки - по кодам
+ * символов (COLLATE "C"). Все значения передаются параметрами.
+ */
+public final class WorkerSqlCompiler {
+    private final StringBuilder sql = new StringBuilder();
+    private final List<Object> parameters = new ArrayList<>();
+
+    private WorkerSqlCompiler() {
+    }
+
+    /**
+     * @return Условие WHERE и его параметры.
+     */
+    public static WorkerSqlCompiler where(WorkerPredicate predicate) {
+        WorkerSqlCompiler compiler = new WorkerSqlCompiler();
+        compiler.appendPredicate(predicate);
+        return compiler;
+    }
+
+    /**
+     * @return Список присваиваний для SET и их параметры.
+     */
+    public static WorkerSqlCompiler set(WorkerPatch patch) {
+        WorkerSqlCompiler compiler = new WorkerSqlCompiler();
+        boolean first = true;
+        for (WorkerPatch.Assignment assignment : patch.getAssignments()) {
+            if (!first) {
+                compiler.sql.append(", ");
+            }
+            first = false;
+            compiler.appendAssignment(assignment);
+        }
+        return compiler;
+    }
+
+    public String getSql() {
+        return sql.toString();
+    }
+
+    public List<Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Подставляет параметры, начиная с позиции {@code firstIndex}.
+     *
+     * @return Позиция, следующая за последним подставленным параметром.
+     */
+    public int bind(PreparedStatement statement, int firstIndex) throws SQLException {
+        int index = firstIndex;
+        for (Object parameter : parameters) {
+            if (parameter instanceof LocalDateTime localDateTime) {
+                statement.setTimestamp(index++, Timestamp.valueOf(localDateTime));
+            } else if (parameter instanceof Instant instant) {
+                statement.setTimestamp(index++, Timestamp.from(instant));
+            } else if (parameter instanceof LocalDate localDate) {
+                statement.setDate(index++, Date.valueOf(localDate));
+            } else if (parameter instanceof Enum<?> enumValue) {
+                statement.setString(index++, enumValue.name());
+            } else {
+                statement.setObject(index++, parameter);
+            }
+        }
+        return index;
+    }
+
+    static String column(WorkerField field) {
+        return switch (field) {
+            case ID -> "id";
+            case NAME -> "name";
+            case X -> "coordinates_x";
+            case Y -> "coordinates_y";
+            case SALARY -> "salary";
+            case POSITION -> "position";
+            case ORGANIZATION_TYPE -> "organization_type";
+            case ANNUAL_TURNOVER -> "organization_annual_turnover";
+            case CREATION_DATE -> "creation_date";
+            case START_DATE -> "start_date";
+            case END_DATE -> "end_date";
+        };
+    }
+
+    private void appendPredicate(WorkerPredicate predicate) {
+        if (predicate instanceof FieldCondition condition) {
+            appendCondition(condition);
+        } else if (predicate instanceof AndPredicate and) {
+            appendJunction(and.getOperands(), " AND ");
+        } else if (predicate instanceof OrPredicate or) {
+            appendJunction(or.getOperands(), " OR ");
+        } else {
+            throw new IllegalArgumentException("Неподдерживаемый тип условия: " + predicate);
+        }
+    }
+
+    private void appendJunction(List<WorkerPredicate> operands, String separator) {
+        sql.append('(');
+        for (int i = 0; i < operands.size(); i++) {
+            if (i > 0) {
+                sql.append(separator);
+            }
+            appendPredicate(operands.get(i));
+        }
+        sql.append(')');
+    }
+
+    private void appendCondition(FieldCondition condition) {
+        WorkerField field = condition.getField();
+        ComparisonOperator operator = condition.getOperator();
+        Object value = condition.getValue();
+        String column = column(field);
+        if (value == null) {
+            sql.append(column).append(operator == ComparisonOperator.EQ ? " IS NULL" : " IS NOT NULL");
+            return;
+        }
+        if (operator == ComparisonOperator.PREFIX) {
+            sql.append("starts_with(").append(column).append(", ?)");
+            parameters.add(value);
+            return;
+        }
+        if (operator == ComparisonOperator.NE) {
+            sql.append(column).append(" IS DISTINCT FROM ?");
+            parameters.add(value);
+            return;
+        }
+        if (value instanceof Enum<?> enumValue && operator != ComparisonOperator.EQ) {
+            appendEnumRange(column, enumValue, operator);
+            return;
+        }
+        sql.append(column);
+        if (field == WorkerField.NAME) {
+            sql.append(" COLLATE \"C\"");
+        }
+        sql.append(switch (operator) {
+            case EQ -> " = ?";
+            case LT -> " < ?";
+            case LE -> " <= ?";
+            case GT -> " > ?";
+            case GE -> " >= ?";
+            default -> throw new IllegalStateException();
+        });
+        parameters.add(value);
+    }
+
+    private void appendEnumRange(String column, Enum<?> value, ComparisonOperator operator) {
+        Enum<?>[] constants = value instanceof Position ? Position.values() : OrganizationType.values();
+        List<String> matching = new ArrayList<>();
+        for (Enum<?> constant : constants) {
+            int cmp = Integer.compare(constant.ordinal(), value.ordinal());
+            boolean matches = switch (operator) {
+                case LT -> cmp < 0;
+                case LE -> cmp <= 0;
+                case GT -> cmp > 0;
+                case GE -> cmp >= 0;
+                default -> throw new IllegalStateException();
+            };
+            if (matches) {
+                matching.add(constant.name());
+            }
+        }
+        if (matching.isEmpty()) {
+            sql.append("FALSE");
+            return;
+        }
+        sql.append(column).append(" IN (").append(matching.stream().map(name -> "?").collect(Collectors.joining(", "))).append(')');
+        parameters.addAll(matching);
+    }
+
+    private void appendAssignment(WorkerPatch.Assignment assignment) {
+        String column = column(assignment.getField());
+        sql.append(column).append(" = ");
+        switch (assignment.getOperation()) {
+            case SET -> {
+                if (assignment.getValue() == null) {
+                    sql.append("NULL");
+                } else {
+                    sql.append('?');
+                    parameters.add(assignment.getValue());
+                }
+            }
+            case MULTIPLY -> {
+                sql.append(switch (assignment.getField()) {
+                    case SALARY -> "ROUND(" + column + " * ?::numeric)::bigint";
+                    case ANNUAL_TURNOVER -> "ROUND(" + column + " * ?::numeric)::integer";
+                    default -> column + " * ?";
+                });
+                parameters.add(assignment.getValue());
+            }
+            case ADD -> {
+                sql.append(column).append(" + ?");
+                parameters.add(assignment.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package org.example.server;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений коллекции только на дозапись.
+ * <p>
+ * Журнал состоит из сегментов {@code wal-<номер первой записи>.log}; когда сегмент достигает
+ * заданного размера, начинается следующий. Каждая запись содержит длину данных, CRC32C,
+ * номер записи (LSN), тип и данные {@link WalRecord}.
+ * <p>
+ * Записи копятся в буфере в памяти, а фоновый поток раз в {@code syncIntervalMillis} пишет
+ * накопленное в файл и делает один fsync на все записи сразу. При интервале 0 fsync
+ * выполняется после каждой записи. Подтвердить запись только после fsync позволяет
+ * {@link #awaitDurable(long)}: все ждущие потоки дожидаются одного общего fsync. При открытии недописанный после сбоя хвост последнего
+ * сегмента отбрасывается. Сегменты, все записи которых уже учтены в снимке коллекции,
+ * удаляет {@link #compact(long)}.
+ */
+public class WriteAheadLog implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(WriteAheadLog.class);
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+    public static final long DEFAULT_COMPACTION_BYTES = 256L << 20;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int FRAME_HEADER_SIZE = 4 + 4 + 8 + 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final WalRecord.Type[] TYPES = WalRecord.Type.values();
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long compactionBytes;
+    private final boolean syncEachAppend;
+    private final ScheduledExecutorService syncExecutor;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+    private final CRC32C crc = new CRC32C();
+    private FileChannel segment;
+    private long segmentFirstLsn;
+    private long segmentSize;
+    private long lastLsn;
+    private long durableLsn;
+    private boolean failed;
+    private boolean closed;
+
+    public WriteAheadLog(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Открывает журнал в каталоге, восстанавливая номер последней записи по существующим сегментам.
+     *
+     * @param syncIntervalMillis как часто сбрасывать записи на диск; 0 - после каждой записи.
+     * @param compactionBytes    при каком размере журнала {@link #needsCompaction()} сообщает,
+     *                           что пора записать снимок и удалить старые сегменты.
+     */
+    public WriteAheadLog(Path directory, long segmentBytes, long syncIntervalMillis, long compactionBytes) throws IOException {
+        if (segmentBytes <= FRAME_HEADER_SIZE || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Размер сегмента журнала должен быть от " + (FRAME_HEADER_SIZE + 1)
+                    + " до " + MAX_SEGMENT_BYTES + " байт");
+        }
+        if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Интервал сброса журнала не может быть отрицательным");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactionBytes = compactionBytes;
+        this.syncEachAppend = syncIntervalMillis == 0;
+        Files.createDirectories(directory);
+        recover();
+        if (syncEachAppend) {
+            syncExecutor = null;
+        } else {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "WalSyncThread");
+                t.setDaemon(true);
+                return t;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Segment> segments = listSegments();
+        lastLsn = 0;
+        if (!segments.isEmpty()) {
+            Segment last = segments.get(segments.size() - 1);
+            ScanResult scan = scan(last, Long.MAX_VALUE, null);
+            if (scan.validEnd < scan.size) {
+                logger.warn("Discarding {} bytes of incomplete WAL records at the end of {}.", scan.size - scan.validEnd, last.path);
+                try (FileChannel channel = FileChannel.open(last.path, StandardOpenOption.WRITE)) {
+                    channel.truncate(scan.validEnd);
+                    channel.force(true);
+                }
+            }
+            if (scan.validEnd == 0) {
+                Files.delete(last.path);
+            }
+            lastLsn = scan.lastLsn;
+        }
+        durableLsn = lastLsn;
+        openSegment(lastLsn + 1);
+        logger.info("Write-ahead log opened in {}: {} segments, last LSN {}.", directory, segments.size(), lastLsn);
+    }
+
+    /**
+     * Дописывает запись в журнал.
+     *
+     * @return Номер записи.
+     * @throws IOException если запись не удалась; после этого журнал отклоняет новые записи.
+     */
+    public synchronized long append(WalRecord record) throws IOException {
+        if (closed || failed) {
+            throw new IOException(closed ? "Журнал закрыт" : "Журнал недоступен после ошибки записи");
+        }
+        recordBuffer.reset();
+        record.writePayload(recordOut);
+        int length = recordBuffer.size();
+        try {
+            long lsn = lastLsn + 1;
+            if (segmentSize > 0 && segmentSize + FRAME_HEADER_SIZE + length > segmentBytes) {
+                rotate(lsn);
+            }
+            frameHeader.clear();
+            frameHeader.putInt(length).putInt(0).putLong(lsn).put((byte) record.getType().ordinal());
+            crc.reset();
+            crc.update(frameHeader.array(), 8, FRAME_HEADER_SIZE - 8);
+            crc.update(recordBuffer.array(), 0, length);
+            frameHeader.putInt(4, (int) crc.getValue());
+            write(frameHeader.array(), FRAME_HEADER_SIZE);
+            write(recordBuffer.array(), length);
+            segmentSize += FRAME_HEADER_SIZE + length;
+            lastLsn = lsn;
+            if (syncEachAppend) {
+                drain();
+                segment.force(false);
+                durableLsn = lsn;
+            }
+            return lsn;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            notifyAll();
+            throw e;
+        }
+    }
+
+    /**
+     * Ждёт, пока запись {@code lsn} окажется на диске, то есть не дольше интервала сброса.
+     *
+     * @throws IOException если журнал закрыт или сломан раньше, чем запись оказалась на диске.
+     */
+    public synchronized void awaitDurable(long lsn) throws IOException {
+        while (durableLsn < lsn) {
+            if (closed || failed) {
+                throw new IOException(closed ? "Журнал закрыт" : "Журнал недоступен после ошибки записи");
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Ожидание сброса журнала прервано");
+            }
+        }
+    }
+
+    /**
+     * Передаёт в {@code consumer} все записи с номером больше {@code afterLsn} в порядке номеров.
+     *
+     * @throws IOException если нужные записи уже удалены или сегмент повреждён.
+     */
+    public synchronized void replay(long afterLsn, Consumer<WalRecord> consumer) throws IOException {
+        if (afterLsn >= lastLsn) {
+            return;
+        }
+        if (!closed && !failed) {
+            drain();
+        }
+        List<Segment> segments = listSegments();
+        if (segments.isEmpty() || segments.get(0).firstLsn > afterLsn + 1) {
+            throw new IOException("В журнале нет записей после " + afterLsn + ": они уже удалены");
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            if (i + 1 < segments.size() && segments.get(i + 1).firstLsn <= afterLsn + 1) {
+                continue;
+            }
+            ScanResult scan = scan(segments.get(i), afterLsn, consumer);
+            if (scan.validEnd < scan.size && i + 1 < segments.size()) {
+                throw new IOException("Сегмент журнала " + segments.get(i).path + " повреждён");
+            }
+        }
+    }
+
+    /**
+     * Продолжает нумерацию записей с {@code lsn + 1}, если журнал отстаёт, например после
+     * удаления каталога журнала при сохранённом снимке.
+     */
+    public synchronized void skipTo(long lsn) throws IOException {
+        if (lsn <= lastLsn) {
+            return;
+        }
+        drain();
+        segment.force(false);
+        segment.close();
+        if (segmentSize == 0) {
+            Files.deleteIfExists(segmentPath(segmentFirstLsn));
+        }
+        lastLsn = lsn;
+        durableLsn = lsn;
+        openSegment(lsn + 1);
+    }
+
+    /**
+     * Удаляет сегменты, все записи которых имеют номер не больше {@code coveredLsn}.
+     * Текущий сегмент не удаляется.
+     *
+     * @return Количество удалённых сегментов.
+     */
+    public synchronized int compact(long coveredLsn) throws IOException {
+        List<Segment> segments = listSegments();
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1).firstLsn > coveredLsn + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i).path);
+            deleted++;
+        }
+        if (deleted > 0) {
+            logger.info("Compacted write-ahead log: removed {} segments up to LSN {}.", deleted, coveredLsn);
+        }
+        return deleted;
+    }
+
+    /**
+     * Пишет накопленные записи в файл и ждёт, пока они окажутся на диске. Новые записи
+     * во время fsync не блокируются.
+     */
+    public void sync() throws IOException {
+        FileChannel channel;
+        long lsn;
+        synchronized (this) {
+            if (closed || failed || lastLsn == durableLsn) {
+                return;
+            }
+            drain();
+            channel = segment;
+            lsn = lastLsn;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Сегмент закрыт при переходе на следующий, перед этим он уже сброшен на диск.
+            return;
+        } catch (IOException e) {
+            // После неудачного fsync неизвестно, что попало на диск: ждущие записи не подтверждаются.
+            synchronized (this) {
+                failed = true;
+                notifyAll();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            durableLsn = Math.max(durableLsn, lsn);
+            notifyAll();
+        }
+    }
+
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            logger.error("Error syncing write-ahead log: {}", e.getMessage(), e);
+        }
+    }
+
+    public synchronized long getLastLsn() {
+        return lastLsn;
+    }
+
+    /**
+     * @return Номер последней записи, которая гарантированно на диске.
+     */
+    public synchronized long getDurableLsn() {
+        return durableLsn;
+    }
+
+    public synchronized long getSizeBytes() throws IOException {
+        long size = writeBuffer.position();
+        for (Segment segment : listSegments()) {
+            size += Files.size(segment.path);
+        }
+        return size;
+    }
+
+    public boolean needsCompaction() throws IOException {
+        return getSizeBytes() > compactionBytes;
+    }
+
+    @Override
+    public void close() {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+            try {
+                syncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (!failed) {
+                    drain();
+                    segment.force(false);
+                    durableLsn = lastLsn;
+                }
+                segment.close();
+            } catch (IOException e) {
+                logger.error("Error closing write-ahead log: {}", e.getMessage(), e);
+            }
+            notifyAll();
+        }
+        logger.info("Write-ahead log closed at LSN {}.", durableLsn);
+    }
+
+    private void write(byte[] bytes, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!writeBuffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length - offset, writeBuffer.remaining());
+            writeBuffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    private void drain() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            segment.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void rotate(long nextLsn) throws IOException {
+        drain();
+        segment.force(false);
+        segment.close();
+        durableLsn = lastLsn;
+        notifyAll();
+        openSegment(nextLsn);
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        segment = FileChannel.open(segmentPath(firstLsn), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        segmentSize = 0;
+        segmentFirstLsn = firstLsn;
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Не все файловые системы позволяют сбросить каталог; новый файл тогда виден после следующего fsync.
+        }
+    }
+
+    private Path segmentPath(long firstLsn) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+    }
+
+    private List<Segment> listSegments() throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String name = path.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        long firstLsn = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                        segments.add(new Segment(path, firstLsn));
+                    } catch (NumberFormatException e) {
+                        logger.warn("Ignoring unexpected file {} in write-ahead log directory.", path);
+                    }
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segment.firstLsn));
+        return segments;
+    }
+
+    /**
+     * Читает записи сегмента подряд до конца файла или до первой повреждённой записи.
+     */
+    private static ScanResult scan(Segment segment, long afterLsn, Consumer<WalRecord> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C crc = new CRC32C();
+            long expectedLsn = segment.firstLsn;
+            int validEnd = 0;
+            while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int storedCrc = buffer.getInt();
+                if (length < 0 || length > buffer.remaining() - (FRAME_HEADER_SIZE - 8)) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.slice(start + 8, FRAME_HEADER_SIZE - 8 + length));
+                if ((int) crc.getValue() != storedCrc) {
+                    break;
+                }
+                long lsn = buffer.getLong();
+                int type = buffer.get();
+                if (lsn != expectedLsn || type < 0 || type >= TYPES.length) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                if (consumer != null && lsn > afterLsn) {
+                    consumer.accept(WalRecord.readPayload(lsn, TYPES[type], payload));
+                }
+                expectedLsn++;
+                validEnd = buffer.position();
+            }
+            return new ScanResult(validEnd, size, expectedLsn - 1);
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstLsn;
+
+        Segment(Path path, long firstLsn) {
+            this.path = path;
+            this.firstLsn = firstLsn;
+        }
+    }
+
+    private static final class ScanResult {
+        private final long validEnd;
+        private final long size;
+        private final long lastLsn;
+
+        ScanResult(long validEnd, long size, long lastLsn) {
+            this.validEnd = validEnd;
+            this.size = size;
+            this.lastLsn = lastLsn;
+        }
+    }
+
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() {
+            super(1 << 12);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
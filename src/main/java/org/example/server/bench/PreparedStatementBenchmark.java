@@ -0,0 +1,146 @@
+package org.example.server.bench;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.server.ConnectionPool;
+import org.example.server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Сравнивает задержку вставки работника в трёх режимах:
+ * <ol>
+ *     <li>новое соединение на каждую вставку (как было до пула соединений);</li>
+ *     <li>пул соединений без серверной подготовки выражений (prepareThreshold=0);</li>
+ *     <li>пул соединений с серверной подготовкой (prepareThreshold=1).</li>
+ * </ol>
+ * После режимов с пулом выводится содержимое pg_prepared_statements соединения: для вставки
+ * generic_plans растёт с каждым выполнением, то есть план берётся из кэша сервера.
+ * <p>
+ * Параметры БД берутся из тех же переменных окружения, что и у сервера. Работники создаются
+ * от имени временного пользователя, который удаляется в конце вместе с ними.
+ * Запуск: {@code PreparedStatementBenchmark [количество_вставок]}.
+ */
+public class PreparedStatementBenchmark {
+    private static final String INSERT_SQL = "INSERT INTO workers (name, coordinates_x, coordinates_y, salary, start_date, "
+            + "end_date, position, organization_annual_turnover, organization_type, creation_date, user_id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING id";
+
+    public static void main(String[] args) throws SQLException {
+        int inserts = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        String url = "jdbc:postgresql://" + env("DB_HOST", "localhost") + "/" + env("DB_NAME", "studs");
+        String user = System.getenv("DB_USER");
+        String password = System.getenv("DB_PASSWORD");
+        if (user == null || password == null) {
+            System.err.println("Нужны переменные окружения DB_USER и DB_PASSWORD.");
+            System.exit(1);
+        }
+
+        DatabaseManager setup = new DatabaseManager(new ConnectionPool(url, user, password, 1, 1));
+        String benchUsername = "bench_" + System.nanoTime();
+        User benchUser = setup.registerUser(benchUsername, "bench").orElseThrow(
+                () -> new IllegalStateException("Не удалось создать пользователя для замера"));
+        try {
+            Worker worker = new Worker("Bench", new Coordinates(1f, 2.0), 1000L, LocalDateTime.now(), null,
+                    Position.COOK, new Organization(100, OrganizationType.TRUST));
+
+            long[] unpooled = new long[inserts];
+            Properties properties = new Properties();
+            properties.setProperty("user", user);
+            properties.setProperty("password", password);
+            for (int i = 0; i < inserts; i++) {
+                long start = System.nanoTime();
+                try (Connection conn = DriverManager.getConnection(url, properties);
+                     PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+                    pstmt.setString(1, worker.getName());
+                    pstmt.setFloat(2, worker.getCoordinates().getX());
+                    pstmt.setDouble(3, worker.getCoordinates().getY());
+                    pstmt.setLong(4, worker.getSalary());
+                    pstmt.setTimestamp(5, Timestamp.valueOf(worker.getStartDate()));
+                    pstmt.setNull(6, Types.TIMESTAMP_WITH_TIMEZONE);
+                    pstmt.setString(7, worker.getPosition().name());
+                    pstmt.setInt(8, worker.getOrganization().getAnnualTurnover());
+                    pstmt.setString(9, worker.getOrganization().getType().name());
+                    pstmt.setDate(10, Date.valueOf(LocalDate.now()));
+                    pstmt.setInt(11, benchUser.getId());
+                    pstmt.executeQuery().close();
+                }
+                unpooled[i] = System.nanoTime() - start;
+            }
+            report("Новое соединение на каждую вставку", unpooled);
+
+            for (int prepareThreshold : new int[]{0, 1}) {
+                ConnectionPool pool = new ConnectionPool(url, user, password, 1, prepareThreshold);
+                DatabaseManager databaseManager = new DatabaseManager(pool);
+                long[] pooled = new long[inserts];
+                for (int i = 0; i < inserts; i++) {
+                    long start = System.nanoTime();
+                    databaseManager.addWorker(worker, benchUser.getId());
+                    pooled[i] = System.nanoTime() - start;
+                }
+                report("Пул соединений, prepareThreshold=" + prepareThreshold, pooled);
+                printPreparedStatements(pool);
+                databaseManager.close();
+            }
+        } finally {
+            try (Connection conn = DriverManager.getConnection(url, user, password);
+                 PreparedStatement pstmt = conn.prepareStatement("DELETE FROM users WHERE id = ?")) {
+                pstmt.setInt(1, benchUser.getId());
+                pstmt.executeUpdate();
+            }
+            setup.close();
+        }
+    }
+
+    private static void report(String title, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        double average = Arrays.stream(sorted).average().orElse(0) / 1000;
+        System.out.printf("%s: %d вставок, среднее %.1f мкс, p50 %.1f мкс, p99 %.1f мкс%n", title, sorted.length,
+                average, sorted[sorted.length / 2] / 1000.0, sorted[(int) (sorted.length * 0.99)] / 1000.0);
+    }
+
+    private static void printPreparedStatements(ConnectionPool pool) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM pg_prepared_statements WHERE statement LIKE 'INSERT INTO workers%'");
+             ResultSet rs = pstmt.executeQuery()) {
+            ResultSetMetaData meta = rs.getMetaData();
+            boolean found = false;
+            while (rs.next()) {
+                found = true;
+                StringBuilder line = new StringBuilder("  pg_prepared_statements:");
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    String column = meta.getColumnName(i);
+                    if (column.equals("name") || column.equals("generic_plans") || column.equals("custom_plans")) {
+                        line.append(' ').append(column).append('=').append(rs.getString(i));
+                    }
+                }
+                System.out.println(line);
+            }
+            if (!found) {
+                System.out.println("  pg_prepared_statements: вставка не подготовлена на сервере, план строится при каждом выполнении");
+            }
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.server.bench;
+
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.server.CollectionManager;
+import org.example.server.ConnectionPool;
+import org.example.server.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Замеряет время загрузки коллекции при старте сервера: последовательное чтение на одном
+ * соединении и чтение по диапазонам ID на нескольких соединениях из пула.
+ * <p>
+ * Для каждого размера таблицы создаётся временный пользователь и нужное количество работников
+ * (одним INSERT ... SELECT из generate_series), после чего для каждого числа разделов
+ * создаётся {@link CollectionManager}, который загружает коллекцию так же, как сервер.
+ * Для каждого прогона выводится время, прирост занятой кучи и контрольная сумма содержимого;
+ * у всех прогонов одного размера она должна совпадать с последовательной загрузкой.
+ * <p>
+ * Параметры БД берутся из тех же переменных окружения, что и у сервера. Лучше запускать
+ * на пустой локальной БД с -Xmx, достаточным для 10 млн работников (около 8 ГБ).
+ * Запуск: {@code StartupLoadBenchmark [количество_работников ...]}, по умолчанию 1000000 и 10000000.
+ */
+public class StartupLoadBenchmark {
+    private static final String FILL_SQL = "INSERT INTO workers (name, coordinates_x, coordinates_y, salary, start_date, "
+            + "end_date, position, organization_annual_turnover, organization_type, creation_date, user_id) "
+            + "SELECT 'Worker ' || g, g % 1000, (g % 5000) / 10.0, 1000 + g % 100000, "
+            + "TIMESTAMP '2020-01-01' + (g % 2000) * INTERVAL '1 day', "
+            + "CASE WHEN g % 3 = 0 THEN NULL ELSE TIMESTAMPTZ '2026-01-01' + (g % 500) * INTERVAL '1 day' END, "
+            + "(ARRAY['DIRECTOR', 'LABORER', 'BAKER', 'COOK', NULL])[1 + g % 5], "
+            + "CASE WHEN g % 7 = 0 THEN NULL ELSE 1 + g % 1000000 END, "
+            + "(ARRAY['PUBLIC', 'GOVERNMENT', 'TRUST', 'PRIVATE_LIMITED_COMPANY', 'OPEN_JOINT_STOCK_COMPANY'])[1 + g % 5], "
+            + "CURRENT_DATE, ? FROM generate_series(1, ?) g";
+
+    public static void main(String[] args) throws SQLException {
+        List<Integer> sizes = new ArrayList<>();
+        for (String arg : args) {
+            sizes.add(Integer.parseInt(arg));
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of(1_000_000, 10_000_000);
+        }
+        String url = "jdbc:postgresql://" + env("DB_HOST", "localhost") + "/" + env("DB_NAME", "studs");
+        String user = System.getenv("DB_USER");
+        String password = System.getenv("DB_PASSWORD");
+        if (user == null || password == null) {
+            System.err.println("Нужны переменные окружения DB_USER и DB_PASSWORD.");
+            System.exit(1);
+        }
+
+        Set<Integer> partitionCounts = new LinkedHashSet<>(List.of(1, 2, 4, ConnectionPool.DEFAULT_MAX_SIZE - 1));
+        ConnectionPool setupPool = new ConnectionPool(url, user, password, 1, 1);
+        DatabaseManager setup = new DatabaseManager(setupPool);
+        try {
+            for (int size : sizes) {
+                User benchUser = setup.registerUser("bench_" + System.nanoTime(), "bench").orElseThrow(
+                        () -> new IllegalStateException("Не удалось создать пользователя для замера"));
+                try {
+                    fill(setupPool, benchUser.getId(), size);
+                    Long expected = null;
+                    for (int partitions : partitionCounts) {
+                        DatabaseManager databaseManager = new DatabaseManager(new ConnectionPool(url, user, password));
+                        databaseManager.setLoadPartitions(partitions);
+                        long heapBefore = usedHeap();
+                        long start = System.nanoTime();
+                        CollectionManager collectionManager = new CollectionManager(databaseManager);
+                        long elapsed = System.nanoTime() - start;
+                        long heapAfter = usedHeap();
+                        List<Worker> workers = collectionManager.getDescendingById();
+                        long checksum = checksum(workers);
+                        if (expected == null) {
+                            expected = checksum;
+                        }
+                        System.out.printf("%d работников, разделов %d: %d мс, куча +%d МБ, контрольная сумма %016x%s%n",
+                                workers.size(), partitions, elapsed / 1_000_000, (heapAfter - heapBefore) >> 20, checksum,
+                                checksum == expected ? "" : " (ОТЛИЧАЕТСЯ от последовательной загрузки)");
+                        databaseManager.close();
+                    }
+                } finally {
+                    try (Connection conn = setupPool.getConnection();
+                         PreparedStatement pstmt = conn.prepareStatement("DELETE FROM users WHERE id = ?")) {
+                        pstmt.setInt(1, benchUser.getId());
+                        pstmt.executeUpdate();
+                    }
+                }
+            }
+        } finally {
+            setup.close();
+        }
+    }
+
+    private static void fill(ConnectionPool pool, int userId, int size) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(FILL_SQL)) {
+                pstmt.setInt(1, userId);
+                pstmt.setInt(2, size);
+                pstmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE workers");
+            }
+        }
+        System.out.printf("Добавлено %d работников за %d мс%n", size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Сумма, зависящая от порядка и содержимого всех работников.
+     */
+    private static long checksum(List<Worker> workers) {
+        long checksum = 1;
+        for (Worker worker : workers) {
+            checksum = 31 * checksum + worker.hashCode();
+        }
+        return checksum;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
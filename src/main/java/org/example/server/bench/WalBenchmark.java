@@ -0,0 +1,55 @@
+package org.example.server.bench;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.server.WalRecord;
+import org.example.server.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Замеряет скорость дозаписи в журнал изменений при разных интервалах fsync: 0 (fsync после
+ * каждой записи) и периодический сброс с группировкой записей. Журнал создаётся во временном
+ * каталоге (или в каталоге из второго аргумента, чтобы проверить конкретный диск) и удаляется.
+ * Запуск: {@code WalBenchmark [количество_записей] [каталог]}.
+ */
+public class WalBenchmark {
+    public static void main(String[] args) throws IOException {
+        int appends = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path parent = args.length > 1 ? Path.of(args[1]) : Path.of(System.getProperty("java.io.tmpdir"));
+        Worker worker = new Worker(1L, "Bench", new Coordinates(1f, 2.0), LocalDate.now(), 1000L, LocalDateTime.now(),
+                null, Position.COOK, new Organization(100, OrganizationType.TRUST));
+
+        for (long syncIntervalMillis : new long[]{0, 1, 10, 100}) {
+            // При fsync после каждой записи полный прогон занял бы слишком долго.
+            int count = syncIntervalMillis == 0 ? Math.min(appends, 10_000) : appends;
+            Path directory = Files.createTempDirectory(parent, "wal-bench");
+            try (WriteAheadLog wal = new WriteAheadLog(directory, WriteAheadLog.DEFAULT_SEGMENT_BYTES, syncIntervalMillis,
+                    WriteAheadLog.DEFAULT_COMPACTION_BYTES)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    wal.append(WalRecord.add(worker));
+                }
+                wal.sync();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("Интервал fsync %d мс: %d записей за %.2f с, %.0f записей/с, журнал %d МБ%n",
+                        syncIntervalMillis, count, seconds, count / seconds, wal.getSizeBytes() >> 20);
+            } finally {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+}
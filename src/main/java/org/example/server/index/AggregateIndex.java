@@ -0,0 +1,138 @@
+package org.example.server.index;
+
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.common.response.GroupAggregate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Счётчики по должностям и типам организаций, которые обновляются при каждом изменении
+ * коллекции. Отчёт строится за O(число групп), а не за O(размер коллекции).
+ * Для минимума и максимума в каждой группе хранится мультимножество зарплат,
+ * чтобы они оставались точными после удалений.
+ */
+public class AggregateIndex implements WorkerIndex {
+    /**
+     * Имя группы для работников без должности.
+     */
+    public static final String NO_POSITION_GROUP = "NONE";
+
+    private final GroupedStats<Position> byPosition = new GroupedStats<>(Position.class, Worker::getPosition);
+    private final GroupedStats<OrganizationType> byOrganizationType =
+            new GroupedStats<>(OrganizationType.class, w -> w.getOrganization().getType());
+
+    @Override
+    public void add(Worker worker) {
+        byPosition.add(worker);
+        byOrganizationType.add(worker);
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        byPosition.remove(worker);
+        byOrganizationType.remove(worker);
+    }
+
+    @Override
+    public void clear() {
+        byPosition.clear();
+        byOrganizationType.clear();
+    }
+
+    public List<GroupAggregate> byPosition() {
+        return byPosition.snapshot();
+    }
+
+    public List<GroupAggregate> byOrganizationType() {
+        return byOrganizationType.snapshot();
+    }
+
+    private static final class GroupedStats<E extends Enum<E>> {
+        private final Function<Worker, E> keyExtractor;
+        private final EnumMap<E, Stats> groups;
+        private final Stats nullGroup = new Stats();
+
+        private GroupedStats(Class<E> enumClass, Function<Worker, E> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+            this.groups = new EnumMap<>(enumClass);
+        }
+
+        private void add(Worker worker) {
+            E key = keyExtractor.apply(worker);
+            Stats stats = key == null ? nullGroup : groups.computeIfAbsent(key, k -> new Stats());
+            stats.add(worker.getSalary());
+        }
+
+        private void remove(Worker worker) {
+            E key = keyExtractor.apply(worker);
+            Stats stats = key == null ? nullGroup : groups.get(key);
+            if (stats == null) {
+                return;
+            }
+            stats.remove(worker.getSalary());
+            if (key != null && stats.count == 0) {
+                groups.remove(key);
+            }
+        }
+
+        private void clear() {
+            groups.clear();
+            nullGroup.clear();
+        }
+
+        private List<GroupAggregate> snapshot() {
+            List<GroupAggregate> result = new ArrayList<>(groups.size() + 1);
+            for (Map.Entry<E, Stats> entry : groups.entrySet()) {
+                result.add(entry.getValue().toAggregate(entry.getKey().name()));
+            }
+            if (nullGroup.count > 0) {
+                result.add(nullGroup.toAggregate(NO_POSITION_GROUP));
+            }
+            return result;
+        }
+    }
+
+    private static final class Stats {
+        private long count;
+        private long salarySum;
+        private long salariedCount;
+        private final TreeMap<Long, Integer> salaries = new TreeMap<>();
+
+        private void add(Long salary) {
+            count++;
+            if (salary != null) {
+                salariedCount++;
+                salarySum += salary;
+                salaries.merge(salary, 1, Integer::sum);
+            }
+        }
+
+        private void remove(Long salary) {
+            count--;
+            if (salary != null) {
+                salariedCount--;
+                salarySum -= salary;
+                salaries.computeIfPresent(salary, (k, n) -> n == 1 ? null : n - 1);
+            }
+        }
+
+        private void clear() {
+            count = 0;
+            salarySum = 0;
+            salariedCount = 0;
+            salaries.clear();
+        }
+
+        private GroupAggregate toAggregate(String group) {
+            return new GroupAggregate(group, count, salariedCount, salarySum,
+                    salaries.isEmpty() ? null : salaries.firstKey(), salaries.isEmpty() ? null : salaries.lastKey());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Индекс по полю-перечислению: для каждого значения хранится набор работников (по ID).
+ * Работники с отсутствующим значением попадают в отдельную корзину.
+ */
+public class EnumIndex<E extends Enum<E>> implements WorkerIndex {
+    private final Function<Worker, E> keyExtractor;
+    private final EnumMap<E, Map<Long, Worker>> buckets;
+    private final Map<Long, Worker> nullBucket = new HashMap<>();
+
+    public EnumIndex(Class<E> enumClass, Function<Worker, E> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+        this.buckets = new EnumMap<>(enumClass);
+    }
+
+    @Override
+    public void add(Worker worker) {
+        bucketFor(keyExtractor.apply(worker), true).put(worker.getId(), worker);
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        E key = keyExtractor.apply(worker);
+        Map<Long, Worker> bucket = bucketFor(key, false);
+        if (bucket != null) {
+            bucket.remove(worker.getId());
+            if (key != null && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        buckets.clear();
+        nullBucket.clear();
+    }
+
+    /**
+     * @param key значение поля или null для работников без значения.
+     * @return Неизменяемое представление работников с этим значением.
+     */
+    public Collection<Worker> get(E key) {
+        Map<Long, Worker> bucket = bucketFor(key, false);
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+
+    private Map<Long, Worker> bucketFor(E key, boolean create) {
+        if (key == null) {
+            return nullBucket;
+        }
+        return create ? buckets.computeIfAbsent(key, k -> new HashMap<>()) : buckets.get(key);
+    }
+}
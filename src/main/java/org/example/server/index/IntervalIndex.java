@@ -0,0 +1,185 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Дерево интервалов по периоду работы [startDate, endDate]. Дата начала считается заданной в UTC,
+ * отсутствующая дата окончания означает открытый период. Если дата окончания раньше даты начала,
+ * период считается вырожденным [endDate, endDate] - так же, как в индексе БД.
+ * <p>
+ * Реализовано как декартово дерево (treap) по ключу (начало, ID), в каждом узле которого хранится
+ * максимальный конец периода в поддереве. Это позволяет отбрасывать поддеревья, целиком
+ * закончившиеся до начала запроса, и отвечать на запросы пересечения и попадания в момент
+ * за O(log n + k) в среднем.
+ */
+public class IntervalIndex implements WorkerIndex {
+    private Node root;
+
+    @Override
+    public void add(Worker worker) {
+        root = insert(root, new Node(worker));
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        root = delete(root, lowOf(worker), worker.getId());
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Работники, период которых пересекается с [from, to] (границы включительно),
+     * в порядке начала периода и ID.
+     */
+    public List<Worker> overlapping(Instant from, Instant to) {
+        List<Worker> result = new ArrayList<>();
+        collect(root, from, to, result);
+        return result;
+    }
+
+    /**
+     * Работники, работавшие в момент {@code moment}.
+     */
+    public List<Worker> at(Instant moment) {
+        return overlapping(moment, moment);
+    }
+
+    private static void collect(Node node, Instant from, Instant to, List<Worker> result) {
+        while (node != null && node.maxHigh.compareTo(from) >= 0) {
+            collect(node.left, from, to, result);
+            if (node.low.compareTo(to) > 0) {
+                return;
+            }
+            if (node.high.compareTo(from) >= 0) {
+                result.add(node.worker);
+            }
+            node = node.right;
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.low, added.id);
+            added.left = parts[0];
+            added.right = parts[1];
+            return added.update();
+        }
+        if (added.compareTo(node.low, node.id) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return node.update();
+    }
+
+    private static Node delete(Node node, Instant low, long id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(low, id, node.low, node.id);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, low, id);
+        } else {
+            node.right = delete(node.right, low, id);
+        }
+        return node.update();
+    }
+
+    /**
+     * @return Два дерева: с ключами меньше (low, id) и с ключами не меньше.
+     */
+    private static Node[] split(Node node, Instant low, long id) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.low, node.id, low, id) < 0) {
+            Node[] parts = split(node.right, low, id);
+            node.right = parts[0];
+            parts[0] = node.update();
+            return parts;
+        }
+        Node[] parts = split(node.left, low, id);
+        node.left = parts[1];
+        parts[1] = node.update();
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return left.update();
+        }
+        right.left = merge(left, right.left);
+        return right.update();
+    }
+
+    private static int compare(Instant lowA, long idA, Instant lowB, long idB) {
+        int cmp = lowA.compareTo(lowB);
+        return cmp != 0 ? cmp : Long.compare(idA, idB);
+    }
+
+    private static Instant lowOf(Worker worker) {
+        Instant start = worker.getStartDate().toInstant(ZoneOffset.UTC);
+        Instant end = highOf(worker);
+        return end.isBefore(start) ? end : start;
+    }
+
+    private static Instant highOf(Worker worker) {
+        return worker.getEndDate() != null ? worker.getEndDate().toInstant() : Instant.MAX;
+    }
+
+    private static final class Node {
+        private final Worker worker;
+        private final long id;
+        private final Instant low;
+        private final Instant high;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Instant maxHigh;
+        private Node left;
+        private Node right;
+
+        private Node(Worker worker) {
+            this.worker = worker;
+            this.id = worker.getId();
+            this.low = lowOf(worker);
+            this.high = highOf(worker);
+            this.maxHigh = high;
+        }
+
+        private int compareTo(Instant otherLow, long otherId) {
+            return compare(low, id, otherLow, otherId);
+        }
+
+        private Node update() {
+            maxHigh = high;
+            if (left != null && left.maxHigh.isAfter(maxHigh)) {
+                maxHigh = left.maxHigh;
+            }
+            if (right != null && right.maxHigh.isAfter(maxHigh)) {
+                maxHigh = right.maxHigh;
+            }
+            return this;
+        }
+    }
+}
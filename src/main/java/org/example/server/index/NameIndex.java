@@ -0,0 +1,160 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Текстовый индекс по имени работника без учёта регистра.
+ * <p>
+ * Имена хранятся в упорядоченном дереве, поэтому поиск по префиксу - это обход поддиапазона
+ * за O(log n + k). Для поиска подстроки каждое различное имя разбивается на все n-граммы длиной
+ * от 1 до 3 символов; запрос длиной до трёх символов отвечается одним списком, для более длинного
+ * берётся самый короткий список среди его триграмм, и имена из него проверяются на вхождение.
+ * Списки n-грамм упорядочены, поэтому при ограничении числа результатов обход прекращается,
+ * как только набрано нужное количество.
+ */
+public class NameIndex implements WorkerIndex {
+    private static final int MAX_GRAM = 3;
+
+    private final TreeMap<String, Map<Long, Worker>> byName = new TreeMap<>();
+    private final Map<String, TreeSet<String>> grams = new HashMap<>();
+
+    @Override
+    public void add(Worker worker) {
+        String key = normalize(worker.getName());
+        Map<Long, Worker> bucket = byName.get(key);
+        if (bucket == null) {
+            bucket = new TreeMap<>();
+            byName.put(key, bucket);
+            for (String gram : gramsOf(key)) {
+                grams.computeIfAbsent(gram, g -> new TreeSet<>()).add(key);
+            }
+        }
+        bucket.put(worker.getId(), worker);
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        String key = normalize(worker.getName());
+        Map<Long, Worker> bucket = byName.get(key);
+        if (bucket == null) {
+            return;
+        }
+        bucket.remove(worker.getId());
+        if (bucket.isEmpty()) {
+            byName.remove(key);
+            for (String gram : gramsOf(key)) {
+                TreeSet<String> names = grams.get(gram);
+                if (names != null) {
+                    names.remove(key);
+                    if (names.isEmpty()) {
+                        grams.remove(gram);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        byName.clear();
+        grams.clear();
+    }
+
+    /**
+     * Ищет работников, имя которых содержит {@code text} без учёта регистра. Сначала идут
+     * совпадения по префиксу, затем остальные; внутри каждой группы - по имени и ID.
+     *
+     * @param limit максимальное число результатов.
+     */
+    public List<Worker> search(String text, int limit) {
+        String query = normalize(text);
+        List<Worker> result = new ArrayList<>(Math.min(limit, 64));
+        if (query.isEmpty()) {
+            return result;
+        }
+        for (Map<Long, Worker> bucket : prefixRange(query).values()) {
+            if (!addAll(result, bucket.values(), limit)) {
+                return result;
+            }
+        }
+        for (String name : candidateNames(query)) {
+            if (!name.startsWith(query) && name.contains(query) && !addAll(result, byName.get(name).values(), limit)) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return Работники, имя которых начинается с {@code prefix} без учёта регистра.
+     */
+    public Collection<Worker> withPrefix(String prefix) {
+        List<Worker> result = new ArrayList<>();
+        prefixRange(normalize(prefix)).values().forEach(bucket -> result.addAll(bucket.values()));
+        return result;
+    }
+
+    /**
+     * @return Работники, имя которых совпадает с {@code name} без учёта регистра.
+     */
+    public Collection<Worker> equalToIgnoreCase(String name) {
+        Map<Long, Worker> bucket = byName.get(normalize(name));
+        return bucket == null ? List.of() : bucket.values();
+    }
+
+    private NavigableMap<String, Map<Long, Worker>> prefixRange(String prefix) {
+        return byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private Collection<String> candidateNames(String query) {
+        if (query.length() <= MAX_GRAM) {
+            TreeSet<String> names = grams.get(query);
+            return names == null ? List.of() : names;
+        }
+        TreeSet<String> narrowest = null;
+        for (int i = 0; i + MAX_GRAM <= query.length(); i++) {
+            TreeSet<String> names = grams.get(query.substring(i, i + MAX_GRAM));
+            if (names == null) {
+                return List.of();
+            }
+            if (narrowest == null || names.size() < narrowest.size()) {
+                narrowest = names;
+            }
+        }
+        return narrowest;
+    }
+
+    private static boolean addAll(List<Worker> result, Collection<Worker> workers, int limit) {
+        for (Worker worker : workers) {
+            if (result.size() >= limit) {
+                return false;
+            }
+            result.add(worker);
+        }
+        return result.size() < limit;
+    }
+
+    private static List<String> gramsOf(String key) {
+        TreeSet<String> result = new TreeSet<>();
+        for (int length = 1; length <= MAX_GRAM; length++) {
+            for (int i = 0; i + length <= key.length(); i++) {
+                result.add(key.substring(i, i + length));
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
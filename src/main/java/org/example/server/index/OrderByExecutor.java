@@ -0,0 +1,139 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+import org.example.common.query.OrderBySpec;
+import org.example.common.query.WorkerField;
+import org.example.server.util.RadixSort;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сортировка коллекции по произвольному набору полей через примитивные ключи.
+ * <p>
+ * Каждое поле кодируется в 64-битный ключ, беззнаковый порядок которого совпадает с порядком значений
+ * (биты float/double переворачиваются так же, как в {@link Float#compare}, даты - в секунды эпохи
+ * с дополнительным проходом по наносекундам, имена - в ранг среди различных имён). Затем перестановка
+ * сортируется LSD-поразрядно, от младшего поля к старшему, начиная с порядка по ID. Готовые перестановки кэшируются до следующего изменения коллекции.
+ */
+public class OrderByExecutor {
+    private static final int MAX_CACHED_ORDERINGS = 16;
+
+    private long cachedVersion = -1;
+    private Worker[] snapshot = new Worker[0];
+    private final Map<OrderBySpec, int[]> permutations = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<OrderBySpec, int[]> eldest) {
+            return size() > MAX_CACHED_ORDERINGS;
+        }
+    };
+
+    /**
+     * @param version     текущая версия коллекции; при её смене кэш сбрасывается.
+     * @param workersById работники в порядке возрастания ID.
+     */
+    public List<Worker> orderBy(OrderBySpec spec, long version, Collection<Worker> workersById) {
+        if (version != cachedVersion) {
+            snapshot = workersById.toArray(new Worker[0]);
+            permutations.clear();
+            cachedVersion = version;
+        }
+        int[] permutation = permutations.computeIfAbsent(spec, this::sort);
+        List<Worker> result = new ArrayList<>(permutation.length);
+        for (int index : permutation) {
+            result.add(snapshot[index]);
+        }
+        return result;
+    }
+
+    /**
+     * Сбрасывает кэш, например когда содержимое коллекции заменено целиком вместе с версией.
+     */
+    public void invalidate() {
+        cachedVersion = -1;
+        snapshot = new Worker[0];
+        permutations.clear();
+    }
+
+    private int[] sort(OrderBySpec spec) {
+        int n = snapshot.length;
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        long[] keys = new long[n];
+        boolean[] nullsFirst = new boolean[n];
+        List<WorkerField> fields = spec.getFields();
+        for (int f = fields.size() - 1; f >= 0; f--) {
+            WorkerField field = fields.get(f);
+            Map<String, Integer> nameRanks = field == WorkerField.NAME ? rankNames() : null;
+            if (field == WorkerField.START_DATE || field == WorkerField.END_DATE) {
+                for (int i = 0; i < n; i++) {
+                    Instant instant = toInstant(field.extract(snapshot[i]));
+                    long key = instant == null ? 0 : instant.getNano();
+                    keys[i] = spec.isDescending() ? ~key : key;
+                }
+                RadixSort.sortByUnsignedKey(permutation, keys);
+            }
+            for (int i = 0; i < n; i++) {
+                Object value = field.extract(snapshot[i]);
+                boolean isNull = value == null;
+                long key = isNull ? 0 : encode(field, value, nameRanks);
+                keys[i] = spec.isDescending() ? ~key : key;
+                nullsFirst[i] = spec.isDescending() != isNull;
+            }
+            RadixSort.sortByUnsignedKey(permutation, keys);
+            RadixSort.stablePartition(permutation, nullsFirst);
+        }
+        return permutation;
+    }
+
+    private Map<String, Integer> rankNames() {
+        String[] names = Arrays.stream(snapshot).map(Worker::getName).distinct().toArray(String[]::new);
+        Arrays.sort(names);
+        Map<String, Integer> ranks = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            ranks.put(names[i], i);
+        }
+        return ranks;
+    }
+
+    /**
+     * Кодирует непустое значение поля в ключ, беззнаковый порядок которого совпадает с порядком значений.
+     */
+    static long encode(WorkerField field, Object value, Map<String, Integer> nameRanks) {
+        long signed = switch (field) {
+            case ID, SALARY -> (Long) value;
+            case ANNUAL_TURNOVER -> (Integer) value;
+            case X -> {
+                int bits = Float.floatToIntBits((Float) value);
+                yield bits ^ ((bits >> 31) & 0x7fffffff);
+            }
+            case Y -> {
+                long bits = Double.doubleToLongBits((Double) value);
+                yield bits ^ ((bits >> 63) & 0x7fffffffffffffffL);
+            }
+            case POSITION, ORGANIZATION_TYPE -> ((Enum<?>) value).ordinal();
+            case NAME -> nameRanks.get((String) value);
+            case CREATION_DATE -> ((LocalDate) value).toEpochDay();
+            case START_DATE, END_DATE -> toInstant(value).getEpochSecond();
+        };
+        return signed ^ Long.MIN_VALUE;
+    }
+
+    private static Instant toInstant(Object value) {
+        if (value instanceof LocalDateTime localDateTime) {
+            return localDateTime.toInstant(ZoneOffset.UTC);
+        }
+        return (Instant) value;
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.server.index;
+
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.common.query.AndPredicate;
+import org.example.common.query.ComparisonOperator;
+import org.example.common.query.FieldCondition;
+import org.example.common.query.OrPredicate;
+import org.example.common.query.WorkerPredicate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Выполняет {@link WorkerPredicate} над коллекцией. Если условие позволяет, кандидаты берутся
+ * из вторичных индексов (для and - из самого узкого подусловия, для or - объединение, если
+ * индексируются все ветви), после чего проверяются полным условием. Иначе выполняется
+ * параллельный просмотр всей коллекции.
+ */
+public class QueryExecutor {
+    static final int PARALLEL_SCAN_THRESHOLD = 10_000;
+
+    private final WorkerIndexes indexes;
+
+    public QueryExecutor(WorkerIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @param all вся коллекция, используется, если индексы не сужают выборку.
+     * @return Подходящие работники, упорядоченные по ID.
+     */
+    public List<Worker> execute(WorkerPredicate predicate, Collection<Worker> all) {
+        Collection<Worker> candidates = candidates(predicate);
+        Collection<Worker> source = candidates != null ? candidates : all;
+        Stream<Worker> stream = source.size() >= PARALLEL_SCAN_THRESHOLD ? source.parallelStream() : source.stream();
+        return stream.filter(predicate::test).sorted().toList();
+    }
+
+    /**
+     * @return Надмножество подходящих работников или null, если индексы не помогают.
+     */
+    Collection<Worker> candidates(WorkerPredicate predicate) {
+        if (predicate instanceof FieldCondition condition) {
+            return candidates(condition);
+        }
+        if (predicate instanceof AndPredicate and) {
+            Collection<Worker> narrowest = null;
+            for (WorkerPredicate operand : and.getOperands()) {
+                Collection<Worker> operandCandidates = candidates(operand);
+                if (operandCandidates != null && (narrowest == null || operandCandidates.size() < narrowest.size())) {
+                    narrowest = operandCandidates;
+                }
+            }
+            return narrowest;
+        }
+        if (predicate instanceof OrPredicate or) {
+            Map<Long, Worker> union = new HashMap<>();
+            for (WorkerPredicate operand : or.getOperands()) {
+                Collection<Worker> operandCandidates = candidates(operand);
+                if (operandCandidates == null) {
+                    return null;
+                }
+                for (Worker worker : operandCandidates) {
+                    union.put(worker.getId(), worker);
+                }
+            }
+            return union.values();
+        }
+        return null;
+    }
+
+    private Collection<Worker> candidates(FieldCondition condition) {
+        ComparisonOperator operator = condition.getOperator();
+        Object value = condition.getValue();
+        return switch (condition.getField()) {
+            case POSITION -> operator == ComparisonOperator.EQ ? indexes.byPosition().get((Position) value) : null;
+            case ORGANIZATION_TYPE ->
+                    operator == ComparisonOperator.EQ ? indexes.byOrganizationType().get((OrganizationType) value) : null;
+            case SALARY -> rangeCandidates(indexes.bySalary(), operator, (Long) value);
+            case ANNUAL_TURNOVER -> rangeCandidates(indexes.byAnnualTurnover(), operator, (Integer) value);
+            case ID -> idCandidates(operator, (Long) value);
+            case NAME -> switch (operator) {
+                case EQ -> indexes.byName().equalToIgnoreCase((String) value);
+                case PREFIX -> indexes.byName().withPrefix((String) value);
+                default -> null;
+            };
+            default -> null;
+        };
+    }
+
+    private static <K extends Comparable<K>> Collection<Worker> rangeCandidates(RangeIndex<K> index, ComparisonOperator operator, K value) {
+        return switch (operator) {
+            case EQ -> index.equalTo(value);
+            case LT -> index.range(null, false, value, false);
+            case LE -> index.range(null, false, value, true);
+            case GT -> index.range(value, false, null, false);
+            case GE -> index.range(value, true, null, false);
+            default -> null;
+        };
+    }
+
+    private Collection<Worker> idCandidates(ComparisonOperator operator, Long value) {
+        if (value == null) {
+            return operator == ComparisonOperator.EQ ? Collections.emptyList() : null;
+        }
+        return switch (operator) {
+            case EQ -> {
+                Worker worker = indexes.getById(value);
+                yield worker == null ? Collections.emptyList() : List.of(worker);
+            }
+            case LT -> indexes.byId().headMap(value, false).values();
+            case LE -> indexes.byId().headMap(value, true).values();
+            case GT -> indexes.byId().tailMap(value, false).values();
+            case GE -> indexes.byId().tailMap(value, true).values();
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Упорядоченный индекс по сравнимому полю. Позволяет за O(log n + k) находить работников
+ * с точным значением или значением в диапазоне. Работники без значения хранятся отдельно
+ * и в диапазоны не попадают.
+ */
+public class RangeIndex<K extends Comparable<K>> implements WorkerIndex {
+    private final Function<Worker, K> keyExtractor;
+    private final TreeMap<K, Map<Long, Worker>> tree = new TreeMap<>();
+    private final Map<Long, Worker> nullBucket = new HashMap<>();
+
+    public RangeIndex(Function<Worker, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    @Override
+    public void add(Worker worker) {
+        K key = keyExtractor.apply(worker);
+        if (key == null) {
+            nullBucket.put(worker.getId(), worker);
+        } else {
+            tree.computeIfAbsent(key, k -> new HashMap<>()).put(worker.getId(), worker);
+        }
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        K key = keyExtractor.apply(worker);
+        if (key == null) {
+            nullBucket.remove(worker.getId());
+            return;
+        }
+        Map<Long, Worker> bucket = tree.get(key);
+        if (bucket != null) {
+            bucket.remove(worker.getId());
+            if (bucket.isEmpty()) {
+                tree.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        tree.clear();
+        nullBucket.clear();
+    }
+
+    public Collection<Worker> equalTo(K key) {
+        if (key == null) {
+            return Collections.unmodifiableCollection(nullBucket.values());
+        }
+        Map<Long, Worker> bucket = tree.get(key);
+        return bucket == null ? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+
+    /**
+     * Работники со значением поля в диапазоне. Граница null означает открытый конец.
+     */
+    public List<Worker> range(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        NavigableMap<K, Map<Long, Worker>> view = tree;
+        if (from != null) {
+            view = view.tailMap(from, fromInclusive);
+        }
+        if (to != null) {
+            view = view.headMap(to, toInclusive);
+        }
+        List<Worker> result = new ArrayList<>();
+        for (Map<Long, Worker> bucket : view.values()) {
+            result.addAll(bucket.values());
+        }
+        return result;
+    }
+
+    /**
+     * Упорядоченное по ключу представление индекса (только для чтения, под блокировкой коллекции).
+     */
+    public NavigableMap<K, Map<Long, Worker>> view() {
+        return Collections.unmodifiableNavigableMap(tree);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.server.index;
+
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.common.response.SalaryStats;
+import org.example.server.util.QuantileSketch;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Скетчи квантилей зарплаты: общий и по каждой должности. Работники без зарплаты не учитываются.
+ */
+public class SalarySketchIndex implements WorkerIndex {
+    public static final int HISTOGRAM_BUCKETS = 10;
+
+    private final QuantileSketch global = new QuantileSketch();
+    private final EnumMap<Position, QuantileSketch> byPosition = new EnumMap<>(Position.class);
+
+    public SalarySketchIndex() {
+        for (Position position : Position.values()) {
+            byPosition.put(position, new QuantileSketch());
+        }
+    }
+
+    @Override
+    public void add(Worker worker) {
+        if (worker.getSalary() == null) {
+            return;
+        }
+        global.add(worker.getSalary());
+        if (worker.getPosition() != null) {
+            byPosition.get(worker.getPosition()).add(worker.getSalary());
+        }
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        if (worker.getSalary() == null) {
+            return;
+        }
+        global.remove(worker.getSalary());
+        if (worker.getPosition() != null) {
+            byPosition.get(worker.getPosition()).remove(worker.getSalary());
+        }
+    }
+
+    @Override
+    public void clear() {
+        global.clear();
+        byPosition.values().forEach(QuantileSketch::clear);
+    }
+
+    /**
+     * @param position должность или null для всей коллекции.
+     */
+    public SalaryStats stats(Position position) {
+        QuantileSketch sketch = position == null ? global : byPosition.get(position);
+        List<SalaryStats.HistogramBucket> histogram = new ArrayList<>();
+        for (long[] bucket : sketch.histogram(HISTOGRAM_BUCKETS)) {
+            histogram.add(new SalaryStats.HistogramBucket(bucket[0], bucket[1], bucket[2]));
+        }
+        return new SalaryStats(position == null ? "ALL" : position.name(), sketch.getCount(), sketch.getRelativeAccuracy(),
+                sketch.quantile(0.5), sketch.quantile(0.9), sketch.quantile(0.99), histogram);
+    }
+}
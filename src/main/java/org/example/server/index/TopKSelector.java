@@ -0,0 +1,88 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+import org.example.common.query.WorkerField;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Выбор k работников с наибольшим значением поля. Для полей с упорядоченным индексом
+ * (id, salary, annual_turnover) индекс обходится с конца и читается ровно k записей.
+ * Для остальных полей выполняется параллельный просмотр с ограниченной кучей размера k:
+ * O(n log k) по времени и O(k) по памяти вместо полной сортировки.
+ * <p>
+ * Работники без значения поля не участвуют. При равных значениях раньше идёт меньший ID.
+ */
+public class TopKSelector {
+    private final WorkerIndexes indexes;
+
+    public TopKSelector(WorkerIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    public List<Worker> topK(WorkerField field, int k, Collection<Worker> all) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k должно быть больше 0.");
+        }
+        return switch (field) {
+            case ID -> new ArrayList<>(indexes.byId().descendingMap().values().stream().limit(k).toList());
+            case SALARY -> fromIndex(indexes.bySalary(), k);
+            case ANNUAL_TURNOVER -> fromIndex(indexes.byAnnualTurnover(), k);
+            default -> heapSelect(field, k, all);
+        };
+    }
+
+    private static <K extends Comparable<K>> List<Worker> fromIndex(RangeIndex<K> index, int k) {
+        List<Worker> result = new ArrayList<>(k);
+        for (Map<Long, Worker> bucket : index.view().descendingMap().values()) {
+            List<Worker> sameValue = new ArrayList<>(bucket.values());
+            sameValue.sort(Comparator.naturalOrder());
+            for (Worker worker : sameValue) {
+                result.add(worker);
+                if (result.size() == k) {
+                    return result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Worker> heapSelect(WorkerField field, int k, Collection<Worker> all) {
+        Comparator<Worker> resultOrder = resultOrder(field);
+        Comparator<Worker> worstFirst = resultOrder.reversed();
+        Collector<Worker, PriorityQueue<Worker>, PriorityQueue<Worker>> boundedHeap = Collector.of(
+                () -> new PriorityQueue<>(Math.min(k, 1024) + 1, worstFirst),
+                (heap, worker) -> offer(heap, worker, k, worstFirst),
+                (left, right) -> {
+                    right.forEach(worker -> offer(left, worker, k, worstFirst));
+                    return left;
+                });
+        PriorityQueue<Worker> heap = (all.size() >= QueryExecutor.PARALLEL_SCAN_THRESHOLD ? all.parallelStream() : all.stream())
+                .filter(worker -> field.extract(worker) != null)
+                .collect(boundedHeap);
+        List<Worker> result = new ArrayList<>(heap);
+        result.sort(resultOrder);
+        return result;
+    }
+
+    private static void offer(PriorityQueue<Worker> heap, Worker worker, int k, Comparator<Worker> worstFirst) {
+        if (heap.size() < k) {
+            heap.add(worker);
+        } else if (worstFirst.compare(worker, heap.peek()) > 0) {
+            heap.poll();
+            heap.add(worker);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Worker> resultOrder(WorkerField field) {
+        Comparator<Worker> byValueDescending = (a, b) -> ((Comparable) field.extract(b)).compareTo(field.extract(a));
+        return byValueDescending.thenComparing(Comparator.naturalOrder());
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.server.index;
+
+import org.example.common.model.Worker;
+
+/**
+ * Вторичная структура над коллекцией работников, которую {@link org.example.server.CollectionManager}
+ * поддерживает в актуальном состоянии при каждом изменении.
+ * <p>
+ * Изменение работника "на месте" оформляется как {@link #remove(Worker)} до изменения полей
+ * и {@link #add(Worker)} после, поэтому индекс может полагаться на то, что при удалении
+ * поля работника совпадают с теми, что были при добавлении.
+ */
+public interface WorkerIndex {
+    void add(Worker worker);
+
+    void remove(Worker worker);
+
+    void clear();
+}
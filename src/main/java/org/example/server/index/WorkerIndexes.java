@@ -0,0 +1,102 @@
+package org.example.server.index;
+
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Набор вторичных индексов коллекции. Все методы вызываются под блокировкой
+ * {@link org.example.server.CollectionManager}, поэтому сами индексы не синхронизированы.
+ */
+public class WorkerIndexes implements WorkerIndex {
+    private final NavigableMap<Long, Worker> byId = new TreeMap<>();
+    private final EnumIndex<Position> byPosition = new EnumIndex<>(Position.class, Worker::getPosition);
+    private final EnumIndex<OrganizationType> byOrganizationType =
+            new EnumIndex<>(OrganizationType.class, w -> w.getOrganization().getType());
+    private final RangeIndex<Long> bySalary = new RangeIndex<>(Worker::getSalary);
+    private final RangeIndex<Integer> byAnnualTurnover = new RangeIndex<>(w -> w.getOrganization().getAnnualTurnover());
+    private final NameIndex byName = new NameIndex();
+    private final IntervalIndex byEmploymentPeriod = new IntervalIndex();
+    private final RangeIndex<Instant> byEndDate =
+            new RangeIndex<>(w -> w.getEndDate() != null ? w.getEndDate().toInstant() : null);
+    private final List<WorkerIndex> indexes = new ArrayList<>(
+            List.of(byPosition, byOrganizationType, bySalary, byAnnualTurnover, byName, byEmploymentPeriod, byEndDate));
+
+    /**
+     * Подключает дополнительный индекс. Он должен быть пуст: текущее содержимое коллекции
+     * в него не переносится.
+     */
+    public void register(WorkerIndex index) {
+        indexes.add(index);
+    }
+
+    @Override
+    public void add(Worker worker) {
+        byId.put(worker.getId(), worker);
+        for (WorkerIndex index : indexes) {
+            index.add(worker);
+        }
+    }
+
+    @Override
+    public void remove(Worker worker) {
+        byId.remove(worker.getId());
+        for (WorkerIndex index : indexes) {
+            index.remove(worker);
+        }
+    }
+
+    @Override
+    public void clear() {
+        byId.clear();
+        for (WorkerIndex index : indexes) {
+            index.clear();
+        }
+    }
+
+    public Worker getById(Long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Работники, упорядоченные по ID (только для чтения).
+     */
+    public NavigableMap<Long, Worker> byId() {
+        return Collections.unmodifiableNavigableMap(byId);
+    }
+
+    public EnumIndex<Position> byPosition() {
+        return byPosition;
+    }
+
+    public EnumIndex<OrganizationType> byOrganizationType() {
+        return byOrganizationType;
+    }
+
+    public RangeIndex<Long> bySalary() {
+        return bySalary;
+    }
+
+    public RangeIndex<Integer> byAnnualTurnover() {
+        return byAnnualTurnover;
+    }
+
+    public NameIndex byName() {
+        return byName;
+    }
+
+    public IntervalIndex byEmploymentPeriod() {
+        return byEmploymentPeriod;
+    }
+
+    public RangeIndex<Instant> byEndDate() {
+        return byEndDate;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.server.util;
+
+import java.util.Arrays;
+
+/**
+ * Стабильные сортировки перестановки индексов по примитивным ключам без упаковки в объекты.
+ */
+public class RadixSort {
+
+    /**
+     * Стабильно сортирует перестановку {@code permutation} по беззнаковым 64-битным ключам
+     * {@code keys[permutation[i]]} (LSD, 8 проходов по байту; проходы, где все байты совпадают, пропускаются).
+     */
+    public static void sortByUnsignedKey(int[] permutation, long[] keys) {
+        int n = permutation.length;
+        int[] source = permutation;
+        int[] target = new int[n];
+        int[] counts = new int[257];
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[(int) ((keys[source[i]] >>> shift) & 0xFF) + 1]++;
+            }
+            if (isSingleBucket(counts, n)) {
+                continue;
+            }
+            for (int b = 0; b < 256; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for (int i = 0; i < n; i++) {
+                int element = source[i];
+                target[counts[(int) ((keys[element] >>> shift) & 0xFF)]++] = element;
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if (source != permutation) {
+            System.arraycopy(source, 0, permutation, 0, n);
+        }
+    }
+
+    /**
+     * Стабильно переносит в начало перестановки элементы, для которых {@code first[element]} истинно.
+     */
+    public static void stablePartition(int[] permutation, boolean[] first) {
+        int[] rest = new int[permutation.length];
+        int head = 0;
+        int tail = 0;
+        for (int element : permutation) {
+            if (first[element]) {
+                permutation[head++] = element;
+            } else {
+                rest[tail++] = element;
+            }
+        }
+        System.arraycopy(rest, 0, permutation, head, tail);
+    }
+
+    private static boolean isSingleBucket(int[] counts, int n) {
+        for (int b = 1; b <= 256; b++) {
+            if (counts[b] != 0) {
+                return counts[b] == n;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,195 @@
+package org.example.client;
+
+import org.example.common.model.User;
+import org.example.common.request.CommandRequest;
+import org.example.common.response.CommandResponse;
+import org.example.common.response.OperationOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NetworkManagerTest {
+    private final List<FakeServer> servers = new ArrayList<>();
+    private NetworkManager networkManager;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (networkManager != null) {
+            networkManager.closeConnection();
+        }
+        for (FakeServer server : servers) {
+            server.close();
+        }
+    }
+
+    private FakeServer start(Function<CommandRequest, CommandResponse> handler) throws IOException {
+        FakeServer server = new FakeServer(handler);
+        servers.add(server);
+        return server;
+    }
+
+    private static InetSocketAddress unusedAddress() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return InetSocketAddress.createUnresolved("localhost", socket.getLocalPort());
+        }
+    }
+
+    /**
+     * Сервер, который выдаёт свой токен при входе и принимает только его, как независимый узел.
+     */
+    private static Function<CommandRequest, CommandResponse> sessionServer(String name) {
+        String token = "token-" + name;
+        return request -> {
+            if ("login".equals(request.getCommandName())) {
+                User user = new User(1, request.getUsername(), null);
+                user.setSessionToken(token);
+                return new CommandResponse(true, "вход", user);
+            }
+            if (!token.equals(request.getSessionToken())) {
+                return new CommandResponse(OperationOutcome.UNAUTHORIZED, "нет сессии", null, null);
+            }
+            return new CommandResponse(true, name, null);
+        };
+    }
+
+    @Test
+    void readsAvoidUnreachableServer() throws IOException {
+        FakeServer live = start(request -> new CommandResponse(true, "ok", null));
+        InetSocketAddress dead = unusedAddress();
+        networkManager = new NetworkManager(List.of(dead, live.address()), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            Optional<CommandResponse> response = networkManager.sendRequest(new CommandRequest("show", null));
+            assertTrue(response.isPresent());
+            assertTrue(response.get().isSuccess());
+        }
+        String deadStatus = networkManager.getStatus().lines()
+                .filter(line -> line.startsWith(dead.getHostString() + ":" + dead.getPort()))
+                .findFirst()
+                .orElseThrow();
+        assertTrue(deadStatus.contains("исключён"), deadStatus);
+    }
+
+    @Test
+    void writeIsNotRepeatedAfterItReachedServer() throws IOException {
+        AtomicInteger received = new AtomicInteger();
+        FakeServer silent = start(request -> {
+            received.incrementAndGet();
+            throw new IllegalStateException("ответ не отправляется");
+        });
+        networkManager = new NetworkManager(List.of(silent.address()), Duration.ZERO);
+
+        assertTrue(networkManager.sendRequest(CommandRequest.withSession("clear", null, "t")).isEmpty());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void writeIsRetriedWhenNotForwarded() throws IOException {
+        FakeServer follower = start(request -> new CommandResponse(OperationOutcome.UNAVAILABLE, "нет ведущего", null, null));
+        FakeServer leader = start(request -> new CommandResponse(true, "leader", null));
+        networkManager = new NetworkManager(List.of(follower.address(), leader.address()), Duration.ZERO);
+
+        for (int i = 0; i < 10; i++) {
+            CommandResponse response = networkManager.sendRequest(CommandRequest.withSession("clear", null, "t")).orElseThrow();
+            assertTrue(response.isSuccess(), response.getMessage());
+        }
+    }
+
+    @Test
+    void writeWithUnknownOutcomeIsNotRetried() throws IOException {
+        AtomicInteger received = new AtomicInteger();
+        Function<CommandRequest, CommandResponse> follower = request -> {
+            received.incrementAndGet();
+            return new CommandResponse(OperationOutcome.OUTCOME_UNKNOWN, "нет ответа ведущего", null, null);
+        };
+        FakeServer a = start(follower);
+        FakeServer b = start(follower);
+        networkManager = new NetworkManager(List.of(a.address(), b.address()), Duration.ZERO);
+
+        CommandResponse response = networkManager.sendRequest(CommandRequest.withSession("clear", null, "t")).orElseThrow();
+        assertEquals(OperationOutcome.OUTCOME_UNKNOWN, response.getOutcome());
+        assertEquals(1, received.get());
+    }
+
+    @Test
+    void unknownSessionIsRetriedOnIssuingServer() throws IOException {
+        FakeServer a = start(sessionServer("a"));
+        FakeServer b = start(sessionServer("b"));
+        networkManager = new NetworkManager(List.of(a.address(), b.address()), Duration.ZERO);
+
+        CommandResponse login = networkManager.sendRequest(new CommandRequest("login", null, "user", "password")).orElseThrow();
+        String token = ((User) login.getResultData()).getSessionToken();
+        String issuer = token.substring("token-".length());
+        for (int i = 0; i < 20; i++) {
+            CommandResponse response = networkManager.sendRequest(CommandRequest.withSession("show", null, token)).orElseThrow();
+            assertTrue(response.isSuccess(), response.getMessage());
+            assertEquals(issuer, response.getMessage());
+        }
+    }
+
+    @Test
+    void unauthorizedFromIssuerIsReturned() throws IOException {
+        FakeServer a = start(sessionServer("a"));
+        networkManager = new NetworkManager(List.of(a.address()), Duration.ZERO);
+
+        CommandResponse response = networkManager.sendRequest(CommandRequest.withSession("show", null, "expired")).orElseThrow();
+        assertEquals(OperationOutcome.UNAUTHORIZED, response.getOutcome());
+    }
+
+    /**
+     * Сервер на локальном порту, отвечающий на каждое соединение одним ответом {@code handler}.
+     * Если обработчик бросает исключение, соединение закрывается без ответа.
+     */
+    private static final class FakeServer implements AutoCloseable {
+        private final ServerSocket socket = new ServerSocket(0);
+        private final Function<CommandRequest, CommandResponse> handler;
+
+        private FakeServer(Function<CommandRequest, CommandResponse> handler) throws IOException {
+            this.handler = handler;
+            Thread thread = new Thread(this::serve, "FakeServer-" + socket.getLocalPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private InetSocketAddress address() {
+            return InetSocketAddress.createUnresolved("localhost", socket.getLocalPort());
+        }
+
+        private void serve() {
+            while (!socket.isClosed()) {
+                try (Socket connection = socket.accept()) {
+                    ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(connection.getInputStream()));
+                    CommandRequest request = (CommandRequest) in.readObject();
+                    CommandResponse response = "ping".equals(request.getCommandName())
+                            ? new CommandResponse(true, "pong", null) : handler.apply(request);
+                    ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                    out.writeObject(response);
+                    out.flush();
+                } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                    // Соединение закрывается без ответа.
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
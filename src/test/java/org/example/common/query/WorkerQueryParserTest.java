@@ -0,0 +1,113 @@
+package org.example.common.query;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerQueryParserTest {
+
+    private static Worker worker(String name, Long salary, Position position) {
+        return new Worker(1L, name, new Coordinates(1.0f, 2.0), LocalDate.of(2024, 1, 1), salary,
+                LocalDateTime.of(2024, 1, 1, 9, 0), null, position, new Organization(1000, OrganizationType.PUBLIC));
+    }
+
+    @Test
+    void parsesSingleCondition() {
+        WorkerPredicate predicate = WorkerQueryParser.parse("salary >= 1000");
+        assertEquals(new FieldCondition(WorkerField.SALARY, ComparisonOperator.GE, 1000L), predicate);
+    }
+
+    @Test
+    void andBindsTighterThanOr() {
+        WorkerPredicate predicate = WorkerQueryParser.parse("name = A or name = B and salary > 10");
+        OrPredicate or = assertInstanceOf(OrPredicate.class, predicate);
+        assertEquals(2, or.getOperands().size());
+        assertEquals(new FieldCondition(WorkerField.NAME, ComparisonOperator.EQ, "A"), or.getOperands().get(0));
+        AndPredicate and = assertInstanceOf(AndPredicate.class, or.getOperands().get(1));
+        assertEquals(List.of(new FieldCondition(WorkerField.NAME, ComparisonOperator.EQ, "B"),
+                new FieldCondition(WorkerField.SALARY, ComparisonOperator.GT, 10L)), and.getOperands());
+    }
+
+    @Test
+    void parenthesesOverridePrecedence() {
+        WorkerPredicate predicate = WorkerQueryParser.parse("(name = A or name = B) and salary > 10");
+        AndPredicate and = assertInstanceOf(AndPredicate.class, predicate);
+        assertInstanceOf(OrPredicate.class, and.getOperands().get(0));
+
+        assertTrue(predicate.test(worker("B", 20L, null)));
+        assertFalse(predicate.test(worker("B", 5L, null)));
+        assertFalse(predicate.test(worker("C", 20L, null)));
+    }
+
+    @Test
+    void keywordsAreCaseInsensitive() {
+        WorkerPredicate predicate = WorkerQueryParser.parse("salary > 1 AND salary < 3 Or salary = 10");
+        assertTrue(predicate.test(worker("A", 2L, null)));
+        assertTrue(predicate.test(worker("A", 10L, null)));
+        assertFalse(predicate.test(worker("A", 5L, null)));
+    }
+
+    @Test
+    void operatorsNeedNoSurroundingSpaces() {
+        assertEquals(new FieldCondition(WorkerField.SALARY, ComparisonOperator.NE, 5L), WorkerQueryParser.parse("salary!=5"));
+        assertEquals(new FieldCondition(WorkerField.NAME, ComparisonOperator.PREFIX, "Ив"), WorkerQueryParser.parse("name^=Ив"));
+    }
+
+    @Test
+    void quotedValueKeepsSpacesAndKeywords() {
+        WorkerPredicate predicate = WorkerQueryParser.parse("name = \"Anna and Bob\" or name = 'x or y'");
+        OrPredicate or = assertInstanceOf(OrPredicate.class, predicate);
+        assertEquals(new FieldCondition(WorkerField.NAME, ComparisonOperator.EQ, "Anna and Bob"), or.getOperands().get(0));
+        assertEquals(new FieldCondition(WorkerField.NAME, ComparisonOperator.EQ, "x or y"), or.getOperands().get(1));
+    }
+
+    @Test
+    void quotedNullNameIsString() {
+        assertEquals(new FieldCondition(WorkerField.NAME, ComparisonOperator.EQ, "null"), WorkerQueryParser.parse("name = \"null\""));
+        assertEquals(new FieldCondition(WorkerField.SALARY, ComparisonOperator.EQ, null), WorkerQueryParser.parse("salary = null"));
+    }
+
+    @Test
+    void nullMatchesOnlyEqualityOperators() {
+        Worker withoutSalary = worker("A", null, null);
+        assertTrue(WorkerQueryParser.parse("salary = null").test(withoutSalary));
+        assertFalse(WorkerQueryParser.parse("salary != null").test(withoutSalary));
+        assertFalse(WorkerQueryParser.parse("salary > 0").test(withoutSalary));
+        assertFalse(WorkerQueryParser.parse("salary < 0").test(withoutSalary));
+    }
+
+    @Test
+    void enumAndDateValuesAreTyped() {
+        assertEquals(new FieldCondition(WorkerField.POSITION, ComparisonOperator.EQ, Position.DIRECTOR),
+                WorkerQueryParser.parse("position = director"));
+        assertEquals(new FieldCondition(WorkerField.END_DATE, ComparisonOperator.LT,
+                        ZonedDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC).toInstant()),
+                WorkerQueryParser.parse("end_date < 2024-01-01T03:00+03:00"));
+    }
+
+    @Test
+    void rejectsMalformedConditions() {
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("   "));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("salary >"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("(salary > 1"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("salary > 1)"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("salary > 1 salary"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("name = \"open"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("height > 1"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("salary => 1"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("salary > many"));
+        assertThrows(IllegalArgumentException.class, () -> WorkerQueryParser.parse("position = janitor"));
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.server;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Два узла с общей БД PostgreSQL: изменения одного узла доходят до коллекции другого через
+ * {@link ChangeFeedListener}. Нужна отдельная тестовая БД: PG_TEST_URL (например
+ * jdbc:postgresql://localhost/workers_test), PG_TEST_USER и PG_TEST_PASSWORD. Тест создаёт
+ * в ней таблицы, своего пользователя и работников и удаляет работников в конце.
+ */
+@EnabledIfEnvironmentVariable(named = "PG_TEST_URL", matches = ".+")
+class ChangeFeedIntegrationTest {
+    private static final long TIMEOUT_MILLIS = 15_000;
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    private DatabaseManager node(String nodeId) {
+        ConnectionPool pool = new ConnectionPool(System.getenv("PG_TEST_URL"), System.getenv("PG_TEST_USER"),
+                Optional.ofNullable(System.getenv("PG_TEST_PASSWORD")).orElse(""));
+        pool.setNodeId(nodeId);
+        DatabaseManager databaseManager = new DatabaseManager(pool);
+        resources.add(databaseManager);
+        return databaseManager;
+    }
+
+    private static Worker worker(String name, long salary) {
+        return new Worker(name, new Coordinates(1f, 2.0), salary, LocalDateTime.of(2024, 1, 1, 9, 0), null,
+                Position.COOK, new Organization(100, OrganizationType.PUBLIC));
+    }
+
+    private static Optional<Worker> find(CollectionManager manager, String name) {
+        return manager.getDescendingById().stream().filter(worker -> worker.getName().equals(name)).findFirst();
+    }
+
+    private static Optional<Worker> findById(CollectionManager manager, long id) {
+        return manager.getDescendingById().stream().filter(worker -> worker.getId() == id).findFirst();
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void changesOfOneNodeReachTheOther() throws Exception {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        DatabaseManager nodeA = node("feed-test-a-" + suffix);
+        DatabaseManager nodeB = node("feed-test-b-" + suffix);
+        ChangeFeedListener feedB = new ChangeFeedListener(nodeB, "feed-test-b-" + suffix);
+        feedB.listen();
+        resources.add(feedB);
+        CollectionManager managerA = new CollectionManager(nodeA);
+        CollectionManager managerB = new CollectionManager(nodeB);
+        feedB.start(managerB);
+
+        int userId = nodeA.registerUser("feed-test-" + suffix, "password").orElseThrow().getId();
+        try {
+            String name = "feed-" + suffix;
+            assertTrue(managerA.addWorker(worker(name, 100), userId).isSuccess());
+            long id = find(managerA, name).orElseThrow().getId();
+            await(() -> findById(managerB, id).isPresent(), "добавление не дошло до второго узла");
+
+            assertTrue(managerA.updateWorker(id, worker(name + "-updated", 200), userId).isSuccess());
+            await(() -> findById(managerB, id).map(worker -> worker.getSalary() == 200L).orElse(false),
+                    "изменение не дошло до второго узла");
+            assertEquals(name + "-updated", findById(managerB, id).orElseThrow().getName());
+
+            assertTrue(managerA.removeWorkerById(id, userId).isSuccess());
+            await(() -> findById(managerB, id).isEmpty(), "удаление не дошло до второго узла");
+
+            // Граница снимка второго узла доходит до изменений первого, когда лента их применила.
+            long watermark = nodeA.getChangeWatermark();
+            await(() -> feedB.getAppliedWatermark() >= watermark, "граница применённых изменений не продвинулась");
+        } finally {
+            managerA.clear(userId);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package org.example.server;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.common.query.WorkerPatch;
+import org.example.common.query.WorkerPredicate;
+import org.example.common.response.OperationOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Восстановление коллекции из снимка с догрузкой из журнала и хранилища.
+ */
+class CollectionManagerSnapshotTest {
+    private static final int USER_ID = 1;
+
+    @TempDir
+    Path dir;
+
+    private final ChangeTrackingStorage storage = new ChangeTrackingStorage();
+
+    private static Worker worker(String name, long salary) {
+        return new Worker(name, new Coordinates(1f, 2.0), salary, LocalDateTime.of(2024, 1, 1, 9, 0), null,
+                Position.COOK, new Organization(100, OrganizationType.PUBLIC));
+    }
+
+    private CollectionSnapshot snapshot() {
+        return new CollectionSnapshot(dir.resolve("collection.snapshot"));
+    }
+
+    private WriteAheadLog wal() throws IOException {
+        return new WriteAheadLog(dir.resolve("wal"), WriteAheadLog.DEFAULT_SEGMENT_BYTES, 0, WriteAheadLog.DEFAULT_COMPACTION_BYTES);
+    }
+
+    /**
+     * Коллекция со снимком работников 1-3, работником 4 после снимка (есть в журнале и в хранилище)
+     * и изменениями 2 и 3 в хранилище в обход коллекции, как от другого узла.
+     */
+    private void prepareSnapshotAndLaterChanges() throws IOException {
+        try (WriteAheadLog wal = wal()) {
+            CollectionManager manager = new CollectionManager(storage, snapshot(), wal);
+            for (int i = 1; i <= 3; i++) {
+                assertTrue(manager.addWorker(worker("w" + i, i * 100L), USER_ID).isSuccess());
+            }
+            assertTrue(manager.saveSnapshot().isSuccess());
+            assertTrue(manager.addWorker(worker("w4", 400), USER_ID).isSuccess());
+        }
+        Worker renamed = storage.get(2);
+        renamed.setName("renamed");
+        storage.updateWorker(renamed, USER_ID);
+        storage.deleteWorker(3, USER_ID);
+    }
+
+    private void assertSameAsStorage(CollectionManager manager) {
+        List<Worker> expected = new ArrayList<>(storage.all());
+        expected.sort(Comparator.reverseOrder());
+        assertEquals(expected, manager.getDescendingById());
+    }
+
+    @Test
+    void restoresSnapshotAndCatchesUp() throws IOException {
+        prepareSnapshotAndLaterChanges();
+        try (WriteAheadLog wal = wal()) {
+            CollectionManager restored = new CollectionManager(storage, snapshot(), wal);
+            assertEquals(1, storage.fullLoads, "коллекция должна загрузиться из снимка, а не из хранилища");
+            assertSameAsStorage(restored);
+            assertEquals(List.of(4L, 2L, 1L), restored.getDescendingById().stream().map(Worker::getId).toList());
+            assertEquals("renamed", restored.getDescendingById().get(1).getName());
+            // Журнал продолжается после восстановления.
+            assertTrue(restored.addWorker(worker("w5", 500), USER_ID).isSuccess());
+            assertEquals(5, wal.getLastLsn());
+        }
+    }
+
+    @Test
+    void snapshotPrunesDeletionsUpToItsWatermark() throws IOException {
+        prepareSnapshotAndLaterChanges();
+        assertEquals(3, storage.prunedUpTo);
+    }
+
+    @Test
+    void loadsFromStorageWhenDeletionsAreNoLongerRetained() throws IOException {
+        prepareSnapshotAndLaterChanges();
+        storage.historyRetained = false;
+        try (WriteAheadLog wal = wal()) {
+            CollectionManager restored = new CollectionManager(storage, snapshot(), wal);
+            assertEquals(2, storage.fullLoads);
+            assertSameAsStorage(restored);
+        }
+    }
+
+    @Test
+    void loadsFromStorageWhenSnapshotIsCorrupted() throws IOException {
+        prepareSnapshotAndLaterChanges();
+        Path file = snapshot().getPath();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        try (WriteAheadLog wal = wal()) {
+            CollectionManager restored = new CollectionManager(storage, snapshot(), wal);
+            assertEquals(2, storage.fullLoads);
+            assertSameAsStorage(restored);
+        }
+    }
+
+    @Test
+    void loadsFromStorageWhenSnapshotIsNewerThanStorage() throws IOException {
+        prepareSnapshotAndLaterChanges();
+        ChangeTrackingStorage other = new ChangeTrackingStorage();
+        other.addWorker(worker("only", 1), USER_ID);
+        try (WriteAheadLog wal = wal()) {
+            CollectionManager restored = new CollectionManager(other, snapshot(), wal);
+            assertEquals(1, other.fullLoads);
+            assertEquals(List.of("only"), restored.getDescendingById().stream().map(Worker::getName).toList());
+        }
+    }
+
+    @Test
+    void readsDoNotWaitForStorageWrite() throws Exception {
+        CollectionManager manager = new CollectionManager(storage);
+        storage.writeStarted = new CountDownLatch(1);
+        storage.writeGate = new CountDownLatch(1);
+        Thread writer = new Thread(() -> manager.addWorker(worker("slow", 1), USER_ID));
+        writer.start();
+        assertTrue(storage.writeStarted.await(5, TimeUnit.SECONDS));
+
+        long version = CompletableFuture.supplyAsync(manager::getVersion).get(5, TimeUnit.SECONDS);
+        assertEquals(0, manager.getDescendingById().size());
+
+        storage.writeGate.countDown();
+        writer.join(5000);
+        assertEquals(version + 1, manager.getVersion());
+        assertSameAsStorage(manager);
+    }
+
+    /**
+     * Хранилище в памяти, которое нумерует изменения так же, как БД для снимков.
+     */
+    private static final class ChangeTrackingStorage implements Storage {
+        private final TreeMap<Long, Worker> workers = new TreeMap<>();
+        private final TreeMap<Long, Long> changedAt = new TreeMap<>();
+        private final List<long[]> deletions = new ArrayList<>();
+        private long changeSeq;
+        private long nextId = 1;
+        private int fullLoads;
+        private long prunedUpTo = -1;
+        private boolean historyRetained = true;
+        // Если заданы, addWorker сообщает о начале записи и ждёт разрешения её закончить.
+        private volatile CountDownLatch writeStarted;
+        private volatile CountDownLatch writeGate;
+
+        private static Worker copy(Worker worker) {
+            Worker copy = new Worker(worker.getId(), worker.getName(), new Coordinates(worker.getCoordinates().getX(),
+                    worker.getCoordinates().getY()), worker.getCreationDate(), worker.getSalary(), worker.getStartDate(),
+                    worker.getEndDate(), worker.getPosition(), new Organization(worker.getOrganization().getAnnualTurnover(),
+                    worker.getOrganization().getType()));
+            copy.setOwnerId(worker.getOwnerId());
+            return copy;
+        }
+
+        Worker get(long id) {
+            return copy(workers.get(id));
+        }
+
+        List<Worker> all() {
+            return workers.values().stream().map(ChangeTrackingStorage::copy).toList();
+        }
+
+        @Override
+        public Worker addWorker(Worker worker, int userId) {
+            if (writeGate != null) {
+                writeStarted.countDown();
+                try {
+                    writeGate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            Worker stored = copy(worker);
+            stored.setId(nextId++);
+            stored.setOwnerId(userId);
+            if (stored.getCreationDate() == null) {
+                stored.setCreationDate(LocalDate.of(2024, 1, 1));
+            }
+            workers.put(stored.getId(), stored);
+            changedAt.put(stored.getId(), ++changeSeq);
+            return copy(stored);
+        }
+
+        @Override
+        public List<Worker> addWorkers(List<Worker> newWorkers, int userId) {
+            return newWorkers.stream().map(worker -> addWorker(worker, userId)).toList();
+        }
+
+        @Override
+        public OperationOutcome updateWorker(Worker worker, int userId) {
+            Worker existing = workers.get(worker.getId());
+            if (existing == null) {
+                return OperationOutcome.NOT_FOUND;
+            }
+            if (existing.getOwnerId() != userId) {
+                return OperationOutcome.NOT_OWNER;
+            }
+            workers.put(worker.getId(), copy(worker));
+            changedAt.put(worker.getId(), ++changeSeq);
+            return OperationOutcome.SUCCESS;
+        }
+
+        @Override
+        public OperationOutcome deleteWorker(long workerId, int userId) {
+            Worker existing = workers.get(workerId);
+            if (existing == null) {
+                return OperationOutcome.NOT_FOUND;
+            }
+            if (existing.getOwnerId() != userId) {
+                return OperationOutcome.NOT_OWNER;
+            }
+            workers.remove(workerId);
+            changedAt.remove(workerId);
+            deletions.add(new long[]{workerId, ++changeSeq});
+            return OperationOutcome.SUCCESS;
+        }
+
+        @Override
+        public List<Long> clearWorkersByUserId(int userId) {
+            return deleteWorkersWhere(worker -> true, userId);
+        }
+
+        @Override
+        public List<Long> deleteWorkersWhere(WorkerPredicate predicate, int userId) {
+            List<Long> ids = workers.values().stream()
+                    .filter(worker -> worker.getOwnerId() == userId && predicate.test(worker))
+                    .map(Worker::getId)
+                    .toList();
+            ids.forEach(id -> deleteWorker(id, userId));
+            return ids;
+        }
+
+        @Override
+        public List<Worker> updateWorkersWhere(WorkerPredicate predicate, WorkerPatch patch, int userId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long loadAllWorkers(Consumer<Worker> sink) {
+            fullLoads++;
+            workers.values().forEach(worker -> sink.accept(copy(worker)));
+            return workers.size();
+        }
+
+        @Override
+        public long getChangeWatermark() {
+            return changeSeq;
+        }
+
+        @Override
+        public List<Worker> loadWorkersChangedSince(long since) {
+            return changedAt.entrySet().stream()
+                    .filter(entry -> entry.getValue() > since)
+                    .map(entry -> copy(workers.get(entry.getKey())))
+                    .toList();
+        }
+
+        @Override
+        public List<Long> loadWorkerIdsDeletedSince(long since) {
+            return deletions.stream().filter(deletion -> deletion[1] > since).map(deletion -> deletion[0]).toList();
+        }
+
+        @Override
+        public void pruneWorkerDeletions(long upTo) {
+            prunedUpTo = upTo;
+            deletions.removeIf(deletion -> deletion[1] <= upTo);
+        }
+
+        @Override
+        public boolean isChangeHistoryRetained(long since) {
+            return historyRetained;
+        }
+
+        @Override
+        public Optional<User> registerUser(String username, String plainPassword) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Optional<User> getUserByUsername(String username) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String describe() {
+            return "в памяти";
+        }
+
+        @Override
+        public String getStatistics() {
+            return "";
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.server;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.User;
+import org.example.common.model.Worker;
+import org.example.common.request.CommandRequest;
+import org.example.common.response.OperationOutcome;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ведущий и ведомый на локальных портах: начальный снимок, поток изменений, сессии и пересылка команд.
+ */
+class ReplicationTest {
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    Path dir;
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+    private EmbeddedStorage storage;
+    private int userId;
+    private CollectionManager leader;
+    private SessionManager leaderSessions;
+    private int replicationPort;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) {
+            resources.get(i).close();
+        }
+    }
+
+    private static Worker worker(String name, long salary) {
+        return new Worker(name, new Coordinates(1f, 2.0), salary, LocalDateTime.of(2024, 1, 1, 9, 0), null,
+                Position.COOK, new Organization(100, OrganizationType.PUBLIC));
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void await(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(message);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static List<String> contents(CollectionManager manager) {
+        return manager.getDescendingById().stream()
+                .map(worker -> worker.getId() + ":" + worker.getName() + ":" + worker.getSalary() + ":" + worker.getOwnerId())
+                .toList();
+    }
+
+    private void startLeader(Duration sessionTtl) throws IOException {
+        storage = new EmbeddedStorage(dir.resolve("leader"));
+        resources.add(storage);
+        userId = storage.registerUser("user", "password").orElseThrow().getId();
+        leader = new CollectionManager(storage);
+        leaderSessions = new SessionManager(sessionTtl);
+        replicationPort = unusedPort();
+        ReplicationLeader replication = new ReplicationLeader(leader, leaderSessions, replicationPort);
+        replication.start();
+        resources.add(replication);
+    }
+
+    private ReplicationFollower startFollower(CollectionManager replica, SessionManager sessions, int leaderPort) {
+        ReplicationFollower follower = new ReplicationFollower("localhost", replicationPort, leaderPort, replica, sessions);
+        resources.add(follower);
+        follower.start();
+        return follower;
+    }
+
+    private void awaitSameAsLeader(CollectionManager replica) throws InterruptedException {
+        await(() -> replica.getVersionToken().equals(leader.getVersionToken()), "реплика не догнала ведущего");
+        assertEquals(contents(leader), contents(replica));
+    }
+
+    @Test
+    void followerBootstrapsFromSnapshotAndStreamsChanges() throws Exception {
+        startLeader(SessionManager.DEFAULT_TTL);
+        for (int i = 1; i <= 3; i++) {
+            assertTrue(leader.addWorker(worker("w" + i, i * 100L), userId).isSuccess());
+        }
+        String token = leaderSessions.createSession(new User(userId, "user", null));
+
+        CollectionManager replica = CollectionManager.replica();
+        SessionManager followerSessions = new SessionManager();
+        ReplicationFollower follower = startFollower(replica, followerSessions, unusedPort());
+        await(follower::isReady, "ведомый не получил снимок");
+        awaitSameAsLeader(replica);
+        await(() -> followerSessions.validate(token).isPresent(), "ведомый не получил сессию");
+
+        assertTrue(leader.addWorker(worker("w4", 400), userId).isSuccess());
+        assertTrue(leader.updateWorker(2L, worker("w2-updated", 250), userId).isSuccess());
+        assertTrue(leader.removeWorkerById(1L, userId).isSuccess());
+        awaitSameAsLeader(replica);
+        assertEquals(List.of("4:w4:400:" + userId, "3:w3:300:" + userId, "2:w2-updated:250:" + userId), contents(replica));
+
+        assertTrue(leaderSessions.revoke(token));
+        await(() -> followerSessions.validate(token).isEmpty(), "ведомый не отозвал сессию");
+    }
+
+    @Test
+    void sessionsUsedOnFollowerStayAliveOnLeader() throws Exception {
+        startLeader(Duration.ofMillis(1500));
+        String token = leaderSessions.createSession(new User(userId, "user", null));
+        SessionManager followerSessions = new SessionManager();
+        ReplicationFollower follower = startFollower(CollectionManager.replica(), followerSessions, unusedPort());
+        await(follower::isReady, "ведомый не получил снимок");
+        await(() -> followerSessions.validate(token).isPresent(), "ведомый не получил сессию");
+
+        // Дольше срока жизни сессии на ведущем: её продлевают только отчёты ведомого.
+        long until = System.currentTimeMillis() + 4000;
+        while (System.currentTimeMillis() < until) {
+            assertTrue(followerSessions.validate(token).isPresent());
+            Thread.sleep(100);
+        }
+        assertTrue(leaderSessions.validate(token).isPresent());
+    }
+
+    @Test
+    void forwardReportsWhetherLeaderReceivedCommand() throws Exception {
+        startLeader(SessionManager.DEFAULT_TTL);
+        CommandRequest request = CommandRequest.withSession("clear", null, "token");
+
+        ReplicationFollower unreachable = startFollower(CollectionManager.replica(), new SessionManager(), unusedPort());
+        assertEquals(OperationOutcome.UNAVAILABLE, unreachable.forward(request).getOutcome());
+
+        // Ведущий, который читает команду и закрывает соединение без ответа.
+        try (ServerSocket silentLeader = new ServerSocket(0)) {
+            Thread acceptor = new Thread(() -> {
+                try (Socket socket = silentLeader.accept()) {
+                    new ObjectInputStream(socket.getInputStream()).readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    // Тест проверит ответ ведомого.
+                }
+            });
+            acceptor.start();
+            ReplicationFollower follower = startFollower(CollectionManager.replica(), new SessionManager(),
+                    silentLeader.getLocalPort());
+            assertEquals(OperationOutcome.OUTCOME_UNKNOWN, follower.forward(request).getOutcome());
+            acceptor.join(TIMEOUT_MILLIS);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.server;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+    @TempDir
+    Path dir;
+
+    private static Worker worker(long id) {
+        // Дата окончания в UTC: кодек хранит её как момент времени, без часового пояса.
+        Worker worker = new Worker(id, "worker " + id, new Coordinates(1.5f, -3.25), LocalDate.of(2024, 2, 29), id * 100,
+                LocalDateTime.of(2024, 3, 1, 9, 30), ZonedDateTime.of(2025, 1, 1, 18, 0, 0, 0, ZoneOffset.UTC),
+                Position.BAKER, new Organization(5000, OrganizationType.TRUST));
+        worker.setOwnerId(7);
+        return worker;
+    }
+
+    private WriteAheadLog open(long segmentBytes) throws IOException {
+        return new WriteAheadLog(dir, segmentBytes, 0, WriteAheadLog.DEFAULT_COMPACTION_BYTES);
+    }
+
+    private static List<WalRecord> replay(WriteAheadLog wal, long afterLsn) throws IOException {
+        List<WalRecord> records = new ArrayList<>();
+        wal.replay(afterLsn, records::add);
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void replaysRecordsAfterReopen() throws IOException {
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(1, wal.append(WalRecord.add(worker(1))));
+            assertEquals(2, wal.append(WalRecord.update(List.of(worker(1), worker(2)))));
+            assertEquals(3, wal.append(WalRecord.remove(List.of(2L, 3L))));
+            assertEquals(4, wal.append(WalRecord.clear(7, List.of(1L))));
+            assertEquals(4, wal.getDurableLsn());
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(4, wal.getLastLsn());
+            List<WalRecord> records = replay(wal, 0);
+            assertEquals(4, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals(i + 1, records.get(i).getLsn());
+            }
+            assertEquals(WalRecord.Type.ADD, records.get(0).getType());
+            assertEquals(7, records.get(0).getOwnerId());
+            assertEquals(List.of(worker(1)), records.get(0).getWorkers());
+            assertEquals(List.of(worker(1), worker(2)), records.get(1).getWorkers());
+            assertEquals(WalRecord.Type.REMOVE, records.get(2).getType());
+            assertEquals(List.of(2L, 3L), records.get(2).getIds());
+            assertEquals(WalRecord.Type.CLEAR, records.get(3).getType());
+            assertEquals(List.of(1L), records.get(3).getIds());
+
+            assertEquals(List.of(4L), replay(wal, 3).stream().map(WalRecord::getLsn).toList());
+            assertTrue(replay(wal, 4).isEmpty());
+            assertEquals(5, wal.append(WalRecord.remove(List.of(9L))));
+        }
+    }
+
+    @Test
+    void discardsTornTailOnRecovery() throws IOException {
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            wal.append(WalRecord.add(worker(1)));
+            wal.append(WalRecord.add(worker(2)));
+            wal.append(WalRecord.add(worker(3)));
+        }
+        Path segment = segments().get(segments().size() - 1);
+        long size = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(2, wal.getLastLsn());
+            assertEquals(3, wal.append(WalRecord.add(worker(4))));
+            List<WalRecord> records = replay(wal, 0);
+            assertEquals(List.of(1L, 2L, 3L), records.stream().map(WalRecord::getLsn).toList());
+            assertEquals(List.of(worker(4)), records.get(2).getWorkers());
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(3, wal.getLastLsn());
+        }
+    }
+
+    @Test
+    void stopsAtCorruptedRecord() throws IOException {
+        long secondRecordOffset;
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            wal.append(WalRecord.remove(List.of(1L)));
+            secondRecordOffset = Files.size(segments().get(0));
+            wal.append(WalRecord.remove(List.of(2L)));
+            wal.append(WalRecord.remove(List.of(3L)));
+        }
+        // Порча одного байта данных второй записи: CRC не сойдётся, хвост после неё отбрасывается.
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), secondRecordOffset + 20);
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(1, wal.getLastLsn());
+            assertEquals(List.of(1L), replay(wal, 0).stream().flatMap(record -> record.getIds().stream()).toList());
+        }
+    }
+
+    @Test
+    void rotatesSegmentsAndCompactsCoveredOnes() throws IOException {
+        try (WriteAheadLog wal = open(64)) {
+            for (long id = 1; id <= 10; id++) {
+                wal.append(WalRecord.remove(List.of(id, id + 100)));
+            }
+            int before = segments().size();
+            assertTrue(before > 1);
+            assertEquals(10, replay(wal, 0).size());
+
+            int removed = wal.compact(6);
+            assertTrue(removed > 0);
+            assertEquals(before - removed, segments().size());
+            assertEquals(List.of(7L, 8L, 9L, 10L), replay(wal, 6).stream().map(WalRecord::getLsn).toList());
+            assertThrows(IOException.class, () -> replay(wal, 0));
+        }
+        try (WriteAheadLog wal = open(64)) {
+            assertEquals(10, wal.getLastLsn());
+            assertEquals(11, wal.append(WalRecord.remove(List.of(11L))));
+        }
+    }
+
+    @Test
+    void skipToContinuesNumbering() throws IOException {
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            wal.append(WalRecord.remove(List.of(1L)));
+            wal.skipTo(100);
+            assertEquals(101, wal.append(WalRecord.remove(List.of(2L))));
+            wal.skipTo(50);
+            assertEquals(102, wal.append(WalRecord.remove(List.of(3L))));
+            assertEquals(List.of(101L, 102L), replay(wal, 100).stream().map(WalRecord::getLsn).toList());
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(102, wal.getLastLsn());
+        }
+    }
+
+    @Test
+    void bufferedRecordsAreReplayedAndSyncedOnClose() throws IOException {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.DEFAULT_SEGMENT_BYTES, 60_000,
+                WriteAheadLog.DEFAULT_COMPACTION_BYTES)) {
+            wal.append(WalRecord.add(worker(1)));
+            wal.append(WalRecord.add(worker(2)));
+            assertEquals(2, replay(wal, 0).size());
+            wal.sync();
+            assertEquals(2, wal.getDurableLsn());
+            wal.append(WalRecord.add(worker(3)));
+        }
+        try (WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(3, wal.getLastLsn());
+        }
+    }
+
+    @Test
+    void awaitDurableWaitsForBackgroundSync() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(dir, WriteAheadLog.DEFAULT_SEGMENT_BYTES, 5,
+                WriteAheadLog.DEFAULT_COMPACTION_BYTES)) {
+            List<Thread> writers = new ArrayList<>();
+            List<Throwable> errors = new CopyOnWriteArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                long id = i;
+                Thread writer = new Thread(() -> {
+                    try {
+                        long lsn = wal.append(WalRecord.add(worker(id)));
+                        wal.awaitDurable(lsn);
+                        assertTrue(wal.getDurableLsn() >= lsn);
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join(5000);
+            }
+            assertEquals(List.of(), errors);
+            assertEquals(4, wal.getDurableLsn());
+        }
+    }
+
+    @Test
+    void awaitDurableFailsAfterClose() throws IOException {
+        WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES);
+        wal.close();
+        assertThrows(IOException.class, () -> wal.awaitDurable(1));
+    }
+
+    @Test
+    void rejectsAppendAfterClose() throws IOException {
+        WriteAheadLog wal = open(WriteAheadLog.DEFAULT_SEGMENT_BYTES);
+        wal.close();
+        assertThrows(IOException.class, () -> wal.append(WalRecord.remove(List.of(1L))));
+    }
+}
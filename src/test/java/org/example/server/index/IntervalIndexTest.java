@@ -0,0 +1,105 @@
+package org.example.server.index;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Worker;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalIndexTest {
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    private static Worker worker(long id, int startDay, Integer endDay) {
+        ZonedDateTime end = endDay == null ? null : EPOCH.plusDays(endDay).atZone(ZoneOffset.UTC);
+        return new Worker(id, "w" + id, new Coordinates(0f, 0.0), LocalDate.of(2020, 1, 1), null, EPOCH.plusDays(startDay),
+                end, null, new Organization(null, OrganizationType.PUBLIC));
+    }
+
+    private static Instant day(int day) {
+        return EPOCH.plusDays(day).toInstant(ZoneOffset.UTC);
+    }
+
+    private static Instant end(Worker worker) {
+        return worker.getEndDate() != null ? worker.getEndDate().toInstant() : Instant.MAX;
+    }
+
+    private static Instant low(Worker worker) {
+        Instant start = worker.getStartDate().toInstant(ZoneOffset.UTC);
+        return end(worker).isBefore(start) ? end(worker) : start;
+    }
+
+    /**
+     * Перебор всех работников по тем же правилам, что описаны у индекса.
+     */
+    private static List<Worker> expected(List<Worker> workers, Instant from, Instant to) {
+        return workers.stream()
+                .filter(worker -> !low(worker).isAfter(to) && !end(worker).isBefore(from))
+                .sorted(Comparator.comparing(IntervalIndexTest::low).thenComparing(Worker::getId))
+                .toList();
+    }
+
+    @Test
+    void boundsAreInclusive() {
+        IntervalIndex index = new IntervalIndex();
+        Worker closed = worker(1, 10, 20);
+        Worker open = worker(2, 15, null);
+        index.add(closed);
+        index.add(open);
+
+        assertEquals(List.of(closed), index.at(day(10)));
+        assertEquals(List.of(closed, open), index.at(day(20)));
+        assertEquals(List.of(open), index.at(day(21)));
+        assertEquals(List.of(), index.at(day(9)));
+        assertEquals(List.of(closed), index.overlapping(day(0), day(10)));
+        assertEquals(List.of(open), index.overlapping(day(1000), day(2000)));
+    }
+
+    @Test
+    void endBeforeStartIsSinglePoint() {
+        IntervalIndex index = new IntervalIndex();
+        Worker inverted = worker(1, 30, 5);
+        index.add(inverted);
+        assertEquals(List.of(inverted), index.at(day(5)));
+        assertEquals(List.of(), index.at(day(6)));
+        assertEquals(List.of(), index.at(day(30)));
+        index.remove(inverted);
+        assertEquals(List.of(), index.at(day(5)));
+    }
+
+    @Test
+    void matchesBruteForceWithRemovals() {
+        Random random = new Random(11);
+        IntervalIndex index = new IntervalIndex();
+        List<Worker> workers = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id++) {
+            int start = random.nextInt(1000);
+            Integer end = random.nextInt(8) == 0 ? null : start - 20 + random.nextInt(200);
+            Worker worker = worker(id, start, end);
+            workers.add(worker);
+            index.add(worker);
+        }
+        for (int i = 0; i < 500; i++) {
+            Worker removed = workers.remove(random.nextInt(workers.size()));
+            index.remove(removed);
+        }
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(1100) - 50;
+            int to = from + random.nextInt(i % 2 == 0 ? 1 : 100);
+            assertEquals(expected(workers, day(from), day(to)), index.overlapping(day(from), day(to)), "[" + from + ", " + to + "]");
+        }
+        index.clear();
+        assertTrue(index.at(day(500)).isEmpty());
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.server.index;
+
+import org.example.common.model.Coordinates;
+import org.example.common.model.Organization;
+import org.example.common.model.OrganizationType;
+import org.example.common.model.Position;
+import org.example.common.model.Worker;
+import org.example.common.query.WorkerField;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKSelectorTest {
+
+    private static List<Worker> randomWorkers(int count, long seed) {
+        Random random = new Random(seed);
+        List<Worker> workers = new ArrayList<>(count);
+        for (long id = 1; id <= count; id++) {
+            // Небольшие диапазоны значений дают много равных, а часть работников без значений.
+            Long salary = random.nextInt(10) == 0 ? null : 1L + random.nextInt(500);
+            Integer turnover = random.nextInt(10) == 0 ? null : 1 + random.nextInt(300);
+            workers.add(new Worker(id, "w" + id, new Coordinates((float) random.nextInt(100), 0.0), LocalDate.of(2024, 1, 1),
+                    salary, LocalDateTime.of(2024, 1, 1, 0, 0), null, Position.values()[random.nextInt(Position.values().length)],
+                    new Organization(turnover, OrganizationType.PUBLIC)));
+        }
+        return workers;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Worker> expectedTopK(List<Worker> workers, WorkerField field, int k) {
+        return workers.stream()
+                .filter(worker -> field.extract(worker) != null)
+                .sorted(((Comparator<Worker>) (a, b) -> ((Comparable) field.extract(b)).compareTo(field.extract(a)))
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(k)
+                .toList();
+    }
+
+    private static void assertTopKMatchesSort(int count) {
+        List<Worker> workers = randomWorkers(count, count);
+        WorkerIndexes indexes = new WorkerIndexes();
+        workers.forEach(indexes::add);
+        TopKSelector selector = new TopKSelector(indexes);
+        for (WorkerField field : List.of(WorkerField.ID, WorkerField.SALARY, WorkerField.ANNUAL_TURNOVER, WorkerField.X,
+                WorkerField.POSITION, WorkerField.NAME)) {
+            for (int k : new int[]{1, 7, 100, count + 5}) {
+                assertEquals(expectedTopK(workers, field, k), selector.topK(field, k, workers), field + ", k=" + k);
+            }
+        }
+    }
+
+    @Test
+    void matchesFullSortOnSmallCollection() {
+        assertTopKMatchesSort(500);
+    }
+
+    @Test
+    void matchesFullSortOnParallelScan() {
+        assertTopKMatchesSort(QueryExecutor.PARALLEL_SCAN_THRESHOLD + 1_000);
+    }
+
+    @Test
+    void indexFollowsRemovals() {
+        List<Worker> workers = randomWorkers(200, 3);
+        WorkerIndexes indexes = new WorkerIndexes();
+        workers.forEach(indexes::add);
+        List<Worker> remaining = new ArrayList<>(workers);
+        for (Worker top : new TopKSelector(indexes).topK(WorkerField.SALARY, 10, workers)) {
+            indexes.remove(top);
+            remaining.remove(top);
+        }
+        assertEquals(expectedTopK(remaining, WorkerField.SALARY, 10), new TopKSelector(indexes).topK(WorkerField.SALARY, 10, remaining));
+    }
+
+    @Test
+    void rejectsNonPositiveK() {
+        TopKSelector selector = new TopKSelector(new WorkerIndexes());
+        assertThrows(IllegalArgumentException.class, () -> selector.topK(WorkerField.SALARY, 0, List.of()));
+        assertTrue(selector.topK(WorkerField.X, 3, List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+    private static final double[] QUANTILES = {0, 0.1, 0.5, 0.9, 0.99, 1};
+
+    private static void assertWithinAccuracy(long[] sorted, QuantileSketch sketch) {
+        for (double q : QUANTILES) {
+            long exact = sorted[(int) Math.floor(q * (sorted.length - 1))];
+            long estimate = sketch.quantile(q);
+            assertTrue(Math.abs(estimate - exact) <= exact * sketch.getRelativeAccuracy() + 1,
+                    "q=" + q + ": " + estimate + " vs exact " + exact);
+        }
+    }
+
+    @Test
+    void quantilesStayWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        long[] values = new long[20_000];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            // Логнормальное распределение, как у зарплат: от сотен до миллионов.
+            values[i] = Math.max(1, Math.round(Math.exp(10 + 1.5 * random.nextGaussian())));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(values.length, sketch.getCount());
+        assertWithinAccuracy(values, sketch);
+    }
+
+    @Test
+    void removeUndoesAdd() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value = 1000; value <= 100_000; value += 1000) {
+            sketch.add(value);
+        }
+        sketch.add(5_000_000);
+        sketch.remove(5_000_000);
+        long[] expected = new long[100];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (i + 1) * 1000L;
+        }
+        assertEquals(100, sketch.getCount());
+        assertWithinAccuracy(expected, sketch);
+    }
+
+    @Test
+    void removingAbsentValueIsIgnored() {
+        QuantileSketch sketch = new QuantileSketch();
+        sketch.add(100);
+        sketch.remove(1_000_000);
+        sketch.remove(1_000_000_000_000L);
+        assertEquals(1, sketch.getCount());
+        sketch.remove(100);
+        sketch.remove(100);
+        assertEquals(0, sketch.getCount());
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void mergeEqualsAddingAll() {
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        QuantileSketch all = new QuantileSketch();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            long value = 1 + random.nextInt(1_000_000);
+            (i % 2 == 0 ? left : right).add(value);
+            all.add(value);
+        }
+        left.merge(right);
+        assertEquals(all.getCount(), left.getCount());
+        for (double q : QUANTILES) {
+            assertEquals(all.quantile(q), left.quantile(q));
+        }
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new QuantileSketch(0.05)));
+    }
+
+    @Test
+    void histogramCoversAllValues() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (long value = 100; value <= 10_000; value += 100) {
+            sketch.add(value);
+        }
+        List<long[]> histogram = sketch.histogram(10);
+        assertFalse(histogram.isEmpty());
+        assertTrue(histogram.size() <= 10);
+        long total = 0;
+        long previousTo = Long.MIN_VALUE;
+        for (long[] bucket : histogram) {
+            assertTrue(bucket[0] <= bucket[1]);
+            assertTrue(bucket[0] > previousTo);
+            previousTo = bucket[1];
+            total += bucket[2];
+        }
+        assertEquals(sketch.getCount(), total);
+        assertTrue(new QuantileSketch().histogram(10).isEmpty());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        QuantileSketch sketch = new QuantileSketch();
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(0));
+        assertThrows(IllegalArgumentException.class, () -> sketch.add(-5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.quantile(1.5));
+        assertThrows(IllegalArgumentException.class, () -> sketch.histogram(0));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(0));
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(1));
+    }
+}